@@ -0,0 +1,128 @@
+package edu.hm.dako.auditLogServer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Kleiner Verwaltungs-Port des AuditLog-Servers fuer Abfragen der laufenden Kennzahlen
+ * ({@link AuditLogIngestStatistics}), z. B. fuer Dashboards oder mit {@code nc localhost 40002}.
+ * <p>
+ * Der Port ist nur ueber die Loopback-Adresse erreichbar und zeilenorientiert; jede Antwort endet mit einer Zeile,
+ * die nur einen Punkt enthaelt. Kommandos:
+ * <ul>
+ *     <li>{@code summary}: Gesamtwerte seit dem Start</li>
+ *     <li>{@code minutes [n]}: Werte der letzten n Minuten</li>
+ *     <li>{@code users [n] [m]}: die n Clients mit den meisten Chat-Nachrichten in den letzten m Minuten</li>
+ *     <li>{@code sizes [m]}: Nachrichtenlaengen in den letzten m Minuten</li>
+ *     <li>{@code quit}: Verbindung beenden</li>
+ * </ul>
+ * Verbindungen werden nacheinander von einem Daemon-Thread bedient. Zwischen den Verbindungen schaltet er das
+ * Zeitfenster der Kennzahlen weiter, damit abgeschlossene Minuten auch ohne neue Saetze zusammengefasst werden.
+ */
+class AuditLogAdminServer implements Runnable {
+
+    // System-Property fuer den Port, 0 = kein Verwaltungs-Port
+    public static final String PORT_PROPERTY = "dako.auditLog.adminPort";
+    public static final int DEFAULT_PORT = 40002;
+
+    // Wartezeit einer Verbindung auf ein Kommando und Takt zum Weiterschalten der Kennzahlen in ms
+    static final int TIMEOUT = 10000;
+
+    private static final Logger log = LogManager.getLogger(AuditLogAdminServer.class);
+
+    private final ServerSocket serverSocket;
+    private final AuditLogIngestStatistics statistics;
+
+    private AuditLogAdminServer(ServerSocket serverSocket, AuditLogIngestStatistics statistics) {
+        this.serverSocket = serverSocket;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Verwaltungs-Port auf dem ueber System-Properties eingestellten Port starten. Kann der Port nicht belegt
+     * werden, arbeitet der AuditLog-Server ohne ihn weiter.
+     *
+     * @param statistics Kennzahlen, die abgefragt werden
+     */
+    static void start(AuditLogIngestStatistics statistics) {
+        int port = Integer.getInteger(PORT_PROPERTY, DEFAULT_PORT);
+        if (port <= 0) {
+            return;
+        }
+        try {
+            ServerSocket serverSocket = new ServerSocket(port, 4, InetAddress.getLoopbackAddress());
+            serverSocket.setSoTimeout(TIMEOUT);
+            Thread thread = new Thread(new AuditLogAdminServer(serverSocket, statistics), "AuditLogAdmin");
+            thread.setDaemon(true);
+            thread.start();
+            System.out.println("AuditLog-Verwaltungsport gestartet, Port: " + port);
+            log.info("AuditLog-Verwaltungsport gestartet, Port: " + port);
+        } catch (IOException e) {
+            log.error("AuditLog-Verwaltungsport " + port + " konnte nicht belegt werden: " + e);
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            statistics.tick();
+            try (Socket socket = serverSocket.accept()) {
+                socket.setSoTimeout(TIMEOUT);
+                serve(socket);
+            } catch (SocketTimeoutException ignored) {
+                // Nur Kennzahlen weiterschalten
+            } catch (IOException e) {
+                log.debug("Verbindung zum Verwaltungsport abgebrochen: " + e);
+            }
+        }
+    }
+
+    /**
+     * Kommandos einer Verbindung bearbeiten
+     */
+    private void serve(Socket socket) throws IOException {
+        BufferedReader in = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = in.readLine()) != null) {
+            String[] words = line.trim().split("\\s+");
+            statistics.tick();
+            try {
+                switch (words[0].toLowerCase()) {
+                    case "summary" -> out.print(statistics.formatTotals());
+                    case "minutes" -> out.print(statistics.formatMinutes(argument(words, 1, 10)));
+                    case "users" -> out.print(statistics.formatTopUsers(argument(words, 1, 10),
+                            argument(words, 2, statistics.getMinutes())));
+                    case "sizes" -> out.print(statistics.formatSizes(argument(words, 1, statistics.getMinutes())));
+                    case "quit" -> {
+                        return;
+                    }
+                    case "" -> {
+                    }
+                    default -> out.println("Unbekanntes Kommando, moeglich: summary, minutes [n], users [n] [m], "
+                            + "sizes [m], quit");
+                }
+            } catch (NumberFormatException e) {
+                out.println("Ungueltige Zahl: " + e.getMessage());
+            }
+            out.println(".");
+            out.flush();
+        }
+    }
+
+    private static int argument(String[] words, int index, int defaultValue) {
+        return words.length > index ? Math.max(1, Integer.parseInt(words[index])) : defaultValue;
+    }
+}
@@ -0,0 +1,334 @@
+package edu.hm.dako.auditLogServer;
+
+import edu.hm.dako.common.ExceptionHandler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parallele Auswertung einer AuditLog-Textdatei: Anzahl der Saetze je Client, Durchsatz je Minute und Histogramm
+ * der Nachrichtengroessen.
+ * <p>
+ * Die Datei wird in Abschnitte zerlegt, deren Grenzen jeweils auf einen Zeilenanfang verschoben werden. Jeder
+ * Abschnitt wird von einer Task eines {@link ForkJoinPool} eingeblendet und byteweise zerlegt, ohne die Zeilen in
+ * Strings umzuwandeln. Die Teilergebnisse werden beim Zusammenfuehren der Tasks addiert; ausser der Datei teilen
+ * sich die Tasks nichts.
+ * <p>
+ * Aufruf: {@code AuditLogAnalytics <AuditLog-Datei> [<Parallelitaet> [<Abschnittsgroesse in Bytes>]]}
+ */
+public class AuditLogAnalytics {
+
+    // Grenzen der Abschnittsgroesse; je Worker-Thread werden mindestens CHUNKS_PER_THREAD Abschnitte gebildet
+    static final long MIN_CHUNK_SIZE = 1L << 20;
+    static final long MAX_CHUNK_SIZE = 64L << 20;
+    static final int CHUNKS_PER_THREAD = 4;
+
+    // Maximale Anzahl ausgegebener Clients
+    static final int MAX_USERS = 50;
+
+    // Groesse des Lesepuffers bei der Suche nach Zeilenanfaengen
+    private static final int SCAN_BUFFER_SIZE = 4096;
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Aufruf: AuditLogAnalytics <AuditLog-Datei> [<Parallelitaet> [<Abschnittsgroesse>]]");
+            System.exit(1);
+        }
+        File file = new File(args[0]);
+        int parallelism = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long chunkSize = args.length > 2 ? Long.parseLong(args[2]) : Math.max(MIN_CHUNK_SIZE,
+                Math.min(MAX_CHUNK_SIZE, file.length() / ((long) parallelism * CHUNKS_PER_THREAD)));
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            long start = System.nanoTime();
+            AuditLogAnalyticsResult result = analyze(file, pool, chunkSize);
+            long duration = System.nanoTime() - start;
+            result.print(MAX_USERS);
+            System.out.println();
+            System.out.printf("%d Bytes in %d ms ausgewertet (%.1f MB/s), Parallelitaet: %d, Abschnittsgroesse: %d%n",
+                    file.length(), duration / 1_000_000, file.length() / 1e6 / (duration / 1e9), parallelism,
+                    chunkSize);
+        } catch (IOException | UncheckedIOException e) {
+            ExceptionHandler.logException(e);
+            System.exit(1);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * AuditLog-Datei auswerten
+     *
+     * @param file AuditLog-Datei
+     * @param pool Pool fuer die Tasks
+     * @param chunkSize Ungefaehre Groesse eines Abschnitts in Bytes
+     * @return Gesamtergebnis
+     * @throws IOException Fehler beim Lesen
+     */
+    static AuditLogAnalyticsResult analyze(File file, ForkJoinPool pool, long chunkSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long[] bounds = split(channel, Math.max(1, Math.min(Integer.MAX_VALUE, chunkSize)));
+            return pool.invoke(new ChunkTask(channel, bounds, 0, bounds.length - 1));
+        }
+    }
+
+    /**
+     * Datei in Abschnitte zerlegen, die jeweils an einem Zeilenanfang beginnen
+     *
+     * @return Abschnittsgrenzen, Abschnitt i reicht von bounds[i] bis bounds[i + 1]
+     */
+    static long[] split(FileChannel channel, long chunkSize) throws IOException {
+        long size = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long position = chunkSize;
+        while (position < size) {
+            long lineStart = nextLineStart(channel, buffer, position, size);
+            if (lineStart >= size) {
+                break;
+            }
+            bounds.add(lineStart);
+            position = lineStart + chunkSize;
+        }
+        bounds.add(size);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * @return Erster Zeilenanfang ab der Position (einschliesslich)
+     */
+    private static long nextLineStart(FileChannel channel, ByteBuffer buffer, long position, long size)
+            throws IOException {
+        // Das Byte vor der Position entscheidet, ob die Position selbst schon ein Zeilenanfang ist
+        long scan = position - 1;
+        while (scan < size) {
+            buffer.clear();
+            int read = channel.read(buffer, scan);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return scan + i + 1;
+                }
+            }
+            scan += read;
+        }
+        return size;
+    }
+
+    /**
+     * Wertet die Abschnitte lo bis hi - 1 aus; mehrere Abschnitte werden rekursiv halbiert
+     */
+    static final class ChunkTask extends RecursiveTask<AuditLogAnalyticsResult> {
+
+        private static final long serialVersionUID = 4183906236527318413L;
+
+        private final FileChannel channel;
+        private final long[] bounds;
+        private final int lo;
+        private final int hi;
+
+        ChunkTask(FileChannel channel, long[] bounds, int lo, int hi) {
+            this.channel = channel;
+            this.bounds = bounds;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected AuditLogAnalyticsResult compute() {
+            if (hi - lo <= 1) {
+                AuditLogAnalyticsResult result = new AuditLogAnalyticsResult();
+                if (hi > lo) {
+                    scanChunk(bounds[lo], bounds[hi], result);
+                }
+                return result;
+            }
+            int mid = (lo + hi) >>> 1;
+            ChunkTask left = new ChunkTask(channel, bounds, lo, mid);
+            left.fork();
+            AuditLogAnalyticsResult right = new ChunkTask(channel, bounds, mid, hi).compute();
+            return left.join().merge(right);
+        }
+
+        private void scanChunk(long start, long end, AuditLogAnalyticsResult result) {
+            MappedByteBuffer buffer;
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            LineParser parser = new LineParser(buffer, result);
+            int limit = buffer.limit();
+            int lineStart = 0;
+            for (int i = 0; i < limit; i++) {
+                if (buffer.get(i) == '\n') {
+                    parser.parse(lineStart, i);
+                    lineStart = i + 1;
+                }
+            }
+            if (lineStart < limit) {
+                parser.parse(lineStart, limit);
+            }
+        }
+    }
+
+    /**
+     * Zerlegt Zeilen der Form
+     * {@code Nummer | Zeitstempel | Typ | Client | Client-Thread | Worker-Thread [| Nachricht]}
+     * direkt im eingeblendeten Puffer. Nicht thread-sicher, jede Task hat ihren eigenen Parser.
+     */
+    static final class LineParser {
+
+        // Trennfolgen " | " einer Chat-Zeile
+        private static final int FIELDS = 6;
+
+        private final ByteBuffer buffer;
+        private final AuditLogAnalyticsResult result;
+        private final int[] separators = new int[FIELDS];
+        private final Charset charset = Charset.defaultCharset();
+        private final SimpleDateFormat dateFormat = new SimpleDateFormat("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US);
+
+        // Zuletzt gelesener Zeitstempel, aufeinanderfolgende Saetze haben meist denselben
+        private byte[] cachedDate = new byte[0];
+        private long cachedMinute = -1;
+
+        LineParser(ByteBuffer buffer, AuditLogAnalyticsResult result) {
+            this.buffer = buffer;
+            this.result = result;
+        }
+
+        /**
+         * Eine Zeile auswerten
+         *
+         * @param start Anfang der Zeile im Puffer
+         * @param end Ende der Zeile (Position des Zeilenendes)
+         */
+        void parse(int start, int end) {
+            if (end > start && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+            if (end == start) {
+                return;
+            }
+            int found = findSeparators(start, end);
+            if (found < FIELDS - 1 || !isSequenceNumber(start, separators[0])) {
+                // Anfangs- und Ende-Saetze sowie Fortsetzungszeilen
+                result.addIgnoredLine();
+                return;
+            }
+            int typeStart = separators[1] + 3;
+            int counter;
+            byte first = buffer.get(typeStart);
+            if (first == 'C' && found == FIELDS) {
+                counter = AuditLogAnalyticsResult.CHAT;
+            } else if (first == 'L' && separators[2] - typeStart > 3) {
+                counter = buffer.get(typeStart + 3) == 'i' ? AuditLogAnalyticsResult.LOGIN
+                        : AuditLogAnalyticsResult.LOGOUT;
+            } else {
+                result.addIgnoredLine();
+                return;
+            }
+            long minute = parseMinute(separators[0] + 3, separators[1]);
+            if (minute < 0) {
+                result.addIgnoredLine();
+                return;
+            }
+            String userName = string(separators[2] + 3, separators[3]);
+            int messageSize = counter == AuditLogAnalyticsResult.CHAT ? charLength(separators[FIELDS - 1] + 3, end) : 0;
+            result.add(userName, minute, counter, messageSize);
+        }
+
+        /**
+         * Positionen der Trennfolgen " | " suchen, bei Chat-Zeilen wird die Nachricht nicht mehr durchsucht
+         *
+         * @return Anzahl gefundener Trennfolgen
+         */
+        private int findSeparators(int start, int end) {
+            int found = 0;
+            for (int i = start + 1; i + 1 < end && found < FIELDS; i++) {
+                if (buffer.get(i) == '|' && buffer.get(i - 1) == ' ' && buffer.get(i + 1) == ' ') {
+                    separators[found++] = i - 1;
+                    i++;
+                }
+            }
+            return found;
+        }
+
+        private boolean isSequenceNumber(int start, int end) {
+            boolean digit = false;
+            for (int i = start; i < end; i++) {
+                byte b = buffer.get(i);
+                if (b >= '0' && b <= '9') {
+                    digit = true;
+                } else if (b != ' ') {
+                    return false;
+                }
+            }
+            return digit;
+        }
+
+        /**
+         * @return Minute des Zeitstempels (ms / 60000) oder -1, wenn er nicht lesbar ist
+         */
+        private long parseMinute(int start, int end) {
+            int length = end - start;
+            if (length == cachedDate.length) {
+                boolean same = true;
+                for (int i = 0; i < length && same; i++) {
+                    same = buffer.get(start + i) == cachedDate[i];
+                }
+                if (same) {
+                    return cachedMinute;
+                }
+            }
+            byte[] date = new byte[length];
+            buffer.get(start, date);
+            try {
+                cachedMinute = dateFormat.parse(new String(date, StandardCharsets.US_ASCII)).getTime() / 60_000;
+                cachedDate = date;
+                return cachedMinute;
+            } catch (ParseException e) {
+                return -1;
+            }
+        }
+
+        /**
+         * Laenge eines Feldes in Zeichen wie {@link String#length()}, damit die Groessenklassen mit denen der
+         * {@link AuditLogIngestStatistics} uebereinstimmen. Reine ASCII-Felder werden nicht dekodiert.
+         *
+         * @return Anzahl der Zeichen
+         */
+        private int charLength(int start, int end) {
+            for (int i = start; i < end; i++) {
+                if (buffer.get(i) < 0) {
+                    return string(start, end).length();
+                }
+            }
+            return end - start;
+        }
+
+        private String string(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            buffer.get(start, bytes);
+            return new String(bytes, charset);
+        }
+    }
+}
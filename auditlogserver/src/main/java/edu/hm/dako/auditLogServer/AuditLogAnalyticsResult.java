@@ -0,0 +1,140 @@
+package edu.hm.dako.auditLogServer;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Teilergebnis bzw. Gesamtergebnis der AuditLog-Auswertung (siehe {@link AuditLogAnalytics}): Anzahl der Saetze je
+ * Client, Durchsatz je Minute und ein Histogramm der Nachrichtengroessen. Teilergebnisse einzelner Abschnitte werden
+ * mit {@link #merge(AuditLogAnalyticsResult)} zusammengefuehrt. Die Klasse ist nicht thread-sicher, jeder Abschnitt
+ * hat sein eigenes Teilergebnis.
+ */
+class AuditLogAnalyticsResult {
+
+    // Indizes in den Zaehlerfeldern je Client und je Minute
+    static final int LOGIN = 0;
+    static final int LOGOUT = 1;
+    static final int CHAT = 2;
+    static final int COUNTERS = 3;
+
+    // Klassen des Histogramms: Klasse i umfasst Nachrichten mit 2^(i-1) .. 2^i - 1 Zeichen (Java-chars wie
+    // String.length()), Klasse 0 leere Nachrichten; dieselben Klassen verwendet AuditLogIngestStatistics
+    static final int SIZE_CLASSES = 32;
+
+    private final Map<String, long[]> countsPerUser = new HashMap<>();
+    private final Map<Long, long[]> countsPerMinute = new HashMap<>();
+    private final long[] sizeHistogram = new long[SIZE_CLASSES];
+    private final long[] totals = new long[COUNTERS];
+    private long messageChars = 0;
+    private long ignoredLines = 0;
+
+    /**
+     * Einen Satz zaehlen
+     *
+     * @param userName Name des Clients
+     * @param minute Minute des Zeitstempels (ms / 60000)
+     * @param counter LOGIN, LOGOUT oder CHAT
+     * @param messageSize Laenge der Nachricht in Zeichen, nur bei CHAT
+     */
+    void add(String userName, long minute, int counter, int messageSize) {
+        countsPerUser.computeIfAbsent(userName, k -> new long[COUNTERS])[counter]++;
+        countsPerMinute.computeIfAbsent(minute, k -> new long[COUNTERS])[counter]++;
+        totals[counter]++;
+        if (counter == CHAT) {
+            sizeHistogram[sizeClass(messageSize)]++;
+            messageChars += messageSize;
+        }
+    }
+
+    void addIgnoredLine() {
+        ignoredLines++;
+    }
+
+    static int sizeClass(int size) {
+        return Math.min(SIZE_CLASSES - 1, 32 - Integer.numberOfLeadingZeros(size));
+    }
+
+    /**
+     * Teilergebnis eines anderen Abschnitts hinzufuegen
+     *
+     * @param other Teilergebnis
+     * @return dieses Ergebnis
+     */
+    AuditLogAnalyticsResult merge(AuditLogAnalyticsResult other) {
+        other.countsPerUser.forEach((user, counts) ->
+                add(countsPerUser.computeIfAbsent(user, k -> new long[COUNTERS]), counts));
+        other.countsPerMinute.forEach((minute, counts) ->
+                add(countsPerMinute.computeIfAbsent(minute, k -> new long[COUNTERS]), counts));
+        add(sizeHistogram, other.sizeHistogram);
+        add(totals, other.totals);
+        messageChars += other.messageChars;
+        ignoredLines += other.ignoredLines;
+        return this;
+    }
+
+    private static void add(long[] target, long[] source) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] += source[i];
+        }
+    }
+
+    long getTotal(int counter) {
+        return totals[counter];
+    }
+
+    long getNumberOfRecords() {
+        return totals[LOGIN] + totals[LOGOUT] + totals[CHAT];
+    }
+
+    long getIgnoredLines() {
+        return ignoredLines;
+    }
+
+    /**
+     * Ergebnis ausgeben
+     *
+     * @param maxUsers Maximale Anzahl ausgegebener Clients (nach Anzahl der Chat-Nachrichten)
+     */
+    void print(int maxUsers) {
+        System.out.println("Saetze: " + getNumberOfRecords() + " (Login: " + totals[LOGIN] + ", Logout: "
+                + totals[LOGOUT] + ", Chat: " + totals[CHAT] + "), uebergangene Zeilen: " + ignoredLines);
+
+        List<Map.Entry<String, long[]>> users = new ArrayList<>(countsPerUser.entrySet());
+        users.sort((a, b) -> Long.compare(b.getValue()[CHAT], a.getValue()[CHAT]));
+        System.out.println();
+        System.out.println("Nachrichten je Client (" + users.size() + " Clients):");
+        for (int i = 0; i < Math.min(maxUsers, users.size()); i++) {
+            long[] counts = users.get(i).getValue();
+            System.out.printf("%10d Chat, %4d Login, %4d Logout  %s%n", counts[CHAT], counts[LOGIN], counts[LOGOUT],
+                    users.get(i).getKey());
+        }
+        if (users.size() > maxUsers) {
+            System.out.println("  ... " + (users.size() - maxUsers) + " weitere Clients");
+        }
+
+        SimpleDateFormat minuteFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        System.out.println();
+        System.out.println("Durchsatz je Minute:");
+        new TreeMap<>(countsPerMinute).forEach((minute, counts) -> {
+            long records = counts[LOGIN] + counts[LOGOUT] + counts[CHAT];
+            System.out.printf("  %s  %10d Saetze/min, %10d Chat/min, %8.1f Saetze/s%n",
+                    minuteFormat.format(new Date(minute * 60_000)), records, counts[CHAT], records / 60.0);
+        });
+
+        System.out.println();
+        System.out.printf("Nachrichtengroessen (Zeichen, Mittelwert %.1f):%n",
+                totals[CHAT] == 0 ? 0.0 : (double) messageChars / totals[CHAT]);
+        for (int i = 0; i < SIZE_CLASSES; i++) {
+            if (sizeHistogram[i] > 0) {
+                long from = i == 0 ? 0 : 1L << (i - 1);
+                long to = i == 0 ? 0 : (1L << i) - 1;
+                System.out.printf("  %8d - %8d: %10d%n", from, to, sizeHistogram[i]);
+            }
+        }
+    }
+}
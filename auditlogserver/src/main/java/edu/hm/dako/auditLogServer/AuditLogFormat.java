@@ -0,0 +1,11 @@
+package edu.hm.dako.auditLogServer;
+
+/**
+ * Speicherformat des AuditLogs
+ */
+public enum AuditLogFormat {
+    // Lesbare Textdatei, ein Satz je Zeile
+    TEXT,
+    // Binaere Segmente mit eingeblendetem Anhaengen, Export als Text mit dem AuditLogSegmentExporter
+    SEGMENTED,
+}
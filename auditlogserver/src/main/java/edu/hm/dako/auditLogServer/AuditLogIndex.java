@@ -0,0 +1,187 @@
+package edu.hm.dako.auditLogServer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index ueber ein AuditLog, bestehend aus
+ * <ul>
+ * <li>einem duennen Zeitindex: je Block von bis zu {@link AuditLogIndexBuilder#BLOCK_RECORDS} Saetzen Position,
+ * kleinster und groesster Zeitstempel sowie die enthaltenen PDU-Typen,</li>
+ * <li>Postinglisten je Client: die Nummern der Bloecke, in denen Saetze des Clients stehen.</li>
+ * </ul>
+ * Die Bloecke liegen in der Reihenfolge ihrer Position vor. Da die Zeitstempel mehrerer Chat-Server nicht streng
+ * aufsteigend geschrieben werden, wird fuer die Zeitsuche das laufende Maximum der groessten und das Minimum der
+ * kleinsten Zeitstempel ab dem Ende gehalten; beide sind monoton und erlauben eine binaere Suche.
+ */
+class AuditLogIndex {
+
+    private static final Logger log = LogManager.getLogger(AuditLogIndex.class);
+
+    private final List<AuditLogIndexBlock> blocks;
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    // maxTimeUpTo[i] = groesster Zeitstempel der Bloecke 0..i, minTimeFrom[i] = kleinster der Bloecke i..n-1
+    private final long[] maxTimeUpTo;
+    private final long[] minTimeFrom;
+
+    /**
+     * Nummern der Bloecke eines Clients in aufsteigender Reihenfolge
+     */
+    private static final class Postings {
+        int[] blocks = new int[8];
+        int size = 0;
+
+        void add(int block) {
+            if (size > 0 && blocks[size - 1] == block) {
+                return;
+            }
+            if (size == blocks.length) {
+                blocks = Arrays.copyOf(blocks, size * 2);
+            }
+            blocks[size++] = block;
+        }
+    }
+
+    AuditLogIndex(List<AuditLogIndexBlock> blocks) {
+        this.blocks = blocks;
+        int n = blocks.size();
+        maxTimeUpTo = new long[n];
+        minTimeFrom = new long[n];
+        for (int i = 0; i < n; i++) {
+            AuditLogIndexBlock block = blocks.get(i);
+            maxTimeUpTo[i] = i == 0 ? block.maxTime : Math.max(maxTimeUpTo[i - 1], block.maxTime);
+            for (String userName : block.userNames) {
+                postings.computeIfAbsent(userName, k -> new Postings()).add(i);
+            }
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            long minTime = blocks.get(i).minTime;
+            minTimeFrom[i] = i == n - 1 ? minTime : Math.min(minTimeFrom[i + 1], minTime);
+        }
+    }
+
+    /**
+     * Index aus einer Indexdatei laden. Ein unvollstaendiger letzter Eintrag (z. B. nach einem Absturz) wird
+     * ignoriert.
+     *
+     * @param indexFile Indexdatei
+     * @return Index, leer, wenn die Datei nicht existiert
+     * @throws IOException Fehler beim Lesen
+     */
+    static AuditLogIndex load(File indexFile) throws IOException {
+        List<AuditLogIndexBlock> blocks = new ArrayList<>();
+        if (!indexFile.exists()) {
+            return new AuditLogIndex(blocks);
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            while (true) {
+                blocks.add(AuditLogIndexBlock.readFrom(in));
+            }
+        } catch (EOFException e) {
+            log.debug(blocks.size() + " Bloecke aus Indexdatei " + indexFile + " gelesen");
+        }
+        return new AuditLogIndex(blocks);
+    }
+
+    int size() {
+        return blocks.size();
+    }
+
+    AuditLogIndexBlock getBlock(int i) {
+        return blocks.get(i);
+    }
+
+    /**
+     * @return Letzter Block oder null bei leerem Index
+     */
+    AuditLogIndexBlock getLastBlock() {
+        return blocks.isEmpty() ? null : blocks.get(blocks.size() - 1);
+    }
+
+    /**
+     * Bloecke ermitteln, die Treffer fuer eine Abfrage enthalten koennen
+     *
+     * @param query Abfrage
+     * @return Bloecke in der Reihenfolge ihrer Position
+     */
+    List<AuditLogIndexBlock> findBlocks(AuditLogQuery query) {
+        List<AuditLogIndexBlock> result = new ArrayList<>();
+        int first = firstBlockEndingAtOrAfter(query.getFromTime());
+        int last = lastBlockStartingAtOrBefore(query.getToTime());
+        if (query.getUserName() != null) {
+            Postings userPostings = postings.get(query.getUserName());
+            if (userPostings == null) {
+                return result;
+            }
+            int start = Arrays.binarySearch(userPostings.blocks, 0, userPostings.size, first);
+            for (int i = start >= 0 ? start : -start - 1; i < userPostings.size; i++) {
+                int block = userPostings.blocks[i];
+                if (block > last) {
+                    break;
+                }
+                addIfMatching(result, block, query);
+            }
+        } else {
+            for (int block = first; block <= last; block++) {
+                addIfMatching(result, block, query);
+            }
+        }
+        return result;
+    }
+
+    private void addIfMatching(List<AuditLogIndexBlock> result, int block, AuditLogQuery query) {
+        AuditLogIndexBlock candidate = blocks.get(block);
+        if (query.mayMatch(candidate)) {
+            result.add(candidate);
+        }
+    }
+
+    /**
+     * @param from Zeitstempel in ms
+     * @return Erster Block, ab dem Zeitstempel &gt;= from vorkommen koennen
+     */
+    private int firstBlockEndingAtOrAfter(long from) {
+        int low = 0;
+        int high = maxTimeUpTo.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (maxTimeUpTo[mid] < from) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param to Zeitstempel in ms
+     * @return Letzter Block, bis zu dem Zeitstempel &lt;= to vorkommen koennen
+     */
+    private int lastBlockStartingAtOrBefore(long to) {
+        int low = -1;
+        int high = minTimeFrom.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >> 1;
+            if (minTimeFrom[mid] > to) {
+                high = mid - 1;
+            } else {
+                low = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,98 @@
+package edu.hm.dako.auditLogServer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Eintrag des AuditLog-Index: ein zusammenhaengender Bytebereich des AuditLogs mit bis zu
+ * {@link AuditLogIndexBuilder#BLOCK_RECORDS} Saetzen. Fuer den Bereich werden kleinster und groesster Zeitstempel,
+ * die enthaltenen PDU-Typen (als Bitmaske ueber die Ids von AuditLogPduType) und die Namen der Clients
+ * festgehalten.
+ * <p>
+ * Bei der Textdatei ist {@code segment} immer 0, bei binaeren Segmenten die Segmentnummer. Die Positionen beziehen
+ * sich auf die Datei bzw. das Segment.
+ */
+class AuditLogIndexBlock {
+
+    final long segment;
+    final long startOffset;
+    final long endOffset;
+    final long minTime;
+    final long maxTime;
+    final int recordCount;
+    final int typeMask;
+    final String[] userNames;
+
+    AuditLogIndexBlock(long segment, long startOffset, long endOffset, long minTime, long maxTime, int recordCount,
+                       int typeMask, String[] userNames) {
+        this.segment = segment;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+        this.minTime = minTime;
+        this.maxTime = maxTime;
+        this.recordCount = recordCount;
+        this.typeMask = typeMask;
+        this.userNames = userNames;
+    }
+
+    /**
+     * @param from Kleinster gesuchter Zeitstempel in ms
+     * @param to Groesster gesuchter Zeitstempel in ms
+     * @return true, wenn sich der Zeitbereich des Blocks mit dem gesuchten ueberschneidet
+     */
+    boolean overlaps(long from, long to) {
+        return maxTime >= from && minTime <= to;
+    }
+
+    /**
+     * @param typeId Id eines AuditLogPduType
+     * @return true, wenn der Block Saetze dieses Typs enthaelt
+     */
+    boolean containsType(int typeId) {
+        return (typeMask & (1 << typeId)) != 0;
+    }
+
+    /**
+     * Block in die Indexdatei schreiben
+     *
+     * @param out Ausgabe
+     * @throws IOException Fehler beim Schreiben
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(segment);
+        out.writeLong(startOffset);
+        out.writeLong(endOffset);
+        out.writeLong(minTime);
+        out.writeLong(maxTime);
+        out.writeInt(recordCount);
+        out.writeInt(typeMask);
+        out.writeInt(userNames.length);
+        for (String userName : userNames) {
+            out.writeUTF(userName);
+        }
+    }
+
+    /**
+     * Block aus der Indexdatei lesen
+     *
+     * @param in Eingabe
+     * @return Block
+     * @throws IOException Fehler beim Lesen, EOFException bei einem unvollstaendigen Eintrag
+     */
+    static AuditLogIndexBlock readFrom(DataInput in) throws IOException {
+        long segment = in.readLong();
+        long startOffset = in.readLong();
+        long endOffset = in.readLong();
+        long minTime = in.readLong();
+        long maxTime = in.readLong();
+        int recordCount = in.readInt();
+        int typeMask = in.readInt();
+        String[] userNames = new String[in.readInt()];
+        for (int i = 0; i < userNames.length; i++) {
+            userNames[i] = in.readUTF();
+        }
+        return new AuditLogIndexBlock(segment, startOffset, endOffset, minTime, maxTime, recordCount, typeMask,
+                userNames);
+    }
+}
@@ -0,0 +1,159 @@
+package edu.hm.dako.auditLogServer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Baut beim Schreiben des AuditLogs den Index auf (siehe {@link AuditLogIndex}). Die Saetze werden in der
+ * Reihenfolge ihrer Position gemeldet und zu Bloecken von hoechstens {@value #BLOCK_RECORDS} Saetzen
+ * zusammengefasst. Jeder abgeschlossene Block wird an die Indexdatei angehaengt; Saetze eines noch offenen Blocks
+ * findet die Abfrage ueber den nicht indizierten Rest des AuditLogs.
+ * <p>
+ * Die Klasse ist nicht thread-sicher und wird nur unter der Sperre des {@link AuditLogManager} verwendet.
+ */
+class AuditLogIndexBuilder {
+
+    // Maximale Anzahl Saetze je Block
+    static final int BLOCK_RECORDS = 256;
+
+    // Dateiendung der Indexdatei
+    static final String SUFFIX = ".idx";
+
+    private static final Logger log = LogManager.getLogger(AuditLogIndexBuilder.class);
+
+    private final File indexFile;
+    private final DataOutputStream out;
+
+    // Aktueller Block
+    private int recordCount = 0;
+    private long segment;
+    private long startOffset;
+    private long endOffset;
+    private long minTime;
+    private long maxTime;
+    private int typeMask;
+    private final Set<String> userNames = new LinkedHashSet<>();
+
+    /**
+     * Konstruktor, neue Bloecke werden an eine vorhandene Indexdatei angehaengt
+     *
+     * @param indexFile Indexdatei
+     * @param reset true, wenn eine vorhandene Indexdatei verworfen werden soll (neues AuditLog)
+     * @throws IOException Fehler beim Oeffnen der Indexdatei
+     */
+    AuditLogIndexBuilder(File indexFile, boolean reset) throws IOException {
+        this.indexFile = indexFile;
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, !reset)));
+    }
+
+    /**
+     * Name der Indexdatei zu einer AuditLog-Textdatei: Dateiname ohne Endung, ergaenzt um {@value #SUFFIX}
+     *
+     * @param auditFile AuditLog-Datei
+     * @return Indexdatei
+     */
+    static File indexFileFor(File auditFile) {
+        String name = auditFile.getName();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        File parent = auditFile.getAbsoluteFile().getParentFile();
+        return new File(parent, name + SUFFIX);
+    }
+
+    /**
+     * Name der Indexdatei zu binaeren Segmenten
+     *
+     * @param directory Verzeichnis der Segmente
+     * @param baseName Basisname der Segmente
+     * @return Indexdatei
+     */
+    static File indexFileFor(File directory, String baseName) {
+        return new File(directory, baseName + SUFFIX);
+    }
+
+    /**
+     * Geschriebenen Satz melden
+     *
+     * @param segmentNumber Segmentnummer, bei der Textdatei 0
+     * @param offset Position des Satzes
+     * @param time Zeitstempel des Satzes in ms
+     * @param typeId Id des AuditLogPduType
+     * @param userName Name des Clients
+     */
+    void add(long segmentNumber, long offset, long time, int typeId, String userName) {
+        if (recordCount > 0 && (segmentNumber != segment || recordCount >= BLOCK_RECORDS)) {
+            if (segmentNumber == segment) {
+                // Block endet unmittelbar vor dem neuen Satz
+                endOffset = offset;
+            }
+            closeBlock();
+        }
+        if (recordCount == 0) {
+            segment = segmentNumber;
+            startOffset = offset;
+            endOffset = offset;
+            minTime = time;
+            maxTime = time;
+            typeMask = 0;
+            userNames.clear();
+        }
+        minTime = Math.min(minTime, time);
+        maxTime = Math.max(maxTime, time);
+        typeMask |= 1 << typeId;
+        if (userName != null) {
+            userNames.add(userName);
+        }
+        recordCount++;
+    }
+
+    /**
+     * Ende des aktuellen Blocks nach hinten verschieben, z. B. auf das Ende des zuletzt geschriebenen Satzes
+     *
+     * @param offset Position hinter dem letzten Satz des Blocks
+     */
+    void extendTo(long offset) {
+        if (recordCount > 0 && offset > endOffset) {
+            endOffset = offset;
+        }
+    }
+
+    /**
+     * Offenen Block abschliessen und Indexdatei schliessen
+     */
+    void close() {
+        closeBlock();
+        try {
+            out.close();
+        } catch (IOException e) {
+            log.error("Fehler beim Schliessen der Indexdatei " + indexFile);
+        }
+    }
+
+    /**
+     * Aktuellen Block an die Indexdatei anhaengen
+     */
+    private void closeBlock() {
+        if (recordCount == 0) {
+            return;
+        }
+        AuditLogIndexBlock block = new AuditLogIndexBlock(segment, startOffset, endOffset, minTime, maxTime,
+                recordCount, typeMask, userNames.toArray(new String[0]));
+        try {
+            block.writeTo(out);
+            out.flush();
+        } catch (IOException e) {
+            log.error("Fehler beim Schreiben der Indexdatei " + indexFile);
+        }
+        recordCount = 0;
+    }
+}
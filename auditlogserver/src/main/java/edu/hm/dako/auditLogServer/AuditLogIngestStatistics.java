@@ -0,0 +1,423 @@
+package edu.hm.dako.auditLogServer;
+
+import edu.hm.dako.common.AuditLogPDU;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Laufende Kennzahlen des AuditLog-Servers, die beim Schreiben der Saetze fortgeschrieben werden, damit Auswertungen
+ * nicht das AuditLog durchsuchen muessen: Logins, Logouts, Chat-Nachrichten und Zeichen je Minute, ein Histogramm der
+ * Nachrichtenlaengen je Minute und die Anzahl der Chat-Nachrichten je Client und Minute.
+ * <p>
+ * Die Werte liegen in Feldern primitiver Typen, die als Ring ueber die letzten {@value #DEFAULT_MINUTES} Minuten
+ * (einstellbar ueber {@value #MINUTES_PROPERTY}) organisiert sind; Minute m liegt im Eintrag m % Anzahl. Clients
+ * erhalten eine Nummer, unter der ihre Zeile im Feld der Client-Zaehler liegt; Clients ohne Nachrichten im
+ * Zeitfenster werden beim Weiterschalten entfernt und ihre Nummern wiederverwendet.
+ * <p>
+ * Jede abgeschlossene Minute wird als Zusammenfassung an die Datei {@value #SUMMARY_FILE_PROPERTY} angehaengt. Eine
+ * Minute gilt als abgeschlossen, wenn seit ihrem Ende eine weitere Minute vergangen ist; so werden auch leicht
+ * verspaetete Saetze noch beruecksichtigt. Saetze, deren Minute schon zusammengefasst oder aus dem Zeitfenster
+ * gefallen ist, gehen nur in die Gesamtwerte ein.
+ * <p>
+ * Fortgeschrieben wird vom AuditLog-Writer-Thread, je entnommenem Stapel unter einer Sperre; Abfragen ueber den
+ * {@link AuditLogAdminServer} sind jederzeit moeglich.
+ */
+class AuditLogIngestStatistics {
+
+    // System-Properties
+    public static final String MINUTES_PROPERTY = "dako.auditLog.statsMinutes";
+    public static final String SUMMARY_FILE_PROPERTY = "dako.auditLog.summaryFile";
+
+    // Standardwerte
+    public static final int DEFAULT_MINUTES = 60;
+    public static final String DEFAULT_SUMMARY_FILE = "ChatAuditLogSummary.dat";
+
+    // Klassen des Histogramms der Nachrichtenlaengen wie bei der Auswertung der AuditLog-Datei
+    static final int SIZE_CLASSES = AuditLogAnalyticsResult.SIZE_CLASSES;
+
+    // Zaehler je Minute
+    static final int LOGIN = AuditLogAnalyticsResult.LOGIN;
+    static final int LOGOUT = AuditLogAnalyticsResult.LOGOUT;
+    static final int CHAT = AuditLogAnalyticsResult.CHAT;
+    static final int CHARACTERS = 3;
+    static final int COUNTERS = 4;
+
+    private static final long MINUTE = 60_000;
+    private static final Logger log = LogManager.getLogger(AuditLogIngestStatistics.class);
+
+    private final int minutes;
+    private final File summaryFile;
+
+    // Minute je Eintrag des Rings, -1 = leer; Zaehler und Histogramm je Eintrag
+    private final long[] bucketMinute;
+    private final long[] counters;
+    private final long[] sizeHistogram;
+
+    // Chat-Nachrichten je Client und Eintrag des Rings
+    private final Map<String, Integer> userIds = new HashMap<>();
+    private String[] userNames = new String[64];
+    private int[][] userChats = new int[64][];
+    private int[] freeUserIds = new int[16];
+    private int numberOfFreeUserIds = 0;
+    private int userIdLimit = 0;
+
+    // Juengste Minute, bis zu der zusammengefasst wurde (ausschliesslich)
+    private long currentMinute = -1;
+    private long summarizedUpTo = -1;
+
+    // Gesamtwerte seit dem Start
+    private final long[] totals = new long[COUNTERS];
+    private final long[] totalSizeHistogram = new long[SIZE_CLASSES];
+    private long lateRecords = 0;
+    private long summaryRecords = 0;
+
+    /**
+     * Konstruktor
+     *
+     * @param minutes Laenge des Zeitfensters in Minuten
+     * @param summaryFile Datei fuer die Zusammenfassungen oder null
+     */
+    AuditLogIngestStatistics(int minutes, File summaryFile) {
+        this.minutes = Math.max(2, minutes);
+        this.summaryFile = summaryFile;
+        this.bucketMinute = new long[this.minutes];
+        Arrays.fill(bucketMinute, -1);
+        this.counters = new long[this.minutes * COUNTERS];
+        this.sizeHistogram = new long[this.minutes * SIZE_CLASSES];
+    }
+
+    /**
+     * @return Kennzahlen mit den ueber System-Properties eingestellten Werten
+     */
+    static AuditLogIngestStatistics createConfigured() {
+        int minutes = Integer.getInteger(MINUTES_PROPERTY, DEFAULT_MINUTES);
+        String fileName = System.getProperty(SUMMARY_FILE_PROPERTY, DEFAULT_SUMMARY_FILE);
+        return new AuditLogIngestStatistics(minutes, fileName.isBlank() ? null : new File(fileName));
+    }
+
+    /**
+     * Entnommene Saetze zaehlen
+     *
+     * @param pdus AuditLog-Saetze
+     */
+    synchronized void addAll(List<AuditLogPDU> pdus) {
+        advanceTo(System.currentTimeMillis() / MINUTE);
+        for (AuditLogPDU pdu : pdus) {
+            add(pdu);
+        }
+    }
+
+    private void add(AuditLogPDU pdu) {
+        int counter;
+        switch (pdu.getPduType()) {
+            case LOGIN_REQUEST -> counter = LOGIN;
+            case LOGOUT_REQUEST -> counter = LOGOUT;
+            case CHAT_MESSAGE_REQUEST -> counter = CHAT;
+            default -> {
+                return;
+            }
+        }
+        int length = pdu.getMessage() == null ? 0 : pdu.getMessage().length();
+        int sizeClass = AuditLogAnalyticsResult.sizeClass(length);
+        totals[counter]++;
+        if (counter == CHAT) {
+            totals[CHARACTERS] += length;
+            totalSizeHistogram[sizeClass]++;
+        }
+
+        long minute = pdu.getAuditTime() / MINUTE;
+        if (minute > currentMinute) {
+            advanceTo(minute);
+        }
+        if (minute < summarizedUpTo || minute <= currentMinute - minutes) {
+            lateRecords++;
+            return;
+        }
+        int bucket = bucket(minute);
+        counters[bucket * COUNTERS + counter]++;
+        if (counter == CHAT) {
+            counters[bucket * COUNTERS + CHARACTERS] += length;
+            sizeHistogram[bucket * SIZE_CLASSES + sizeClass]++;
+            if (pdu.getUserName() != null) {
+                userChats[userId(pdu.getUserName())][bucket]++;
+            }
+        }
+    }
+
+    /**
+     * Zeitfenster bis zur angegebenen Minute weiterschalten, abgeschlossene Minuten zusammenfassen und die dabei
+     * frei werdenden Eintraege leeren
+     *
+     * @param minute Neue aktuelle Minute
+     */
+    private void advanceTo(long minute) {
+        if (minute <= currentMinute) {
+            return;
+        }
+        if (currentMinute < 0) {
+            currentMinute = minute;
+            summarizedUpTo = minute;
+            bucketMinute[bucket(minute)] = minute;
+            return;
+        }
+        summarize(minute - 1);
+        long first = Math.max(currentMinute + 1, minute - minutes + 1);
+        for (long m = first; m <= minute; m++) {
+            clearBucket(bucket(m), m);
+        }
+        currentMinute = minute;
+        releaseIdleUsers();
+    }
+
+    /**
+     * Minuten vor der angegebenen Minute an die Zusammenfassungsdatei anhaengen
+     */
+    private void summarize(long upTo) {
+        if (upTo <= summarizedUpTo) {
+            return;
+        }
+        long from = Math.max(summarizedUpTo, currentMinute - minutes + 1);
+        if (summaryFile != null) {
+            boolean newFile = !summaryFile.exists() || summaryFile.length() == 0;
+            try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(summaryFile, true)))) {
+                if (newFile) {
+                    out.println("# Minute | Typ | Client | Login | Logout | Chat | Zeichen | "
+                            + "Nachrichtenlaengen (Klasse k: 2^(k-1) bis 2^k - 1 Zeichen, k:Anzahl)");
+                }
+                SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+                for (long m = from; m < upTo; m++) {
+                    writeSummary(out, format, m);
+                }
+            } catch (IOException e) {
+                log.error("Zusammenfassung konnte nicht in " + summaryFile + " geschrieben werden: " + e);
+            }
+        }
+        summarizedUpTo = upTo;
+    }
+
+    private void writeSummary(PrintWriter out, SimpleDateFormat format, long minute) {
+        int bucket = bucket(minute);
+        if (bucketMinute[bucket] != minute) {
+            return;
+        }
+        int base = bucket * COUNTERS;
+        if (counters[base + LOGIN] + counters[base + LOGOUT] + counters[base + CHAT] == 0) {
+            return;
+        }
+        String time = format.format(new Date(minute * MINUTE));
+        StringBuilder line = new StringBuilder(128);
+        line.append(time).append(" | Gesamt | * | ").append(counters[base + LOGIN]).append(" | ")
+                .append(counters[base + LOGOUT]).append(" | ").append(counters[base + CHAT]).append(" | ")
+                .append(counters[base + CHARACTERS]).append(" |");
+        for (int k = 0; k < SIZE_CLASSES; k++) {
+            long count = sizeHistogram[bucket * SIZE_CLASSES + k];
+            if (count > 0) {
+                line.append(' ').append(k).append(':').append(count);
+            }
+        }
+        out.println(line);
+        summaryRecords++;
+        for (int id = 0; id < userIdLimit; id++) {
+            if (userNames[id] != null && userChats[id][bucket] > 0) {
+                out.println(time + " | Client | " + userNames[id] + " |  |  | " + userChats[id][bucket] + " |  |");
+                summaryRecords++;
+            }
+        }
+    }
+
+    private void clearBucket(int bucket, long minute) {
+        bucketMinute[bucket] = minute;
+        Arrays.fill(counters, bucket * COUNTERS, (bucket + 1) * COUNTERS, 0);
+        Arrays.fill(sizeHistogram, bucket * SIZE_CLASSES, (bucket + 1) * SIZE_CLASSES, 0);
+        for (int id = 0; id < userIdLimit; id++) {
+            if (userChats[id] != null) {
+                userChats[id][bucket] = 0;
+            }
+        }
+    }
+
+    /**
+     * Clients ohne Nachrichten im Zeitfenster entfernen
+     */
+    private void releaseIdleUsers() {
+        for (int id = 0; id < userIdLimit; id++) {
+            if (userNames[id] != null && sum(userChats[id]) == 0) {
+                userIds.remove(userNames[id]);
+                userNames[id] = null;
+                if (numberOfFreeUserIds == freeUserIds.length) {
+                    freeUserIds = Arrays.copyOf(freeUserIds, numberOfFreeUserIds * 2);
+                }
+                freeUserIds[numberOfFreeUserIds++] = id;
+            }
+        }
+    }
+
+    private int userId(String userName) {
+        Integer id = userIds.get(userName);
+        if (id != null) {
+            return id;
+        }
+        int newId;
+        if (numberOfFreeUserIds > 0) {
+            newId = freeUserIds[--numberOfFreeUserIds];
+            Arrays.fill(userChats[newId], 0);
+        } else {
+            newId = userIdLimit++;
+            if (newId == userNames.length) {
+                userNames = Arrays.copyOf(userNames, newId * 2);
+                userChats = Arrays.copyOf(userChats, newId * 2);
+            }
+            userChats[newId] = new int[minutes];
+        }
+        userNames[newId] = userName;
+        userIds.put(userName, newId);
+        return newId;
+    }
+
+    private int bucket(long minute) {
+        return (int) (minute % minutes);
+    }
+
+    private static long sum(int[] values) {
+        long sum = 0;
+        for (int value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    /**
+     * Zeitfenster auf die aktuelle Uhrzeit weiterschalten, damit abgeschlossene Minuten auch ohne neue Saetze
+     * zusammengefasst werden
+     */
+    synchronized void tick() {
+        if (currentMinute >= 0) {
+            advanceTo(System.currentTimeMillis() / MINUTE);
+        }
+    }
+
+    /*
+     * Die Ausgaben werden unter der Sperre nur aufbereitet; geschrieben werden sie vom Aufrufer, damit ein langsamer
+     * Admin-Client das Erfassen der Saetze nicht aufhaelt.
+     */
+
+    /**
+     * Gesamtwerte aufbereiten
+     *
+     * @return Ausgabe, eine Zeile
+     */
+    synchronized String formatTotals() {
+        return "Login: " + totals[LOGIN] + ", Logout: " + totals[LOGOUT] + ", Chat: " + totals[CHAT]
+                + ", Zeichen: " + totals[CHARACTERS] + ", verspaetet: " + lateRecords + ", Clients im Zeitfenster: "
+                + userIds.size() + ", Zusammenfassungen: " + summaryRecords + System.lineSeparator();
+    }
+
+    /**
+     * Werte der letzten Minuten aufbereiten, die juengste zuerst
+     *
+     * @param count Anzahl der Minuten
+     * @return Ausgabe, eine Zeile je Minute
+     */
+    synchronized String formatMinutes(int count) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        StringBuilder out = new StringBuilder();
+        for (long m = currentMinute; m > currentMinute - Math.min(count, minutes) && m >= 0; m--) {
+            int bucket = bucket(m);
+            if (bucketMinute[bucket] != m) {
+                continue;
+            }
+            int base = bucket * COUNTERS;
+            out.append(String.format("%s | Login %d | Logout %d | Chat %d | Zeichen %d%n",
+                    format.format(new Date(m * MINUTE)), counters[base + LOGIN], counters[base + LOGOUT],
+                    counters[base + CHAT], counters[base + CHARACTERS]));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Clients mit den meisten Chat-Nachrichten in den letzten Minuten aufbereiten
+     *
+     * @param maxUsers Maximale Anzahl der Clients
+     * @param count Anzahl der Minuten
+     * @return Ausgabe, eine Zeile je Client
+     */
+    synchronized String formatTopUsers(int maxUsers, int count) {
+        int[] buckets = recentBuckets(count);
+        List<long[]> ranking = new ArrayList<>();
+        for (int id = 0; id < userIdLimit; id++) {
+            if (userNames[id] == null) {
+                continue;
+            }
+            long chats = 0;
+            for (int bucket : buckets) {
+                chats += userChats[id][bucket];
+            }
+            if (chats > 0) {
+                ranking.add(new long[]{chats, id});
+            }
+        }
+        ranking.sort((a, b) -> Long.compare(b[0], a[0]));
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < Math.min(maxUsers, ranking.size()); i++) {
+            out.append(String.format("%10d  %s%n", ranking.get(i)[0], userNames[(int) ranking.get(i)[1]]));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Histogramm der Nachrichtenlaengen in den letzten Minuten aufbereiten
+     *
+     * @param count Anzahl der Minuten
+     * @return Ausgabe, eine Zeile je belegter Groessenklasse
+     */
+    synchronized String formatSizes(int count) {
+        long[] histogram = new long[SIZE_CLASSES];
+        for (int bucket : recentBuckets(count)) {
+            for (int k = 0; k < SIZE_CLASSES; k++) {
+                histogram[k] += sizeHistogram[bucket * SIZE_CLASSES + k];
+            }
+        }
+        StringBuilder out = new StringBuilder();
+        for (int k = 0; k < SIZE_CLASSES; k++) {
+            if (histogram[k] > 0) {
+                long from = k == 0 ? 0 : 1L << (k - 1);
+                long to = k == 0 ? 0 : (1L << k) - 1;
+                out.append(String.format("%8d - %8d: %10d%n", from, to, histogram[k]));
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * @return Eintraege des Rings, die zu den letzten Minuten gehoeren
+     */
+    private int[] recentBuckets(int count) {
+        int n = (int) Math.min(Math.min(count, minutes), currentMinute + 1);
+        int[] buckets = new int[Math.max(0, n)];
+        int found = 0;
+        for (int i = 0; i < n; i++) {
+            long m = currentMinute - i;
+            if (bucketMinute[bucket(m)] == m) {
+                buckets[found++] = bucket(m);
+            }
+        }
+        return Arrays.copyOf(buckets, found);
+    }
+
+    int getMinutes() {
+        return minutes;
+    }
+}
@@ -5,34 +5,108 @@ import edu.hm.dako.common.ExceptionHandler;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.Formatter;
+import java.util.List;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Die Klasse verwaltet das AuditLog
+ * <p>
+ * Die Saetze werden in einen wiederverwendeten Puffer formatiert und gruppenweise ueber einen {@link FileChannel}
+ * geschrieben (Gruppen-Commit). Geschrieben wird, sobald {@value #FLUSH_RECORDS_PROPERTY} Saetze anstehen oder der
+ * aelteste anstehende Satz {@value #FLUSH_MILLIS_PROPERTY} ms alt ist. Mit {@value #FORCE_PROPERTY}=true wird nach
+ * jedem Commit zusaetzlich {@link FileChannel#force(boolean)} aufgerufen, die Saetze sind dann auch nach einem
+ * Systemabsturz erhalten.
+ * <p>
+ * Mit {@value #FORMAT_PROPERTY}=SEGMENTED werden die Saetze statt in die Textdatei in binaere, in den Speicher
+ * eingeblendete Segmente geschrieben (siehe {@link AuditLogSegment}). Die Textdatei laesst sich daraus mit dem
+ * {@link AuditLogSegmentExporter} erzeugen.
+ * <p>
+ * In beiden Formaten wird beim Schreiben ein Index ueber Zeitbereiche, Clients und PDU-Typen aufgebaut
+ * ({@link AuditLogIndexBuilder}), den der {@link AuditLogQueryEngine} fuer Abfragen nutzt.
  *
  * @author Peter Mandl
  */
 public class AuditLogManager {
 
+    // System-Properties zur Konfiguration der Dauerhaftigkeit
+    public static final String FLUSH_RECORDS_PROPERTY = "dako.auditLog.flushRecords";
+    public static final String FLUSH_MILLIS_PROPERTY = "dako.auditLog.flushMillis";
+    public static final String FORCE_PROPERTY = "dako.auditLog.force";
+
+    // System-Properties zur Konfiguration des Speicherformats
+    public static final String FORMAT_PROPERTY = "dako.auditLog.format";
+    public static final String SEGMENT_DIR_PROPERTY = "dako.auditLog.segmentDir";
+    public static final String SEGMENT_BYTES_PROPERTY = "dako.auditLog.segmentBytes";
+    public static final String SEGMENT_MILLIS_PROPERTY = "dako.auditLog.segmentMillis";
+
+    // Standardwerte
+    public static final int DEFAULT_FLUSH_RECORDS = 512;
+    public static final int DEFAULT_FLUSH_MILLIS = 50;
+    public static final String DEFAULT_SEGMENT_DIR = "auditlog-segments";
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+    public static final long DEFAULT_SEGMENT_MILLIS = 60L * 60 * 1000;
+
+    // Wartezeit auf neue Saetze, wenn nichts zu schreiben ist, in ms
+    static final long IDLE_TIMEOUT = 5000;
+
+    // Groesse des Ausgabepuffers fuer den FileChannel in Bytes
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
     private static final Logger log = LogManager.getLogger(AuditLogManager.class);
     // Warteschlange der noch nicht verarbeiteten AuditLog-Nachrichten
     private final LinkedBlockingQueue<AuditLogPDU> queue;
-    // Filestream fuer AuditLog-Datei
-    FileWriter fstream;
-    // Gepufferte Ausgabe
-    BufferedWriter out;
+    // Kanal fuer die AuditLog-Datei
+    FileChannel channel;
     String auditFileName;
     // Anzahl der Audit-Aufrufe
     private int numberOfAuditCalls;
 
+    // Konfiguration des Gruppen-Commits
+    private final int flushRecords;
+    private final long flushNanos;
+    private final boolean force;
+
+    // Speicherformat, im Format SEGMENTED ersetzt der Segment-Writer den FileChannel
+    private final AuditLogFormat format;
+    private AuditLogSegmentWriter segmentWriter;
+
+    // Index fuer Abfragen und aktuelle Dateiposition (Format TEXT)
+    private AuditLogIndexBuilder indexBuilder;
+    private long filePosition = 0;
+
+    // Formatierte, noch nicht geschriebene Saetze
+    private final StringBuilder pending = new StringBuilder(WRITE_BUFFER_SIZE);
+    private int pendingRecords = 0;
+    private long pendingBytes = 0;
+    private long pendingSince = 0;
+    private final AuditLogTextFormatter formatter = new AuditLogTextFormatter();
+
+    // Anfang (im Puffer) und Indexangaben der anstehenden Saetze (Format TEXT)
+    private final int[] recordStarts;
+    private final long[] recordTimes;
+    private final int[] recordTypes;
+    private final String[] recordUsers;
+
+    // Wiederverwendete Puffer fuer die Zeichenkodierung
+    private final CharsetEncoder encoder = Charset.defaultCharset().newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+
+    // Messwerte
+    private final AuditLogWriteStatistics statistics = new AuditLogWriteStatistics();
+
     /**
      * Konstruktion
      *
@@ -44,6 +118,19 @@ public class AuditLogManager {
 
         this.numberOfAuditCalls = 0;
         this.auditFileName = fileName;
+        this.flushRecords = Math.max(1, Integer.getInteger(FLUSH_RECORDS_PROPERTY, DEFAULT_FLUSH_RECORDS));
+        this.flushNanos = Math.max(0, Integer.getInteger(FLUSH_MILLIS_PROPERTY, DEFAULT_FLUSH_MILLIS)) * 1_000_000L;
+        this.force = Boolean.getBoolean(FORCE_PROPERTY);
+        this.format = AuditLogFormat.valueOf(System.getProperty(FORMAT_PROPERTY, AuditLogFormat.TEXT.name()));
+        this.recordStarts = new int[flushRecords];
+        this.recordTimes = new long[flushRecords];
+        this.recordTypes = new int[flushRecords];
+        this.recordUsers = new String[flushRecords];
+
+        if (format == AuditLogFormat.SEGMENTED) {
+            openSegments(fileName);
+            return;
+        }
 
         // Name der AuditLog-Datei
         File file = new File(fileName);
@@ -58,14 +145,42 @@ public class AuditLogManager {
             }
 
             // Datei zum Erweitern oeffnen
-            fstream = new FileWriter(fileName, true);
-            out = new BufferedWriter(fstream);
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            filePosition = channel.size();
+
+            // Index einer neu angelegten Datei neu beginnen
+            indexBuilder = new AuditLogIndexBuilder(AuditLogIndexBuilder.indexFileFor(file), exist);
 
         } catch (IOException e) {
             log.error("Fehler beim Oeffnen oder Erzeugen der AuditLog-Datei " + fileName);
         }
     }
 
+    /**
+     * Segment-Writer anlegen, der Basisname der Segmente ist der Name der AuditLog-Datei ohne Endung
+     *
+     * @param fileName Name des AuditLog-Files
+     */
+    private void openSegments(String fileName) {
+        String baseName = new File(fileName).getName();
+        int dot = baseName.lastIndexOf('.');
+        if (dot > 0) {
+            baseName = baseName.substring(0, dot);
+        }
+        File directory = new File(System.getProperty(SEGMENT_DIR_PROPERTY, DEFAULT_SEGMENT_DIR));
+        try {
+            boolean reset = AuditLogSegment.listSegments(directory, baseName).isEmpty();
+            segmentWriter = new AuditLogSegmentWriter(directory, baseName,
+                    Long.getLong(SEGMENT_BYTES_PROPERTY, DEFAULT_SEGMENT_BYTES),
+                    Long.getLong(SEGMENT_MILLIS_PROPERTY, DEFAULT_SEGMENT_MILLIS));
+            log.debug("AuditLog-Segmente in Verzeichnis " + directory + ", erstes Segment: "
+                    + segmentWriter.getSegmentFile());
+            indexBuilder = new AuditLogIndexBuilder(AuditLogIndexBuilder.indexFileFor(directory, baseName), reset);
+        } catch (IOException e) {
+            log.error("Fehler beim Anlegen der AuditLog-Segmente in Verzeichnis " + directory);
+        }
+    }
+
     /**
      * Anzahl der mitgezaehlten AuditLog-Calls ausgeben
      *
@@ -83,32 +198,15 @@ public class AuditLogManager {
      * 03 AuditLog-Type (Login-Request, Logout-Request, ChatMessage-Request)
      * 04 Chat-Clientname
      * 05 Chat-Client-Threadname
-     * 06 Chat-Server-Worker-Threadname
+     * 06 Chat-Server-Worker-Threadname, beim TCP-Server ergaenzt um @Quelle (Adresse des Chat-Servers)
      * 07 Chat-Message (nur bei einem ChatMessage-Request)
      *
      * @param pdu AuditLog-Nachricht
      */
-    public void writeAuditLogChatMessage(AuditLogPDU pdu) {
+    public synchronized void writeAuditLogChatMessage(AuditLogPDU pdu) {
 
         numberOfAuditCalls++;
-        StringBuilder sb = new StringBuilder();
-        Formatter formatter = new Formatter();
-        Date dateAndTime = new Date(pdu.getAuditTime());
-
-        try {
-            sb.append(
-                    formatter.format("%7d | %s | %s | %s | %s | %s | %s%n", numberOfAuditCalls,
-                            dateAndTime, pdu.getPduType().toString(), pdu.getUserName(),
-                            pdu.getClientThreadName(), pdu.getServerThreadName(), pdu.getMessage()));
-
-            out.append(sb);
-            formatter.close();
-            log.debug("AuditLog-Satz in Datei " + auditFileName + " geschrieben");
-            out.flush();
-
-        } catch (IOException e) {
-            log.error("Fehler beim Schreiben des AuditLog-Satzes in Datei " + auditFileName);
-        }
+        appendRecord(pdu, true);
     }
 
     /**
@@ -116,33 +214,203 @@ public class AuditLogManager {
      *
      * @param pdu AuditLog-Nachricht
      */
-    public void writeAuditLogLogin(AuditLogPDU pdu) {
+    public synchronized void writeAuditLogLogin(AuditLogPDU pdu) {
 
         numberOfAuditCalls++;
+        appendRecord(pdu, false);
+    }
 
-        StringBuilder sb = new StringBuilder();
-        Formatter formatter = new Formatter();
-        Date dateAndTime = new Date(pdu.getAuditTime());
+    /**
+     * AuditLog-Satz in den Puffer formatieren bzw. an das aktuelle Segment anhaengen
+     *
+     * @param pdu AuditLog-Nachricht
+     * @param withMessage true, wenn die Nachricht ausgegeben wird
+     */
+    private void appendRecord(AuditLogPDU pdu, boolean withMessage) {
+        if (isIdle()) {
+            pendingSince = System.nanoTime();
+        }
+        if (segmentWriter != null) {
+            try {
+                int length = segmentWriter.append(numberOfAuditCalls, pdu);
+                pendingBytes += length;
+                if (indexBuilder != null) {
+                    long end = segmentWriter.position();
+                    indexBuilder.add(segmentWriter.getSegmentNumber(), end - length, pdu.getAuditTime(),
+                            pdu.getPduType().getId(), pdu.getUserName());
+                    indexBuilder.extendTo(end);
+                }
+            } catch (IOException e) {
+                log.error("Fehler beim Schreiben in AuditLog-Segment " + segmentWriter.getSegmentFile());
+            }
+        } else {
+            // Position des Satzes in der Datei steht erst beim Kodieren fest
+            recordStarts[pendingRecords] = pending.length();
+            recordTimes[pendingRecords] = pdu.getAuditTime();
+            recordTypes[pendingRecords] = pdu.getPduType().getId();
+            recordUsers[pendingRecords] = pdu.getUserName();
+            formatter.appendRecord(pending, numberOfAuditCalls, pdu.getAuditTime(), pdu.getPduType(),
+                    pdu.getUserName(), pdu.getClientThreadName(), pdu.getServerThreadName(), pdu.getSource(),
+                    withMessage, pdu.getMessage());
+        }
+        recordAppended();
+    }
 
+    /**
+     * @return true, wenn keine Saetze auf den Commit warten
+     */
+    private boolean isIdle() {
+        return pendingRecords == 0 && pending.length() == 0;
+    }
+
+    /**
+     * Satz ist im Puffer, bei Bedarf schreiben
+     */
+    private void recordAppended() {
+        pendingRecords++;
+        if (pendingRecords >= flushRecords) {
+            commit();
+        }
+    }
+
+    /**
+     * Schreibt die anstehenden Saetze, falls die maximale Wartezeit erreicht ist
+     */
+    public synchronized void commitIfDue() {
+        if (!isIdle() && System.nanoTime() - pendingSince >= flushNanos) {
+            commit();
+        }
+    }
+
+    /**
+     * @return Zeit in ms, bis die anstehenden Saetze spaetestens geschrieben werden muessen
+     */
+    public synchronized long getMillisUntilCommit() {
+        if (isIdle()) {
+            return IDLE_TIMEOUT;
+        }
+        long remaining = flushNanos - (System.nanoTime() - pendingSince);
+        return Math.max(0, (remaining + 999_999) / 1_000_000);
+    }
+
+    /**
+     * Alle anstehenden Saetze ueber den FileChannel schreiben (Gruppen-Commit) und, falls konfiguriert, auf das
+     * Speichermedium erzwingen
+     */
+    public synchronized void commit() {
+        if (isIdle()) {
+            return;
+        }
+        if (segmentWriter != null) {
+            commitSegment();
+            return;
+        }
+        long start = System.nanoTime();
+        long bytes = 0;
         try {
-            sb.append(formatter.format("%7d | %s | %s | %s | %s | %s%n", numberOfAuditCalls,
-                    dateAndTime, pdu.getPduType().toString(), pdu.getUserName(),
-                    pdu.getClientThreadName(), pdu.getServerThreadName()));
+            CharBuffer chars = CharBuffer.wrap(pending);
+            encoder.reset();
+            // Satzweise kodieren, damit die Dateiposition jedes Satzes fuer den Index bekannt ist
+            for (int i = 0; i < pendingRecords; i++) {
+                chars.limit(recordStarts[i]);
+                bytes += encode(chars, false);
+                if (indexBuilder != null) {
+                    indexBuilder.add(0, filePosition + bytes + writeBuffer.position(), recordTimes[i],
+                            recordTypes[i], recordUsers[i]);
+                }
+                recordUsers[i] = null;
+            }
+            chars.limit(pending.length());
+            bytes += encode(chars, true);
+            while (encoder.flush(writeBuffer).isOverflow()) {
+                bytes += drainWriteBuffer();
+            }
+            bytes += drainWriteBuffer();
+            if (force) {
+                channel.force(false);
+            }
+            filePosition += bytes;
+            if (indexBuilder != null) {
+                indexBuilder.extendTo(filePosition);
+            }
+            log.debug("AuditLog-Saetze in Datei " + auditFileName + " geschrieben");
+        } catch (IOException e) {
+            log.error("Fehler beim Schreiben der AuditLog-Saetze in Datei " + auditFileName);
+            writeBuffer.clear();
+            resyncFilePosition();
+        }
+        statistics.recordCommit(pendingRecords, bytes, System.nanoTime() - start);
+        pending.setLength(0);
+        pendingRecords = 0;
+    }
 
-            out.append(sb);
-            formatter.close();
-            log.debug("AuditLog-Satz in Datei " + auditFileName + " geschrieben");
-            out.flush();
+    /**
+     * Zeichen bis zum Limit des Puffers kodieren, volle Ausgabepuffer werden geschrieben
+     *
+     * @param chars Zu kodierende Zeichen
+     * @param endOfInput true beim letzten Aufruf vor dem Abschluss des Kodierers
+     * @return Anzahl geschriebener Bytes
+     * @throws IOException Fehler beim Schreiben
+     */
+    private long encode(CharBuffer chars, boolean endOfInput) throws IOException {
+        long bytes = 0;
+        while (encoder.encode(chars, writeBuffer, endOfInput).isOverflow()) {
+            bytes += drainWriteBuffer();
+        }
+        return bytes;
+    }
 
+    /**
+     * Dateiposition nach einem Schreibfehler neu bestimmen
+     */
+    private void resyncFilePosition() {
+        try {
+            filePosition = channel.size();
         } catch (IOException e) {
-            log.error("Fehler beim Schreiben des AuditLog-Satzes in Datei " + auditFileName);
+            log.error("Groesse der AuditLog-Datei " + auditFileName + " nicht ermittelbar");
         }
     }
 
+    /**
+     * Die Saetze stehen bereits im eingeblendeten Segment, falls konfiguriert nur auf das Speichermedium erzwingen
+     */
+    private void commitSegment() {
+        long start = System.nanoTime();
+        if (force) {
+            segmentWriter.force();
+        }
+        statistics.recordCommit(pendingRecords, pendingBytes, System.nanoTime() - start);
+        pendingRecords = 0;
+        pendingBytes = 0;
+    }
+
+    /**
+     * Inhalt des Ausgabepuffers vollstaendig in den FileChannel schreiben
+     *
+     * @return Anzahl geschriebener Bytes
+     * @throws IOException Fehler beim Schreiben
+     */
+    private long drainWriteBuffer() throws IOException {
+        writeBuffer.flip();
+        long bytes = writeBuffer.remaining();
+        while (writeBuffer.hasRemaining()) {
+            channel.write(writeBuffer);
+        }
+        writeBuffer.clear();
+        return bytes;
+    }
+
+    /**
+     * @return Messwerte des Writers
+     */
+    AuditLogWriteStatistics getStatistics() {
+        return statistics;
+    }
+
     /**
      * Schreiben eines Anfangs-Satzes in das AuditLog-File
      */
-    public void auditLogBegin() {
+    public synchronized void auditLogBegin() {
 
         numberOfAuditCalls = 0;
 
@@ -150,55 +418,64 @@ public class AuditLogManager {
         SimpleDateFormat dateFormatter = new SimpleDateFormat("yyyy.MM.dd - HH:mm:ss");
         Date currentDateTime = new Date();
         log.debug(dateFormatter.format(currentDateTime));
-        StringBuilder sb = new StringBuilder();
-        Formatter formatter = new Formatter();
-
-        try {
-            sb.append(formatter.format("%n%s%s%s%n", "*** Beginn AuditLog: ",
-                    currentDateTime, " ***"));
-            out.append(sb);
-            formatter.close();
-            log.debug("AuditLog-Satz in Datei " + auditFileName + " geschrieben");
-            out.flush();
 
-        } catch (IOException e) {
-            log.error(
-                    "Fehler beim Schreiben des AuditLog-Beginn-Satzes in Datei " + auditFileName);
-        }
+        appendMarker(AuditLogSegment.TYPE_SECTION_BEGIN, currentDateTime.getTime());
+        commit();
     }
 
     /**
      * Schreiben eines Ende-Satzes in das AuditLog-File
      */
-    public void auditLogEnd() {
+    public synchronized void auditLogEnd() {
 
         // Datum und Uhrzeit ermitteln
         SimpleDateFormat dateFormatter = new SimpleDateFormat("yyyy.MM.dd - HH:mm:ss");
         Date currentDateTime = new Date();
-
         log.debug(dateFormatter.format(currentDateTime));
-        StringBuilder sb = new StringBuilder();
-        Formatter formatter = new Formatter();
 
-        try {
-            sb.append(formatter.format("%s%s%s%n", "*** Ende AuditLog: ",
-                    currentDateTime, " ***"));
-            out.append(sb);
-            formatter.close();
-            log.debug("AuditLog-Satz in Datei " + auditFileName + " geschrieben");
-            out.flush();
-        } catch (IOException e) {
-            log.error(
-                    "Fehler beim Schreiben des  AuditLog-Ende-Satzes in Datei " + auditFileName);
+        appendMarker(AuditLogSegment.TYPE_SECTION_END, currentDateTime.getTime());
+        commit();
+        System.out.println("AuditLog-Writer: " + statistics);
+    }
+
+    /**
+     * Anfangs- oder Ende-Satz in den Puffer formatieren bzw. an das aktuelle Segment anhaengen
+     *
+     * @param type {@link AuditLogSegment#TYPE_SECTION_BEGIN} oder {@link AuditLogSegment#TYPE_SECTION_END}
+     * @param time Zeitpunkt in ms
+     */
+    private void appendMarker(short type, long time) {
+        if (isIdle()) {
+            pendingSince = System.nanoTime();
+        }
+        if (segmentWriter != null) {
+            try {
+                pendingBytes += segmentWriter.appendMarker(type, time);
+                pendingRecords++;
+            } catch (IOException e) {
+                log.error("Fehler beim Schreiben in AuditLog-Segment " + segmentWriter.getSegmentFile());
+            }
+        } else if (type == AuditLogSegment.TYPE_SECTION_BEGIN) {
+            formatter.appendBegin(pending, time);
+        } else {
+            formatter.appendEnd(pending, time);
         }
     }
 
     /**
      * AuditLog schliessen
      */
-    public void close() {
+    public synchronized void close() {
+        commit();
+        if (indexBuilder != null) {
+            indexBuilder.close();
+        }
         try {
-            out.close();
+            if (segmentWriter != null) {
+                segmentWriter.close();
+                return;
+            }
+            channel.close();
         } catch (IOException e) {
             log.error("Fehler beim Schliessen des AuditLogs");
         }
@@ -218,6 +495,43 @@ public class AuditLogManager {
         }
     }
 
+    /**
+     * Einstellen aller AuditLog-Saetze eines Stapels in die Queue, Reihenfolge bleibt erhalten
+     *
+     * @param pdus AuditLog-Nachrichten
+     */
+    public void queue(List<AuditLogPDU> pdus) {
+        queue.addAll(pdus);
+        log.debug("Thread: " + Thread.currentThread().getName() + ", Stapel mit " + pdus.size()
+                + " Saetzen eingestellt, Queue-Laenge: " + queue.size());
+    }
+
+    /**
+     * Auslesen mehrerer PDUs aus der Queue. Es wird hoechstens bis zum Timeout auf die erste PDU gewartet,
+     * weitere bereits vorhandene PDUs werden ohne Warten entnommen.
+     *
+     * @param batch Liste, an die die PDUs angehaengt werden
+     * @param maxRecords Maximale Anzahl zu entnehmender PDUs
+     * @param timeout Maximale Wartezeit auf die erste PDU in ms
+     * @return Anzahl entnommener PDUs
+     */
+    public int dequeue(List<AuditLogPDU> batch, int maxRecords, long timeout) {
+        try {
+            AuditLogPDU pdu = queue.poll(timeout, TimeUnit.MILLISECONDS);
+            if (pdu == null) {
+                return 0;
+            }
+            batch.add(pdu);
+            int count = 1 + queue.drainTo(batch, maxRecords - 1);
+            log.debug("Thread: " + Thread.currentThread().getName() + ", " + count + " PDUs entnommen, Queue-Laenge: "
+                    + queue.size());
+            return count;
+        } catch (InterruptedException e) {
+            ExceptionHandler.logException(e);
+            return 0;
+        }
+    }
+
     /**
      * Auslesen einer PDU aus der Queue
      *
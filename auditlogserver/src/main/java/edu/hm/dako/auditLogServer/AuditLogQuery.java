@@ -0,0 +1,79 @@
+package edu.hm.dako.auditLogServer;
+
+import edu.hm.dako.common.AuditLogPduType;
+
+import java.util.Date;
+
+/**
+ * Suchkriterien fuer eine Abfrage des AuditLogs. Nicht gesetzte Kriterien (null bzw. offene Zeitgrenzen) schraenken
+ * die Abfrage nicht ein.
+ */
+public class AuditLogQuery {
+
+    private final String userName;
+    private final long fromTime;
+    private final long toTime;
+    private final AuditLogPduType pduType;
+
+    /**
+     * @param userName Name des Clients oder null
+     * @param fromTime Kleinster Zeitstempel in ms, {@link Long#MIN_VALUE} fuer offen
+     * @param toTime Groesster Zeitstempel in ms, {@link Long#MAX_VALUE} fuer offen
+     * @param pduType PDU-Typ oder null
+     */
+    public AuditLogQuery(String userName, long fromTime, long toTime, AuditLogPduType pduType) {
+        this.userName = userName;
+        this.fromTime = fromTime;
+        this.toTime = toTime;
+        this.pduType = pduType;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public long getFromTime() {
+        return fromTime;
+    }
+
+    public long getToTime() {
+        return toTime;
+    }
+
+    public AuditLogPduType getPduType() {
+        return pduType;
+    }
+
+    /**
+     * Pruefen, ob ein Block des Index Treffer enthalten kann
+     *
+     * @param block Block des Index
+     * @return true, wenn der Block gelesen werden muss
+     */
+    boolean mayMatch(AuditLogIndexBlock block) {
+        return block.overlaps(fromTime, toTime) && (pduType == null || block.containsType(pduType.getId()));
+    }
+
+    /**
+     * Pruefen, ob ein Satz die Kriterien erfuellt
+     *
+     * @param time Zeitstempel des Satzes in ms
+     * @param resolution Genauigkeit des Zeitstempels in ms (1 bei Segmenten, 1000 bei der Textdatei)
+     * @param type PDU-Typ des Satzes
+     * @param user Name des Clients
+     * @return true bei einem Treffer
+     */
+    boolean matches(long time, long resolution, AuditLogPduType type, String user) {
+        return time + resolution - 1 >= fromTime && time <= toTime
+                && (pduType == null || pduType == type)
+                && (userName == null || userName.equals(user));
+    }
+
+    @Override
+    public String toString() {
+        return "Client: " + (userName == null ? "*" : userName)
+                + ", von: " + (fromTime == Long.MIN_VALUE ? "*" : new Date(fromTime))
+                + ", bis: " + (toTime == Long.MAX_VALUE ? "*" : new Date(toTime))
+                + ", Typ: " + (pduType == null ? "*" : pduType.name());
+    }
+}
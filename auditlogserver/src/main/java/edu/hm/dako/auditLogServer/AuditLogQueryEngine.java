@@ -0,0 +1,381 @@
+package edu.hm.dako.auditLogServer;
+
+import edu.hm.dako.common.AuditLogPduType;
+import edu.hm.dako.common.ExceptionHandler;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Abfragen auf dem AuditLog nach Client, Zeitbereich und PDU-Typ. Ueber den beim Schreiben aufgebauten Index
+ * ({@link AuditLogIndex}) werden nur die Bytebereiche gelesen, die Treffer enthalten koennen; nicht indizierte
+ * Bereiche (z. B. ein noch offener Block nach einem Absturz) werden vollstaendig durchsucht. Treffer werden
+ * waehrend des Lesens als Zeilen im Textformat der AuditLog-Datei an den Aufrufer weitergereicht.
+ * <p>
+ * Unterstuetzt werden die Textdatei (Format TEXT) und die binaeren Segmente (Format SEGMENTED).
+ * <p>
+ * Aufruf: {@code AuditLogQueryEngine <AuditLog-Datei | Segmentverzeichnis> [-base <Basisname>] [-user <Client>]
+ * [-from <Zeit>] [-to <Zeit>] [-type LOGIN_REQUEST|LOGOUT_REQUEST|CHAT_MESSAGE_REQUEST]}, Zeitangaben als
+ * {@code 2026-10-17T10:00:00} (lokale Zeit, als Obergrenze einschliesslich der ganzen Sekunde bzw. Minute) oder in
+ * ms seit 1970.
+ */
+public class AuditLogQueryEngine implements Closeable {
+
+    // Groesse des Lesepuffers fuer die Textdatei
+    private static final int READ_BUFFER_SIZE = 256 * 1024;
+
+    // Format der Zeitstempel in der Textdatei (Date.toString)
+    private static final String DATE_PATTERN = "EEE MMM dd HH:mm:ss zzz yyyy";
+
+    private final AuditLogIndex index;
+
+    // Textdatei, null bei Segmenten
+    private final FileChannel textChannel;
+
+    // Segmente, null bei der Textdatei
+    private final File segmentDirectory;
+    private final String baseName;
+    private AuditLogSegmentReader segmentReader;
+
+    // Hilfsobjekte fuer das Lesen der Textdatei
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private final CharBuffer charBuffer = CharBuffer.allocate(READ_BUFFER_SIZE);
+    private final CharsetDecoder decoder = Charset.defaultCharset().newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final StringBuilder line = new StringBuilder();
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_PATTERN, Locale.US);
+    private final Map<String, AuditLogPduType> typesByDescription = new HashMap<>();
+    private String cachedDateText = null;
+    private long cachedDate = 0;
+
+    // Hilfsobjekte fuer die Ausgabe der Segmente
+    private final AuditLogTextFormatter formatter = new AuditLogTextFormatter();
+    private final StringBuilder formatted = new StringBuilder();
+
+    // Messwerte der letzten Abfrage
+    private long numberOfRangesRead;
+    private long numberOfBytesRead;
+    private long numberOfMatches;
+
+    /**
+     * Abfragen auf einer AuditLog-Textdatei
+     *
+     * @param auditFile AuditLog-Datei
+     * @throws IOException Fehler beim Oeffnen der Datei oder des Index
+     */
+    public AuditLogQueryEngine(File auditFile) throws IOException {
+        this.index = AuditLogIndex.load(AuditLogIndexBuilder.indexFileFor(auditFile));
+        this.textChannel = FileChannel.open(auditFile.toPath(), StandardOpenOption.READ);
+        this.segmentDirectory = null;
+        this.baseName = null;
+        for (AuditLogPduType type : AuditLogPduType.values()) {
+            typesByDescription.put(type.getDescription().trim(), type);
+        }
+    }
+
+    /**
+     * Abfragen auf binaeren AuditLog-Segmenten
+     *
+     * @param directory Verzeichnis der Segmente
+     * @param baseName Basisname der Segmente
+     * @throws IOException Fehler beim Oeffnen des Index
+     */
+    public AuditLogQueryEngine(File directory, String baseName) throws IOException {
+        this.index = AuditLogIndex.load(AuditLogIndexBuilder.indexFileFor(directory, baseName));
+        this.textChannel = null;
+        this.segmentDirectory = directory;
+        this.baseName = baseName;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Aufruf: AuditLogQueryEngine <AuditLog-Datei | Segmentverzeichnis> [-base <Basisname>]"
+                    + " [-user <Client>] [-from <Zeit>] [-to <Zeit>] [-type <PDU-Typ>]");
+            System.exit(1);
+        }
+        String baseName = AuditLogSegmentExporter.DEFAULT_BASE_NAME;
+        String userName = null;
+        long from = Long.MIN_VALUE;
+        long to = Long.MAX_VALUE;
+        AuditLogPduType type = null;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-base" -> baseName = args[i + 1];
+                case "-user" -> userName = args[i + 1];
+                case "-from" -> from = parseTime(args[i + 1]);
+                case "-to" -> to = parseTime(args[i + 1]) + precision(args[i + 1]) - 1;
+                case "-type" -> type = AuditLogPduType.valueOf(args[i + 1]);
+                default -> System.out.println("Unbekannte Option " + args[i] + " wird ignoriert");
+            }
+        }
+        AuditLogQuery query = new AuditLogQuery(userName, from, to, type);
+
+        File target = new File(args[0]);
+        long start = System.nanoTime();
+        try (AuditLogQueryEngine engine = target.isDirectory() ? new AuditLogQueryEngine(target, baseName)
+                : new AuditLogQueryEngine(target)) {
+            engine.execute(query, System.out::println);
+            System.err.println("Abfrage (" + query + "): " + engine.getNumberOfMatches() + " Treffer, "
+                    + engine.getNumberOfRangesRead() + " Bereiche mit " + engine.getNumberOfBytesRead()
+                    + " Bytes gelesen, Index mit " + engine.index.size() + " Bloecken, Dauer: "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (IOException e) {
+            ExceptionHandler.logException(e);
+            System.exit(1);
+        }
+    }
+
+    private static long parseTime(String text) {
+        if (text.chars().allMatch(Character::isDigit)) {
+            return Long.parseLong(text);
+        }
+        return LocalDateTime.parse(text).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * @return Genauigkeit einer Zeitangabe in ms; als Obergrenze schliesst sie die ganze Minute bzw. Sekunde ein
+     */
+    private static long precision(String text) {
+        int t = text.indexOf('T');
+        if (t < 0 || text.indexOf('.') >= 0) {
+            return 1;
+        }
+        return text.indexOf(':', text.indexOf(':', t) + 1) < 0 ? 60_000 : 1000;
+    }
+
+    /**
+     * Abfrage ausfuehren
+     *
+     * @param query Suchkriterien
+     * @param consumer Empfaenger der Treffer (je Treffer eine Zeile im Textformat, ohne Zeilenende)
+     * @return Anzahl der Treffer
+     * @throws IOException Fehler beim Lesen
+     */
+    public long execute(AuditLogQuery query, Consumer<String> consumer) throws IOException {
+        numberOfRangesRead = 0;
+        numberOfBytesRead = 0;
+        numberOfMatches = 0;
+        List<AuditLogIndexBlock> blocks = index.findBlocks(query);
+        if (textChannel != null) {
+            executeText(query, blocks, consumer);
+        } else {
+            executeSegments(query, blocks, consumer);
+        }
+        return numberOfMatches;
+    }
+
+    /**
+     * Textdatei: nicht indizierter Anfang, passende Bloecke, nicht indiziertes Ende
+     */
+    private void executeText(AuditLogQuery query, List<AuditLogIndexBlock> blocks, Consumer<String> consumer)
+            throws IOException {
+        long size = textChannel.size();
+        if (index.size() == 0) {
+            scanText(0, size, query, consumer);
+            return;
+        }
+        scanText(0, index.getBlock(0).startOffset, query, consumer);
+        for (AuditLogIndexBlock block : blocks) {
+            scanText(block.startOffset, Math.min(block.endOffset, size), query, consumer);
+        }
+        scanText(index.getLastBlock().endOffset, size, query, consumer);
+    }
+
+    /**
+     * Segmente: Segmente vor dem ersten indizierten, passende Bloecke, Rest ab dem Ende des letzten Blocks
+     */
+    private void executeSegments(AuditLogQuery query, List<AuditLogIndexBlock> blocks, Consumer<String> consumer)
+            throws IOException {
+        List<File> segments = AuditLogSegment.listSegments(segmentDirectory, baseName);
+        AuditLogIndexBlock first = index.size() == 0 ? null : index.getBlock(0);
+        AuditLogIndexBlock last = index.getLastBlock();
+        try {
+            for (File segment : segments) {
+                long number = AuditLogSegment.segmentNumber(segment, baseName);
+                if (first == null || number < first.segment) {
+                    scanSegment(number, 0, Long.MAX_VALUE, query, consumer);
+                }
+            }
+            for (AuditLogIndexBlock block : blocks) {
+                scanSegment(block.segment, block.startOffset, block.endOffset, query, consumer);
+            }
+            if (last != null) {
+                for (File segment : segments) {
+                    long number = AuditLogSegment.segmentNumber(segment, baseName);
+                    if (number == last.segment) {
+                        scanSegment(number, last.endOffset, Long.MAX_VALUE, query, consumer);
+                    } else if (number > last.segment) {
+                        scanSegment(number, 0, Long.MAX_VALUE, query, consumer);
+                    }
+                }
+            }
+        } finally {
+            closeSegmentReader();
+        }
+    }
+
+    /**
+     * Bytebereich der Textdatei zeilenweise lesen und passende Saetze weiterreichen
+     *
+     * @param start Anfang des Bereichs (Zeilenanfang)
+     * @param end Ende des Bereichs (exklusiv)
+     */
+    private void scanText(long start, long end, AuditLogQuery query, Consumer<String> consumer) throws IOException {
+        if (start >= end) {
+            return;
+        }
+        numberOfRangesRead++;
+        decoder.reset();
+        readBuffer.clear();
+        line.setLength(0);
+        long position = start;
+        boolean endOfInput = false;
+        while (!endOfInput) {
+            readBuffer.limit((int) Math.min(readBuffer.capacity(), readBuffer.position() + (end - position)));
+            int read = readBuffer.hasRemaining() ? textChannel.read(readBuffer, position) : 0;
+            if (read > 0) {
+                position += read;
+                numberOfBytesRead += read;
+            }
+            endOfInput = read <= 0 || position >= end;
+            readBuffer.flip();
+            charBuffer.clear();
+            decoder.decode(readBuffer, charBuffer, endOfInput);
+            if (endOfInput) {
+                decoder.flush(charBuffer);
+            }
+            readBuffer.compact();
+            charBuffer.flip();
+            while (charBuffer.hasRemaining()) {
+                char c = charBuffer.get();
+                if (c == '\n') {
+                    processLine(query, consumer);
+                } else if (c != '\r') {
+                    line.append(c);
+                }
+            }
+        }
+        processLine(query, consumer);
+    }
+
+    /**
+     * Gelesene Zeile pruefen; Anfangs-, Ende- und Leerzeilen werden uebergangen
+     */
+    private void processLine(AuditLogQuery query, Consumer<String> consumer) {
+        if (line.length() == 0) {
+            return;
+        }
+        String text = line.toString();
+        line.setLength(0);
+        // Laufende Nummer | Zeitstempel | Typ | Client | Client-Thread | Worker-Thread [| Nachricht]
+        String[] fields = text.split(" \\| ", 7);
+        if (fields.length < 6 || fields[0].isBlank() || !fields[0].trim().chars().allMatch(Character::isDigit)) {
+            return;
+        }
+        AuditLogPduType type = typesByDescription.get(fields[2].trim());
+        long time = parseDate(fields[1]);
+        if (time != Long.MIN_VALUE && query.matches(time, 1000, type, fields[3])) {
+            numberOfMatches++;
+            consumer.accept(text);
+        }
+    }
+
+    /**
+     * Zeitstempel der Textdatei lesen, aufeinanderfolgende gleiche Zeitstempel nur einmal
+     *
+     * @return Zeitstempel in ms oder Long.MIN_VALUE, wenn er nicht lesbar ist
+     */
+    private long parseDate(String text) {
+        if (!text.equals(cachedDateText)) {
+            try {
+                cachedDate = dateFormat.parse(text).getTime();
+            } catch (ParseException e) {
+                return Long.MIN_VALUE;
+            }
+            cachedDateText = text;
+        }
+        return cachedDate;
+    }
+
+    /**
+     * Bereich eines Segments lesen und passende Saetze im Textformat weiterreichen
+     *
+     * @param segmentNumber Segmentnummer
+     * @param start Anfang des Bereichs (Satzanfang), 0 fuer den ersten Satz
+     * @param end Ende des Bereichs (exklusiv), Long.MAX_VALUE fuer das Ende der Saetze
+     */
+    private void scanSegment(long segmentNumber, long start, long end, AuditLogQuery query,
+                             Consumer<String> consumer) throws IOException {
+        if (segmentReader == null || segmentReader.getSegmentNumber() != segmentNumber) {
+            closeSegmentReader();
+            File file = AuditLogSegment.segmentFile(segmentDirectory, baseName, segmentNumber);
+            if (!file.exists()) {
+                return;
+            }
+            segmentReader = new AuditLogSegmentReader(file);
+        }
+        numberOfRangesRead++;
+        segmentReader.seek(start);
+        AuditLogSegmentRecord record;
+        while (segmentReader.position() < end && (record = segmentReader.next()) != null) {
+            numberOfBytesRead += record.length;
+            if (record.isSectionBegin() || record.isSectionEnd()) {
+                continue;
+            }
+            AuditLogPduType type = record.getPduType();
+            if (query.matches(record.auditTime, 1, type, record.userName)) {
+                numberOfMatches++;
+                formatted.setLength(0);
+                formatter.appendRecord(formatted, record.sequenceNumber, record.auditTime, type, record.userName,
+                        record.clientThreadName, record.serverThreadName, record.source,
+                        type == AuditLogPduType.CHAT_MESSAGE_REQUEST, record.message);
+                formatted.setLength(formatted.length() - AuditLogTextFormatter.LINE_SEPARATOR.length());
+                consumer.accept(formatted.toString());
+            }
+        }
+    }
+
+    private void closeSegmentReader() throws IOException {
+        if (segmentReader != null) {
+            segmentReader.close();
+            segmentReader = null;
+        }
+    }
+
+    long getNumberOfRangesRead() {
+        return numberOfRangesRead;
+    }
+
+    long getNumberOfBytesRead() {
+        return numberOfBytesRead;
+    }
+
+    long getNumberOfMatches() {
+        return numberOfMatches;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (textChannel != null) {
+            textChannel.close();
+        }
+        closeSegmentReader();
+    }
+}
@@ -0,0 +1,222 @@
+package edu.hm.dako.auditLogServer;
+
+import edu.hm.dako.common.AuditLogAckPDU;
+import edu.hm.dako.common.AuditLogBatchPDU;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Empfangsseite der gesicherten UDP-Uebertragung von AuditLog-Stapeln.
+ * <p>
+ * Je Sender wird die naechste erwartete Sequenznummer gehalten. Stapel, die vor ihren Vorgaengern eintreffen, werden
+ * in einem begrenzten Umordnungspuffer zurueckgehalten und erst ausgeliefert, wenn die Luecke geschlossen ist;
+ * Duplikate werden verworfen. Fehlende Sequenznummern werden gesammelt in einer {@link AuditLogAckPDU} angefordert,
+ * solange Luecken bestehen hoechstens alle {@value #NACK_INTERVAL} ms. Zusaetzlich wird kumulativ bestaetigt,
+ * spaetestens nach {@value #ACK_EVERY} Stapeln oder {@value #ACK_INTERVAL} ms, damit der Sender seinen
+ * Wiederholungspuffer freigeben kann.
+ * <p>
+ * Der AuditLog-UDP-Server bedient jeweils einen Chat-Server; Rueckmeldungen werden nur fuer den Sender des zuletzt
+ * empfangenen Stapels erzeugt. Der Zustand der Sender bleibt ueber das Ende einer Sitzung hinaus erhalten, damit
+ * verspaetete Wiederholungen als Duplikate erkannt und erneut bestaetigt werden. Nicht thread-sicher.
+ */
+class AuditLogReliableUdpReceiver {
+
+    // Mindestabstand zwischen zwei Anforderungen fehlender Stapel in ms
+    static final long NACK_INTERVAL = 20;
+
+    // Kumulative Bestaetigung nach so vielen Stapeln bzw. Millisekunden
+    static final int ACK_EVERY = 64;
+    static final long ACK_INTERVAL = 50;
+
+    // Maximale Anzahl zurueckgehaltener Stapel je Sender
+    static final int MAX_REORDER_BATCHES = 1024;
+
+    // Maximale Anzahl angeforderter Sequenznummern je Rueckmeldung
+    static final int MAX_NACKS = 128;
+
+    // Maximale Anzahl gemerkter Sender
+    private static final int MAX_SENDERS = 64;
+
+    private static final Logger log = LogManager.getLogger(AuditLogReliableUdpReceiver.class);
+
+    /**
+     * Empfangszustand eines Senders
+     */
+    private static final class SenderState {
+        final long senderId;
+        long nextExpected = 1;
+        long highestReceived = 0;
+        long lastAcknowledged = 0;
+        int sinceAck = 0;
+        long lastAckTime = 0;
+        long lastNackTime = 0;
+        boolean ackRequested = false;
+        final TreeMap<Long, AuditLogBatchPDU> reorderBuffer = new TreeMap<>();
+
+        SenderState(long senderId) {
+            this.senderId = senderId;
+        }
+
+        boolean hasGaps() {
+            return highestReceived >= nextExpected;
+        }
+    }
+
+    private final Map<Long, SenderState> senders = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, SenderState> eldest) {
+            return size() > MAX_SENDERS;
+        }
+    };
+
+    private SenderState current = null;
+
+    // Messwerte
+    private long numberOfDuplicates = 0;
+    private long numberOfOutOfOrder = 0;
+    private long numberOfNacks = 0;
+    private long numberOfLostBatches = 0;
+
+    /**
+     * Empfangenen Stapel einordnen
+     *
+     * @param batch Stapel mit Sequenznummer
+     * @return Stapel, die jetzt in Reihenfolge ausgeliefert werden koennen (ohne leere Ersatzstapel)
+     */
+    List<AuditLogBatchPDU> onBatch(AuditLogBatchPDU batch) {
+        List<AuditLogBatchPDU> deliverable = new ArrayList<>();
+        SenderState state = senders.computeIfAbsent(batch.getSenderId(), SenderState::new);
+        current = state;
+        long sequenceNumber = batch.getSequenceNumber();
+
+        if (sequenceNumber < state.nextExpected || state.reorderBuffer.containsKey(sequenceNumber)) {
+            // Der Sender hat die Bestaetigung offenbar nicht erhalten
+            numberOfDuplicates++;
+            state.ackRequested = true;
+            return deliverable;
+        }
+        state.highestReceived = Math.max(state.highestReceived, sequenceNumber);
+        if (sequenceNumber > state.nextExpected) {
+            numberOfOutOfOrder++;
+            if (state.reorderBuffer.size() < MAX_REORDER_BATCHES) {
+                state.reorderBuffer.put(sequenceNumber, batch);
+            } else {
+                log.debug("Umordnungspuffer fuer Sender " + state.senderId + " voll, Stapel " + sequenceNumber
+                        + " verworfen");
+            }
+            return deliverable;
+        }
+
+        deliver(state, batch, deliverable);
+        AuditLogBatchPDU next;
+        while ((next = state.reorderBuffer.remove(state.nextExpected)) != null) {
+            deliver(state, next, deliverable);
+        }
+        return deliverable;
+    }
+
+    private void deliver(SenderState state, AuditLogBatchPDU batch, List<AuditLogBatchPDU> deliverable) {
+        state.nextExpected++;
+        state.sinceAck++;
+        if (batch.isEmpty()) {
+            // Ersatz fuer einen Stapel, den der Sender nicht mehr wiederholen kann
+            numberOfLostBatches++;
+            log.debug("AuditLog-Stapel " + batch.getSequenceNumber() + " von Sender " + state.senderId
+                    + " verloren");
+        } else {
+            deliverable.add(batch);
+        }
+    }
+
+    /**
+     * Sofortige Bestaetigung fuer den aktuellen Sender anfordern, z. B. nach dem Ende-Kommando
+     */
+    void requestAck() {
+        if (current != null) {
+            current.ackRequested = true;
+        }
+    }
+
+    /**
+     * Faellige Rueckmeldung fuer den aktuellen Sender erzeugen
+     *
+     * @param now Aktuelle Zeit in ms
+     * @return Rueckmeldung oder null, wenn nichts zu melden ist
+     */
+    AuditLogAckPDU pollFeedback(long now) {
+        SenderState state = current;
+        if (state == null) {
+            return null;
+        }
+        long acknowledged = state.nextExpected - 1;
+        boolean nack = state.hasGaps() && now - state.lastNackTime >= NACK_INTERVAL;
+        boolean ack = state.ackRequested || (acknowledged > state.lastAcknowledged
+                && (state.sinceAck >= ACK_EVERY || now - state.lastAckTime >= ACK_INTERVAL));
+        if (!nack && !ack) {
+            return null;
+        }
+        long[] missing = nack ? missing(state) : null;
+        if (nack) {
+            state.lastNackTime = now;
+            numberOfNacks++;
+        }
+        state.lastAcknowledged = acknowledged;
+        state.lastAckTime = now;
+        state.sinceAck = 0;
+        state.ackRequested = false;
+        return new AuditLogAckPDU(state.senderId, acknowledged, missing);
+    }
+
+    /**
+     * @return Wartezeit in ms bis zur naechsten faelligen Rueckmeldung, 0, wenn keine aussteht
+     */
+    int getFeedbackTimeout() {
+        SenderState state = current;
+        if (state == null) {
+            return 0;
+        }
+        if (state.hasGaps()) {
+            return (int) NACK_INTERVAL;
+        }
+        if (state.nextExpected - 1 > state.lastAcknowledged || state.ackRequested) {
+            return (int) ACK_INTERVAL;
+        }
+        return 0;
+    }
+
+    /**
+     * Fehlende Sequenznummern zwischen der naechsten erwarteten und der hoechsten empfangenen
+     */
+    private static long[] missing(SenderState state) {
+        long[] missing = new long[MAX_NACKS];
+        int count = 0;
+        for (long s = state.nextExpected; s < state.highestReceived && count < MAX_NACKS; s++) {
+            if (!state.reorderBuffer.containsKey(s)) {
+                missing[count++] = s;
+            }
+        }
+        long[] result = new long[count];
+        System.arraycopy(missing, 0, result, 0, count);
+        return result;
+    }
+
+    long getNumberOfDuplicates() {
+        return numberOfDuplicates;
+    }
+
+    long getNumberOfLostBatches() {
+        return numberOfLostBatches;
+    }
+
+    @Override
+    public String toString() {
+        return "gesicherte UDP-Uebertragung: " + numberOfOutOfOrder + " Stapel ausser der Reihe, " + numberOfDuplicates
+                + " Duplikate, " + numberOfNacks + " NACKs, verlorene Stapel: " + numberOfLostBatches;
+    }
+}
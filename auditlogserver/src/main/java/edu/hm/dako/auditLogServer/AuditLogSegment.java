@@ -0,0 +1,121 @@
+package edu.hm.dako.auditLogServer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aufbau der binaeren, segmentierten AuditLog-Dateien.
+ * <p>
+ * Ein Segment ist eine Datei {@code <Basisname>-<Segmentnummer>.seg}. Alle Zahlen werden in Big-Endian-Reihenfolge,
+ * alle Strings als UTF-8 gespeichert.
+ * <pre>
+ * Segment-Kopf (32 Bytes)
+ *   long   Kennung "DAKOAUDS"
+ *   int    Formatversion
+ *   long   Segmentnummer
+ *   long   Erzeugungszeitpunkt in ms
+ *   int    Ende des abgeschlossenen Segments (Position hinter dem Fuss), 0 = nicht abgeschlossen
+ *
+ * Satz (40 Bytes Kopf fester Groesse, danach die Strings in der Reihenfolge des Kopfs)
+ *   int    Gesamtlaenge des Satzes inkl. Kopf, 0 = Ende der Saetze
+ *   long   Laufende Nummer des Satzes (wie in der Textdatei)
+ *   long   Zeitstempel in ms
+ *   short  Satztyp: Id des AuditLogPduType oder Abschnittsbeginn/-ende
+ *   short  Laenge Username        (-1 = null)
+ *   short  Laenge Client-Thread   (-1 = null)
+ *   short  Laenge Server-Thread   (-1 = null)
+ *   short  Laenge Quelle          (-1 = null)
+ *   short  reserviert
+ *   int    Laenge Nachricht       (-1 = null)
+ *   int    CRC32 der Strings
+ *
+ * Fuss (hinter der Endekennung 0, 44 Bytes)
+ *   int    Kennung "FOOT"
+ *   long   Anzahl der Saetze
+ *   long   Kleinster Zeitstempel
+ *   long   Groesster Zeitstempel
+ *   long   Erste laufende Nummer
+ *   long   Letzte laufende Nummer
+ * </pre>
+ * Ein Segment ohne Fuss (z. B. nach einem Absturz) kann bis zur Endekennung bzw. bis zum ersten fehlerhaften Satz
+ * gelesen werden. Ein abgeschlossenes Segment wird auf sein Ende gekuerzt; solange das nicht moeglich war, liegt der
+ * Fuss nicht am Dateiende, sondern an der im Kopf vermerkten Position.
+ */
+final class AuditLogSegment {
+
+    static final long SEGMENT_MAGIC = 0x44414B4F41554453L; // "DAKOAUDS"
+    static final int FOOTER_MAGIC = 0x464F4F54; // "FOOT"
+    static final int FORMAT_VERSION = 1;
+
+    static final int SEGMENT_HEADER_SIZE = 32;
+    static final int SEGMENT_END_OFFSET = 28;
+    static final int RECORD_HEADER_SIZE = 40;
+    static final int END_MARKER_SIZE = 4;
+    static final int FOOTER_SIZE = 44;
+
+    // Satztypen fuer Abschnittsbeginn und -ende (ausserhalb der Ids von AuditLogPduType)
+    static final short TYPE_SECTION_BEGIN = 256;
+    static final short TYPE_SECTION_END = 257;
+
+    // Dateiendung der Segmente
+    static final String SUFFIX = ".seg";
+
+    private AuditLogSegment() {
+    }
+
+    /**
+     * Dateiname eines Segments
+     *
+     * @param directory Verzeichnis der Segmente
+     * @param baseName Basisname
+     * @param segmentNumber Segmentnummer
+     * @return Segmentdatei
+     */
+    static File segmentFile(File directory, String baseName, long segmentNumber) {
+        return new File(directory, String.format("%s-%08d%s", baseName, segmentNumber, SUFFIX));
+    }
+
+    /**
+     * Segmentnummer aus einem Dateinamen lesen
+     *
+     * @param file Segmentdatei
+     * @param baseName Basisname
+     * @return Segmentnummer oder -1, wenn die Datei kein Segment mit diesem Basisnamen ist
+     */
+    static long segmentNumber(File file, String baseName) {
+        String name = file.getName();
+        String prefix = baseName + "-";
+        if (!name.startsWith(prefix) || !name.endsWith(SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(prefix.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Alle Segmente eines Verzeichnisses in aufsteigender Reihenfolge
+     *
+     * @param directory Verzeichnis der Segmente
+     * @param baseName Basisname
+     * @return Segmentdateien
+     */
+    static List<File> listSegments(File directory, String baseName) {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(baseName + "-") && name.endsWith(SUFFIX));
+        List<File> segments = new ArrayList<>();
+        if (files == null) {
+            return segments;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(segmentNumber(a, baseName), segmentNumber(b, baseName)));
+        for (File file : files) {
+            if (segmentNumber(file, baseName) >= 0) {
+                segments.add(file);
+            }
+        }
+        return segments;
+    }
+}
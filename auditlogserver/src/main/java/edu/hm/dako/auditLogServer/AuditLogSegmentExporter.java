@@ -0,0 +1,108 @@
+package edu.hm.dako.auditLogServer;
+
+import edu.hm.dako.common.AuditLogPduType;
+import edu.hm.dako.common.ExceptionHandler;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Offline-Export binaerer AuditLog-Segmente in das lesbare Textformat der AuditLog-Datei. Die Segmente werden in
+ * aufsteigender Reihenfolge gelesen, die Ausgabe entspricht Zeile fuer Zeile der Textdatei, die der AuditLog-Server
+ * im Format TEXT geschrieben haette.
+ * <p>
+ * Aufruf: {@code AuditLogSegmentExporter <Segmentverzeichnis> [<Basisname> [<Ausgabedatei>]]}, ohne Ausgabedatei
+ * wird auf die Standardausgabe geschrieben.
+ */
+public class AuditLogSegmentExporter {
+
+    static final String DEFAULT_BASE_NAME = "ChatAuditLog";
+
+    // Ausgabepuffer wird ab dieser Groesse in den Writer uebertragen
+    private static final int FLUSH_SIZE = 64 * 1024;
+
+    private final AuditLogTextFormatter formatter = new AuditLogTextFormatter();
+    private final StringBuilder out = new StringBuilder(FLUSH_SIZE + 1024);
+
+    // Anzahl exportierter AuditLog-Saetze (ohne Abschnittsbeginn und -ende)
+    private long numberOfRecords = 0;
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Aufruf: AuditLogSegmentExporter <Segmentverzeichnis> [<Basisname> [<Ausgabedatei>]]");
+            System.exit(1);
+        }
+        File directory = new File(args[0]);
+        String baseName = args.length > 1 ? args[1] : DEFAULT_BASE_NAME;
+
+        List<File> segments = AuditLogSegment.listSegments(directory, baseName);
+        if (segments.isEmpty()) {
+            System.out.println("Keine Segmente " + baseName + "-*" + AuditLogSegment.SUFFIX + " in " + directory);
+            System.exit(1);
+        }
+
+        AuditLogSegmentExporter exporter = new AuditLogSegmentExporter();
+        try {
+            OutputStream stream = args.length > 2 ? new FileOutputStream(args[2]) : System.out;
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(stream))) {
+                exporter.export(segments, writer);
+            }
+            if (args.length > 2) {
+                System.out.println(exporter.numberOfRecords + " AuditLog-Saetze aus " + segments.size()
+                        + " Segmenten nach " + args[2] + " exportiert");
+            }
+        } catch (IOException e) {
+            ExceptionHandler.logException(e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Segmente nacheinander als Text ausgeben
+     *
+     * @param segments Segmentdateien in aufsteigender Reihenfolge
+     * @param writer Ziel der Ausgabe
+     * @throws IOException Fehler beim Lesen oder Schreiben
+     */
+    void export(List<File> segments, Writer writer) throws IOException {
+        for (File segment : segments) {
+            try (AuditLogSegmentReader reader = new AuditLogSegmentReader(segment)) {
+                AuditLogSegmentRecord record;
+                while ((record = reader.next()) != null) {
+                    appendRecord(record);
+                    if (out.length() >= FLUSH_SIZE) {
+                        writer.append(out);
+                        out.setLength(0);
+                    }
+                }
+            }
+        }
+        writer.append(out);
+        out.setLength(0);
+    }
+
+    /**
+     * Einen Satz im Textformat in den Ausgabepuffer formatieren
+     *
+     * @param record Satz aus einem Segment
+     */
+    private void appendRecord(AuditLogSegmentRecord record) {
+        if (record.isSectionBegin()) {
+            formatter.appendBegin(out, record.auditTime);
+        } else if (record.isSectionEnd()) {
+            formatter.appendEnd(out, record.auditTime);
+        } else {
+            AuditLogPduType type = record.getPduType();
+            formatter.appendRecord(out, record.sequenceNumber, record.auditTime, type, record.userName,
+                    record.clientThreadName, record.serverThreadName, record.source,
+                    type == AuditLogPduType.CHAT_MESSAGE_REQUEST, record.message);
+            numberOfRecords++;
+        }
+    }
+}
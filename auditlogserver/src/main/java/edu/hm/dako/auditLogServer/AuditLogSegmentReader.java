@@ -0,0 +1,206 @@
+package edu.hm.dako.auditLogServer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Liest die Saetze eines binaeren AuditLog-Segments (Aufbau siehe {@link AuditLogSegment}) sequentiell oder ab
+ * einer bekannten Position. Das Segment wird nur lesend eingeblendet.
+ */
+class AuditLogSegmentReader implements Closeable {
+
+    private static final Logger log = LogManager.getLogger(AuditLogSegmentReader.class);
+
+    private final File file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long segmentNumber;
+    private final long creationTime;
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Fuss eines abgeschlossenen Segments
+     */
+    static final class Footer {
+        final long recordCount;
+        final long minTime;
+        final long maxTime;
+        final long firstSequenceNumber;
+        final long lastSequenceNumber;
+
+        Footer(long recordCount, long minTime, long maxTime, long firstSequenceNumber, long lastSequenceNumber) {
+            this.recordCount = recordCount;
+            this.minTime = minTime;
+            this.maxTime = maxTime;
+            this.firstSequenceNumber = firstSequenceNumber;
+            this.lastSequenceNumber = lastSequenceNumber;
+        }
+    }
+
+    /**
+     * Segment oeffnen und Kopf pruefen
+     *
+     * @param file Segmentdatei
+     * @throws IOException Datei ist kein gueltiges Segment
+     */
+    AuditLogSegmentReader(File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        long size = channel.size();
+        if (size < AuditLogSegment.SEGMENT_HEADER_SIZE || size > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("Ungueltige Segmentgroesse " + size + ": " + file);
+        }
+        this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (buffer.getLong() != AuditLogSegment.SEGMENT_MAGIC) {
+            channel.close();
+            throw new IOException("Keine AuditLog-Segmentdatei: " + file);
+        }
+        int version = buffer.getInt();
+        if (version != AuditLogSegment.FORMAT_VERSION) {
+            channel.close();
+            throw new IOException("Nicht unterstuetzte Formatversion " + version + ": " + file);
+        }
+        this.segmentNumber = buffer.getLong();
+        this.creationTime = buffer.getLong();
+
+        // Abgeschlossenes, aber noch nicht gekuerztes Segment endet hinter dem Fuss
+        int end = buffer.getInt();
+        if (end > AuditLogSegment.SEGMENT_HEADER_SIZE && end < size) {
+            buffer.limit(end);
+        }
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    long getSegmentNumber() {
+        return segmentNumber;
+    }
+
+    long getCreationTime() {
+        return creationTime;
+    }
+
+    /**
+     * @return Groesse des Segments in Bytes
+     */
+    long size() {
+        return buffer.limit();
+    }
+
+    /**
+     * @return Position des naechsten zu lesenden Satzes
+     */
+    long position() {
+        return buffer.position();
+    }
+
+    /**
+     * Leseposition auf einen Satzanfang setzen, z. B. aus einem Index
+     *
+     * @param offset Position eines Satzes
+     */
+    void seek(long offset) {
+        buffer.position((int) Math.max(AuditLogSegment.SEGMENT_HEADER_SIZE, Math.min(offset, buffer.limit())));
+    }
+
+    /**
+     * Naechsten Satz lesen
+     *
+     * @return Satz oder null am Ende der Saetze bzw. bei einem fehlerhaften Satz
+     */
+    AuditLogSegmentRecord next() {
+        int offset = buffer.position();
+        if (buffer.remaining() < AuditLogSegment.END_MARKER_SIZE) {
+            return null;
+        }
+        int length = buffer.getInt(offset);
+        if (length == 0) {
+            return null;
+        }
+        if (length < AuditLogSegment.RECORD_HEADER_SIZE || length > buffer.remaining()) {
+            log.error("Fehlerhafter Satz in " + file + " an Position " + offset + ", Laenge " + length);
+            return null;
+        }
+        buffer.position(offset + 4);
+        long sequenceNumber = buffer.getLong();
+        long auditTime = buffer.getLong();
+        short type = buffer.getShort();
+        int userLength = buffer.getShort();
+        int clientThreadLength = buffer.getShort();
+        int serverThreadLength = buffer.getShort();
+        int sourceLength = buffer.getShort();
+        buffer.getShort();
+        int messageLength = buffer.getInt();
+        int checksum = buffer.getInt();
+
+        int stringLength = length(userLength) + length(clientThreadLength) + length(serverThreadLength)
+                + length(sourceLength) + length(messageLength);
+        if (AuditLogSegment.RECORD_HEADER_SIZE + stringLength != length) {
+            log.error("Fehlerhafte Laengenangaben in " + file + " an Position " + offset);
+            buffer.position(offset);
+            return null;
+        }
+        crc.reset();
+        int stringStart = buffer.position();
+        crc.update(buffer.slice(stringStart, stringLength));
+        if ((int) crc.getValue() != checksum) {
+            log.error("Pruefsumme falsch in " + file + " an Position " + offset);
+            buffer.position(offset);
+            return null;
+        }
+
+        String userName = readString(userLength);
+        String clientThreadName = readString(clientThreadLength);
+        String serverThreadName = readString(serverThreadLength);
+        String source = readString(sourceLength);
+        String message = readString(messageLength);
+        return new AuditLogSegmentRecord(offset, length, sequenceNumber, auditTime, type, userName,
+                clientThreadName, serverThreadName, source, message);
+    }
+
+    /**
+     * Fuss eines abgeschlossenen Segments lesen, ohne die Saetze zu durchlaufen
+     *
+     * @return Fuss oder null, wenn das Segment nicht abgeschlossen wurde
+     */
+    Footer readFooter() {
+        int footerStart = buffer.limit() - AuditLogSegment.FOOTER_SIZE;
+        if (footerStart - AuditLogSegment.END_MARKER_SIZE < AuditLogSegment.SEGMENT_HEADER_SIZE
+                || buffer.getInt(footerStart - AuditLogSegment.END_MARKER_SIZE) != 0
+                || buffer.getInt(footerStart) != AuditLogSegment.FOOTER_MAGIC) {
+            return null;
+        }
+        return new Footer(buffer.getLong(footerStart + 4), buffer.getLong(footerStart + 12),
+                buffer.getLong(footerStart + 20), buffer.getLong(footerStart + 28), buffer.getLong(footerStart + 36));
+    }
+
+    private static int length(int lengthField) {
+        return Math.max(0, lengthField);
+    }
+
+    private String readString(int length) {
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,51 @@
+package edu.hm.dako.auditLogServer;
+
+import edu.hm.dako.common.AuditLogPduType;
+
+/**
+ * Ein aus einem Segment gelesener AuditLog-Satz (siehe {@link AuditLogSegment})
+ */
+class AuditLogSegmentRecord {
+
+    // Position des Satzes im Segment
+    final long offset;
+    // Gesamtlaenge des Satzes in Bytes
+    final int length;
+    final long sequenceNumber;
+    final long auditTime;
+    final short type;
+    final String userName;
+    final String clientThreadName;
+    final String serverThreadName;
+    final String source;
+    final String message;
+
+    AuditLogSegmentRecord(long offset, int length, long sequenceNumber, long auditTime, short type, String userName,
+                          String clientThreadName, String serverThreadName, String source, String message) {
+        this.offset = offset;
+        this.length = length;
+        this.sequenceNumber = sequenceNumber;
+        this.auditTime = auditTime;
+        this.type = type;
+        this.userName = userName;
+        this.clientThreadName = clientThreadName;
+        this.serverThreadName = serverThreadName;
+        this.source = source;
+        this.message = message;
+    }
+
+    boolean isSectionBegin() {
+        return type == AuditLogSegment.TYPE_SECTION_BEGIN;
+    }
+
+    boolean isSectionEnd() {
+        return type == AuditLogSegment.TYPE_SECTION_END;
+    }
+
+    /**
+     * @return AuditLog-PDU-Typ des Satzes oder null bei Abschnittsbeginn und -ende
+     */
+    AuditLogPduType getPduType() {
+        return AuditLogPduType.getId(type);
+    }
+}
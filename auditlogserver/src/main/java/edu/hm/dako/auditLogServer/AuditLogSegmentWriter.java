@@ -0,0 +1,323 @@
+package edu.hm.dako.auditLogServer;
+
+import edu.hm.dako.common.AuditLogPDU;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Schreibt AuditLog-Saetze in binaere Segmente (Aufbau siehe {@link AuditLogSegment}). Ein Segment wird in voller
+ * Groesse in den Speicher eingeblendet, Saetze werden nur an den eingeblendeten Puffer angehaengt. Ein neues Segment
+ * wird begonnen, wenn das aktuelle voll ist oder seine maximale Laufzeit erreicht hat. Beim Abschliessen erhaelt
+ * ein Segment seinen Fuss, sein Ende wird im Kopf vermerkt.
+ * <p>
+ * Gekuerzt wird das Segment erst danach ueber einen eigenen, nicht eingeblendeten Kanal. Solange das Betriebssystem
+ * das Kuerzen einer noch eingeblendeten Datei ablehnt (z. B. Windows, bis der Puffer freigegeben ist), bleibt das
+ * Segment in voller Groesse lesbar und das Kuerzen wird beim Abschliessen der folgenden Segmente wiederholt.
+ * <p>
+ * Die Klasse ist nicht thread-sicher und wird nur vom AuditLog-Writer verwendet.
+ */
+class AuditLogSegmentWriter {
+
+    private static final Logger log = LogManager.getLogger(AuditLogSegmentWriter.class);
+
+    private final File directory;
+    private final String baseName;
+    private final long segmentSize;
+    private final long segmentNanos;
+
+    // Aktuelles Segment
+    private long segmentNumber;
+    private File segmentFile;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long segmentOpenTime;
+
+    // Angaben fuer den Fuss des aktuellen Segments
+    private long recordCount;
+    private long minTime;
+    private long maxTime;
+    private long firstSequenceNumber;
+    private long lastSequenceNumber;
+
+    private final CRC32 crc = new CRC32();
+
+    // Abgeschlossene Segmente, die noch nicht auf ihr Ende gekuerzt werden konnten
+    private final Map<File, Integer> untrimmedSegments = new LinkedHashMap<>();
+
+    /**
+     * Konstruktor, legt das erste Segment an. Die Segmentnummer setzt hinter bereits vorhandenen Segmenten fort.
+     *
+     * @param directory Verzeichnis der Segmente
+     * @param baseName Basisname der Segmentdateien
+     * @param segmentSize Maximale Groesse eines Segments in Bytes
+     * @param segmentMillis Maximale Laufzeit eines Segments in ms
+     * @throws IOException Fehler beim Anlegen des Segments
+     */
+    AuditLogSegmentWriter(File directory, String baseName, long segmentSize, long segmentMillis) throws IOException {
+        this.directory = directory;
+        this.baseName = baseName;
+        this.segmentSize = Math.min(Integer.MAX_VALUE, Math.max(64 * 1024, segmentSize));
+        this.segmentNanos = Math.max(1, segmentMillis) * 1_000_000L;
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Verzeichnis " + directory + " kann nicht angelegt werden");
+        }
+        List<File> existing = AuditLogSegment.listSegments(directory, baseName);
+        this.segmentNumber = existing.isEmpty() ? 0
+                : AuditLogSegment.segmentNumber(existing.get(existing.size() - 1), baseName);
+        openSegment(this.segmentSize);
+    }
+
+    /**
+     * AuditLog-Satz anhaengen
+     *
+     * @param sequenceNumber Laufende Nummer des Satzes
+     * @param pdu AuditLog-Satz
+     * @return Laenge des Satzes in Bytes
+     * @throws IOException Fehler beim Wechsel des Segments
+     */
+    int append(long sequenceNumber, AuditLogPDU pdu) throws IOException {
+        return append(sequenceNumber, pdu.getAuditTime(), (short) pdu.getPduType().getId(), pdu.getUserName(),
+                pdu.getClientThreadName(), pdu.getServerThreadName(), pdu.getSource(), pdu.getMessage());
+    }
+
+    /**
+     * Abschnittsbeginn oder -ende anhaengen
+     *
+     * @param type {@link AuditLogSegment#TYPE_SECTION_BEGIN} oder {@link AuditLogSegment#TYPE_SECTION_END}
+     * @param time Zeitpunkt in ms
+     * @return Laenge des Satzes in Bytes
+     * @throws IOException Fehler beim Wechsel des Segments
+     */
+    int appendMarker(short type, long time) throws IOException {
+        return append(0, time, type, null, null, null, null, null);
+    }
+
+    private int append(long sequenceNumber, long time, short type, String userName, String clientThreadName,
+                        String serverThreadName, String source, String message) throws IOException {
+        byte[] user = shortBytes(userName);
+        byte[] clientThread = shortBytes(clientThreadName);
+        byte[] serverThread = shortBytes(serverThreadName);
+        byte[] sourceBytes = shortBytes(source);
+        byte[] messageBytes = bytes(message);
+        int length = AuditLogSegment.RECORD_HEADER_SIZE + length(user) + length(clientThread) + length(serverThread)
+                + length(sourceBytes) + length(messageBytes);
+
+        // Platz fuer Endekennung und Fuss muss immer frei bleiben
+        long needed = (long) length + AuditLogSegment.END_MARKER_SIZE + AuditLogSegment.FOOTER_SIZE;
+        boolean expired = recordCount > 0 && System.nanoTime() - segmentOpenTime >= segmentNanos;
+        if (needed > buffer.remaining() || expired) {
+            rollSegment(needed);
+        }
+
+        crc.reset();
+        update(crc, user);
+        update(crc, clientThread);
+        update(crc, serverThread);
+        update(crc, sourceBytes);
+        update(crc, messageBytes);
+
+        buffer.putInt(length);
+        buffer.putLong(sequenceNumber);
+        buffer.putLong(time);
+        buffer.putShort(type);
+        buffer.putShort((short) lengthField(user));
+        buffer.putShort((short) lengthField(clientThread));
+        buffer.putShort((short) lengthField(serverThread));
+        buffer.putShort((short) lengthField(sourceBytes));
+        buffer.putShort((short) 0);
+        buffer.putInt(lengthField(messageBytes));
+        buffer.putInt((int) crc.getValue());
+        put(user);
+        put(clientThread);
+        put(serverThread);
+        put(sourceBytes);
+        put(messageBytes);
+
+        if (recordCount == 0) {
+            minTime = time;
+            maxTime = time;
+        } else {
+            minTime = Math.min(minTime, time);
+            maxTime = Math.max(maxTime, time);
+        }
+        if (type != AuditLogSegment.TYPE_SECTION_BEGIN && type != AuditLogSegment.TYPE_SECTION_END) {
+            if (firstSequenceNumber == 0) {
+                firstSequenceNumber = sequenceNumber;
+            }
+            lastSequenceNumber = sequenceNumber;
+        }
+        recordCount++;
+        return length;
+    }
+
+    /**
+     * Geschriebene Saetze auf das Speichermedium erzwingen
+     */
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * @return Nummer des aktuellen Segments
+     */
+    long getSegmentNumber() {
+        return segmentNumber;
+    }
+
+    /**
+     * @return Position hinter dem zuletzt angehaengten Satz im aktuellen Segment
+     */
+    long position() {
+        return buffer.position();
+    }
+
+    /**
+     * @return Aktuelles Segment
+     */
+    File getSegmentFile() {
+        return segmentFile;
+    }
+
+    /**
+     * Aktuelles Segment abschliessen
+     *
+     * @throws IOException Fehler beim Schreiben des Fusses
+     */
+    void close() throws IOException {
+        closeSegment();
+    }
+
+    /**
+     * Aktuelles Segment abschliessen und ein neues beginnen
+     *
+     * @param needed Platzbedarf des naechsten Satzes
+     * @throws IOException Fehler beim Wechsel des Segments
+     */
+    private void rollSegment(long needed) throws IOException {
+        closeSegment();
+        openSegment(Math.max(segmentSize, AuditLogSegment.SEGMENT_HEADER_SIZE + needed));
+    }
+
+    /**
+     * Neues Segment anlegen und einblenden
+     *
+     * @param size Groesse des Segments in Bytes
+     * @throws IOException Fehler beim Anlegen
+     */
+    private void openSegment(long size) throws IOException {
+        segmentNumber++;
+        segmentFile = AuditLogSegment.segmentFile(directory, baseName, segmentNumber);
+        channel = FileChannel.open(segmentFile.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        segmentOpenTime = System.nanoTime();
+        recordCount = 0;
+        minTime = 0;
+        maxTime = 0;
+        firstSequenceNumber = 0;
+        lastSequenceNumber = 0;
+
+        buffer.putLong(AuditLogSegment.SEGMENT_MAGIC);
+        buffer.putInt(AuditLogSegment.FORMAT_VERSION);
+        buffer.putLong(segmentNumber);
+        buffer.putLong(System.currentTimeMillis());
+        buffer.putInt(0);
+        log.debug("AuditLog-Segment " + segmentFile + " angelegt, Groesse: " + size);
+    }
+
+    /**
+     * Endekennung und Fuss schreiben, Ende im Kopf vermerken, Segment schliessen und auf seine Laenge kuerzen
+     *
+     * @throws IOException Fehler beim Abschliessen
+     */
+    private void closeSegment() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        buffer.putInt(0);
+        buffer.putInt(AuditLogSegment.FOOTER_MAGIC);
+        buffer.putLong(recordCount);
+        buffer.putLong(minTime);
+        buffer.putLong(maxTime);
+        buffer.putLong(firstSequenceNumber);
+        buffer.putLong(lastSequenceNumber);
+        int end = buffer.position();
+        buffer.putInt(AuditLogSegment.SEGMENT_END_OFFSET, end);
+        buffer.force();
+        buffer = null;
+        channel.close();
+        channel = null;
+        log.debug("AuditLog-Segment " + segmentFile + " abgeschlossen, Saetze: " + recordCount);
+
+        untrimmedSegments.put(segmentFile, end);
+        trimSegments();
+    }
+
+    /**
+     * Abgeschlossene Segmente auf ihr Ende kuerzen. Segmente, bei denen das noch nicht moeglich ist, werden beim
+     * naechsten Aufruf erneut versucht.
+     */
+    private void trimSegments() {
+        Iterator<Map.Entry<File, Integer>> iterator = untrimmedSegments.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<File, Integer> segment = iterator.next();
+            try (FileChannel trimChannel = FileChannel.open(segment.getKey().toPath(), StandardOpenOption.WRITE)) {
+                trimChannel.truncate(segment.getValue());
+                trimChannel.force(true);
+                iterator.remove();
+            } catch (IOException e) {
+                log.debug("AuditLog-Segment " + segment.getKey() + " kann noch nicht gekuerzt werden: " + e);
+            }
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * UTF-8-Bytes eines Strings, dessen Laenge im Satzkopf als short gespeichert wird; zu lange Strings werden
+     * gekuerzt
+     */
+    private static byte[] shortBytes(String value) {
+        byte[] bytes = bytes(value);
+        if (bytes != null && bytes.length > Short.MAX_VALUE) {
+            return Arrays.copyOf(bytes, Short.MAX_VALUE);
+        }
+        return bytes;
+    }
+
+    private static int length(byte[] value) {
+        return value == null ? 0 : value.length;
+    }
+
+    private static int lengthField(byte[] value) {
+        return value == null ? -1 : value.length;
+    }
+
+    private static void update(CRC32 crc, byte[] value) {
+        if (value != null) {
+            crc.update(value);
+        }
+    }
+
+    private void put(byte[] value) {
+        if (value != null) {
+            buffer.put(value);
+        }
+    }
+}
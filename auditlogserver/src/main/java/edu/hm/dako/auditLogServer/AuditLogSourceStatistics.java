@@ -0,0 +1,90 @@
+package edu.hm.dako.auditLogServer;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Messwerte einer Quelle (eines Chat-Servers) des AuditLog-Servers: empfangene und geschriebene Saetze,
+ * Empfangsrate und Rueckstau (empfangen, aber noch nicht geschrieben).
+ */
+class AuditLogSourceStatistics {
+
+    // Name der Quelle (Adresse und Port des Chat-Servers)
+    private final String source;
+    private final long connectTime = System.nanoTime();
+    private final LongAdder numberOfReceivedRecords = new LongAdder();
+    private final LongAdder numberOfWrittenRecords = new LongAdder();
+
+    // Stand bei der letzten periodischen Ausgabe, nur vom Reporter verwendet
+    private long lastReportTime = connectTime;
+    private long lastReportReceived = 0;
+
+    // Verbindung zur Quelle ist beendet
+    private volatile boolean finished = false;
+
+    AuditLogSourceStatistics(String source) {
+        this.source = source;
+    }
+
+    String getSource() {
+        return source;
+    }
+
+    void incrNumberOfReceivedRecords(int records) {
+        numberOfReceivedRecords.add(records);
+    }
+
+    void incrNumberOfWrittenRecords() {
+        numberOfWrittenRecords.increment();
+    }
+
+    long getNumberOfReceivedRecords() {
+        return numberOfReceivedRecords.sum();
+    }
+
+    long getNumberOfWrittenRecords() {
+        return numberOfWrittenRecords.sum();
+    }
+
+    /**
+     * @return Anzahl empfangener, aber noch nicht geschriebener Saetze
+     */
+    long getBacklog() {
+        return Math.max(0, getNumberOfReceivedRecords() - getNumberOfWrittenRecords());
+    }
+
+    /**
+     * @return Empfangene Saetze je Sekunde seit dem Verbindungsaufbau
+     */
+    double getAverageRate() {
+        double seconds = (System.nanoTime() - connectTime) / 1_000_000_000.0;
+        return seconds <= 0 ? 0 : getNumberOfReceivedRecords() / seconds;
+    }
+
+    /**
+     * Empfangsrate seit dem letzten Aufruf, fuer die periodische Ausgabe
+     * @return Empfangene Saetze je Sekunde
+     */
+    synchronized double takeIntervalRate() {
+        long now = System.nanoTime();
+        long received = getNumberOfReceivedRecords();
+        double seconds = (now - lastReportTime) / 1_000_000_000.0;
+        double rate = seconds <= 0 ? 0 : (received - lastReportReceived) / seconds;
+        lastReportTime = now;
+        lastReportReceived = received;
+        return rate;
+    }
+
+    boolean isFinished() {
+        return finished;
+    }
+
+    void setFinished() {
+        finished = true;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Quelle %s: empfangen: %d, geschrieben: %d, Rueckstau: %d, %.0f Saetze/s", source,
+                getNumberOfReceivedRecords(), getNumberOfWrittenRecords(), getBacklog(), getAverageRate());
+    }
+}
@@ -1,6 +1,9 @@
 package edu.hm.dako.auditLogServer;
 
+import edu.hm.dako.common.AuditLogBatchPDU;
 import edu.hm.dako.common.AuditLogPDU;
+import edu.hm.dako.common.AuditLogPduType;
+import edu.hm.dako.common.PduCodecFactory;
 import edu.hm.dako.connection.tcp.TcpConnection;
 import edu.hm.dako.connection.tcp.TcpServerSocket;
 import org.apache.logging.log4j.LogManager;
@@ -8,11 +11,24 @@ import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.core.LoggerContext;
 
 import java.io.File;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Einfacher AuditLog Server fuer die Protokollierung von Chat-Nachrichten eines Chat-Servers.
  * Implementierung auf Basis von TCP.
  * Programm wird nie beendet.
+ * <p>
+ * Der Server nimmt Verbindungen mehrerer Chat-Server gleichzeitig an. Jede Verbindung wird in einem eigenen
+ * Empfangs-Thread bedient, alle Empfangs-Threads stellen ihre Saetze in die Queue eines gemeinsamen
+ * {@link AuditLogManager}. Jeder Satz wird mit seiner Quelle (Adresse und Port des Chat-Servers) gekennzeichnet.
+ * Ein Abschnitt im AuditLog beginnt mit der ersten Verbindung und endet, wenn sich der letzte verbundene
+ * Chat-Server abgemeldet hat. Empfangsrate und Rueckstau je Quelle werden periodisch ausgegeben.
  *
  * @author Peter Mandl
  */
@@ -25,11 +41,25 @@ public class AuditLogTcpServer {
     static final int DEFAULT_RECEIVEBUFFER_SIZE = 800000;
     // Name der AuditLog-Datei
     static final String auditLogFile = "ChatAuditLog.dat";
+    // Intervall fuer die Ausgabe der Messwerte je Quelle in Sekunden
+    static final int REPORT_INTERVAL = 10;
     private static final Logger log = LogManager.getLogger(AuditLogTcpServer.class);
-    // Zaehler fuer ankommende AuditLog-PDUs
+    // Zaehler fuer ankommende AuditLog-PDUs ueber alle Quellen
     protected long counter = 0;
     TcpServerSocket serverSocket = null;
-    TcpConnection con = null;
+
+    // Messwerte aller verbundenen Quellen
+    private final Map<String, AuditLogSourceStatistics> sources = new ConcurrentHashMap<>();
+
+    // Laufende Kennzahlen ueber alle Abschnitte des AuditLogs
+    private final AuditLogIngestStatistics ingestStatistics = AuditLogIngestStatistics.createConfigured();
+
+    // Aktueller Abschnitt im AuditLog, geschuetzt durch sessionLock
+    private final Object sessionLock = new Object();
+    private AuditLogManager auditLogManager = null;
+    private AuditLogWriter logWriterRunnable = null;
+    private Thread logWriterThread = null;
+    private int numberOfConnectedSources = 0;
 
     public static void main(String[] args) throws InterruptedException {
         // Log4j2-Logging aus Datei konfigurieren
@@ -53,77 +83,158 @@ public class AuditLogTcpServer {
         } catch (Exception ignored) {
         }
 
+        startReporter();
+        AuditLogAdminServer.start(ingestStatistics);
+
         while (true) {
-            /* Server wartet eine auf eine Verbindunganfrage und haelt die Verbindung solange,
-             * bis der Client (der ChatServer) sie beendet.
+            /* Server wartet auf eine Verbindungsanfrage und uebergibt die Verbindung einem eigenen
+             * Empfangs-Thread, der sie haelt, bis der Client (der ChatServer) sie beendet.
              * Danach wird sofort wieder auf einen Verbindungsaufbauwunsch gewartet.
-             * Die Verbindung wird entgegebngenommen und ein neuer Abschnitt im AuditLog beginnt
              */
+            try {
+                TcpConnection con = this.waitForConnection();
+                String source = con.getRemoteAddress();
+                Thread receiverThread = new Thread(() -> serveChatServer(con, source),
+                        "AuditLogReceiver-" + source);
+                receiverThread.start();
+            } catch (Exception e) {
+                // Verbindungsaufbau soll wieder moeglich werden, vorher ein wenig warten
+                try {
+                    Thread.sleep(2000);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Empfangs-Thread: Verarbeitet die AuditLog-Requests eines Chat-Servers, bis dieser das Audit beendet oder
+     * die Verbindung abbricht
+     *
+     * @param con Verbindung zum Chat-Server
+     * @param source Name der Quelle
+     */
+    private void serveChatServer(TcpConnection con, String source) {
+        AuditLogSourceStatistics statistics = new AuditLogSourceStatistics(source);
+        AuditLogManager manager = openSource(statistics);
+        System.out.println("Chat-Server " + source + " verbunden");
 
-            // AuditLog-Datei erzeugen und oeffnen
-            AuditLogManager auditLogManager = new AuditLogManager(auditLogFile);
+        try {
+            // Ankommende AuditLog-Requests verarbeiten
+            while (true) {
 
-            // Thread fuer die Warteschlangenbeararbeitung erzeugen
-            AuditLogWriter logWriterRunnable = new AuditLogWriter(auditLogManager);
-            Thread logWriterThread = new Thread(logWriterRunnable);
-            logWriterThread.start();
+                // Nachricht lesen
+                Serializable message = receiveAuditMessage(con);
 
-            try {
-                // Auf Verbindungsaufbauwunsch warten
-                this.waitForConnection();
+                // Stapel direkt in die Queue entpacken
+                if (message instanceof AuditLogBatchPDU batch) {
+                    List<AuditLogPDU> records = batch.getRecords();
+                    for (AuditLogPDU pdu : records) {
+                        pdu.setSource(source);
+                    }
+                    statistics.incrNumberOfReceivedRecords(records.size());
+                    manager.queue(records);
+                    continue;
+                }
+                AuditLogPDU pdu = (AuditLogPDU) message;
+                if (pdu.getPduType() == AuditLogPduType.FINISH_AUDIT_REQUEST) {
+                    System.out.println("Kommando zum Beenden des Audits empfangen von " + source);
+                    break;
+                }
+                // Nachricht in die Queue einstellen
+                pdu.setSource(source);
+                statistics.incrNumberOfReceivedRecords(1);
+                manager.queue(pdu);
+            }
+        } catch (Exception e) {
+            log.debug("Verbindung zu Chat-Server " + source + " abgebrochen");
+        }
 
-                // Verbindung steht!
+        this.closeConnectionToChatServer(con);
+        closeSource(statistics);
+        System.out.println("Verbindung zum Chat-Server " + source + " geschlossen, " + statistics);
+    }
+
+    /**
+     * Quelle anmelden. Mit der ersten Quelle beginnt ein neuer Abschnitt im AuditLog.
+     *
+     * @param statistics Messwerte der Quelle
+     * @return AuditLog, in das die Saetze der Quelle eingestellt werden
+     */
+    private AuditLogManager openSource(AuditLogSourceStatistics statistics) {
+        synchronized (sessionLock) {
+            if (numberOfConnectedSources == 0) {
+                // AuditLog-Datei erzeugen und oeffnen
+                auditLogManager = new AuditLogManager(auditLogFile);
+
+                // Thread fuer die Warteschlangenbearbeitung erzeugen
+                logWriterRunnable = new AuditLogWriter(auditLogManager, sources, ingestStatistics);
+                logWriterThread = new Thread(logWriterRunnable);
+                logWriterThread.start();
 
                 // Ersten Logsatz schreiben
                 auditLogManager.auditLogBegin();
+            }
+            numberOfConnectedSources++;
+            sources.put(statistics.getSource(), statistics);
+            return auditLogManager;
+        }
+    }
 
-                // Ankommende AuditLog-Requests verarbeiten
-                boolean connectedToChatServer = true;
-                while (connectedToChatServer) {
-
-                    // Nachricht lesen
-                    AuditLogPDU pdu;
-                    pdu = receiveAuditPdu();
-
-                    switch (pdu.getPduType()) {
-                        // LogWriterThread Shutdown einleiten und warten bis er sich beendet hat
-                        case FINISH_AUDIT_REQUEST -> {
-                            System.out.println("Kommando zum Beenden des Audits empfangen");
-                            logWriterRunnable.shutdown();
-                            System.out.println("AuditLogWriterThread Shutdown veranlasst, warten auf Threadende ...");
-                            logWriterThread.join();
-                            System.out.println("AuditLogWriterThread Shutdown zu Ende");
-                            this.closeConnectionToChatServer();
-                            System.out.println(
-                                    "Insgesamt empfangene AuditLog-Calls: " + auditLogManager.getNumberOfAuditCalls());
-                            // Kommunikationsendpunkt schliessen
-                            auditLogManager.auditLogEnd();
-                            // AuditLog schliessen
-                            auditLogManager.close();
-                            connectedToChatServer = false;
-                            System.out.println("Verbindung zum Chat-Server geschlossen");
-                            // Verbindungsaufbau soll wieder moeglich werden vorher ein wenig warten
-                            try {
-                                Thread.sleep(2000);
-                            } catch (InterruptedException ignored) {
-                            }
-                        }
-                        // Nachricht in die Queue einstellen
-                        default -> auditLogManager.queue(pdu);
-                    }
-                }
-            } catch (Exception e) {
-                // AuditLog-Server soll wieder einen Verbindungsaufbauwunsch entgegennehmen
-                this.closeConnectionToChatServer();
-                // Verbindungsaufbau soll wieder moeglich werden, vorher ein wenig warten
-                try {
-                    Thread.sleep(2000);
-                } catch (InterruptedException ignored) {
-                }
+    /**
+     * Quelle abmelden. Mit der letzten Quelle endet der Abschnitt im AuditLog, nachdem alle Saetze geschrieben
+     * sind.
+     *
+     * @param statistics Messwerte der Quelle
+     */
+    private void closeSource(AuditLogSourceStatistics statistics) {
+        synchronized (sessionLock) {
+            statistics.setFinished();
+            numberOfConnectedSources--;
+            if (numberOfConnectedSources > 0) {
+                return;
+            }
+
+            // LogWriterThread Shutdown einleiten und warten bis er sich beendet hat
+            logWriterRunnable.shutdown();
+            System.out.println("AuditLogWriterThread Shutdown veranlasst, warten auf Threadende ...");
+            try {
+                logWriterThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
+            System.out.println("AuditLogWriterThread Shutdown zu Ende");
+            System.out.println(
+                    "Insgesamt empfangene AuditLog-Calls: " + auditLogManager.getNumberOfAuditCalls());
+            auditLogManager.auditLogEnd();
+            // AuditLog schliessen
+            auditLogManager.close();
+            auditLogManager = null;
+            sources.values().removeIf(AuditLogSourceStatistics::isFinished);
         }
     }
 
+    /**
+     * Periodische Ausgabe von Empfangsrate und Rueckstau je Quelle starten
+     */
+    private void startReporter() {
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "AuditLogReporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> {
+            for (AuditLogSourceStatistics statistics : sources.values()) {
+                if (!statistics.isFinished()) {
+                    String line = String.format("%s, aktuell %.0f Saetze/s", statistics,
+                            statistics.takeIntervalRate());
+                    System.out.println(line);
+                    log.info(line);
+                }
+            }
+        }, REPORT_INTERVAL, REPORT_INTERVAL, TimeUnit.SECONDS);
+    }
+
     /**
      * Server-Socket erzeugen
      *
@@ -132,7 +243,7 @@ public class AuditLogTcpServer {
     private void createSocket() throws Exception {
         try {
             serverSocket = new TcpServerSocket(AUDIT_LOG_SERVER_PORT, DEFAULT_SENDBUFFER_SIZE,
-                    DEFAULT_RECEIVEBUFFER_SIZE);
+                    DEFAULT_RECEIVEBUFFER_SIZE, PduCodecFactory.getConfiguredCodec(null));
         } catch (Exception e) {
             System.out.println("Exception");
             throw new Exception();
@@ -142,15 +253,17 @@ public class AuditLogTcpServer {
     /**
      * Auf Verbindungsaufbauwunsch eines Clients warten
      *
+     * @return Neue Verbindung
      * @throws Exception Fehler bei der Verbindungsannahme
      */
-    private void waitForConnection() throws Exception {
+    private TcpConnection waitForConnection() throws Exception {
 
         System.out.println("Warten auf Verbindungsaufbau ...");
         try {
-            con = (TcpConnection) serverSocket.accept();
+            TcpConnection con = (TcpConnection) serverSocket.accept();
             System.out.println(
                     "Kommunikationsendpunkt eingerichtet mit TCP-Port: " + AUDIT_LOG_SERVER_PORT);
+            return con;
         } catch (Exception e) {
             System.out.println("Exception");
             throw new Exception();
@@ -158,16 +271,24 @@ public class AuditLogTcpServer {
     }
 
     /**
-     * Nachricht vom Client empfangen
+     * Nachricht vom Client empfangen, entweder ein einzelner AuditLog-Satz oder ein Stapel
      *
+     * @param con Verbindung zum Chat-Server
+     * @return Empfangene AuditLogPDU oder AuditLogBatchPDU
      * @throws Exception Fehler beim Empfangen einer Nachricht
      */
-    private AuditLogPDU receiveAuditPdu() throws Exception {
+    private Serializable receiveAuditMessage(TcpConnection con) throws Exception {
         try {
-            AuditLogPDU receivedPdu = (AuditLogPDU) con.receive();
-            counter++;
-            System.out.println("Audit-Log counter: " + counter);
-            return receivedPdu;
+            Serializable receivedMessage = con.receive();
+            synchronized (this) {
+                if (receivedMessage instanceof AuditLogBatchPDU batch) {
+                    counter += batch.size();
+                } else {
+                    counter++;
+                }
+                log.debug("Audit-Log counter: " + counter);
+            }
+            return receivedMessage;
         } catch (Exception e) {
             System.out.println("Exception beim Empfang");
             throw new Exception();
@@ -176,8 +297,10 @@ public class AuditLogTcpServer {
 
     /**
      * Verbindung schliessen
+     *
+     * @param con Verbindung zum Chat-Server
      */
-    private void closeConnectionToChatServer() {
+    private void closeConnectionToChatServer(TcpConnection con) {
         try {
             con.close();
         } catch (Exception e) {
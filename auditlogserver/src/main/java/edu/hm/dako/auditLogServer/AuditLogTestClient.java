@@ -7,6 +7,7 @@ import edu.hm.dako.connection.udp.UdpClientConnection;
 import edu.hm.dako.connection.udp.UdpClientConnectionFactory;
 import edu.hm.dako.common.AuditLogPDU;
 import edu.hm.dako.common.AuditLogPduType;
+import edu.hm.dako.common.PduCodecFactory;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.core.LoggerContext;
@@ -40,9 +41,9 @@ public class AuditLogTestClient {
     public AuditLogTestClient(int connectionType) {
         this.connectionType = connectionType;
         if (connectionType == AUDITLOG_CONNECTION_TYPE_UDP) {
-            udpFactory = new UdpClientConnectionFactory();
+            udpFactory = new UdpClientConnectionFactory(PduCodecFactory.getConfiguredCodec(null));
         } else {
-            tcpFactory = new TcpConnectionFactory();
+            tcpFactory = new TcpConnectionFactory(PduCodecFactory.getConfiguredCodec(null));
         }
         System.out.println("Client gestartet");
     }
@@ -0,0 +1,94 @@
+package edu.hm.dako.auditLogServer;
+
+import java.util.Date;
+
+/**
+ * Formatiert AuditLog-Saetze im lesbaren Textformat der AuditLog-Datei:
+ * <pre>
+ *       1 | Sat Oct 17 22:29:54 UTC 2026 | Chat   | Client | Client-Thread | Worker-Thread | Nachricht
+ * </pre>
+ * Login- und Logout-Saetze enthalten keine Nachricht. Zeitstempel werden wie {@link Date#toString()} ausgegeben
+ * und, da sie nur sekundengenau sind, je Sekunde nur einmal formatiert. Die Klasse ist nicht thread-sicher.
+ */
+class AuditLogTextFormatter {
+
+    static final String LINE_SEPARATOR = System.lineSeparator();
+
+    // Zuletzt formatierter Zeitstempel
+    private long cachedSecond = Long.MIN_VALUE;
+    private String cachedDate = null;
+
+    /**
+     * AuditLog-Satz anhaengen
+     *
+     * @param out Ausgabepuffer
+     * @param sequenceNumber Laufende Nummer des Satzes
+     * @param auditTime Zeitstempel in ms
+     * @param type Beschreibung des Satztyps
+     * @param userName Name des Clients
+     * @param clientThreadName Name des Client-Threads
+     * @param serverThreadName Name des Worker-Threads
+     * @param source Quelle (Chat-Server) oder null
+     * @param withMessage true, wenn die Nachricht ausgegeben wird (Chat-Nachrichten)
+     * @param message Nachricht
+     */
+    void appendRecord(StringBuilder out, long sequenceNumber, long auditTime, Object type, String userName,
+                      String clientThreadName, String serverThreadName, String source, boolean withMessage,
+                      String message) {
+        // Laufende Nummer rechtsbuendig mit mindestens sieben Stellen (entspricht "%7d")
+        int start = out.length();
+        out.append(sequenceNumber);
+        for (int i = out.length() - start; i < 7; i++) {
+            out.insert(start, ' ');
+        }
+        out.append(" | ").append(formatDate(auditTime))
+                .append(" | ").append(type)
+                .append(" | ").append(userName)
+                .append(" | ").append(clientThreadName)
+                .append(" | ").append(serverThreadName);
+        if (source != null) {
+            // Quelle an den Worker-Thread-Namen anhaengen, die Spaltenaufteilung bleibt unveraendert
+            out.append('@').append(source);
+        }
+        if (withMessage) {
+            out.append(" | ").append(message);
+        }
+        out.append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Anfangs-Satz eines Abschnitts anhaengen
+     *
+     * @param out Ausgabepuffer
+     * @param time Zeitpunkt in ms
+     */
+    void appendBegin(StringBuilder out, long time) {
+        out.append(LINE_SEPARATOR).append("*** Beginn AuditLog: ").append(new Date(time)).append(" ***")
+                .append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Ende-Satz eines Abschnitts anhaengen
+     *
+     * @param out Ausgabepuffer
+     * @param time Zeitpunkt in ms
+     */
+    void appendEnd(StringBuilder out, long time) {
+        out.append("*** Ende AuditLog: ").append(new Date(time)).append(" ***").append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Zeitstempel wie {@link Date#toString()} formatieren, je Sekunde nur einmal
+     *
+     * @param time Zeitstempel in ms
+     * @return Formatierter Zeitstempel
+     */
+    private String formatDate(long time) {
+        long second = Math.floorDiv(time, 1000L);
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedDate = new Date(time).toString();
+        }
+        return cachedDate;
+    }
+}
@@ -1,6 +1,10 @@
 package edu.hm.dako.auditLogServer;
 
+import edu.hm.dako.common.AuditLogAckPDU;
+import edu.hm.dako.common.AuditLogBatchPDU;
 import edu.hm.dako.common.AuditLogPDU;
+import edu.hm.dako.common.AuditLogPduType;
+import edu.hm.dako.common.PduCodecFactory;
 import edu.hm.dako.connection.udp.UdpServerConnection;
 import edu.hm.dako.connection.udp.UdpServerSocket;
 import org.apache.logging.log4j.LogManager;
@@ -8,11 +12,17 @@ import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.core.LoggerContext;
 
 import java.io.File;
+import java.io.Serializable;
+import java.net.SocketTimeoutException;
 
 /**
  * Einfacher AuditLog Server fuer die Protokollierung von Chat-Nachrichten eines Chat-Servers.
  * Implementierung auf Basis von UDP.
  * Programm wird nie beendet.
+ * <p>
+ * Stapel mit Sequenznummer werden ueber einen {@link AuditLogReliableUdpReceiver} in Sendereihenfolge gebracht,
+ * Verluste werden beim Chat-Server angefordert. Einzelne AuditLog-PDUs und Stapel ohne Sequenznummer werden wie
+ * bisher ungesichert verarbeitet.
  *
  * @author Peter Mandl
  */
@@ -30,6 +40,10 @@ public class AuditLogUdpServer {
     protected long counter = 0;
     UdpServerSocket serverSocket = null;
     UdpServerConnection con = null;
+    // Empfangszustand der gesicherten Uebertragung, bleibt ueber die Sitzungen erhalten
+    private final AuditLogReliableUdpReceiver receiver = new AuditLogReliableUdpReceiver();
+    // Laufende Kennzahlen ueber alle Abschnitte des AuditLogs
+    private final AuditLogIngestStatistics ingestStatistics = AuditLogIngestStatistics.createConfigured();
 
     public static void main(String[] args) {
         // Log4j2-Logging aus Datei konfigurieren
@@ -52,13 +66,14 @@ public class AuditLogUdpServer {
             log.info("AuditLog-UdpServer gestartet, Port " + AUDIT_LOG_SERVER_PORT);
         } catch (Exception ignored) {
         }
+        AuditLogAdminServer.start(ingestStatistics);
 
         while (true) {
             // AuditLog-Datei erzeugen und oeffnen
             AuditLogManager auditLogManager = new AuditLogManager(auditLogFile);
 
             // Thread fuer die Warteschlangenabarbeitunng erzeugen
-            AuditLogWriter logWriterRunnable = new AuditLogWriter(auditLogManager);
+            AuditLogWriter logWriterRunnable = new AuditLogWriter(auditLogManager, null, ingestStatistics);
             Thread logWriterThread = new Thread(logWriterRunnable);
             logWriterThread.start();
 
@@ -74,27 +89,49 @@ public class AuditLogUdpServer {
                 // Ankommende AuditLog-Requests verarbeiten
                 while (connectedToChatServer) {
 
-                    // Nachricht lesen
-                    AuditLogPDU pdu = this.receiveAuditPdu();
+                    // Nachricht lesen, null, wenn nur eine Rueckmeldung faellig ist
+                    Serializable message = receiveAuditMessage(receiver.getFeedbackTimeout());
+                    if (message == null) {
+                        sendFeedback();
+                        continue;
+                    }
+
+                    // Gesicherte Stapel in Reihenfolge bringen und direkt in die Queue entpacken
+                    if (message instanceof AuditLogBatchPDU batch && batch.getSequenceNumber() != 0) {
+                        boolean finished = false;
+                        for (AuditLogBatchPDU deliverable : receiver.onBatch(batch)) {
+                            for (AuditLogPDU pdu : deliverable.getRecords()) {
+                                if (pdu.getPduType() == AuditLogPduType.FINISH_AUDIT_REQUEST) {
+                                    finished = true;
+                                } else {
+                                    auditLogManager.queue(pdu);
+                                }
+                            }
+                        }
+                        if (finished) {
+                            // Ende-Kommando sofort bestaetigen, der Chat-Server wartet darauf
+                            receiver.requestAck();
+                            sendFeedback();
+                            System.out.println(receiver);
+                            finishAudit(auditLogManager, logWriterRunnable, logWriterThread);
+                            connectedToChatServer = false;
+                        } else {
+                            sendFeedback();
+                        }
+                        continue;
+                    }
+
+                    // Ungesicherte Stapel direkt in die Queue entpacken
+                    if (message instanceof AuditLogBatchPDU batch) {
+                        auditLogManager.queue(batch.getRecords());
+                        continue;
+                    }
+                    AuditLogPDU pdu = (AuditLogPDU) message;
 
                     // Nachricht analysieren und verarbeiten
                     switch (pdu.getPduType()) {
                         case FINISH_AUDIT_REQUEST -> {
-                            // LogWriterThread Shutdown einleiten und warten bis er sich beendet
-                            System.out.println("Kommando zum Beenden des Audits empfangen");
-                            logWriterRunnable.shutdown();
-                            System.out.println(
-                                    "AuditLogWriterThreadLogWriterThread Shutdown veranlasst, warten auf Threadende ...");
-                            logWriterThread.join();
-                            System.out.println("AuditLogWriterThreadLogWriterThread nach Shutdown beendet");
-                            // Kommunikationsendpunkt schliessen
-                            this.closeConnectionToChatServer();
-                            // AuditLog abschliessen
-                            System.out.println("Insgesamt empfangene AuditLog-Calls: "
-                                    + auditLogManager.getNumberOfAuditCalls());
-                            auditLogManager.auditLogEnd();
-                            auditLogManager.close();
-                            System.out.println("Verbindung zum Chat-Server geschlossen");
+                            finishAudit(auditLogManager, logWriterRunnable, logWriterThread);
                             connectedToChatServer = false;
                         }
                         // Nachricht in die Queue einstellen
@@ -114,6 +151,48 @@ public class AuditLogUdpServer {
         }
     }
 
+    /**
+     * Audit nach dem Ende-Kommando abschliessen
+     *
+     * @param auditLogManager AuditLog-Manager der Sitzung
+     * @param logWriterRunnable AuditLog-Writer
+     * @param logWriterThread Thread des AuditLog-Writers
+     * @throws InterruptedException Unterbrechung beim Warten auf den Writer
+     */
+    private void finishAudit(AuditLogManager auditLogManager, AuditLogWriter logWriterRunnable,
+                             Thread logWriterThread) throws InterruptedException {
+        // LogWriterThread Shutdown einleiten und warten bis er sich beendet
+        System.out.println("Kommando zum Beenden des Audits empfangen");
+        logWriterRunnable.shutdown();
+        System.out.println(
+                "AuditLogWriterThreadLogWriterThread Shutdown veranlasst, warten auf Threadende ...");
+        logWriterThread.join();
+        System.out.println("AuditLogWriterThreadLogWriterThread nach Shutdown beendet");
+        // Kommunikationsendpunkt schliessen
+        this.closeConnectionToChatServer();
+        // AuditLog abschliessen
+        System.out.println("Insgesamt empfangene AuditLog-Calls: "
+                + auditLogManager.getNumberOfAuditCalls());
+        auditLogManager.auditLogEnd();
+        auditLogManager.close();
+        System.out.println("Verbindung zum Chat-Server geschlossen");
+    }
+
+    /**
+     * Faellige Bestaetigung bzw. Anforderung fehlender Stapel zum Chat-Server senden
+     */
+    private void sendFeedback() {
+        AuditLogAckPDU ack = receiver.pollFeedback(System.currentTimeMillis());
+        if (ack == null) {
+            return;
+        }
+        try {
+            con.send(ack);
+        } catch (Exception e) {
+            log.debug("Rueckmeldung konnte nicht gesendet werden: " + e);
+        }
+    }
+
     /**
      * Server-Socket erzeugen
      *
@@ -122,7 +201,7 @@ public class AuditLogUdpServer {
     private void createSocket() throws Exception {
         try {
             serverSocket = new UdpServerSocket(AUDIT_LOG_SERVER_PORT, DEFAULT_SENDBUFFER_SIZE,
-                    DEFAULT_RECEIVEBUFFER_SIZE);
+                    DEFAULT_RECEIVEBUFFER_SIZE, PduCodecFactory.getConfiguredCodec(null));
         } catch (Exception e) {
             System.out.println("Exception bei der Erzeugung eines Sockets");
             throw new Exception();
@@ -146,16 +225,28 @@ public class AuditLogUdpServer {
     }
 
     /**
-     * Nachricht vom Client empfangen und zuruecksenden
+     * Nachricht vom Client empfangen, entweder ein einzelner AuditLog-Satz oder ein Stapel
      *
+     * @param timeout Maximale Wartezeit in ms, 0 = unbegrenzt
+     * @return Empfangene AuditLogPDU oder AuditLogBatchPDU, null bei Ablauf der Wartezeit oder nicht lesbarem
+     * Datagramm
      * @throws Exception Fehler beim Empfang
      */
-    private AuditLogPDU receiveAuditPdu() throws Exception {
+    private Serializable receiveAuditMessage(int timeout) throws Exception {
         try {
-            AuditLogPDU receivedPdu = (AuditLogPDU) con.receive();
-            counter++;
-            System.out.println("Audit-Log counter: " + counter);
-            return receivedPdu;
+            Serializable receivedMessage = con.receive(timeout);
+            if (receivedMessage == null) {
+                return null;
+            }
+            if (receivedMessage instanceof AuditLogBatchPDU batch) {
+                counter += batch.size();
+            } else {
+                counter++;
+            }
+            log.debug("Audit-Log counter: " + counter);
+            return receivedMessage;
+        } catch (SocketTimeoutException e) {
+            return null;
         } catch (Exception e) {
             System.out.println("Exception beim Empfang");
             throw new Exception();
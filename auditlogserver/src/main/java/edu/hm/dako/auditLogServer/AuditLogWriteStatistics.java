@@ -0,0 +1,84 @@
+package edu.hm.dako.auditLogServer;
+
+import java.util.Arrays;
+
+/**
+ * Messwerte des AuditLog-Writers: Anzahl geschriebener Saetze, Durchsatz und Latenz der Schreibvorgaenge
+ * (Gruppen-Commits). Fuer die Perzentile werden die Latenzen der letzten {@value #LATENCY_SAMPLES} Commits
+ * aufbewahrt.
+ */
+class AuditLogWriteStatistics {
+
+    // Anzahl aufbewahrter Latenzwerte
+    static final int LATENCY_SAMPLES = 1 << 16;
+
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private long numberOfCommits = 0;
+    private long numberOfRecords = 0;
+    private long numberOfBytes = 0;
+    private long maxLatency = 0;
+    private final long startTime = System.nanoTime();
+
+    /**
+     * Einen Commit erfassen
+     * @param records Anzahl der geschriebenen Saetze
+     * @param bytes Anzahl der geschriebenen Bytes
+     * @param latency Dauer des Schreibens (inkl. force) in ns
+     */
+    synchronized void recordCommit(int records, long bytes, long latency) {
+        latencies[(int) (numberOfCommits % LATENCY_SAMPLES)] = latency;
+        numberOfCommits++;
+        numberOfRecords += records;
+        numberOfBytes += bytes;
+        if (latency > maxLatency) {
+            maxLatency = latency;
+        }
+    }
+
+    synchronized long getNumberOfCommits() {
+        return numberOfCommits;
+    }
+
+    synchronized long getNumberOfRecords() {
+        return numberOfRecords;
+    }
+
+    synchronized long getNumberOfBytes() {
+        return numberOfBytes;
+    }
+
+    /**
+     * @return Geschriebene Saetze je Sekunde seit dem Oeffnen des AuditLogs
+     */
+    synchronized double getRecordsPerSecond() {
+        double seconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+        return seconds <= 0 ? 0 : numberOfRecords / seconds;
+    }
+
+    /**
+     * @param percentile Perzentil zwischen 0 und 100
+     * @return Schreiblatenz im angegebenen Perzentil in ns
+     */
+    synchronized long getLatencyPercentile(double percentile) {
+        int count = (int) Math.min(numberOfCommits, LATENCY_SAMPLES);
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+
+    synchronized long getMaxLatency() {
+        return maxLatency;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d Saetze in %d Commits (%d Bytes), %.0f Saetze/s, Schreiblatenz p50: %d us, "
+                        + "p99: %d us, max: %d us", getNumberOfRecords(), getNumberOfCommits(), getNumberOfBytes(),
+                getRecordsPerSecond(), getLatencyPercentile(50) / 1000, getLatencyPercentile(99) / 1000,
+                getMaxLatency() / 1000);
+    }
+}
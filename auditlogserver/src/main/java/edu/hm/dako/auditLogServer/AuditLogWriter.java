@@ -4,22 +4,55 @@ import edu.hm.dako.common.AuditLogPDU;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 /**
- * Thread zum Abarbeiten der empfangenen AuditLog-PDUs
+ * Thread zum Abarbeiten der empfangenen AuditLog-PDUs. Die PDUs werden stapelweise aus der Queue entnommen und
+ * vom {@link AuditLogManager} gruppenweise in die Datei geschrieben.
  *
  * @author mandl
  */
 class AuditLogWriter implements Runnable {
 
     private static final Logger log = LogManager.getLogger(AuditLogWriter.class);
+    // Maximale Anzahl an PDUs, die auf einmal aus der Queue entnommen werden
+    static final int MAX_BATCH_SIZE = 1024;
     private static int status;
     final int RUNNING = 1;
     final int SHUTTING_DOWN = 2;
     final int SHUTDOWN = 3;
     protected AuditLogManager auditLogManager;
+    // Messwerte je Quelle, null, wenn nicht nach Quellen unterschieden wird
+    private final Map<String, AuditLogSourceStatistics> sources;
+    // Laufende Kennzahlen, null, wenn keine gefuehrt werden
+    private final AuditLogIngestStatistics ingestStatistics;
 
     public AuditLogWriter(AuditLogManager auditLogManager) {
+        this(auditLogManager, null, null);
+    }
+
+    /**
+     * Konstruktor
+     * @param auditLogManager AuditLog, in das geschrieben wird
+     * @param sources Messwerte je Quelle, in denen die geschriebenen Saetze gezaehlt werden
+     */
+    public AuditLogWriter(AuditLogManager auditLogManager, Map<String, AuditLogSourceStatistics> sources) {
+        this(auditLogManager, sources, null);
+    }
+
+    /**
+     * Konstruktor
+     * @param auditLogManager AuditLog, in das geschrieben wird
+     * @param sources Messwerte je Quelle oder null
+     * @param ingestStatistics Laufende Kennzahlen, die je entnommenem Stapel fortgeschrieben werden, oder null
+     */
+    public AuditLogWriter(AuditLogManager auditLogManager, Map<String, AuditLogSourceStatistics> sources,
+                          AuditLogIngestStatistics ingestStatistics) {
         this.auditLogManager = auditLogManager;
+        this.sources = sources;
+        this.ingestStatistics = ingestStatistics;
         status = RUNNING;
     }
 
@@ -30,14 +63,16 @@ class AuditLogWriter implements Runnable {
         System.out.println("AuditLogWriterThread gestartet");
         log.info("AuditLogWriterThread gestartet");
 
+        List<AuditLogPDU> batch = new ArrayList<>(MAX_BATCH_SIZE);
         while (status != SHUTDOWN) {
 
-            // Warten, bis eine AuditLog-PDU in der Queue ist und dann aus der Queue
-            // lesen
+            // Warten, bis AuditLog-PDUs in der Queue sind, und dann alle vorhandenen auf einmal
+            // aus der Queue lesen (hoechstens bis zum naechsten faelligen Commit warten)
             log.debug("AuditLogWriterThread wartet vor dequeue");
-            AuditLogPDU pdu = auditLogManager.dequeue();
+            batch.clear();
+            auditLogManager.dequeue(batch, MAX_BATCH_SIZE, auditLogManager.getMillisUntilCommit());
 
-            if (pdu != null) {
+            for (AuditLogPDU pdu : batch) {
                 // Nachricht analysieren und verarbeiten
 
                 switch (pdu.getPduType()) {
@@ -49,8 +84,17 @@ class AuditLogWriter implements Runnable {
                     case CHAT_MESSAGE_REQUEST -> auditLogManager.writeAuditLogChatMessage(pdu);
                     default -> log.debug("Ankommende PDU nicht erkannt, sie wird verworfen");
                 }
+                countWritten(pdu);
+            }
+
+            // Kennzahlen einmal je Stapel fortschreiben
+            if (ingestStatistics != null && !batch.isEmpty()) {
+                ingestStatistics.addAll(batch);
             }
 
+            // Gruppen-Commit, sobald die maximale Wartezeit der gepufferten Saetze erreicht ist
+            auditLogManager.commitIfDue();
+
             // Wenn die Queue leer ist und der Server herunterfaehrt, kann der Thread
             // beendet werden
             if ((status == SHUTTING_DOWN) && (auditLogManager.queueEmpty())) {
@@ -58,6 +102,9 @@ class AuditLogWriter implements Runnable {
             }
         }
 
+        // Restliche Saetze schreiben
+        auditLogManager.commit();
+
         if (!auditLogManager.queueEmpty()) {
             log.info("Warteschlange noch nicht geleert");
             System.out.println("Warteschlange noch nicht geleert");
@@ -67,6 +114,19 @@ class AuditLogWriter implements Runnable {
         System.out.println("AuditLogWriterThread beendet");
     }
 
+    /**
+     * Verarbeiteten Satz bei seiner Quelle zaehlen
+     * @param pdu Verarbeitete AuditLog-PDU
+     */
+    private void countWritten(AuditLogPDU pdu) {
+        if (sources != null && pdu.getSource() != null) {
+            AuditLogSourceStatistics statistics = sources.get(pdu.getSource());
+            if (statistics != null) {
+                statistics.incrNumberOfWrittenRecords();
+            }
+        }
+    }
+
     public void shutdown() {
 
         System.out.println("AuditLogWriterThread: Shutdown veranlasst");
@@ -0,0 +1,389 @@
+package edu.hm.dako.chatBenchmarking;
+
+import edu.hm.dako.common.ChatServerImplementationType;
+import edu.hm.dako.common.ThreadingType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.LoggerContext;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmarking-Client ohne GUI fuer Lastrechner und automatisierte Messreihen.
+ * <p>
+ * Die Parameter des Benchmarks ({@link UserInterfaceInputParameters}) werden als {@code name=wert} (wahlweise mit
+ * vorangestelltem {@code --}) auf der Kommandozeile oder in einer Properties-Datei ({@code config=datei}) angegeben;
+ * Angaben auf der Kommandozeile haben Vorrang. Nicht angegebene Parameter erhalten die Standardwerte der GUI:
+ * <pre>
+ *   implementation   Implementierungstyp des Chat-Servers, z. B. TCPNioImplementation
+ *   serverAddress    Adresse des Chat-Servers (127.0.0.1)
+ *   serverPort       Port des Chat-Servers (50001)
+ *   clients          Anzahl Client-Threads (1)
+ *   messages         Anzahl Nachrichten je Client (10)
+ *   messageLength    Nachrichtenlaenge (10)
+ *   thinkTime        Denkzeit zwischen zwei Requests in ms (100)
+ *   retries          Maximale Anzahl an Uebertragungswiederholungen (1)
+ *   responseTimeout  Maximale Wartezeit auf eine Antwort in ms (2000)
+ *   measurement      Messungstyp fuer das Protokoll, VarThreads oder VarMsgLength (VarThreads)
+ *   threading        PlatformThreads oder VirtualThreads (Property dako.threading)
+ *   loadMode         ClosedLoop, ConstantRate oder PoissonRate (ClosedLoop)
+ *   messageRate      Nachrichten pro Sekunde je Client bei offener Last (10)
+ *   runs             Anzahl aufeinanderfolgender Laeufe (1)
+ *   output           Datei fuer die Ergebnisse (Benchmarking-ChatApp-Protokolldatei.jsonl)
+ * </pre>
+ * Wie bei der GUI wird je Lauf ein Satz an die Benchmarking-Protokolldatei angehaengt. Zusaetzlich wird je Lauf
+ * eine Zeile im JSON-Format mit Parametern und Ergebnissen in die Ergebnisdatei geschrieben, die sich ohne Kenntnis
+ * des Satzaufbaus der Protokolldatei auswerten laesst. Bei offener Last (ConstantRate, PoissonRate) senden die
+ * Clients nach festem Zeitplan und die RTT-Werte sind ab dem geplanten Sendezeitpunkt gemessen. Der Fortschritt
+ * wird auf der Konsole ausgegeben.
+ * <p>
+ * Der Exit-Code ist 0, wenn alle Laeufe alle Antworten erhalten haben, 1 bei verlorenen Antworten und 2 bei
+ * fehlerhaften Parametern.
+ */
+public class BenchmarkingClientCommandLine implements BenchmarkingProgressInterface {
+
+    // Standard-Ergebnisdatei neben der Benchmarking-Protokolldatei
+    static final String DEFAULT_OUTPUT_FILE = BenchmarkingConstants.PROTOCOL_FILE + ".jsonl";
+
+    private static final Logger log = LogManager.getLogger(BenchmarkingClientCommandLine.class);
+
+    // Parameter des Laufs
+    private final UserInterfaceInputParameters parm;
+
+    // Fortschritt: erledigte und geplante Aufgaben (Logins, Nachrichten, Logouts), zuletzt ausgegebene 10%-Stufe
+    private final AtomicLong progress = new AtomicLong();
+    private final long plannedTasks;
+    private volatile int reportedStep = 0;
+
+    private UserInterfaceStartData startData;
+    private UserInterfaceResultData resultData;
+
+    private BenchmarkingClientCommandLine(UserInterfaceInputParameters parm) {
+        this.parm = parm;
+        this.plannedTasks = (long) parm.getNumberOfClients() * parm.getNumberOfMessages()
+                + 2L * parm.getNumberOfClients();
+    }
+
+    public static void main(String[] args) {
+        // Log4j2-Logging aus Datei konfigurieren
+        LoggerContext context = (org.apache.logging.log4j.core.LoggerContext) LogManager.getContext(false);
+        File file = new File("config/log4j/log4j2.benchmarkingClient.xml");
+        context.setConfigLocation(file.toURI());
+
+        UserInterfaceInputParameters parm;
+        int runs;
+        File output;
+        try {
+            Properties properties = readArguments(args);
+            parm = createParameters(properties);
+            runs = parseInt(properties, "runs", 1, 1, Integer.MAX_VALUE);
+            output = new File(properties.getProperty("output", DEFAULT_OUTPUT_FILE));
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("Fehlerhafte Parameter: " + e.getMessage());
+            System.err.println("Aufruf: BenchmarkingClientCommandLine [config=datei] [name=wert ...], "
+                    + "siehe Dokumentation der Klasse");
+            System.exit(2);
+            return;
+        }
+
+        boolean complete = true;
+        for (int run = 1; run <= runs; run++) {
+            System.out.println("Lauf " + run + " von " + runs + ": "
+                    + parm.mapImplementationTypeToString(parm.getChatServerImplementationType()) + ", "
+                    + parm.getNumberOfClients() + " Clients, " + parm.getNumberOfMessages() + " Nachrichten");
+            BenchmarkingClientCommandLine commandLine = new BenchmarkingClientCommandLine(parm);
+            BenchmarkingClientCoordinator coordinator = new BenchmarkingClientCoordinator();
+            coordinator.executeTest(parm, commandLine);
+            try {
+                // Der Coordinator schreibt die Protokolldatei erst nach dem Ende des Tests
+                coordinator.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            commandLine.writeResult(output, run, coordinator.startTimeAsString);
+            complete &= commandLine.resultData != null && commandLine.resultData.getNumberOfLostResponses() == 0
+                    && commandLine.resultData.getNumberOfResponses() == commandLine.resultData
+                    .getNumberOfSentRequests();
+        }
+        System.exit(complete ? 0 : 1);
+    }
+
+    /**
+     * Parameter aus der Kommandozeile und ggf. der Konfigurationsdatei lesen
+     *
+     * @param args Argumente der Form name=wert oder --name=wert
+     * @return Parameter, Kommandozeile vor Konfigurationsdatei
+     * @throws IOException Konfigurationsdatei nicht lesbar
+     */
+    static Properties readArguments(String[] args) throws IOException {
+        Properties commandLine = new Properties();
+        for (String arg : args) {
+            String argument = arg.startsWith("--") ? arg.substring(2) : arg;
+            int separator = argument.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Argument " + arg + " hat nicht die Form name=wert");
+            }
+            commandLine.setProperty(argument.substring(0, separator).trim(),
+                    argument.substring(separator + 1).trim());
+        }
+        Properties properties = new Properties();
+        String config = commandLine.getProperty("config");
+        if (config != null) {
+            try (Reader reader = new FileReader(config)) {
+                properties.load(reader);
+            }
+        }
+        properties.putAll(commandLine);
+        return properties;
+    }
+
+    /**
+     * Parameter des Benchmarks belegen
+     *
+     * @param properties Gelesene Parameter
+     * @return Parameter des Benchmarks
+     */
+    static UserInterfaceInputParameters createParameters(Properties properties) {
+        UserInterfaceInputParameters parm = new UserInterfaceInputParameters();
+        String implementation = properties.getProperty("implementation");
+        if (implementation == null) {
+            throw new IllegalArgumentException("implementation fehlt, moeglich: "
+                    + Arrays.toString(ChatServerImplementationType.values()));
+        }
+        parm.setChatServerImplementationType(parseEnum(ChatServerImplementationType.class, "implementation",
+                implementation));
+        parm.setRemoteServerAddress(properties.getProperty("serverAddress", parm.getRemoteServerAddress()));
+        parm.setRemoteServerPort(parseInt(properties, "serverPort", parm.getRemoteServerPort(), 1, 65535));
+        parm.setNumberOfClients(parseInt(properties, "clients", 1, 1, BenchmarkingConstants.MAX_CLIENTS));
+        parm.setNumberOfMessages(parseInt(properties, "messages", 10, 1,
+                BenchmarkingConstants.MAX_MESSAGES_PER_CLIENT));
+        parm.setMessageLength(parseInt(properties, "messageLength", 10, 1,
+                BenchmarkingConstants.MAX_MESSAGE_LENGTH));
+        parm.setClientThinkTime(parseInt(properties, "thinkTime", 100, 0, Integer.MAX_VALUE));
+        parm.setNumberOfRetries(parseInt(properties, "retries", 1, 0, Integer.MAX_VALUE));
+        parm.setResponseTimeout(parseInt(properties, "responseTimeout", 2000, 1, Integer.MAX_VALUE));
+        if (properties.getProperty("measurement") != null) {
+            parm.setMeasurementType(parseEnum(UserInterfaceInputParameters.MeasurementType.class, "measurement",
+                    properties.getProperty("measurement")));
+        }
+        if (properties.getProperty("threading") != null) {
+            parm.setThreadingType(parseEnum(ThreadingType.class, "threading", properties.getProperty("threading")));
+        }
+        if (properties.getProperty("loadMode") != null) {
+            parm.setLoadMode(parseEnum(UserInterfaceInputParameters.LoadMode.class, "loadMode",
+                    properties.getProperty("loadMode")));
+        }
+        String messageRate = properties.getProperty("messageRate");
+        if (messageRate != null) {
+            try {
+                parm.setMessageRate(Double.parseDouble(messageRate));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("messageRate ist keine Zahl: " + messageRate);
+            }
+            if (!(parm.getMessageRate() > 0)) {
+                throw new IllegalArgumentException("messageRate muss groesser als 0 sein");
+            }
+        }
+        return parm;
+    }
+
+    private static int parseInt(Properties properties, String name, int defaultValue, int min, int max) {
+        String value = properties.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int result = Integer.parseInt(value);
+            if (result < min || result > max) {
+                throw new IllegalArgumentException(name + " muss zwischen " + min + " und " + max + " liegen");
+            }
+            return result;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " ist keine Zahl: " + value);
+        }
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String name, String value) {
+        for (E constant : type.getEnumConstants()) {
+            if (constant.name().equalsIgnoreCase(value.trim())) {
+                return constant;
+            }
+        }
+        throw new IllegalArgumentException(name + " unbekannt: " + value + ", moeglich: "
+                + Arrays.toString(type.getEnumConstants()));
+    }
+
+    /**
+     * Ergebnis eines Laufs als JSON-Zeile an die Ergebnisdatei anhaengen
+     *
+     * @param output Ergebnisdatei
+     * @param run Nummer des Laufs
+     * @param startTime Startzeit des Laufs
+     */
+    private void writeResult(File output, int run, String startTime) {
+        if (resultData == null) {
+            log.error("Keine Ergebnisdaten fuer Lauf " + run);
+            return;
+        }
+        UserInterfaceResultData r = resultData;
+        StringBuilder json = new StringBuilder(1024);
+        json.append('{');
+        field(json, "startTime", startTime);
+        field(json, "endTime", r.getEndTime());
+        field(json, "run", run);
+        field(json, "implementation", parm.getChatServerImplementationType().name());
+        field(json, "measurement", parm.getMeasurementType().name());
+        field(json, "threading", parm.getThreadingType().name());
+        field(json, "loadMode", parm.getLoadMode().name());
+        if (parm.getLoadMode() != UserInterfaceInputParameters.LoadMode.ClosedLoop) {
+            field(json, "messageRate", parm.getMessageRate());
+        }
+        field(json, "serverAddress", parm.getRemoteServerAddress());
+        field(json, "serverPort", parm.getRemoteServerPort());
+        field(json, "clients", parm.getNumberOfClients());
+        field(json, "messages", parm.getNumberOfMessages());
+        field(json, "messageLength", parm.getMessageLength());
+        field(json, "thinkTime", parm.getClientThinkTime());
+        field(json, "maxRetries", parm.getNumberOfRetries());
+        field(json, "responseTimeout", parm.getResponseTimeout());
+        field(json, "plannedRequests", startData == null ? 0 : startData.getNumberOfRequests());
+        field(json, "plannedEventMessages", startData == null ? 0 : startData.getNumberOfPlannedEventMessages());
+        field(json, "sentRequests", r.getNumberOfSentRequests());
+        field(json, "responses", r.getNumberOfResponses());
+        field(json, "lostResponses", r.getNumberOfLostResponses());
+        field(json, "retries", r.getNumberOfRetries());
+        field(json, "sentEventMessages", r.getNumberOfSentEventMessages());
+        field(json, "receivedConfirmEvents", r.getNumberOfReceivedConfirmEvents());
+        field(json, "lostConfirmEvents", r.getNumberOfLostConfirmEvents());
+        field(json, "retriedEvents", r.getNumberOfRetriedEvents());
+        field(json, "rttMinMs", r.getMinimum());
+        field(json, "rttP10Ms", r.getPercentile10());
+        field(json, "rttP25Ms", r.getPercentile25());
+        field(json, "rttP50Ms", r.getPercentile50());
+        field(json, "rttP75Ms", r.getPercentile75());
+        field(json, "rttP90Ms", r.getPercentile90());
+        field(json, "rttP99Ms", r.getPercentile99());
+        field(json, "rttP999Ms", r.getPercentile999());
+        field(json, "rttP9999Ms", r.getPercentile9999());
+        field(json, "rttMaxMs", r.getMaximum());
+        field(json, "rttMeanMs", r.getMean());
+        field(json, "rttStandardDeviationMs", r.getStandardDeviation());
+        field(json, "rttRangeMs", r.getRange());
+        field(json, "rttInterquartileRangeMs", r.getInterquartilRange());
+        field(json, "avgServerTimeMs", r.getAvgServerTime());
+        field(json, "elapsedSeconds", r.getElapsedTime());
+        field(json, "maxHeapMiB", r.getMaxHeapSize());
+        field(json, "cpuUtilisationPercent", r.getMaxCpuUsage() * 100);
+        json.setLength(json.length() - 1);
+        json.append('}');
+
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(output, true))) {
+            out.write(json.toString());
+            out.newLine();
+            System.out.println("Ergebnis in Datei " + output + " geschrieben");
+        } catch (IOException e) {
+            log.error("Fehler beim Schreiben des Ergebnisses in Datei " + output + ": " + e);
+        }
+    }
+
+    private static void field(StringBuilder json, String name, String value) {
+        json.append('"').append(name).append("\":");
+        if (value == null) {
+            json.append("null");
+        } else {
+            json.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"' -> json.append("\\\"");
+                    case '\\' -> json.append("\\\\");
+                    case '\n' -> json.append("\\n");
+                    case '\r' -> json.append("\\r");
+                    case '\t' -> json.append("\\t");
+                    default -> {
+                        if (c < 0x20) {
+                            json.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            json.append(c);
+                        }
+                    }
+                }
+            }
+            json.append('"');
+        }
+        json.append(',');
+    }
+
+    private static void field(StringBuilder json, String name, long value) {
+        json.append('"').append(name).append("\":").append(value).append(',');
+    }
+
+    private static void field(StringBuilder json, String name, double value) {
+        json.append('"').append(name).append("\":");
+        if (Double.isFinite(value)) {
+            json.append(String.format(Locale.ROOT, "%.6f", value));
+        } else {
+            json.append("null");
+        }
+        json.append(',');
+    }
+
+    @Override
+    public void showStartData(UserInterfaceStartData data) {
+        startData = data;
+        System.out.println("Geplante Requests: " + data.getNumberOfRequests() + ", geplante Event-Nachrichten: "
+                + data.getNumberOfPlannedEventMessages());
+    }
+
+    @Override
+    public void showResultData(UserInterfaceResultData data) {
+        resultData = data;
+        System.out.printf(Locale.ROOT, "Requests: %d, Responses: %d, verloren: %d, RTT Median: %.3f ms, "
+                        + "90%%: %.3f ms, 99%%: %.3f ms, 99,9%%: %.3f ms, 99,99%%: %.3f ms, Maximum: %.3f ms, "
+                        + "Dauer: %d s%n", data.getNumberOfSentRequests(), data.getNumberOfResponses(),
+                data.getNumberOfLostResponses(), data.getPercentile50(), data.getPercentile90(),
+                data.getPercentile99(), data.getPercentile999(), data.getPercentile9999(), data.getMaximum(),
+                data.getElapsedTime());
+    }
+
+    @Override
+    public void setMessageLine(String message) {
+        System.out.println(message);
+    }
+
+    @Override
+    public void resetCurrentRunTime() {
+    }
+
+    @Override
+    public void addCurrentRunTime(long sec) {
+    }
+
+    @Override
+    public void testFinished() {
+    }
+
+    @Override
+    public void countUpProgressTask() {
+        long done = progress.incrementAndGet();
+        int step = (int) Math.min(10, done * 10 / Math.max(1, plannedTasks));
+        if (step > reportedStep) {
+            synchronized (this) {
+                if (step > reportedStep) {
+                    reportedStep = step;
+                    System.out.println("Fortschritt: " + step * 10 + " %");
+                }
+            }
+        }
+    }
+}
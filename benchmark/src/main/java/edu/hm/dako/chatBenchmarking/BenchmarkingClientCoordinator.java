@@ -2,6 +2,8 @@ package edu.hm.dako.chatBenchmarking;
 
 import edu.hm.dako.chatClient.ClientUserInterface;
 import edu.hm.dako.common.ExceptionHandler;
+import edu.hm.dako.common.ThreadingFactory;
+import edu.hm.dako.common.ThreadingType;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -22,8 +24,8 @@ public class BenchmarkingClientCoordinator extends Thread
     private static final Logger log = LogManager.getLogger(BenchmarkingClientCoordinator.class);
     // Uebergebene Parameter vom User-Interface
     UserInterfaceInputParameters parm;
-    // GUI-Schnittstelle
-    BenchmarkingClientUserInterface benchmarkingClientGui;
+    // Schnittstelle zur Ausgabe (GUI oder Kommandozeile)
+    BenchmarkingProgressInterface benchmarkingClientGui;
     // Anzahl aller Requests, die auszufuehren sind
     long numberOfAllRequests;
     // Startzeit des Tests
@@ -55,13 +57,15 @@ public class BenchmarkingClientCoordinator extends Thread
 
     @Override
     public void executeTest(UserInterfaceInputParameters parm,
-                            BenchmarkingClientUserInterface clientGui) {
+                            BenchmarkingProgressInterface clientGui) {
 
         this.parm = parm;
         this.benchmarkingClientGui = clientGui;
 
         clientGui.setMessageLine(parm.mapImplementationTypeToString(parm.getChatServerImplementationType())
-                + ": Benchmark gestartet");
+                + ": Benchmark gestartet (" + parm.getThreadingType()
+                + (parm.getLoadMode() == UserInterfaceInputParameters.LoadMode.ClosedLoop ? ""
+                : ", " + parm.getLoadMode() + " " + parm.getMessageRate() + " Nachrichten/s je Client") + ")");
 
         // Anzahl aller erwarteten Requests ermitteln
         numberOfAllRequests = (long) parm.getNumberOfClients() * parm.getNumberOfMessages();
@@ -71,8 +75,8 @@ public class BenchmarkingClientCoordinator extends Thread
                 parm.getNumberOfMessages(), parm.getClientThinkTime());
 
         // Berechnung aller Messages fuer Progress-Bar
-        if (clientGui.getProgressBar() != null) {
-            clientGui.getProgressBar()
+        if (clientGui instanceof BenchmarkingClientUserInterface gui && gui.getProgressBar() != null) {
+            gui.getProgressBar()
                     .setMaximum(parm.getNumberOfClients() * parm.getNumberOfMessages()
                             + parm.getNumberOfClients() + parm.getNumberOfClients());
         }
@@ -100,9 +104,10 @@ public class BenchmarkingClientCoordinator extends Thread
         running = true;
 
         // Client-Threads in Abhaengigkeit des Implementierungstyps instanziieren
-        // und starten
-        ExecutorService executorService = Executors
-                .newFixedThreadPool(parm.getNumberOfClients());
+        // und starten, je nach Ausfuehrungsmodell als Plattform- oder virtuelle Threads
+        ExecutorService executorService = (parm.getThreadingType() == ThreadingType.VirtualThreads)
+                ? ThreadingFactory.newThreadPerTaskExecutor(ThreadingType.VirtualThreads, "Client-")
+                : Executors.newFixedThreadPool(parm.getNumberOfClients());
 
         for (int i = 0; i < parm.getNumberOfClients(); i++) {
             executorService.submit(
@@ -189,7 +194,7 @@ public class BenchmarkingClientCoordinator extends Thread
                         + sharedData.getSumOfAllRetries());
 
         // Datensatz fuer Benchmark-Lauf auf Protokolldatei schreiben
-        sharedData.writeStatisticSet("Benchmarking-ChatApp-Protokolldatei",
+        sharedData.writeStatisticSet(BenchmarkingConstants.PROTOCOL_FILE,
                 parm.mapImplementationTypeToString(parm.getChatServerImplementationType()),
                 parm.mapMeasurementTypeToString(parm.getMeasurementType()), startTimeAsString,
                 resultData.getEndTime(), cpuUtilisationWatch.getAverageCpuUtilisation());
@@ -203,6 +208,16 @@ public class BenchmarkingClientCoordinator extends Thread
     public synchronized void setUserList(Vector<String> names) {
     }
 
+    @Override
+    // Wird nicht genutzt, nur fuer ChatClientGUI relevant
+    public synchronized void addUser(String userName) {
+    }
+
+    @Override
+    // Wird nicht genutzt, nur fuer ChatClientGUI relevant
+    public synchronized void removeUser(String userName) {
+    }
+
     @Override
     // Wird nicht genutzt, nur fuer ChatClientGUI relevant
     public synchronized void setMessageLine(String sender, String message) {
@@ -320,6 +335,9 @@ public class BenchmarkingClientCoordinator extends Thread
         resultData.setPercentile50(distributionMetrics.getPercentile50());
         resultData.setPercentile75(distributionMetrics.getPercentile75());
         resultData.setPercentile90(distributionMetrics.getPercentile90());
+        resultData.setPercentile99(distributionMetrics.getPercentile99());
+        resultData.setPercentile999(distributionMetrics.getPercentile999());
+        resultData.setPercentile9999(distributionMetrics.getPercentile9999());
         resultData.setStandardDeviation(distributionMetrics.getStandardDeviation());
         resultData.setRange(distributionMetrics.getRange());
         resultData.setInterquartilRange(distributionMetrics.getInterquartilRange());
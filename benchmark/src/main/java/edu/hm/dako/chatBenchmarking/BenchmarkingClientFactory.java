@@ -16,16 +16,17 @@ public final class BenchmarkingClientFactory {
     public static Runnable getClient(ClientUserInterface userInterface,
                                      UserInterfaceInputParameters param, int numberOfClient,
                                      SharedClientStatistics sharedData,
-                                     BenchmarkingClientUserInterface benchmarkingGui) {
+                                     BenchmarkingProgressInterface benchmarkingGui) {
         try {
 
             // Derzeit sind TCPAdvancedImplementation, UDPAdvancedImplementation nicht implementiert
             return switch (param.getChatServerImplementationType()) {
-                case TCPSimpleImplementation -> new BenchmarkingClientImpl(userInterface,
+                case TCPSimpleImplementation, TCPNioImplementation -> new BenchmarkingClientImpl(userInterface,
                         benchmarkingGui, param.getChatServerImplementationType(), param.getRemoteServerPort(),
                         param.getRemoteServerAddress(), numberOfClient, param.getMessageLength(),
                         param.getNumberOfMessages(), param.getClientThinkTime(),
-                        param.getNumberOfRetries(), param.getResponseTimeout(), sharedData);
+                        param.getNumberOfRetries(), param.getResponseTimeout(), sharedData,
+                        param.getThreadingType(), param.getLoadMode(), param.getMessageRate());
                 default -> throw new RuntimeException(
                         "Unbekannter Implementierungstyp: " + param.getChatServerImplementationType());
             };
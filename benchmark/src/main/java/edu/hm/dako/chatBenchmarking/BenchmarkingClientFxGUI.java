@@ -79,7 +79,7 @@ public class BenchmarkingClientFxGUI extends Application implements Benchmarking
     UserInterfaceInputParameters iParam = new UserInterfaceInputParameters();
     // Auswahl fuer Comboboxen
     ObservableList<String> implTypeOptions = FXCollections.observableArrayList(
-            SystemConstants.IMPL_TCP_SIMPLE, SystemConstants.IMPL_TCP_ADVANCED);
+            SystemConstants.IMPL_TCP_SIMPLE, SystemConstants.IMPL_TCP_NIO, SystemConstants.IMPL_TCP_ADVANCED);
     ObservableList<String> measureTypeOptions = FXCollections
             .observableArrayList("Variable Threads", "Variable Length");
     // Comboboxen
@@ -944,6 +944,11 @@ public class BenchmarkingClientFxGUI extends Application implements Benchmarking
                         ChatServerImplementationType.TCPSimpleImplementation);
                 implType.setTextFill(Color.web(SystemConstants.BLACK_COLOR));
             }
+            case SystemConstants.IMPL_TCP_NIO -> {
+                iParam.setChatServerImplementationType(
+                        ChatServerImplementationType.TCPNioImplementation);
+                implType.setTextFill(Color.web(SystemConstants.BLACK_COLOR));
+            }
             case SystemConstants.IMPL_UDP_ADVANCED -> {
                 setAlert("Der Typ UDPAdvanced wurde noch nicht Implementiert");
                 startable = false;
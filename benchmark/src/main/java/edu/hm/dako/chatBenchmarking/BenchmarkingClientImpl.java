@@ -8,13 +8,22 @@ import edu.hm.dako.chatClient.SimpleMessageListenerThreadImpl;
 import edu.hm.dako.common.ChatServerImplementationType;
 import edu.hm.dako.common.ClientConversationStatus;
 import edu.hm.dako.common.ExceptionHandler;
+import edu.hm.dako.common.ThreadingFactory;
+import edu.hm.dako.common.ThreadingType;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.UUID;
 import java.util.Vector;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Benchmarking-Client: Simuliert einen Chat-User
@@ -24,9 +33,9 @@ public class BenchmarkingClientImpl extends AbstractChatClient
         implements Runnable, ClientUserInterface {
 
     private static final Logger log = LogManager.getLogger(ClientImpl.class);
-    // Kennzeichen, ob zuletzt erwartete Chat-Response-PDU des Clients
-    // angekommen ist
-    private final AtomicBoolean chatResponseReceived = new AtomicBoolean();
+    // Ausstehende Chat-Message-Requests (Schluessel: Sequenznummer), werden bei Empfang der Response mit der
+    // Serverzeit abgeschlossen
+    private final ConcurrentHashMap<Long, CompletableFuture<Long>> pendingResponses = new ConcurrentHashMap<>();
     // Serverzeit des letzten Chat-Message-Requests
     private final AtomicLong lastServerTime = new AtomicLong(0);
     /*
@@ -39,8 +48,13 @@ public class BenchmarkingClientImpl extends AbstractChatClient
     protected int nrOfRetries;
     protected int clientThinkTime;
     protected ChatServerImplementationType implementationType;
+    // Ausfuehrungsmodell des Listener-Threads
+    protected ThreadingType threadingType;
+    // Lastmodell und Ankunftsrate in Nachrichten pro Sekunde bei offener Last
+    protected UserInterfaceInputParameters.LoadMode loadMode;
+    protected double messageRate;
     // Schnittstelle zur BenchmarkingGui, um den Progressbar zu veraendern
-    protected BenchmarkingClientUserInterface benchmarkingGui;
+    protected BenchmarkingProgressInterface benchmarkingGui;
     // Gemeinsame Daten aller Threads zur Erfassung statistischer Daten
     protected SharedClientStatistics sharedStatistics;
     /*
@@ -51,6 +65,13 @@ public class BenchmarkingClientImpl extends AbstractChatClient
     private long numberOfLostConfirms;
     private long numberOfRetries;
     private long numberOfReceivedChatMessages;
+    /*
+     * Offene Last: geplante Sendezeitpunkte in ns (Index: Sequenznummer - erste Sequenznummer) und ausstehende
+     * Antworten. Die Sendezeitpunkte werden vor dem ersten Request belegt und ueber das volatile Feld veroeffentlicht.
+     */
+    private long firstSequenceNumber;
+    private volatile AtomicLongArray intendedSendTimes;
+    private CountDownLatch outstandingResponses;
 
     /**
      * Konstruktor fuer Benchmarking
@@ -66,14 +87,19 @@ public class BenchmarkingClientImpl extends AbstractChatClient
      * @param numberOfRetries     Anzahl Wiederholungen bei Nachrichtenverlust
      * @param responseTimeout     Timeout bei Uebrwachung der Bestaetigungen
      * @param sharedStatistics    Statistikdaten
+     * @param threadingType       Ausfuehrungsmodell des Listener-Threads
+     * @param loadMode            Lastmodell
+     * @param messageRate         Nachrichten pro Sekunde bei offener Last
      */
     public BenchmarkingClientImpl(ClientUserInterface userInterface,
-                                  BenchmarkingClientUserInterface benchmarkingGui,
+                                  BenchmarkingProgressInterface benchmarkingGui,
                                   ChatServerImplementationType implementationType, int serverPort, String remoteServerAddress,
                                   int numberOfClient, int messageLength, int numberOfMessages, int clientThinkTime,
-                                  int numberOfRetries, int responseTimeout, SharedClientStatistics sharedStatistics) {
+                                  int numberOfRetries, int responseTimeout, SharedClientStatistics sharedStatistics,
+                                  ThreadingType threadingType, UserInterfaceInputParameters.LoadMode loadMode,
+                                  double messageRate) {
 
-        super(userInterface, serverPort, remoteServerAddress);
+        super(userInterface, serverPort, remoteServerAddress, getConnectionFactory(implementationType));
 
         this.benchmarkingGui = benchmarkingGui;
         this.implementationType = implementationType;
@@ -84,6 +110,9 @@ public class BenchmarkingClientImpl extends AbstractChatClient
         this.nrOfRetries = numberOfRetries;
         this.responseTimeout = responseTimeout;
         this.sharedStatistics = sharedStatistics;
+        this.threadingType = threadingType;
+        this.loadMode = loadMode;
+        this.messageRate = messageRate;
         startMessageListenerThread();
     }
 
@@ -95,11 +124,11 @@ public class BenchmarkingClientImpl extends AbstractChatClient
         switch (implementationType) {
 
             case TCPSimpleImplementation:
+            case TCPNioImplementation:
             case TCPAdvancedImplementation:
                 try {
-                    messageListenerThread = new SimpleMessageListenerThreadImpl(this, connection,
-                            sharedClientData);
-                    messageListenerThread.start();
+                    messageListenerThread = ThreadingFactory.start(threadingType,
+                            new SimpleMessageListenerThreadImpl(this, connection, sharedClientData));
                 } catch (Exception e) {
                     ExceptionHandler.logException(e);
                 }
@@ -147,21 +176,25 @@ public class BenchmarkingClientImpl extends AbstractChatClient
             waitForLoggedInClients();
 
             // Alle Chat-Nachrichten senden
-            int i = 0;
-            while ((i < numberOfMessagesToSend) && (!userInterface.isTestAborted())) {
-
-                sendMessageAndWaitForAck(i);
-                try {
-                    // Zufaellige Zeit, aber maximal die angegebene Denkzeit
-                    // warten
-                    int randomThinkTime = (int) (Math.random() * clientThinkTime) + 1;
-                    Thread.sleep(randomThinkTime);
-                } catch (Exception e) {
-                    ExceptionHandler.logException(e);
+            if (loadMode != null && loadMode != UserInterfaceInputParameters.LoadMode.ClosedLoop) {
+                sendMessagesOpenLoop();
+            } else {
+                int i = 0;
+                while ((i < numberOfMessagesToSend) && (!userInterface.isTestAborted())) {
+
+                    sendMessageAndWaitForAck(i);
+                    try {
+                        // Zufaellige Zeit, aber maximal die angegebene Denkzeit
+                        // warten
+                        int randomThinkTime = (int) (Math.random() * clientThinkTime) + 1;
+                        Thread.sleep(randomThinkTime);
+                    } catch (Exception e) {
+                        ExceptionHandler.logException(e);
+                    }
+
+                    i++;
+                    log.debug("Gesendete Chat-Nachrichten von " + userName + ": " + i);
                 }
-
-                i++;
-                log.debug("Gesendete Chat-Nachrichten von " + userName + ": " + i);
             }
 
             // Warten, bis alle Clients bereit zum Ausloggen sind (alle Clients
@@ -201,20 +234,22 @@ public class BenchmarkingClientImpl extends AbstractChatClient
     }
 
     /**
-     * Warten, bis Server einen Chat-Response als Antwort auf den letzten Chat-Request gesendet hat (nur fuer
-     * Benchmarking)
+     * Warten, bis Server einen Chat-Response als Antwort auf einen Chat-Request gesendet hat (nur fuer
+     * Benchmarking). Der wartende Thread wird vom Message-Listener-Thread direkt beim Empfang der Response geweckt.
+     * @param response Abschluss des Requests, liefert die Serverzeit
+     * @return Serverzeit in ns oder -1, wenn der Test abgebrochen wurde
      */
-    private void waitUntilChatResponseReceived() {
+    private long waitUntilChatResponseReceived(CompletableFuture<Long> response) throws Exception {
 
-        setLock(true);
-        try {
-            while (getLock()) {
+        while (true) {
+            try {
+                return response.get(Math.max(responseTimeout, 1), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (userInterface.isTestAborted()) {
+                    return -1;
+                }
                 log.debug(userName + " wartet auf Chat-Message-Response-PDU");
-                Thread.sleep(1);
-                // Durch den Sleep wird die RTT beim Benchmark ein wenig verfaelscht
             }
-        } catch (Exception e) {
-            ExceptionHandler.logException(e);
         }
     }
 
@@ -229,27 +264,134 @@ public class BenchmarkingClientImpl extends AbstractChatClient
         chatMessage.append("+".repeat(Math.max(0, messageLength)));
 
         // Senden der Nachricht und warten, bis Bestaetigung vom Server da ist
+        // Die Sequenznummer vergibt tell, der Zaehler wird nur von diesem Thread erhoeht
+        long sequenceNumber = sharedClientData.messageCounter.get() + 1;
         try {
 
             sharedStatistics.incrSentMsgCounter(clientNumber);
 
+            // Request vor dem Senden eintragen, sonst geht eine sehr schnelle Response verloren und der
+            // Client wartet endlos
+            CompletableFuture<Long> response = new CompletableFuture<>();
+            pendingResponses.put(sequenceNumber, response);
+
             // RTT-Startzeit ermitteln
             long rttStartTime = System.nanoTime();
             tell(userName, chatMessage.toString());
 
             // Warten, bis Chat-Response empfangen wurde, dann erst naechsten
             // Chat Request senden
-            waitUntilChatResponseReceived();
+            long serverTime = waitUntilChatResponseReceived(response);
 
             // Response in Statistik aufnehmen
             long rtt = System.nanoTime() - rttStartTime;
-            postReceive(i, getLastServerTime(), rtt);
+            if (serverTime >= 0) {
+                postReceive(i, serverTime, rtt);
+            }
 
         } catch (Exception e) {
             ExceptionHandler.logException(e);
+        } finally {
+            pendingResponses.remove(sequenceNumber);
         }
     }
 
+    /**
+     * Offene Last: Alle Chat-Nachrichten nach festem Zeitplan senden, unabhaengig davon, ob die Antworten auf
+     * fruehere Requests schon eingetroffen sind, und danach auf die ausstehenden Antworten warten.
+     * <p>
+     * Der Zeitplan wird durch verspaetete Sendungen nicht verschoben; kann ein Request erst nach seinem geplanten
+     * Zeitpunkt gesendet werden, folgen die naechsten ohne Pause. Gemessen wird vom geplanten Sendezeitpunkt bis zum
+     * Eintreffen der Antwort (siehe {@link #chatMessageResponseReceived(long, long)}), damit Wartezeiten im Client
+     * und im Server, die ein Nutzer bei dieser Nachrichtenrate erlebt, in die Messung eingehen.
+     * @throws InterruptedException falls das Warten unterbrochen wurde
+     */
+    private void sendMessagesOpenLoop() throws InterruptedException {
+
+        String chatMessage = "+".repeat(Math.max(0, messageLength));
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long interval = (long) (1_000_000_000L / messageRate);
+
+        firstSequenceNumber = sharedClientData.messageCounter.get() + 1;
+        outstandingResponses = new CountDownLatch(numberOfMessagesToSend);
+        AtomicLongArray sendTimes = new AtomicLongArray(numberOfMessagesToSend);
+        intendedSendTimes = sendTimes;
+
+        // Zufaelliger Versatz innerhalb des ersten Intervalls, damit nicht alle Clients gleichzeitig senden
+        long intendedTime = System.nanoTime() + (long) (random.nextDouble() * interval);
+        int sent = 0;
+        while (sent < numberOfMessagesToSend && !userInterface.isTestAborted()) {
+            long delay;
+            while ((delay = intendedTime - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            sendTimes.set(sent, intendedTime);
+            sharedStatistics.incrSentMsgCounter(clientNumber);
+            try {
+                tell(userName, chatMessage);
+            } catch (Exception e) {
+                ExceptionHandler.logException(e);
+            }
+            sent++;
+            if (loadMode == UserInterfaceInputParameters.LoadMode.PoissonRate) {
+                intendedTime += (long) (-Math.log(1.0 - random.nextDouble()) * 1_000_000_000L / messageRate);
+            } else {
+                intendedTime += interval;
+            }
+        }
+        log.debug(threadName + ": " + sent + " Chat-Nachrichten nach Zeitplan gesendet");
+
+        // Nicht gesendete Nachrichten (Abbruch) werden nicht erwartet
+        for (int i = sent; i < numberOfMessagesToSend; i++) {
+            outstandingResponses.countDown();
+        }
+
+        // Auf ausstehende Antworten warten, solange noch welche eintreffen
+        long remaining = outstandingResponses.getCount();
+        while (remaining > 0 && !userInterface.isTestAborted()) {
+            if (outstandingResponses.await(Math.max(responseTimeout, 1), TimeUnit.MILLISECONDS)) {
+                break;
+            }
+            long now = outstandingResponses.getCount();
+            if (now == remaining) {
+                log.error(threadName + ": " + now + " Chat-Responses nicht erhalten");
+                break;
+            }
+            remaining = now;
+        }
+    }
+
+    /**
+     * Antwort einem ausstehenden Request zuordnen. Wird vom Message-Listener-Thread aufgerufen.
+     * <p>
+     * Geschlossene Schleife: Der Request wird abgeschlossen und der wartende Client-Thread damit sofort geweckt,
+     * gemessen wird in sendMessageAndWaitForAck. Offene Last: Die Latenz ab dem geplanten Sendezeitpunkt wird
+     * erfasst.
+     * @param sequenceNumber Sequenznummer des beantworteten Requests
+     * @param serverTime Benoetigte Zeit fuer die Bearbeitung im Server in ns
+     */
+    @Override
+    public void chatMessageResponseReceived(long sequenceNumber, long serverTime) {
+        AtomicLongArray sendTimes = intendedSendTimes;
+        if (sendTimes == null) {
+            CompletableFuture<Long> response = pendingResponses.remove(sequenceNumber);
+            if (response != null) {
+                response.complete(serverTime);
+            } else {
+                log.debug(threadName + ": Chat-Response mit unerwarteter Sequenznummer " + sequenceNumber);
+            }
+            return;
+        }
+        long index = sequenceNumber - firstSequenceNumber;
+        if (index < 0 || index >= sendTimes.length()) {
+            log.debug(threadName + ": Chat-Response mit unerwarteter Sequenznummer " + sequenceNumber);
+            return;
+        }
+        long latency = System.nanoTime() - sendTimes.get((int) index);
+        postReceive((int) index, serverTime, latency);
+        outstandingResponses.countDown();
+    }
+
     /**
      * Synchronisation mit allen anderen Client-Threads: Warten, bis alle Clients angemeldet sind und dann erst mit der
      * Lasterzeugung beginnen
@@ -320,6 +462,16 @@ public class BenchmarkingClientImpl extends AbstractChatClient
     public void setUserList(Vector<String> names) {
     }
 
+    @Override
+    // Wird nicht genutzt, nur fuer ClientGui relevant
+    public void addUser(String userName) {
+    }
+
+    @Override
+    // Wird nicht genutzt, nur fuer ClientGui relevant
+    public void removeUser(String userName) {
+    }
+
     @Override
     // Wird nicht genutzt, nur fuer ClientGui relevant
     public void setMessageLine(String sender, String message) {
@@ -341,31 +493,14 @@ public class BenchmarkingClientImpl extends AbstractChatClient
     }
 
     @Override
-    public synchronized boolean getLock() {
-        if (chatResponseReceived.get()) {
-            log.debug(Thread.currentThread().getName() + " wartet auf notify");
-            try {
-                wait();
-                return false;
-            } catch (Exception e) {
-                return false;
-            }
-        } else {
-            log.error(
-                    Thread.currentThread().getName() + " muss nicht auf notify warten, Lock frei");
-            return false;
-        }
+    // Wird nicht genutzt, auf Responses wird ueber pendingResponses gewartet
+    public boolean getLock() {
+        return false;
     }
 
     @Override
-    public synchronized void setLock(boolean lock) {
-        chatResponseReceived.getAndSet(lock);
-        if (!chatResponseReceived.get()) {
-            log.debug(Thread.currentThread().getName() + " sendet notify");
-            // Antwort auf letzten Request erhalten, naechster Request kann gesendet
-            // werden
-            notifyAll();
-        }
+    // Wird nicht genutzt, auf Responses wird ueber pendingResponses gewartet
+    public void setLock(boolean lock) {
     }
 
     @Override
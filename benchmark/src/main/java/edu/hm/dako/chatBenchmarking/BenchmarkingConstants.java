@@ -14,4 +14,7 @@ public class BenchmarkingConstants {
 
     // Maximale Chat-Nachrichtenlaenge
     public static final int MAX_MESSAGE_LENGTH = 5000;
+
+    // Benchmarking-Protokolldatei, an die nach jedem Lauf ein Satz angehaengt wird
+    public static final String PROTOCOL_FILE = "Benchmarking-ChatApp-Protokolldatei";
 }
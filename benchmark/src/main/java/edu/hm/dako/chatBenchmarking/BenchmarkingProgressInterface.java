@@ -0,0 +1,50 @@
+package edu.hm.dako.chatBenchmarking;
+
+/**
+ * Schnittstelle fuer die Ausgabe von Fortschritt und Ergebnissen eines Benchmarks. Enthaelt nur, was der
+ * {@link BenchmarkingClientCoordinator} und die Client-Threads benoetigen, und ist daher auch ohne GUI-Bibliotheken
+ * implementierbar (siehe {@link BenchmarkingClientCommandLine}).
+ */
+public interface BenchmarkingProgressInterface {
+
+    /**
+     * Uebergabe der Startdaten an die Ausgabe
+     *
+     * @param data Startdaten
+     */
+    void showStartData(UserInterfaceStartData data);
+
+    /**
+     * Uebergabe der Ergebnisdaten an die Ausgabe
+     * @param data Testergebnisse
+     */
+    void showResultData(UserInterfaceResultData data);
+
+    /**
+     * Uebergabe einer Nachricht zur Ausgabe in der Messagezeile
+     * @param message Nachrichtentext
+     */
+    void setMessageLine(String message);
+
+    /**
+     * Zuruecksetzen des Laufzeitzaehlers auf 0
+     */
+    void resetCurrentRunTime();
+
+    /**
+     * Erhoehung des Laufzeitzaehlers
+     *
+     * @param sec Laufzeiterhoehung in Sekunden
+     */
+    void addCurrentRunTime(long sec);
+
+    /**
+     * Der Ausgabe mitteilen, dass der Testlauf abgeschlossen ist
+     */
+    void testFinished();
+
+    /**
+     * Verarbeitungsfortschritt um eine Aufgabe (Login, Nachricht, Logout) erhoehen
+     */
+    void countUpProgressTask();
+}
@@ -11,8 +11,8 @@ public interface BenchmarkingStartInterface {
     /**
      * Methode fuehrt den Benchmark aus
      * @param parm Input-Parameter
-     * @param clientGui Schnittstelle zur GUI
+     * @param clientGui Schnittstelle zur Ausgabe (GUI oder Kommandozeile)
      */
     void executeTest(UserInterfaceInputParameters parm,
-                     BenchmarkingClientUserInterface clientGui);
+                     BenchmarkingProgressInterface clientGui);
 }
@@ -14,11 +14,11 @@ public class BenchmarkingTimeCounterThread extends Thread {
 
     private static final int SLEEP_TIME_IN_SECONDS = 1;
     private static final Logger log = LogManager.getLogger(BenchmarkingTimeCounterThread.class);
-    private final BenchmarkingClientUserInterface out;
+    private final BenchmarkingProgressInterface out;
 
     private boolean running = true;
 
-    public BenchmarkingTimeCounterThread(BenchmarkingClientUserInterface clientGui) {
+    public BenchmarkingTimeCounterThread(BenchmarkingProgressInterface clientGui) {
         setName("TimeCounterThread");
         this.out = clientGui;
     }
@@ -0,0 +1,152 @@
+package edu.hm.dako.chatBenchmarking;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Messwerte eines simulierten Clients, die ohne Sperre erfasst werden.
+ * <p>
+ * Jeder Wert hat genau einen schreibenden Thread: Gesendete Requests zaehlt der Client-Thread, Responses erfasst der
+ * Thread, der sie verarbeitet (der Client-Thread oder bei offener Last der Message-Listener-Thread). Geschrieben
+ * wird daher ohne CAS und ohne Sperre. Die Werte einer Response werden zuerst geschrieben und dann mit dem Zaehler
+ * der Responses per {@code lazySet} veroeffentlicht; ein Leser, der zuerst den Zaehler liest, sieht mindestens die
+ * dazu gehoerenden Werte. Waehrend des Laufs ergibt das eine Momentaufnahme, nach dem Ende aller Client-Threads die
+ * exakten Werte.
+ * <p>
+ * Die Objekte aller Clients werden nacheinander angelegt und liegen im Heap nebeneinander. Damit die Schreibzugriffe
+ * zweier Clients nicht dieselbe Cache-Zeile treffen, sind die Messwerte vorne (ueber die Oberklasse) und hinten mit
+ * je 64 Bytes aufgefuellt.
+ */
+final class ClientStatisticsRecorder extends ClientStatisticsRecorderFields {
+
+    // Auffuellen gegen False Sharing mit dem naechsten Objekt im Heap
+    @SuppressWarnings("unused")
+    private long p10, p11, p12, p13, p14, p15, p16, p17;
+
+    // Die Heap-Belegung wird nur bei jeder so vielten Response abgefragt
+    static final int HEAP_SAMPLE_INTERVAL = 256;
+
+    private static final AtomicLongFieldUpdater<ClientStatisticsRecorderFields> SENT_REQUESTS =
+            AtomicLongFieldUpdater.newUpdater(ClientStatisticsRecorderFields.class, "sentRequests");
+    private static final AtomicLongFieldUpdater<ClientStatisticsRecorderFields> RECEIVED_RESPONSES =
+            AtomicLongFieldUpdater.newUpdater(ClientStatisticsRecorderFields.class, "receivedResponses");
+
+    /**
+     * Gesendeten Request zaehlen, nur vom Client-Thread aufzurufen
+     */
+    void recordSentRequest() {
+        SENT_REQUESTS.lazySet(this, sentRequests + 1);
+    }
+
+    /**
+     * Empfangene Response erfassen, nur von dem Thread aufzurufen, der die Responses des Clients verarbeitet
+     *
+     * @param rtt Round Trip Time in ns
+     * @param serverTime Bearbeitungszeit im Server in ns
+     */
+    void recordResponse(long rtt, long serverTime) {
+        long count = receivedResponses + 1;
+        sumRTT += rtt;
+        minRTT = Math.min(minRTT, rtt);
+        maxRTT = Math.max(maxRTT, rtt);
+        sumServerTime += serverTime;
+        rttHistogram.record(rtt);
+        if (count % HEAP_SAMPLE_INTERVAL == 1) {
+            Runtime r = Runtime.getRuntime();
+            maxHeapSize = Math.max(maxHeapSize, r.totalMemory() - r.freeMemory());
+        }
+        RECEIVED_RESPONSES.lazySet(this, count);
+    }
+
+    long getSentRequests() {
+        return sentRequests;
+    }
+
+    long getReceivedResponses() {
+        return receivedResponses;
+    }
+
+    /**
+     * @return Summe der RTTs in ns
+     */
+    long getSumRTT() {
+        long count = receivedResponses;
+        return count == 0 ? 0 : sumRTT;
+    }
+
+    /**
+     * @return Minimale RTT in ns, 0 ohne Responses
+     */
+    long getMinRTT() {
+        long count = receivedResponses;
+        return count == 0 ? 0 : minRTT;
+    }
+
+    /**
+     * @return Maximale RTT in ns
+     */
+    long getMaxRTT() {
+        long count = receivedResponses;
+        return count == 0 ? 0 : maxRTT;
+    }
+
+    /**
+     * @return Summe der Serverbearbeitungszeiten in ns
+     */
+    long getSumServerTime() {
+        long count = receivedResponses;
+        return count == 0 ? 0 : sumServerTime;
+    }
+
+    /**
+     * @return Maximale beobachtete Heap-Belegung in Bytes
+     */
+    long getMaxHeapSize() {
+        long count = receivedResponses;
+        return count == 0 ? 0 : maxHeapSize;
+    }
+
+    /**
+     * RTT-Histogramm des Clients in ein Gesamthistogramm uebernehmen
+     *
+     * @param target Gesamthistogramm
+     */
+    void addRttHistogramTo(LatencyHistogram target) {
+        if (receivedResponses > 0) {
+            target.add(rttHistogram);
+        }
+    }
+}
+
+/**
+ * Auffuellen vor den Messwerten gegen False Sharing mit dem vorhergehenden Objekt im Heap. Felder der Oberklasse
+ * liegen vor denen der Unterklasse.
+ */
+abstract class ClientStatisticsRecorderPadding {
+    @SuppressWarnings("unused")
+    private long p00, p01, p02, p03, p04, p05, p06, p07;
+}
+
+/**
+ * Messwerte eines Clients, siehe {@link ClientStatisticsRecorder}
+ */
+abstract class ClientStatisticsRecorderFields extends ClientStatisticsRecorderPadding {
+
+    // Anzahl gesendeter Requests, geschrieben vom Client-Thread
+    volatile long sentRequests;
+
+    // Anzahl empfangener Responses, veroeffentlicht die folgenden Werte
+    volatile long receivedResponses;
+    long sumRTT;
+    long minRTT = Long.MAX_VALUE;
+    long maxRTT;
+    long sumServerTime;
+    long maxHeapSize;
+    final LatencyHistogram rttHistogram = new LatencyHistogram();
+
+    // Zaehler der Chat-Session, einmal nach dem Logout gesetzt
+    volatile long numberOfRetries;
+    volatile long numberOfSentEventMessages;
+    volatile long numberOfReceivedConfirmEvents;
+    volatile long numberOfLostConfirmEvents;
+    volatile long numberOfRetriedEvents;
+}
@@ -27,6 +27,11 @@ public class DistributionMetrics {
     // 90 % Percentile
     double percentile90;
 
+    // 99 %, 99,9 % und 99,99 % Percentile fuer die Auslaeufer der Verteilung
+    double percentile99;
+    double percentile999;
+    double percentile9999;
+
     // Stannweite (zwischen Minimum und Maximum)
     double range;
 
@@ -51,6 +56,9 @@ public class DistributionMetrics {
         percentile50 = 0;
         percentile75 = 0;
         percentile90 = 0;
+        percentile99 = 0;
+        percentile999 = 0;
+        percentile9999 = 0;
         interquartilRange = 0;
         range = 0;
         mean = 0;
@@ -114,6 +122,30 @@ public class DistributionMetrics {
         this.percentile90 = percentile90;
     }
 
+    public double getPercentile99() {
+        return percentile99;
+    }
+
+    public void setPercentile99(double percentile99) {
+        this.percentile99 = percentile99;
+    }
+
+    public double getPercentile999() {
+        return percentile999;
+    }
+
+    public void setPercentile999(double percentile999) {
+        this.percentile999 = percentile999;
+    }
+
+    public double getPercentile9999() {
+        return percentile9999;
+    }
+
+    public void setPercentile9999(double percentile9999) {
+        this.percentile9999 = percentile9999;
+    }
+
     public double getInterquartilRange() {
         return interquartilRange;
     }
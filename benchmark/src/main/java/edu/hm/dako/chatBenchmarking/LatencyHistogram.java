@@ -0,0 +1,205 @@
+package edu.hm.dako.chatBenchmarking;
+
+/**
+ * Histogramm fuer Latenzen in ns mit logarithmisch gestaffelten Klassen fester Anzahl (nach dem Vorbild von
+ * HdrHistogram).
+ * <p>
+ * Werte unter {@value #SUB_BUCKET_COUNT} ns werden exakt gezaehlt. Darueber wird jede Zweierpotenz in
+ * {@value #SUB_BUCKET_COUNT}/2 gleich breite Klassen geteilt, der relative Fehler eines Wertes ist damit hoechstens
+ * 1/{@value #SUB_BUCKET_HALF_COUNT} (unter 1,6 %). Werte ab 2^{@value #MAX_VALUE_BITS} ns (ca. 69 Sekunden) werden
+ * der obersten Klasse zugeordnet. Minimum, Maximum, Summe und Quadratsumme werden exakt mitgefuehrt.
+ * <p>
+ * Jeder Client fuehrt ein eigenes Histogramm, der Speicherbedarf zaehlt daher bei zehntausenden Clients. Die Zaehler
+ * werden je Zweierpotenz erst beim ersten Wert darin angelegt ({@value #SUB_BUCKET_HALF_COUNT} Zaehler, 512 Bytes).
+ * Die RTTs eines Clients liegen meist innerhalb weniger Zweierpotenzen, ein Histogramm belegt dann wenige KB statt
+ * der knapp 16 KB fuer alle {@link #BUCKETS} Klassen.
+ * <p>
+ * Das Erfassen eines Wertes kostet konstante Zeit und erzeugt nur beim ersten Wert einer Zweierpotenz ein Objekt.
+ * Histogramme mehrerer Clients koennen mit {@link #add(LatencyHistogram)} zusammengefuehrt werden. Nicht
+ * thread-sicher.
+ */
+public class LatencyHistogram {
+
+    // Genauigkeit: Klassen je Zweierpotenz (Haelfte von SUB_BUCKET_COUNT)
+    static final int SUB_BUCKET_BITS = 7;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+
+    // Groesster exakt einzuordnender Wert: 2^MAX_VALUE_BITS - 1 ns
+    static final int MAX_VALUE_BITS = 36;
+    static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+
+    // Anzahl der Klassen
+    static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    // Anzahl der Zeilen: Zeile 0 mit den exakt gezaehlten Werten, danach eine Zeile je Zweierpotenz
+    static final int ROWS = shift(BUCKETS - 1) + 1;
+
+    // Zaehler je Zeile, null, solange in der Zeile kein Wert erfasst ist
+    private final long[][] rows = new long[ROWS][];
+    private long totalCount = 0;
+    private long minimum = Long.MAX_VALUE;
+    private long maximum = 0;
+    private double sum = 0;
+    private double sumOfSquares = 0;
+
+    /**
+     * Klasse eines Wertes
+     * <p>
+     * Fuer Werte mit hoechstem gesetzten Bit an Position msb wird um shift = msb - (SUB_BUCKET_BITS - 1) Bits nach
+     * rechts geschoben; der verbleibende Wert liegt zwischen SUB_BUCKET_HALF_COUNT und SUB_BUCKET_COUNT - 1.
+     *
+     * @param value Wert in ns, nicht negativ
+     * @return Index der Klasse
+     */
+    static int index(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1));
+        return (shift << (SUB_BUCKET_BITS - 1)) + (int) (value >>> shift);
+    }
+
+    /**
+     * @param index Index der Klasse
+     * @return Kleinster Wert der Klasse
+     */
+    static long lowestValue(int index) {
+        int shift = shift(index);
+        return (long) (index - (shift << (SUB_BUCKET_BITS - 1))) << shift;
+    }
+
+    /**
+     * @param index Index der Klasse
+     * @return Groesster Wert der Klasse
+     */
+    static long highestValue(int index) {
+        return lowestValue(index) + (1L << shift(index)) - 1;
+    }
+
+    private static int shift(int index) {
+        return index < SUB_BUCKET_COUNT ? 0 : (index >> (SUB_BUCKET_BITS - 1)) - 1;
+    }
+
+    /**
+     * @param row Zeile, entspricht der Verschiebung ihrer Klassen
+     * @return Index der ersten Klasse der Zeile
+     */
+    private static int firstIndex(int row) {
+        return row == 0 ? 0 : (row + 1) * SUB_BUCKET_HALF_COUNT;
+    }
+
+    private static long[] newRow(int row) {
+        return new long[row == 0 ? SUB_BUCKET_COUNT : SUB_BUCKET_HALF_COUNT];
+    }
+
+    /**
+     * Wert erfassen
+     *
+     * @param value Latenz in ns, negative Werte werden als 0 gezaehlt
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        int index = index(Math.min(v, MAX_VALUE));
+        int row = shift(index);
+        long[] counts = rows[row];
+        if (counts == null) {
+            counts = newRow(row);
+            rows[row] = counts;
+        }
+        counts[index - firstIndex(row)]++;
+        totalCount++;
+        minimum = Math.min(minimum, v);
+        maximum = Math.max(maximum, v);
+        sum += v;
+        sumOfSquares += (double) v * v;
+    }
+
+    /**
+     * Werte eines anderen Histogramms hinzufuegen
+     *
+     * @param other Histogramm, z. B. eines anderen Clients
+     */
+    public void add(LatencyHistogram other) {
+        for (int row = 0; row < ROWS; row++) {
+            long[] otherCounts = other.rows[row];
+            if (otherCounts == null) {
+                continue;
+            }
+            if (rows[row] == null) {
+                rows[row] = newRow(row);
+            }
+            long[] counts = rows[row];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += otherCounts[i];
+            }
+        }
+        totalCount += other.totalCount;
+        minimum = Math.min(minimum, other.minimum);
+        maximum = Math.max(maximum, other.maximum);
+        sum += other.sum;
+        sumOfSquares += other.sumOfSquares;
+    }
+
+    /**
+     * Wert zu einem Perzentil: der groesste Wert der Klasse, in der das Perzentil liegt, begrenzt durch Minimum und
+     * Maximum
+     *
+     * @param percentile Perzentil zwischen 0 und 100
+     * @return Wert in ns, 0, wenn keine Werte erfasst sind
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long countAtPercentile = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * totalCount));
+        long cumulated = 0;
+        for (int row = 0; row < ROWS; row++) {
+            long[] counts = rows[row];
+            if (counts == null) {
+                continue;
+            }
+            for (int i = 0; i < counts.length; i++) {
+                cumulated += counts[i];
+                if (cumulated >= countAtPercentile) {
+                    return Math.max(minimum, Math.min(maximum, highestValue(firstIndex(row) + i)));
+                }
+            }
+        }
+        return maximum;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMinimum() {
+        return totalCount == 0 ? 0 : minimum;
+    }
+
+    public long getMaximum() {
+        return maximum;
+    }
+
+    /**
+     * @return Arithmetisches Mittel in ns
+     */
+    public double getMean() {
+        return totalCount == 0 ? 0 : sum / totalCount;
+    }
+
+    /**
+     * @return Stichprobenvarianz in ns^2
+     */
+    public double getVariance() {
+        if (totalCount < 2) {
+            return 0;
+        }
+        double mean = sum / totalCount;
+        return Math.max(0, (sumOfSquares - mean * sum) / (totalCount - 1));
+    }
+
+    /**
+     * @return Stichprobenstandardabweichung in ns
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+}
@@ -1,12 +1,5 @@
 package edu.hm.dako.chatBenchmarking;
 
-import org.apache.commons.math3.exception.MathIllegalArgumentException;
-import org.apache.commons.math3.stat.descriptive.moment.Mean;
-import org.apache.commons.math3.stat.descriptive.moment.StandardDeviation;
-import org.apache.commons.math3.stat.descriptive.moment.Variance;
-import org.apache.commons.math3.stat.descriptive.rank.Max;
-import org.apache.commons.math3.stat.descriptive.rank.Min;
-import org.apache.commons.math3.stat.descriptive.rank.Percentile;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -15,8 +8,6 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.text.NumberFormat;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Formatter;
 import java.util.concurrent.CountDownLatch;
 
@@ -25,6 +16,9 @@ import java.util.concurrent.CountDownLatch;
  * Kommunikation zwischen mehreren Client-Threads und einem Server.
  * Die Daten werden in einem Array gesammelt, das einen Eintrag fuer jeden Client enthaelt.
  * Jeder Client erhaelt eine Nummer, die als Zugriffsindex auf das Array verwendet wird.
+ * <p>
+ * Die Messwerte je Request werden ohne Sperre in einem eigenen {@link ClientStatisticsRecorder} je Client erfasst
+ * und erst beim Lesen ueber alle Clients zusammengefasst. Die Client-Threads behindern sich daher gegenseitig nicht.
  * @author Peter Mandl
  */
 public class SharedClientStatistics {
@@ -43,7 +37,7 @@ public class SharedClientStatistics {
     // Kann benutzt werden um ein gleichzeitiges Logout aller Client-Threads zu
     // ermoeglichen, erst nachdem alle Chat-Messages von allen Clients versendet wurden
     private final CountDownLatch logoutSignal;
-    private final ClientStatistics[] clientStatistics;
+    private final ClientStatisticsRecorder[] clientStatistics;
     // Alle Event-Nachrichten, die fuer den Test vom Server gesendet werden muessen
     long numberOfPlannedEventMessages;
     // Zaehlt angemeldete Clients
@@ -65,25 +59,11 @@ public class SharedClientStatistics {
         this.numberOfPlannedEventMessages = (long) numberOfAllMessages * numberOfClients;
         loginSignal = new CountDownLatch(numberOfClients);
         logoutSignal = new CountDownLatch(numberOfClients);
-        clientStatistics = new ClientStatistics[numberOfClients];
+        clientStatistics = new ClientStatisticsRecorder[numberOfClients];
 
         // Initialisieren der Statistik-Tabelle
         for (int i = 0; i < numberOfClients; i++) {
-            clientStatistics[i] = new ClientStatistics();
-            clientStatistics[i].receivedResponses = 0;
-            clientStatistics[i].sentRequests = 0;
-            clientStatistics[i].numberOfRetries = 0;
-            clientStatistics[i].numberOfSentEventMessages = 0;
-            clientStatistics[i].numberOfReceivedConfirmEvents = 0;
-            clientStatistics[i].numberOfLostConfirmEvents = 0;
-            clientStatistics[i].numberOfRetriedEvents = 0;
-            clientStatistics[i].averageRTT = 0;
-            clientStatistics[i].maxRTT = 0;
-            clientStatistics[i].minRTT = 0;
-            clientStatistics[i].sumRTT = 0;
-            clientStatistics[i].sumServerTime = 0;
-            clientStatistics[i].maxHeapSize = 0;
-            clientStatistics[i].rttList = new ArrayList<>();
+            clientStatistics[i] = new ClientStatisticsRecorder();
         }
     }
 
@@ -93,7 +73,7 @@ public class SharedClientStatistics {
      * @return true, falls Client-Id im gueltigen Bereich ist. Sonst false.
      */
     private boolean inRange(int i) {
-        if ((i < 0) || (i > numberOfClients)) {
+        if ((i < 0) || (i >= numberOfClients)) {
             log.error("Client-Id nicht im gueltigen Bereich");
             return false;
         } else {
@@ -153,10 +133,10 @@ public class SharedClientStatistics {
      * Anzahl der gesendeten Nachrichten eines Clients erhoehen
      * @param i Client-Id
      */
-    public synchronized void incrSentMsgCounter(int i) {
+    public void incrSentMsgCounter(int i) {
         if (!inRange(i))
             return;
-        clientStatistics[i].sentRequests++;
+        clientStatistics[i].recordSentRequest();
     }
 
     /**
@@ -164,7 +144,7 @@ public class SharedClientStatistics {
      * @param i  Nummer des Client-Threads
      * @param nr Anzahl der gesendeten Event-Nachrichten
      */
-    public synchronized void setNumberOfSentEventMessages(int i, long nr) {
+    public void setNumberOfSentEventMessages(int i, long nr) {
         if (!inRange(i))
             return;
         clientStatistics[i].numberOfSentEventMessages = nr;
@@ -175,7 +155,7 @@ public class SharedClientStatistics {
      * @param i Client-Id
      * @return Anzahl gesendeter Message Events
      */
-    public synchronized long getNumberOfSentEventMessages(int i) {
+    public long getNumberOfSentEventMessages(int i) {
         if (!inRange(i))
             return (-1);
         return clientStatistics[i].numberOfSentEventMessages;
@@ -186,7 +166,7 @@ public class SharedClientStatistics {
      * @param i  Client-Id
      * @param nr Anzahl an verlorengegangenen Confirm-Nachrichten
      */
-    public synchronized void setNumberOfLostConfirmEvents(int i, long nr) {
+    public void setNumberOfLostConfirmEvents(int i, long nr) {
         if (!inRange(i))
             return;
         clientStatistics[i].numberOfLostConfirmEvents = nr;
@@ -197,7 +177,7 @@ public class SharedClientStatistics {
      * @param i Client-Id
      * @return Anzahl verlorener Confirm Events
      */
-    public synchronized long getNumberOfLostConfirmEvents(int i) {
+    public long getNumberOfLostConfirmEvents(int i) {
         if (!inRange(i))
             return (-1);
         return clientStatistics[i].numberOfLostConfirmEvents;
@@ -208,7 +188,7 @@ public class SharedClientStatistics {
      * @param i Client-Id
      * @param nr Anzahl an empfangenen Confirm-Nachrichten
      */
-    public synchronized void setNumberOfReceivedConfirmEvents(int i, long nr) {
+    public void setNumberOfReceivedConfirmEvents(int i, long nr) {
         if (!inRange(i))
             return;
         clientStatistics[i].numberOfReceivedConfirmEvents = nr;
@@ -219,7 +199,7 @@ public class SharedClientStatistics {
      * @param i Client-Id
      * @return Anzahl empfangener Confirm-Events
      */
-    public synchronized long getNumberOfReceivedConfirmEvents(int i) {
+    public long getNumberOfReceivedConfirmEvents(int i) {
         if (!inRange(i))
             return (-1);
         return clientStatistics[i].numberOfReceivedConfirmEvents;
@@ -230,7 +210,7 @@ public class SharedClientStatistics {
      * @param i  Client-Id
      * @param nr Anzahl der Wiederholugen von Event-Nachrichten
      */
-    public synchronized void setNumberOfRetriedEvents(int i, long nr) {
+    public void setNumberOfRetriedEvents(int i, long nr) {
         if (!inRange(i))
             return;
         clientStatistics[i].numberOfRetriedEvents = nr;
@@ -241,7 +221,7 @@ public class SharedClientStatistics {
      * @param i Client-Id
      * @return Anzahl der Wiederholugen von Event-Nachrichten
      */
-    public synchronized long getNumberOfRetriedEvents(int i) {
+    public long getNumberOfRetriedEvents(int i) {
         if (!inRange(i))
             return (-1);
         return clientStatistics[i].numberOfRetriedEvents;
@@ -253,33 +233,12 @@ public class SharedClientStatistics {
      * @param rtt RoundTrip Time
      * @param serverTime Die Zeit, die der Server benoetigt hat
      */
-    public synchronized void incrReceivedMsgCounter(int i, long rtt, long serverTime) {
+    public void incrReceivedMsgCounter(int i, long rtt, long serverTime) {
 
         if (!inRange(i))
             return;
 
-        clientStatistics[i].receivedResponses++;
-
-        if (clientStatistics[i].receivedResponses > 1) {
-            clientStatistics[i].minRTT = Math.min(rtt, clientStatistics[i].minRTT);
-            clientStatistics[i].maxRTT = Math.max(rtt, clientStatistics[i].maxRTT);
-        } else {
-            clientStatistics[i].minRTT = rtt;
-            clientStatistics[i].maxRTT = rtt;
-        }
-
-        clientStatistics[i].sumRTT = clientStatistics[i].sumRTT + rtt;
-        clientStatistics[i].averageRTT = clientStatistics[i].sumRTT
-                / clientStatistics[i].receivedResponses;
-        clientStatistics[i].sumServerTime = clientStatistics[i].sumServerTime + serverTime;
-
-        clientStatistics[i].avgServerTime = clientStatistics[i].sumServerTime
-                / clientStatistics[i].receivedResponses;
-
-        clientStatistics[i].rttList.add((Long) rtt);
-        if (clientStatistics[i].maxHeapSize < usedMemory()) {
-            clientStatistics[i].maxHeapSize = usedMemory();
-        }
+        clientStatistics[i].recordResponse(rtt, serverTime);
     }
 
     /**
@@ -345,7 +304,7 @@ public class SharedClientStatistics {
     public synchronized int getSumOfAllReceivedMessages() {
         int sum = 0;
         for (int i = 0; i < numberOfClients; i++) {
-            sum += clientStatistics[i].receivedResponses;
+            sum += clientStatistics[i].getReceivedResponses();
         }
         return sum;
     }
@@ -366,15 +325,15 @@ public class SharedClientStatistics {
      * Durchschnittliche RTT ermitteln
      * @return Durchschnittliche RTT
      */
-    public synchronized long getAverageRTT() {
+    public long getAverageRTT() {
         long sum = 0;
         int nrClients = 0;
 
         for (int i = 0; i < numberOfClients; i++) {
             // Nur Threads, die mindestens eine Antwort bekommen haben,
             // verwenden
-            if (clientStatistics[i].receivedResponses > 0) {
-                sum = sum + clientStatistics[i].averageRTT;
+            if (clientStatistics[i].getReceivedResponses() > 0) {
+                sum = sum + getAverageRTT(i);
                 nrClients++;
             }
         }
@@ -391,20 +350,21 @@ public class SharedClientStatistics {
      * @return Durchschnittliche RTT
      */
     public long getAverageRTT(int i) {
-        return clientStatistics[i].averageRTT;
+        long count = clientStatistics[i].getReceivedResponses();
+        return count == 0 ? 0 : clientStatistics[i].getSumRTT() / count;
     }
 
     /**
      * Minimale RTT ueber alle Clients ermitteln
      * @return Minimale RTT
      */
-    public synchronized long getMinimumRTT() {
+    public long getMinimumRTT() {
 
         long min = Long.MAX_VALUE;
         for (int i = 0; i < numberOfClients; i++) {
             // Nur Threads, die mindestens eine Antwort bekommen haben,nverwenden
-            if (clientStatistics[i].receivedResponses > 0) {
-                min = Math.min(clientStatistics[i].minRTT, min);
+            if (clientStatistics[i].getReceivedResponses() > 0) {
+                min = Math.min(clientStatistics[i].getMinRTT(), min);
             }
         }
 
@@ -419,33 +379,24 @@ public class SharedClientStatistics {
      * Maximale RTT ueber alle Clients ermitteln
      * @return Maximale RTT
      */
-    public synchronized long getMaximumRTT() {
-        long max = -1;
+    public long getMaximumRTT() {
+        long max = 0;
 
         for (int i = 0; i < numberOfClients; i++) {
-            // Nur Threads, die mindestens eine Antwort bekommen haben,
-            // verwenden
-            if (clientStatistics[i].receivedResponses > 0) {
-                max = Math.max(clientStatistics[i].maxRTT, max);
-            }
-        }
-
-        if (max == -1) {
-            return 0;
-        } else {
-            return max;
+            max = Math.max(clientStatistics[i].getMaxRTT(), max);
         }
+        return max;
     }
 
     /**
      * Anzahl der gesendeten Requests aller Clients liefern
      * @return Anzahl gesendeter Requests
      */
-    public synchronized int getNumberOfSentRequests() {
+    public int getNumberOfSentRequests() {
         int sum = 0;
 
         for (int i = 0; i < numberOfClients; i++) {
-            sum += clientStatistics[i].sentRequests;
+            sum += clientStatistics[i].getSentRequests();
         }
 
         return sum;
@@ -456,20 +407,20 @@ public class SharedClientStatistics {
      * @param i Client-Id
      * @return Anzahl gesendeter Requests des Clients i
      */
-    public synchronized int getNumberOfSentRequests(int i) {
+    public int getNumberOfSentRequests(int i) {
         if (!inRange(i))
             return (-1);
-        return clientStatistics[i].sentRequests;
+        return (int) clientStatistics[i].getSentRequests();
     }
 
     /**
      * Anzahl der empfangenden Responses liefern
      * @return Anzahl empfangener Responses
      */
-    public synchronized int getNumberOfReceivedResponses() {
+    public int getNumberOfReceivedResponses() {
         int sum = 0;
         for (int i = 0; i < numberOfClients; i++) {
-            sum += clientStatistics[i].receivedResponses;
+            sum += clientStatistics[i].getReceivedResponses();
         }
         return sum;
     }
@@ -479,22 +430,20 @@ public class SharedClientStatistics {
      * @param i Client-Id
      * @return Anzahl empfangenerResponses des Clients i
      */
-    public synchronized int getNumberOfReceivedResponses(int i) {
+    public int getNumberOfReceivedResponses(int i) {
         if (!inRange(i))
             return (-1);
-        return clientStatistics[i].receivedResponses;
+        return (int) clientStatistics[i].getReceivedResponses();
     }
 
     /**
      * Anzahl der verlorenen Responses liefern
      * @return Anzahl verlorenen Responses
      */
-    public synchronized int getNumberOfLostResponses() {
-        int sum = 0;
-        for (int i = 0; i < numberOfClients; i++) {
-            sum += clientStatistics[i].sentRequests;
-        }
-        return sum - getNumberOfReceivedResponses();
+    public int getNumberOfLostResponses() {
+        // Responses zuerst lesen, damit keine Response vor ihrem Request gezaehlt wird
+        int received = getNumberOfReceivedResponses();
+        return getNumberOfSentRequests() - received;
     }
 
     /**
@@ -502,10 +451,11 @@ public class SharedClientStatistics {
      * @param i Client-Id
      * @return Anzahl verlorenen Responses des Clients i
      */
-    public synchronized int getNumberOfLostResponses(int i) {
+    public int getNumberOfLostResponses(int i) {
         if (!inRange(i))
             return (-1);
-        return clientStatistics[i].sentRequests - getNumberOfReceivedResponses(i);
+        int received = getNumberOfReceivedResponses(i);
+        return getNumberOfSentRequests(i) - received;
     }
 
     /**
@@ -513,10 +463,10 @@ public class SharedClientStatistics {
      * @param i Client-Id
      * @return Anzahl Uebertragungswiederholungen des Clients i
      */
-    public synchronized int getNumberOfRetries(int i) {
+    public int getNumberOfRetries(int i) {
         if (!inRange(i))
             return (-1);
-        return clientStatistics[i].numberOfRetries;
+        return (int) clientStatistics[i].numberOfRetries;
     }
 
     /**
@@ -524,20 +474,20 @@ public class SharedClientStatistics {
      * @param i Client-Id
      * @return RTT oder -1 bei falscher Client-Id
      */
-    public synchronized long getSumRTT(int i) {
+    public long getSumRTT(int i) {
         if (!inRange(i))
             return (-1);
-        return clientStatistics[i].sumRTT;
+        return clientStatistics[i].getSumRTT();
     }
 
     /**
      * Gesamte RTT ueber alle Clients ermitteln
      * @return RTT
      */
-    public synchronized long getSumRTT() {
+    public long getSumRTT() {
         long sum = 0;
         for (int i = 0; i < numberOfClients; i++) {
-            sum += clientStatistics[i].sumRTT;
+            sum += clientStatistics[i].getSumRTT();
         }
         return sum;
     }
@@ -547,80 +497,57 @@ public class SharedClientStatistics {
      * @param i Client-Id
      * @return Serverzeit
      */
-    public synchronized long getSumServerTime(int i) {
+    public long getSumServerTime(int i) {
         if (!inRange(i))
             return (-1);
-        return clientStatistics[i].sumServerTime;
+        return clientStatistics[i].getSumServerTime();
     }
 
     /**
-     * Gesamtliste ueber alle RTTs bilden
-     * @return ArrayList
+     * Verteilungsmetriken ueber die RTTs aller Clients berechnen. Die RTT-Histogramme der Clients werden dazu
+     * zusammengefuehrt, Perzentile sind auf weniger als 2 % genau (siehe {@link LatencyHistogram}).
+     * @return Verteilungsmetriken in ms
      */
     public synchronized DistributionMetrics calculateMetrics() {
 
-        ArrayList<Long> completeList = new ArrayList<>();
         DistributionMetrics distributionMetrics = new DistributionMetrics();
 
-        // RTT-Listen aller Clients zusammenfuegen
+        // RTT-Histogramme aller Clients zusammenfuehren
+        LatencyHistogram histogram = new LatencyHistogram();
         for (int i = 0; i < numberOfClients; i++) {
-            completeList.addAll(clientStatistics[i].rttList);
+            clientStatistics[i].addRttHistogramTo(histogram);
+        }
+        if (histogram.getTotalCount() == 0) {
+            log.error("Keine RTT-Werte fuer die Berechnung der Verteilungsmetriken");
+            return distributionMetrics;
         }
 
-        // Sortieren der gesamten RTT-Liste
-        Collections.sort(completeList);
-        double[] doubleList = new double[completeList.size()];
+        // Percentile berechnen
+        distributionMetrics.setPercentile10(histogram.getValueAtPercentile(10) / 1000000.0);
+        distributionMetrics.setPercentile25(histogram.getValueAtPercentile(25) / 1000000.0);
+        distributionMetrics.setPercentile50(histogram.getValueAtPercentile(50) / 1000000.0);
+        distributionMetrics.setPercentile75(histogram.getValueAtPercentile(75) / 1000000.0);
+        distributionMetrics.setPercentile90(histogram.getValueAtPercentile(90) / 1000000.0);
+        distributionMetrics.setPercentile99(histogram.getValueAtPercentile(99) / 1000000.0);
+        distributionMetrics.setPercentile999(histogram.getValueAtPercentile(99.9) / 1000000.0);
+        distributionMetrics.setPercentile9999(histogram.getValueAtPercentile(99.99) / 1000000.0);
 
-        try {
-            // RTT-Werte konvertieren zu double-Werten
-            for (int i = 0; i < completeList.size(); i++) {
-                doubleList[i] = completeList.get(i).doubleValue();
-            }
+        distributionMetrics.setInterquartilRange(
+                distributionMetrics.percentile75 - distributionMetrics.percentile25);
+
+        // Maximum und Minimum werden exakt mitgefuehrt
+        distributionMetrics.setMaximum(histogram.getMaximum() / 1000000.0);
+        distributionMetrics.setMinimum(histogram.getMinimum() / 1000000.0);
+
+        // Spannweite berechnen
+        distributionMetrics
+                .setRange(distributionMetrics.maximum - distributionMetrics.minimum);
+
+        // Arithmetisches Mittel, Varianz (in ms^2) und Standardabweichung
+        distributionMetrics.setMean(histogram.getMean() / 1000000.0);
+        distributionMetrics.setVariance(histogram.getVariance() / 1000000.0 / 1000000.0);
+        distributionMetrics.setStandardDeviation(histogram.getStandardDeviation() / 1000000.0);
 
-            // Percentile berechnen
-            Percentile percentile = new Percentile();
-            percentile.setData(doubleList);
-            distributionMetrics.setPercentile10(percentile.evaluate(10) / 1000000.0);
-            distributionMetrics.setPercentile25(percentile.evaluate(25) / 1000000.0);
-            distributionMetrics.setPercentile50(percentile.evaluate(50) / 1000000.0);
-            distributionMetrics.setPercentile75(percentile.evaluate(75) / 1000000.0);
-            distributionMetrics.setPercentile90(percentile.evaluate(90) / 1000000.0);
-
-            distributionMetrics.setInterquartilRange(
-                    distributionMetrics.percentile75 - distributionMetrics.percentile25);
-
-            // Maximum berechnen
-            Max max = new Max();
-            max.setData(doubleList);
-            distributionMetrics.setMaximum(max.evaluate() / 1000000.0);
-
-            // Minimum berechnen
-            Min min = new Min();
-            min.setData(doubleList);
-            distributionMetrics.setMinimum(min.evaluate() / 1000000.0);
-
-            // Spannweite und IQR berechnen
-            distributionMetrics
-                    .setRange(distributionMetrics.maximum - distributionMetrics.minimum);
-
-            // Artihmetisches Mittel berechnen
-            Mean mean = new Mean();
-            mean.setData(doubleList);
-            distributionMetrics.setMean(mean.evaluate() / 1000000.0);
-
-            // Varianz berechnen
-            Variance variance = new Variance();
-            variance.setData(doubleList);
-            distributionMetrics.setVariance(variance.evaluate() / 1000000.0);
-
-            // Standardabweichung berechnen
-            StandardDeviation standardDeviation = new StandardDeviation();
-            standardDeviation.setData(doubleList);
-            distributionMetrics.setStandardDeviation(standardDeviation.evaluate() / 1000000.0);
-
-        } catch (MathIllegalArgumentException e) {
-            log.error("Fehler bei der Berechnung der Verteilungsmetriken");
-        }
         return distributionMetrics;
     }
 
@@ -628,10 +555,10 @@ public class SharedClientStatistics {
      * Gesamte Serverzeit ueber alle Clients ermitteln
      * @return Serverzeit
      */
-    public synchronized long getSumServerTime() {
+    public long getSumServerTime() {
         long sum = 0;
         for (int i = 0; i < numberOfClients; i++) {
-            sum += clientStatistics[i].sumServerTime;
+            sum += clientStatistics[i].getSumServerTime();
         }
         return sum;
     }
@@ -640,15 +567,16 @@ public class SharedClientStatistics {
      * Durchschnittliche Serverbearbeitungszeit ermitteln
      * @return Serverbearbeitungszeit
      */
-    public synchronized long getAverageServerTime() {
+    public long getAverageServerTime() {
         long sum = 0;
         long nrClients = 0;
 
         for (int i = 0; i < numberOfClients; i++) {
             // Nur Threads, die mindestens eine Antwort bekommen haben,
             // verwenden
-            if (clientStatistics[i].receivedResponses > 0) {
-                sum = sum + clientStatistics[i].avgServerTime;
+            long count = clientStatistics[i].getReceivedResponses();
+            if (count > 0) {
+                sum = sum + clientStatistics[i].getSumServerTime() / count;
                 nrClients++;
             }
         }
@@ -663,16 +591,14 @@ public class SharedClientStatistics {
      * Maximale Heap-Groesse ueber alle Clients ermitteln
      * @return Maximale Heap-Groesse
      */
-    public synchronized long getMaxHeapSize() {
+    public long getMaxHeapSize() {
         long max = -1;
 
         for (int i = 0; i < numberOfClients; i++) {
             // Nur Threads, die mindestens eine Antwort bekommen haben,
             // verwenden
-            if (clientStatistics[i].receivedResponses > 0) {
-                if (clientStatistics[i].maxHeapSize > max) {
-                    max = clientStatistics[i].maxHeapSize;
-                }
+            if (clientStatistics[i].getReceivedResponses() > 0) {
+                max = Math.max(max, clientStatistics[i].getMaxHeapSize());
             }
         }
 
@@ -893,39 +819,4 @@ public class SharedClientStatistics {
         Runtime r = Runtime.getRuntime();
         return ((r.totalMemory() - r.freeMemory()));
     }
-
-    // Statistikdaten eines Clients
-    private static class ClientStatistics {
-        // Anzahl gesendeter Nachrichten
-        int sentRequests;
-        // Anzahl empfangener Antworten
-        int receivedResponses;
-        // Anzahl an Uebertragungswiederholungen (fuer unzuverlaessige Verbindungen wie UDP)
-        int numberOfRetries;
-        // Anzahl gesendeter Events fuer den Client
-        long numberOfSentEventMessages;
-        // Anzahl empfangener Responses fuer den Client
-        long numberOfReceivedConfirmEvents;
-        // Anzahl verlorender Event-Bestaetigungen fuer den Client
-        long numberOfLostConfirmEvents;
-        // Anzahl von wiederholten Events fuer den Client
-        // (fuer unzuverlaessige Verbindungen wie UDP)
-        long numberOfRetriedEvents;
-        // Durchschnittliche Round Trip Time in ns
-        long averageRTT;
-        // Maximale Round Trip Time in ns
-        long maxRTT;
-        // Minimale Round Trip Time in ns
-        long minRTT;
-        // Summe aller RTTs in ns
-        long sumRTT;
-        // Alle RTTs werden hier fuer die Quartilsermittlung gesammelt
-        ArrayList<Long> rttList;
-        // Zeit, die der Server insgesamt fuer alle Requests benoetigt in ns
-        long sumServerTime;
-        // Zeit, die der Server im Durchschnitt fuer einen Request benoetigt in ns
-        long avgServerTime;
-        // Maximale Heap-Groesse in Bytes waehrend eines Testlaufs
-        long maxHeapSize;
-    }
-}
\ No newline at end of file
+}
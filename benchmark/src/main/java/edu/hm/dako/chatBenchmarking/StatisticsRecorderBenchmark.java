@@ -0,0 +1,150 @@
+package edu.hm.dako.chatBenchmarking;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Selbsttest fuer die Messwerterfassung des Benchmarking-Clients: Mehrere Threads erfassen wie die simulierten
+ * Clients gleichzeitig gesendete Requests und empfangene Responses. Ermittelt wird der Aufwand des Messgeschirrs je
+ * erfasstem Request (ein Request und seine Response) fuer die sperrfreie Erfassung in {@link SharedClientStatistics}
+ * und fuer eine gemeinsame Sperre, wie sie die Statistik frueher verwendet hat.
+ * <p>
+ * Der Aufwand sollte gegenueber der RTT eines Requests (typisch einige 10 bis 100 Mikrosekunden) vernachlaessigbar
+ * sein und darf mit der Anzahl der Clients nicht wachsen.
+ * <p>
+ * Aufruf: StatisticsRecorderBenchmark [Threads] [Requests je Thread]
+ */
+public class StatisticsRecorderBenchmark {
+
+    // Anzahl der Messrunden je Variante (die erste dient zum Aufwaermen)
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0])
+                : Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+
+        System.out.println("Threads: " + threads + ", Requests je Thread: " + requests);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            String prefix = (round == 0) ? "Aufwaermen " : "Runde " + round + " ";
+            report(prefix + "SharedClientStatistics (sperrfrei), 1 Thread:  ",
+                    run(false, 1, requests));
+            report(prefix + "SharedClientStatistics (sperrfrei):            ",
+                    run(false, threads, requests));
+            report(prefix + "Gemeinsame Sperre (bisherige Erfassung):       ",
+                    run(true, threads, requests));
+        }
+    }
+
+    /**
+     * Eine Messrunde durchfuehren
+     * @param synchronizedRecording true: Erfassung unter gemeinsamer Sperre
+     * @param threads Anzahl gleichzeitiger Clients
+     * @param requests Anzahl Requests je Client
+     * @return Rechenzeit je erfasstem Request in ns (Laufzeit mal Anzahl belegter Prozessoren durch Anzahl Requests)
+     */
+    private static double run(boolean synchronizedRecording, int threads, int requests)
+            throws InterruptedException {
+        SharedClientStatistics statistics = new SharedClientStatistics(threads, requests, 0);
+        SynchronizedStatistics synchronizedStatistics = new SynchronizedStatistics(threads);
+
+        CountDownLatch startSignal = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            final int clientNumber = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    // RTTs vorab erzeugen, damit nur die Erfassung gemessen wird
+                    long[] rtts = new long[1024];
+                    for (int i = 0; i < rtts.length; i++) {
+                        rtts[i] = 20_000 + ThreadLocalRandom.current().nextLong(200_000);
+                    }
+                    startSignal.await();
+                    for (int i = 0; i < requests; i++) {
+                        long rtt = rtts[i & (rtts.length - 1)];
+                        if (synchronizedRecording) {
+                            synchronizedStatistics.incrSentMsgCounter(clientNumber);
+                            synchronizedStatistics.incrReceivedMsgCounter(clientNumber, rtt, rtt / 4);
+                        } else {
+                            statistics.incrSentMsgCounter(clientNumber);
+                            statistics.incrReceivedMsgCounter(clientNumber, rtt, rtt / 4);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "Benchmark-" + t);
+            thread.start();
+        }
+
+        long start = System.nanoTime();
+        startSignal.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - start;
+
+        // Ergebnis pruefen: es darf kein Request verloren gehen
+        long expected = (long) threads * requests;
+        long recorded = synchronizedRecording ? synchronizedStatistics.receivedResponses()
+                : statistics.getNumberOfReceivedResponses();
+        if (recorded != expected) {
+            System.out.println("Fehler: " + recorded + " von " + expected + " Responses erfasst");
+        }
+
+        int processors = Math.min(threads, Runtime.getRuntime().availableProcessors());
+        return (double) elapsed * processors / expected;
+    }
+
+    private static void report(String label, double nanosPerRequest) {
+        System.out.printf("%s %10.1f ns/Request%n", label, nanosPerRequest);
+    }
+
+    /**
+     * Nachbildung der bisherigen Erfassung: alle Clients teilen sich eine Sperre, die Heap-Belegung wird bei jeder
+     * Response abgefragt
+     */
+    private static class SynchronizedStatistics {
+        private final long[] sentRequests;
+        private final long[] receivedResponses;
+        private final long[] sumRTT;
+        private final long[] sumServerTime;
+        private final long[] maxHeapSize;
+        private final LatencyHistogram[] rttHistograms;
+
+        SynchronizedStatistics(int numberOfClients) {
+            sentRequests = new long[numberOfClients];
+            receivedResponses = new long[numberOfClients];
+            sumRTT = new long[numberOfClients];
+            sumServerTime = new long[numberOfClients];
+            maxHeapSize = new long[numberOfClients];
+            rttHistograms = new LatencyHistogram[numberOfClients];
+            for (int i = 0; i < numberOfClients; i++) {
+                rttHistograms[i] = new LatencyHistogram();
+            }
+        }
+
+        synchronized void incrSentMsgCounter(int i) {
+            sentRequests[i]++;
+        }
+
+        synchronized void incrReceivedMsgCounter(int i, long rtt, long serverTime) {
+            receivedResponses[i]++;
+            sumRTT[i] += rtt;
+            sumServerTime[i] += serverTime;
+            rttHistograms[i].record(rtt);
+            Runtime r = Runtime.getRuntime();
+            maxHeapSize[i] = Math.max(maxHeapSize[i], r.totalMemory() - r.freeMemory());
+        }
+
+        synchronized long receivedResponses() {
+            long sum = 0;
+            for (long r : receivedResponses) {
+                sum += r;
+            }
+            return sum;
+        }
+    }
+}
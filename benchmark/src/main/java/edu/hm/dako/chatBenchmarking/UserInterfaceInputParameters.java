@@ -2,6 +2,8 @@ package edu.hm.dako.chatBenchmarking;
 
 
 import edu.hm.dako.common.ChatServerImplementationType;
+import edu.hm.dako.common.ThreadingFactory;
+import edu.hm.dako.common.ThreadingType;
 
 /**
  * Konfigurationsparameter fuer Lasttest
@@ -32,6 +34,12 @@ public class UserInterfaceInputParameters {
     private MeasurementType measurementType;
     private int remoteServerPort;        // UDP- oder TCP-Port des Servers, Default: 50001
     private String remoteServerAddress; // Server-IP-Adresse, Default: "127.0.0.1"
+    // Ausfuehrungsmodell der Client- und Listener-Threads, Default: Property dako.threading bzw. Plattform-Threads
+    private ThreadingType threadingType;
+    // Lastmodell, Default: geschlossene Schleife (Senden, auf Antwort warten, Denkzeit)
+    private LoadMode loadMode;
+    // Ankunftsrate je Client in Nachrichten pro Sekunde bei offener Last
+    private double messageRate;
 
     /**
      * Konstruktor Belegung der Inputparameter mit Standardwerten
@@ -45,6 +53,9 @@ public class UserInterfaceInputParameters {
         remoteServerAddress = "127.0.0.1";
         implementationType = ChatServerImplementationType.TCPSimpleImplementation;
         measurementType = MeasurementType.VarThreads;
+        threadingType = ThreadingFactory.getConfiguredThreadingType(ThreadingType.PlatformThreads);
+        loadMode = LoadMode.ClosedLoop;
+        messageRate = 10;
     }
 
     /**
@@ -65,6 +76,9 @@ public class UserInterfaceInputParameters {
             case UDPAdvancedImplementation:
                 returnString = "UDPAdvanced-Implementation";
                 break;
+            case TCPNioImplementation:
+                returnString = "TCPNio-Implementation";
+                break;
             default:
                 break;
         }
@@ -174,6 +188,30 @@ public class UserInterfaceInputParameters {
         this.remoteServerAddress = remoteServerAddress;
     }
 
+    public ThreadingType getThreadingType() {
+        return threadingType;
+    }
+
+    public void setThreadingType(ThreadingType threadingType) {
+        this.threadingType = threadingType;
+    }
+
+    public LoadMode getLoadMode() {
+        return loadMode;
+    }
+
+    public void setLoadMode(LoadMode loadMode) {
+        this.loadMode = loadMode;
+    }
+
+    public double getMessageRate() {
+        return messageRate;
+    }
+
+    public void setMessageRate(double messageRate) {
+        this.messageRate = messageRate;
+    }
+
     /**
      * Typen von unterstuetzten Messungen: Nur fuer die Unterscheidung der Messung im Benchmarking-Protokoll
      * @author Mandl
@@ -184,4 +222,16 @@ public class UserInterfaceInputParameters {
         // Variation der Nachrichtenlaenge
         VarMsgLength
     }
-}
\ No newline at end of file
+
+    /**
+     * Lastmodelle der simulierten Clients
+     */
+    public enum LoadMode {
+        // Geschlossene Schleife: Naechster Request erst nach der Antwort und der Denkzeit
+        ClosedLoop,
+        // Offene Last: Requests in festen Abstaenden, unabhaengig von ausstehenden Antworten
+        ConstantRate,
+        // Offene Last: Requests mit exponentialverteilten Abstaenden (Poisson-Prozess)
+        PoissonRate
+    }
+}
@@ -47,6 +47,10 @@ public class UserInterfaceResultData {
     private double percentile75;
     // 90 % Percentile
     private double percentile90;
+    // 99 %, 99,9 % und 99,99 % Percentile
+    private double percentile99;
+    private double percentile999;
+    private double percentile9999;
     // Stannweite (zwischen Minimum und Maximum)
     private double range;
     // Interquartilsabstand zwischen 25%- und 75%-Percentile
@@ -213,6 +217,30 @@ public class UserInterfaceResultData {
         this.percentile90 = percentile90;
     }
 
+    public double getPercentile99() {
+        return percentile99;
+    }
+
+    public void setPercentile99(double percentile99) {
+        this.percentile99 = percentile99;
+    }
+
+    public double getPercentile999() {
+        return percentile999;
+    }
+
+    public void setPercentile999(double percentile999) {
+        this.percentile999 = percentile999;
+    }
+
+    public double getPercentile9999() {
+        return percentile9999;
+    }
+
+    public void setPercentile9999(double percentile9999) {
+        this.percentile9999 = percentile9999;
+    }
+
     public double getInterquartilRange() {
         return interquartilRange;
     }
@@ -1,6 +1,9 @@
 package edu.hm.dako.chatClient;
 
+import edu.hm.dako.common.ChatServerImplementationType;
 import edu.hm.dako.common.ClientConversationStatus;
+import edu.hm.dako.common.PduCodecFactory;
+import edu.hm.dako.common.PduCodecType;
 import edu.hm.dako.connection.ConnectionFactory;
 import edu.hm.dako.connection.DecoratingConnectionFactory;
 import edu.hm.dako.common.ChatPDU;
@@ -47,6 +50,17 @@ public abstract class AbstractChatClient implements ClientCommunication {
      */
     public AbstractChatClient(ClientUserInterface userInterface, int serverPort,
                               String remoteServerAddress) {
+        this(userInterface, serverPort, remoteServerAddress, new TcpConnectionFactory());
+    }
+
+    /**
+     * @param userInterface       GUI-Interface
+     * @param serverPort          Port des Servers
+     * @param remoteServerAddress Adresse des Servers
+     * @param factory             ConnectionFactory passend zum Servertyp
+     */
+    public AbstractChatClient(ClientUserInterface userInterface, int serverPort,
+                              String remoteServerAddress, ConnectionFactory factory) {
 
         this.userInterface = userInterface;
         this.serverPort = serverPort;
@@ -56,7 +70,7 @@ public abstract class AbstractChatClient implements ClientCommunication {
          * Verbindung zum Server aufbauen
          */
         try {
-            connectionFactory = getDecoratedFactory(new TcpConnectionFactory());
+            connectionFactory = getDecoratedFactory(factory);
             connection = connectionFactory.connectToServer(remoteServerAddress, serverPort,
                     localPort, 20000, 20000);
         } catch (Exception e) {
@@ -87,6 +101,23 @@ public abstract class AbstractChatClient implements ClientCommunication {
         return new DecoratingConnectionFactory(connectionFactory);
     }
 
+    /**
+     * Liefert die ConnectionFactory, die zum Implementierungstyp des Servers passt. Die TCP-Server erwarten
+     * Nachrichten in Rahmen mit Laengenfeld, damit Events nur einmal kodiert und an alle Clients verteilt werden
+     * koennen. Standardmaessig wird binaer kodiert, sofern per {@link PduCodecFactory#PDU_CODEC_PROPERTY} kein
+     * anderer Codec konfiguriert ist.
+     *
+     * @param implementationType Implementierungstyp des Servers
+     * @return Passende ConnectionFactory
+     */
+    public static ConnectionFactory getConnectionFactory(ChatServerImplementationType implementationType) {
+        return switch (implementationType) {
+            case TCPSimpleImplementation, TCPNioImplementation ->
+                    new TcpConnectionFactory(PduCodecFactory.getConfiguredCodec(PduCodecType.BinaryCodec));
+            default -> new TcpConnectionFactory();
+        };
+    }
+
     @Override
     public void login(String name) throws IOException {
         userName = name;
@@ -2,6 +2,7 @@ package edu.hm.dako.chatClient;
 
 import edu.hm.dako.common.ChatPDU;
 import edu.hm.dako.common.ExceptionHandler;
+import edu.hm.dako.common.PduType;
 import edu.hm.dako.connection.Connection;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -27,6 +28,12 @@ public abstract class AbstractMessageListenerThread extends Thread {
     // Gemeinsame Daten zwischen Client-Thread und Message-Processing-Thread
     protected SharedClientData sharedClientData;
 
+    // Version der zuletzt uebernommenen Userliste, 0: noch keine vollstaendige Liste erhalten
+    protected long membershipVersion = 0;
+
+    // Kennzeichen, dass eine vollstaendige Userliste beim Server angefordert wurde
+    protected boolean userListRequested = false;
+
     public AbstractMessageListenerThread(ClientUserInterface userInterface, Connection con,
                                          SharedClientData sharedData) {
 
@@ -36,7 +43,9 @@ public abstract class AbstractMessageListenerThread extends Thread {
     }
 
     /**
-     * Event vom Server zur Veraenderung der UserListe (eingeloggte Clients) verarbeiten
+     * Event vom Server zur Veraenderung der UserListe (eingeloggte Clients) verarbeiten. Enthaelt das Event eine
+     * vollstaendige Userliste, wird diese uebernommen, sonst wird nur der an- bzw. abgemeldete User ergaenzt bzw.
+     * entfernt. Erkennt der Client dabei eine Luecke in den Versionen, fordert er die vollstaendige Liste an.
      *
      * @param receivedPdu Empfangene PDU
      */
@@ -45,8 +54,52 @@ public abstract class AbstractMessageListenerThread extends Thread {
         LOG.debug(
                 "Login- oder Logout-Event-PDU fuer " + receivedPdu.getUserName() + " empfangen");
 
+        if (receivedPdu.getClients() != null) {
+            handleUserListResponse(receivedPdu);
+            return;
+        }
+
+        long version = receivedPdu.getMembershipVersion();
+        if (membershipVersion == 0 || version <= membershipVersion) {
+            // Vollstaendige Liste steht noch aus oder Event ist darin schon beruecksichtigt
+            LOG.debug("Delta mit Version " + version + " verworfen, aktuelle Version: " + membershipVersion);
+        } else if (version == membershipVersion + 1) {
+            membershipVersion = version;
+            if (receivedPdu.getPduType() == PduType.LOGIN_EVENT) {
+                userInterface.addUser(receivedPdu.getEventUserName());
+            } else {
+                userInterface.removeUser(receivedPdu.getEventUserName());
+            }
+        } else if (!userListRequested) {
+            // Luecke erkannt, vollstaendige Liste anfordern
+            LOG.debug("Luecke in der Userliste erkannt, Version " + version + " nach " + membershipVersion);
+            userListRequested = true;
+            try {
+                connection.send(ChatPDU.createUserListRequestPdu(sharedClientData.userName, membershipVersion));
+            } catch (Exception e) {
+                userListRequested = false;
+                ExceptionHandler.logException(e);
+            }
+        }
+    }
+
+    /**
+     * Vollstaendige Userliste vom Server uebernehmen (beim eigenen Login oder nach einer Anforderung)
+     *
+     * @param receivedPdu Empfangene PDU
+     */
+    protected void handleUserListResponse(ChatPDU receivedPdu) {
+
+        long version = receivedPdu.getMembershipVersion();
+        if (version != 0 && version < membershipVersion) {
+            LOG.debug("Veraltete Userliste mit Version " + version + " verworfen");
+            return;
+        }
+        membershipVersion = version;
+        userListRequested = false;
+
         // Neue Userliste zur Darstellung an User Interface uebergeben
-        LOG.debug("Empfangene Userliste: " + receivedPdu.getClients());
+        LOG.debug("Empfangene Userliste: " + receivedPdu.getClients() + ", Version " + version);
         userInterface.setUserList(receivedPdu.getClients());
     }
 
@@ -138,16 +138,40 @@ public class ClientFxGUI extends Application implements ClientUserInterface {
     public void setUserList(Vector<String> userList) {
         final List<String> users = new ArrayList<>();
         for (String anUserList : userList) {
-            if (anUserList.equals(getModel().getUserName())) {
-                users.add("*" + anUserList + "*");
-            } else {
-                users.add(anUserList);
+            users.add(getDisplayName(anUserList));
+        }
+        Platform.runLater(() -> {
+            getModel().users.setAll(users);
+            LOG.debug(users);
+        });
+    }
+
+    @Override
+    public void addUser(String userName) {
+        String displayName = getDisplayName(userName);
+        Platform.runLater(() -> {
+            if (!getModel().users.contains(displayName)) {
+                getModel().users.add(displayName);
             }
-            Platform.runLater(() -> {
-                getModel().users.setAll(users);
-                LOG.debug(users);
-            });
+        });
+    }
+
+    @Override
+    public void removeUser(String userName) {
+        String displayName = getDisplayName(userName);
+        Platform.runLater(() -> getModel().users.remove(displayName));
+    }
+
+    /**
+     * Darstellung eines Users in der Userliste, der eigene User wird markiert
+     * @param userName Name des Users
+     * @return Name zur Darstellung
+     */
+    private String getDisplayName(String userName) {
+        if (userName.equals(getModel().getUserName())) {
+            return "*" + userName + "*";
         }
+        return userName;
     }
 
     @Override
@@ -1,7 +1,10 @@
 package edu.hm.dako.chatClient;
 
+import edu.hm.dako.common.ChatServerImplementationType;
 import edu.hm.dako.common.ExceptionHandler;
 import edu.hm.dako.common.SystemConstants;
+import edu.hm.dako.common.ThreadingFactory;
+import edu.hm.dako.common.ThreadingType;
 
 /**
  * Verwaltet eine Verbindung zum Server.
@@ -20,7 +23,9 @@ public class ClientImpl extends AbstractChatClient {
     public ClientImpl(ClientUserInterface userInterface, int serverPort,
                       String remoteServerAddress, String serverType) {
 
-        super(userInterface, serverPort, remoteServerAddress);
+        super(userInterface, serverPort, remoteServerAddress, getConnectionFactory(
+                serverType.equals(SystemConstants.IMPL_TCP_NIO) ? ChatServerImplementationType.TCPNioImplementation
+                        : ChatServerImplementationType.TCPSimpleImplementation));
         this.serverPort = serverPort;
         this.remoteServerAddress = remoteServerAddress;
 
@@ -29,12 +34,15 @@ public class ClientImpl extends AbstractChatClient {
 
         try {
 
-            if (serverType.equals(SystemConstants.IMPL_TCP_SIMPLE)) {
-                // Simple TCP Server erzeugen, derzeit gibt es nur den einen
+            if (serverType.equals(SystemConstants.IMPL_TCP_SIMPLE)
+                    || serverType.equals(SystemConstants.IMPL_TCP_NIO)) {
+                // Der NIO-Server verwendet dasselbe Protokoll wie der Simple TCP Server
                 messageListenerThread = new SimpleMessageListenerThreadImpl(userInterface,
                         connection, sharedClientData);
             }
-            messageListenerThread.start();
+            messageListenerThread = ThreadingFactory.start(
+                    ThreadingFactory.getConfiguredThreadingType(ThreadingType.PlatformThreads),
+                    messageListenerThread);
         } catch (Exception e) {
             ExceptionHandler.logException(e);
         }
@@ -14,6 +14,18 @@ public interface ClientUserInterface {
      */
     void setUserList(Vector<String> userList);
 
+    /**
+     * Einen neu angemeldeten User in die dargestellte Userliste aufnehmen (Delta zur zuletzt uebergebenen Liste)
+     * @param userName Name des Users
+     */
+    void addUser(String userName);
+
+    /**
+     * Einen abgemeldeten User aus der dargestellten Userliste entfernen (Delta zur zuletzt uebergebenen Liste)
+     * @param userName Name des Users
+     */
+    void removeUser(String userName);
+
     /**
      * Uebergabe einer Nachricht zur Ausgabe in der Messagezeile
      * @param sender  Absender der Nachricht
@@ -68,6 +80,15 @@ public interface ClientUserInterface {
      */
     void setLastServerTime(long lastServerTime);
 
+    /**
+     * Chat-Response zu einem beliebigen ausstehenden Chat-Message-Request empfangen, auch wenn es nicht der zuletzt
+     * gesendete ist (nur fuer den Benchmarking-Client bei offener Last relevant)
+     * @param sequenceNumber Sequenznummer des beantworteten Requests
+     * @param serverTime Benoetigte Zeit fuer die Bearbeitung im Server in ns
+     */
+    default void chatMessageResponseReceived(long sequenceNumber, long serverTime) {
+    }
+
     /**
      * Zaehler einer Chat-Session setzen (Zaehlung erfolgt im Server)
      * @param numberOfSentEvents Waehrend der Session gesendete Events
@@ -145,6 +145,6 @@ public class LogInGuiController implements Initializable {
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         comboServerType.getItems().addAll(SystemConstants.IMPL_TCP_SIMPLE,
-                SystemConstants.IMPL_TCP_ADVANCED);
+                SystemConstants.IMPL_TCP_NIO, SystemConstants.IMPL_TCP_ADVANCED);
     }
 }
@@ -117,6 +117,10 @@ public class SimpleMessageListenerThreadImpl extends AbstractMessageListenerThre
                 + receivedPdu.getServerTime() + " ns = " + receivedPdu.getServerTime() / 1000000
                 + " ms");
 
+        // Jede Response wird gemeldet; der Benchmarking-Client schliesst damit den wartenden Request direkt ab,
+        // bei offener Last koennen mehrere Requests ausstehen
+        userInterface.chatMessageResponseReceived(receivedPdu.getSequenceNumber(), receivedPdu.getServerTime());
+
         if (receivedPdu.getSequenceNumber() == sharedClientData.messageCounter.get()) {
 
             // Zuletzt gemessene Serverzeit fuer das Benchmarking
@@ -188,6 +192,7 @@ public class SimpleMessageListenerThreadImpl extends AbstractMessageListenerThre
                             // angemeldeten User erweitert hat
                             case LOGIN_EVENT -> loginEventAction(receivedPdu);
                             case LOGOUT_EVENT -> logoutEventAction(receivedPdu);
+                            case USER_LIST_RESPONSE -> handleUserListResponse(receivedPdu);
                             // Chat-Nachricht vom Server gesendet
                             case CHAT_MESSAGE_EVENT -> chatMessageEventAction(receivedPdu);
                             default -> LOG.debug("Ankommende PDU im Zustand " + sharedClientData.status
@@ -207,6 +212,7 @@ public class SimpleMessageListenerThreadImpl extends AbstractMessageListenerThre
                             // angemeldeten User erweitert hat
                             case LOGIN_EVENT -> loginEventAction(receivedPdu);
                             case LOGOUT_EVENT -> logoutEventAction(receivedPdu);
+                            case USER_LIST_RESPONSE -> handleUserListResponse(receivedPdu);
                             default -> LOG.debug("Ankommende PDU im Zustand " + sharedClientData.status
                                     + " wird verworfen");
                         }
@@ -223,6 +229,7 @@ public class SimpleMessageListenerThreadImpl extends AbstractMessageListenerThre
                             // angemeldeten User veraendert hat
                             case LOGIN_EVENT -> loginEventAction(receivedPdu);
                             case LOGOUT_EVENT -> logoutEventAction(receivedPdu);
+                            case USER_LIST_RESPONSE -> handleUserListResponse(receivedPdu);
                             default -> LOG.debug("Ankommende PDU im Zustand " + sharedClientData.status
                                     + " wird verworfen");
                         }
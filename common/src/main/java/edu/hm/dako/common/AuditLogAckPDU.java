@@ -0,0 +1,77 @@
+package edu.hm.dako.common;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Rueckmeldung des AuditLog-Servers an einen Chat-Server bei gesicherter Uebertragung ueber UDP. Die Rueckmeldung
+ * bestaetigt kumulativ alle Stapel bis einschliesslich {@link #getAcknowledgedSequenceNumber()} und fordert die in
+ * {@link #getMissingSequenceNumbers()} aufgefuehrten Stapel erneut an (gesammelte negative Quittungen, NACK).
+ * @author Peter Mandl
+ */
+public class AuditLogAckPDU implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 5202874419530561372L;
+
+    private static final long[] NONE = new long[0];
+
+    // Kennung des Senders, auf den sich die Rueckmeldung bezieht
+    private long senderId;
+
+    // Alle Stapel bis einschliesslich dieser Sequenznummer wurden in Reihenfolge verarbeitet
+    private long acknowledgedSequenceNumber;
+
+    // Fehlende Stapel, aufsteigend sortiert
+    private long[] missingSequenceNumbers;
+
+    /**
+     * Konstruktor
+     */
+    public AuditLogAckPDU() {
+        this.missingSequenceNumbers = NONE;
+    }
+
+    /**
+     * Konstruktor
+     * @param senderId Kennung des Senders
+     * @param acknowledgedSequenceNumber Kumulativ bestaetigte Sequenznummer
+     * @param missingSequenceNumbers Fehlende Sequenznummern oder null
+     */
+    public AuditLogAckPDU(long senderId, long acknowledgedSequenceNumber, long[] missingSequenceNumbers) {
+        this.senderId = senderId;
+        this.acknowledgedSequenceNumber = acknowledgedSequenceNumber;
+        this.missingSequenceNumbers = missingSequenceNumbers == null ? NONE : missingSequenceNumbers;
+    }
+
+    public long getSenderId() {
+        return senderId;
+    }
+
+    public void setSenderId(long senderId) {
+        this.senderId = senderId;
+    }
+
+    public long getAcknowledgedSequenceNumber() {
+        return acknowledgedSequenceNumber;
+    }
+
+    public void setAcknowledgedSequenceNumber(long acknowledgedSequenceNumber) {
+        this.acknowledgedSequenceNumber = acknowledgedSequenceNumber;
+    }
+
+    public long[] getMissingSequenceNumbers() {
+        return missingSequenceNumbers;
+    }
+
+    public void setMissingSequenceNumbers(long[] missingSequenceNumbers) {
+        this.missingSequenceNumbers = missingSequenceNumbers == null ? NONE : missingSequenceNumbers;
+    }
+
+    @Override
+    public String toString() {
+        return "AuditLogAckPdu Sender " + senderId + ", bestaetigt bis " + acknowledgedSequenceNumber
+                + ", fehlend: " + Arrays.toString(missingSequenceNumbers);
+    }
+}
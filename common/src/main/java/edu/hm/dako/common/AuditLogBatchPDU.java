@@ -0,0 +1,93 @@
+package edu.hm.dako.common;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Nachrichtenaufbau fuer einen Stapel von AuditLog-Saetzen. Der Chat-Server fasst mehrere {@link AuditLogPDU}s zu
+ * einer Nachricht zusammen, damit nicht jeder Satz einzeln gerahmt und gesendet werden muss. Der AuditLog-Server
+ * entpackt den Stapel und verarbeitet die Saetze in der uebertragenen Reihenfolge.
+ * <p>
+ * Ueber UDP wird jeder Stapel mit der Kennung des Senders und einer je Sender fortlaufenden Sequenznummer (ab 1)
+ * versehen, damit der AuditLog-Server Verluste und Vertauschungen erkennen kann (siehe {@link AuditLogAckPDU}).
+ * Sequenznummer 0 kennzeichnet einen Stapel ohne Sicherung, z. B. ueber TCP.
+ * @author Peter Mandl
+ */
+public class AuditLogBatchPDU implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 3867409412837624110L;
+
+    // AuditLog-Saetze in Sendereihenfolge
+    private final ArrayList<AuditLogPDU> records;
+
+    // Kennung des Senders und Sequenznummer des Stapels, 0 = ohne Sicherung
+    private long senderId = 0;
+    private long sequenceNumber = 0;
+
+    /**
+     * Konstruktor
+     */
+    public AuditLogBatchPDU() {
+        this.records = new ArrayList<>();
+    }
+
+    /**
+     * Konstruktor
+     * @param initialCapacity Erwartete Anzahl an Saetzen
+     */
+    public AuditLogBatchPDU(int initialCapacity) {
+        this.records = new ArrayList<>(initialCapacity);
+    }
+
+    /**
+     * AuditLog-Satz anhaengen
+     * @param pdu AuditLog-Satz
+     */
+    public void add(AuditLogPDU pdu) {
+        records.add(pdu);
+    }
+
+    /**
+     * Alle Saetze entfernen, damit der Stapel wiederverwendet werden kann
+     */
+    public void clear() {
+        records.clear();
+    }
+
+    public List<AuditLogPDU> getRecords() {
+        return records;
+    }
+
+    public int size() {
+        return records.size();
+    }
+
+    public boolean isEmpty() {
+        return records.isEmpty();
+    }
+
+    public long getSenderId() {
+        return senderId;
+    }
+
+    public void setSenderId(long senderId) {
+        this.senderId = senderId;
+    }
+
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public void setSequenceNumber(long sequenceNumber) {
+        this.sequenceNumber = sequenceNumber;
+    }
+
+    @Override
+    public String toString() {
+        return "AuditLogBatchPdu mit " + records.size() + " Saetzen"
+                + (sequenceNumber == 0 ? "" : ", Sender " + senderId + ", Sequenznummer " + sequenceNumber);
+    }
+}
@@ -34,6 +34,9 @@ public class AuditLogPDU implements Serializable {
     // Nutzdaten (eigentliche Chat-Nachricht in Textform)
     private String message;
 
+    // Chat-Server, von dem der Satz stammt; wird vom AuditLog-Server beim Empfang gesetzt und nicht uebertragen
+    private transient String source;
+
     /**
      * Konstruktor
      */
@@ -98,7 +101,8 @@ public class AuditLogPDU implements Serializable {
                 + "AuditLogPdu ****************************************************************************************************"
                 + "\n" + "AuditLogType: " + pduType + "\n" + "userName: " + this.userName + ", "
                 + "\n" + "clientThreadName: " + this.clientThreadName + "\n"
-                + "serverThreadName: " + this.serverThreadName + "\n" + "auditTime: "
+                + "serverThreadName: " + this.serverThreadName + "\n" + "source: " + this.source + "\n"
+                + "auditTime: "
                 + dateAndTime.toString() + "\n" + "message: " + this.message + "\n"
                 + "**************************************************************************************************** SimplePdu"
                 + "\n";
@@ -151,4 +155,12 @@ public class AuditLogPDU implements Serializable {
     public void setMessage(String msg) {
         this.message = msg;
     }
+
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,495 @@
+package edu.hm.dako.common;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Vector;
+
+/**
+ * Kompakter, handgeschriebener Binaer-Codec fuer {@link ChatPDU}, {@link AuditLogPDU}, {@link AuditLogBatchPDU} und
+ * {@link AuditLogAckPDU}.
+ * <p>
+ * Aufbau einer kodierten Nachricht:
+ * <pre>
+ *   Byte 0     Formatversion (derzeit 1)
+ *   Byte 1     Nachrichtentyp (1 = ChatPDU, 2 = AuditLogPDU, 3 = AuditLogBatchPDU, 4 = AuditLogBatchPDU mit
+ *              Sequenznummer, 5 = AuditLogAckPDU)
+ *   Varint     Feldmaske: Ein Bit je Feld, das nicht den Standardwert hat
+ *   ...        Die in der Maske gesetzten Felder in aufsteigender Bitreihenfolge
+ * </pre>
+ * Ein Stapel von AuditLog-Saetzen enthaelt nach dem Nachrichtentyp die Anzahl der Saetze als Varint und danach je
+ * Satz Feldmaske und Felder wie bei einer einzelnen AuditLogPDU. Bei einem Stapel mit Sequenznummer stehen davor
+ * Senderkennung und Sequenznummer als Varint. Eine AuditLogAckPDU besteht aus Senderkennung, bestaetigter
+ * Sequenznummer und der Anzahl der fehlenden Sequenznummern, gefolgt von diesen (jeweils Varint).
+ * Zahlen werden als Varint (ZigZag-kodiert, 7 Bit pro Byte) uebertragen, Strings als Varint-Laenge gefolgt von den
+ * UTF-8-Bytes, Enums ueber ihre Id. Felder mit Standardwert (0, null, UNDEFINED, ...) werden weggelassen. Die
+ * Laenge der Nachricht selbst wird vom Transport uebertragen (siehe Rahmenbildung der Verbindungen).
+ */
+public class BinaryPduCodec implements PduCodec {
+
+    // Version des Formats, muss bei inkompatiblen Aenderungen erhoeht werden
+    static final int FORMAT_VERSION = 1;
+
+    // Nachrichtentypen
+    static final int TYPE_CHAT_PDU = 1;
+    static final int TYPE_AUDIT_LOG_PDU = 2;
+    static final int TYPE_AUDIT_LOG_BATCH_PDU = 3;
+    static final int TYPE_AUDIT_LOG_SEQUENCED_BATCH_PDU = 4;
+    static final int TYPE_AUDIT_LOG_ACK_PDU = 5;
+
+    // Feldmaske der ChatPDU
+    private static final int CHAT_PDU_TYPE = 1;
+    private static final int CHAT_USER_NAME = 1 << 1;
+    private static final int CHAT_EVENT_USER_NAME = 1 << 2;
+    private static final int CHAT_CLIENT_THREAD_NAME = 1 << 3;
+    private static final int CHAT_SERVER_THREAD_NAME = 1 << 4;
+    private static final int CHAT_SEQUENCE_NUMBER = 1 << 5;
+    private static final int CHAT_MESSAGE = 1 << 6;
+    private static final int CHAT_CLIENTS = 1 << 7;
+    private static final int CHAT_SERVER_TIME = 1 << 8;
+    private static final int CHAT_CLIENT_STATUS = 1 << 9;
+    private static final int CHAT_ERROR_CODE = 1 << 10;
+    private static final int CHAT_RECEIVED_CHAT_MESSAGES = 1 << 11;
+    private static final int CHAT_SENT_EVENTS = 1 << 12;
+    private static final int CHAT_RECEIVED_CONFIRMS = 1 << 13;
+    private static final int CHAT_LOST_CONFIRMS = 1 << 14;
+    private static final int CHAT_RETRIES = 1 << 15;
+    private static final int CHAT_MEMBERSHIP_VERSION = 1 << 16;
+
+    // Feldmaske der AuditLogPDU
+    private static final int AUDIT_PDU_TYPE = 1;
+    private static final int AUDIT_USER_NAME = 1 << 1;
+    private static final int AUDIT_CLIENT_THREAD_NAME = 1 << 2;
+    private static final int AUDIT_SERVER_THREAD_NAME = 1 << 3;
+    private static final int AUDIT_TIME = 1 << 4;
+    private static final int AUDIT_MESSAGE = 1 << 5;
+
+    // Ausgabepuffer werden je Thread wiederverwendet, solange sie nicht zu gross geworden sind
+    private static final int INITIAL_BUFFER_SIZE = 256;
+    private static final int MAX_CACHED_BUFFER_SIZE = 64 * 1024;
+    private static final ThreadLocal<Output> OUTPUT = ThreadLocal.withInitial(() -> new Output(INITIAL_BUFFER_SIZE));
+
+    @Override
+    public byte[] encode(Serializable message) throws IOException {
+        Output out = OUTPUT.get();
+        out.reset();
+        if (message instanceof ChatPDU pdu) {
+            encodeChatPdu(pdu, out);
+        } else if (message instanceof AuditLogPDU pdu) {
+            encodeAuditLogPdu(pdu, out);
+        } else if (message instanceof AuditLogBatchPDU batch) {
+            encodeAuditLogBatchPdu(batch, out);
+        } else if (message instanceof AuditLogAckPDU ack) {
+            encodeAuditLogAckPdu(ack, out);
+        } else {
+            throw new IOException("Nachrichtentyp wird vom Binaer-Codec nicht unterstuetzt: "
+                    + (message == null ? "null" : message.getClass().getName()));
+        }
+        byte[] result = out.toByteArray();
+        if (out.capacity() > MAX_CACHED_BUFFER_SIZE) {
+            OUTPUT.remove();
+        }
+        return result;
+    }
+
+    @Override
+    public Serializable decode(byte[] data, int offset, int length) throws IOException {
+        Input in = new Input(data, offset, length);
+        int version = in.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Nicht unterstuetzte Formatversion: " + version);
+        }
+        int type = in.readByte();
+        return switch (type) {
+            case TYPE_CHAT_PDU -> decodeChatPdu(in);
+            case TYPE_AUDIT_LOG_PDU -> decodeAuditLogPdu(in);
+            case TYPE_AUDIT_LOG_BATCH_PDU -> decodeAuditLogBatchPdu(in, false);
+            case TYPE_AUDIT_LOG_SEQUENCED_BATCH_PDU -> decodeAuditLogBatchPdu(in, true);
+            case TYPE_AUDIT_LOG_ACK_PDU -> decodeAuditLogAckPdu(in);
+            default -> throw new IOException("Unbekannter Nachrichtentyp: " + type);
+        };
+    }
+
+    /**
+     * ChatPDU kodieren
+     * @param pdu Zu kodierende PDU
+     * @param out Ausgabepuffer
+     */
+    private static void encodeChatPdu(ChatPDU pdu, Output out) {
+        int mask = 0;
+        if (pdu.getPduType() != null && pdu.getPduType() != PduType.UNDEFINED) mask |= CHAT_PDU_TYPE;
+        if (pdu.getUserName() != null) mask |= CHAT_USER_NAME;
+        if (pdu.getEventUserName() != null) mask |= CHAT_EVENT_USER_NAME;
+        if (pdu.getClientThreadName() != null) mask |= CHAT_CLIENT_THREAD_NAME;
+        if (pdu.getServerThreadName() != null) mask |= CHAT_SERVER_THREAD_NAME;
+        if (pdu.getSequenceNumber() != 0) mask |= CHAT_SEQUENCE_NUMBER;
+        if (pdu.getMessage() != null) mask |= CHAT_MESSAGE;
+        if (pdu.getClients() != null) mask |= CHAT_CLIENTS;
+        if (pdu.getServerTime() != 0) mask |= CHAT_SERVER_TIME;
+        if (pdu.getClientStatus() != ClientConversationStatus.UNREGISTERED) mask |= CHAT_CLIENT_STATUS;
+        if (pdu.getErrorCode() != ChatPDU.NO_ERROR) mask |= CHAT_ERROR_CODE;
+        if (pdu.getNumberOfReceivedChatMessages() != 0) mask |= CHAT_RECEIVED_CHAT_MESSAGES;
+        if (pdu.getNumberOfSentEvents() != 0) mask |= CHAT_SENT_EVENTS;
+        if (pdu.getNumberOfReceivedConfirms() != 0) mask |= CHAT_RECEIVED_CONFIRMS;
+        if (pdu.getNumberOfLostConfirms() != 0) mask |= CHAT_LOST_CONFIRMS;
+        if (pdu.getNumberOfRetries() != 0) mask |= CHAT_RETRIES;
+        if (pdu.getMembershipVersion() != 0) mask |= CHAT_MEMBERSHIP_VERSION;
+
+        out.writeByte(FORMAT_VERSION);
+        out.writeByte(TYPE_CHAT_PDU);
+        out.writeVarLong(mask);
+        if ((mask & CHAT_PDU_TYPE) != 0) out.writeVarLong(pdu.getPduType().getId());
+        if ((mask & CHAT_USER_NAME) != 0) out.writeString(pdu.getUserName());
+        if ((mask & CHAT_EVENT_USER_NAME) != 0) out.writeString(pdu.getEventUserName());
+        if ((mask & CHAT_CLIENT_THREAD_NAME) != 0) out.writeString(pdu.getClientThreadName());
+        if ((mask & CHAT_SERVER_THREAD_NAME) != 0) out.writeString(pdu.getServerThreadName());
+        if ((mask & CHAT_SEQUENCE_NUMBER) != 0) out.writeSignedVarLong(pdu.getSequenceNumber());
+        if ((mask & CHAT_MESSAGE) != 0) out.writeString(pdu.getMessage());
+        if ((mask & CHAT_CLIENTS) != 0) {
+            Vector<String> clients = pdu.getClients();
+            synchronized (clients) {
+                out.writeVarLong(clients.size());
+                for (String client : clients) {
+                    out.writeString(client);
+                }
+            }
+        }
+        if ((mask & CHAT_SERVER_TIME) != 0) out.writeSignedVarLong(pdu.getServerTime());
+        if ((mask & CHAT_CLIENT_STATUS) != 0) {
+            // 0 steht fuer null, sonst Ordinalwert + 1
+            ClientConversationStatus status = pdu.getClientStatus();
+            out.writeVarLong(status == null ? 0 : status.ordinal() + 1);
+        }
+        if ((mask & CHAT_ERROR_CODE) != 0) out.writeSignedVarLong(pdu.getErrorCode());
+        if ((mask & CHAT_RECEIVED_CHAT_MESSAGES) != 0) out.writeSignedVarLong(pdu.getNumberOfReceivedChatMessages());
+        if ((mask & CHAT_SENT_EVENTS) != 0) out.writeSignedVarLong(pdu.getNumberOfSentEvents());
+        if ((mask & CHAT_RECEIVED_CONFIRMS) != 0) out.writeSignedVarLong(pdu.getNumberOfReceivedConfirms());
+        if ((mask & CHAT_LOST_CONFIRMS) != 0) out.writeSignedVarLong(pdu.getNumberOfLostConfirms());
+        if ((mask & CHAT_RETRIES) != 0) out.writeSignedVarLong(pdu.getNumberOfRetries());
+        if ((mask & CHAT_MEMBERSHIP_VERSION) != 0) out.writeVarLong(pdu.getMembershipVersion());
+    }
+
+    /**
+     * ChatPDU dekodieren
+     * @param in Eingabepuffer, steht hinter dem Nachrichtentyp
+     * @return Dekodierte PDU
+     * @throws IOException Fehlerhafte Nachricht
+     */
+    private static ChatPDU decodeChatPdu(Input in) throws IOException {
+        ChatPDU pdu = new ChatPDU();
+        long mask = in.readVarLong();
+        if ((mask & CHAT_PDU_TYPE) != 0) {
+            int id = (int) in.readVarLong();
+            PduType type = PduType.getId(id);
+            if (type == null) {
+                throw new IOException("Unbekannter PDU-Typ: " + id);
+            }
+            pdu.setPduType(type);
+        }
+        if ((mask & CHAT_USER_NAME) != 0) pdu.setUserName(in.readString());
+        if ((mask & CHAT_EVENT_USER_NAME) != 0) pdu.setEventUserName(in.readString());
+        if ((mask & CHAT_CLIENT_THREAD_NAME) != 0) pdu.setClientThreadName(in.readString());
+        if ((mask & CHAT_SERVER_THREAD_NAME) != 0) pdu.setServerThreadName(in.readString());
+        if ((mask & CHAT_SEQUENCE_NUMBER) != 0) pdu.setSequenceNumber(in.readSignedVarLong());
+        if ((mask & CHAT_MESSAGE) != 0) pdu.setMessage(in.readString());
+        if ((mask & CHAT_CLIENTS) != 0) {
+            int size = in.readLength();
+            Vector<String> clients = new Vector<>(size);
+            for (int i = 0; i < size; i++) {
+                clients.add(in.readString());
+            }
+            pdu.setClients(clients);
+        }
+        if ((mask & CHAT_SERVER_TIME) != 0) pdu.setServerTime(in.readSignedVarLong());
+        if ((mask & CHAT_CLIENT_STATUS) != 0) {
+            int value = (int) in.readVarLong();
+            ClientConversationStatus[] values = ClientConversationStatus.values();
+            if (value > values.length) {
+                throw new IOException("Unbekannter Client-Status: " + value);
+            }
+            pdu.setClientStatus(value == 0 ? null : values[value - 1]);
+        }
+        if ((mask & CHAT_ERROR_CODE) != 0) pdu.setErrorCode((int) in.readSignedVarLong());
+        if ((mask & CHAT_RECEIVED_CHAT_MESSAGES) != 0) pdu.setNumberOfReceivedChatMessages(in.readSignedVarLong());
+        if ((mask & CHAT_SENT_EVENTS) != 0) pdu.setNumberOfSentEvents(in.readSignedVarLong());
+        if ((mask & CHAT_RECEIVED_CONFIRMS) != 0) pdu.setNumberOfReceivedEventConfirms(in.readSignedVarLong());
+        if ((mask & CHAT_LOST_CONFIRMS) != 0) pdu.setNumberOfLostEventConfirms(in.readSignedVarLong());
+        if ((mask & CHAT_RETRIES) != 0) pdu.setNumberOfRetries(in.readSignedVarLong());
+        if ((mask & CHAT_MEMBERSHIP_VERSION) != 0) pdu.setMembershipVersion(in.readVarLong());
+        return pdu;
+    }
+
+    /**
+     * AuditLogPDU kodieren
+     * @param pdu Zu kodierende PDU
+     * @param out Ausgabepuffer
+     */
+    private static void encodeAuditLogPdu(AuditLogPDU pdu, Output out) {
+        out.writeByte(FORMAT_VERSION);
+        out.writeByte(TYPE_AUDIT_LOG_PDU);
+        encodeAuditLogFields(pdu, out);
+    }
+
+    /**
+     * Stapel von AuditLog-Saetzen kodieren
+     * @param batch Zu kodierender Stapel
+     * @param out Ausgabepuffer
+     */
+    private static void encodeAuditLogBatchPdu(AuditLogBatchPDU batch, Output out) {
+        out.writeByte(FORMAT_VERSION);
+        if (batch.getSequenceNumber() != 0) {
+            out.writeByte(TYPE_AUDIT_LOG_SEQUENCED_BATCH_PDU);
+            out.writeVarLong(batch.getSenderId());
+            out.writeVarLong(batch.getSequenceNumber());
+        } else {
+            out.writeByte(TYPE_AUDIT_LOG_BATCH_PDU);
+        }
+        out.writeVarLong(batch.size());
+        for (AuditLogPDU pdu : batch.getRecords()) {
+            encodeAuditLogFields(pdu, out);
+        }
+    }
+
+    /**
+     * Feldmaske und Felder einer AuditLogPDU kodieren
+     * @param pdu Zu kodierende PDU
+     * @param out Ausgabepuffer
+     */
+    private static void encodeAuditLogFields(AuditLogPDU pdu, Output out) {
+        int mask = 0;
+        if (pdu.getPduType() != null && pdu.getPduType() != AuditLogPduType.UNDEFINED) mask |= AUDIT_PDU_TYPE;
+        if (pdu.getUserName() != null) mask |= AUDIT_USER_NAME;
+        if (pdu.getClientThreadName() != null) mask |= AUDIT_CLIENT_THREAD_NAME;
+        if (pdu.getServerThreadName() != null) mask |= AUDIT_SERVER_THREAD_NAME;
+        if (pdu.getAuditTime() != 0) mask |= AUDIT_TIME;
+        if (pdu.getMessage() != null) mask |= AUDIT_MESSAGE;
+
+        out.writeVarLong(mask);
+        if ((mask & AUDIT_PDU_TYPE) != 0) out.writeVarLong(pdu.getPduType().getId());
+        if ((mask & AUDIT_USER_NAME) != 0) out.writeString(pdu.getUserName());
+        if ((mask & AUDIT_CLIENT_THREAD_NAME) != 0) out.writeString(pdu.getClientThreadName());
+        if ((mask & AUDIT_SERVER_THREAD_NAME) != 0) out.writeString(pdu.getServerThreadName());
+        if ((mask & AUDIT_TIME) != 0) out.writeSignedVarLong(pdu.getAuditTime());
+        if ((mask & AUDIT_MESSAGE) != 0) out.writeString(pdu.getMessage());
+    }
+
+    /**
+     * AuditLogPDU dekodieren
+     * @param in Eingabepuffer, steht hinter dem Nachrichtentyp
+     * @return Dekodierte PDU
+     * @throws IOException Fehlerhafte Nachricht
+     */
+    private static AuditLogPDU decodeAuditLogPdu(Input in) throws IOException {
+        return decodeAuditLogFields(in);
+    }
+
+    /**
+     * Rueckmeldung zur gesicherten Uebertragung kodieren
+     * @param ack Zu kodierende Rueckmeldung
+     * @param out Ausgabepuffer
+     */
+    private static void encodeAuditLogAckPdu(AuditLogAckPDU ack, Output out) {
+        out.writeByte(FORMAT_VERSION);
+        out.writeByte(TYPE_AUDIT_LOG_ACK_PDU);
+        out.writeVarLong(ack.getSenderId());
+        out.writeVarLong(ack.getAcknowledgedSequenceNumber());
+        long[] missing = ack.getMissingSequenceNumbers();
+        out.writeVarLong(missing.length);
+        for (long sequenceNumber : missing) {
+            out.writeVarLong(sequenceNumber);
+        }
+    }
+
+    /**
+     * Rueckmeldung zur gesicherten Uebertragung dekodieren
+     * @param in Eingabepuffer, steht hinter dem Nachrichtentyp
+     * @return Dekodierte Rueckmeldung
+     * @throws IOException Fehlerhafte Nachricht
+     */
+    private static AuditLogAckPDU decodeAuditLogAckPdu(Input in) throws IOException {
+        long senderId = in.readVarLong();
+        long acknowledged = in.readVarLong();
+        long[] missing = new long[in.readLength()];
+        for (int i = 0; i < missing.length; i++) {
+            missing[i] = in.readVarLong();
+        }
+        return new AuditLogAckPDU(senderId, acknowledged, missing);
+    }
+
+    /**
+     * Stapel von AuditLog-Saetzen dekodieren
+     * @param in Eingabepuffer, steht hinter dem Nachrichtentyp
+     * @param sequenced true, wenn Senderkennung und Sequenznummer folgen
+     * @return Dekodierter Stapel
+     * @throws IOException Fehlerhafte Nachricht
+     */
+    private static AuditLogBatchPDU decodeAuditLogBatchPdu(Input in, boolean sequenced) throws IOException {
+        long senderId = sequenced ? in.readVarLong() : 0;
+        long sequenceNumber = sequenced ? in.readVarLong() : 0;
+        // Jeder Satz belegt mindestens ein Byte (Feldmaske), die Anzahl wird daher wie eine Laenge geprueft
+        int count = in.readLength();
+        AuditLogBatchPDU batch = new AuditLogBatchPDU(count);
+        batch.setSenderId(senderId);
+        batch.setSequenceNumber(sequenceNumber);
+        for (int i = 0; i < count; i++) {
+            batch.add(decodeAuditLogFields(in));
+        }
+        return batch;
+    }
+
+    /**
+     * Feldmaske und Felder einer AuditLogPDU dekodieren
+     * @param in Eingabepuffer, steht vor der Feldmaske
+     * @return Dekodierte PDU
+     * @throws IOException Fehlerhafte Nachricht
+     */
+    private static AuditLogPDU decodeAuditLogFields(Input in) throws IOException {
+        AuditLogPDU pdu = new AuditLogPDU();
+        long mask = in.readVarLong();
+        if ((mask & AUDIT_PDU_TYPE) != 0) {
+            int id = (int) in.readVarLong();
+            AuditLogPduType type = AuditLogPduType.getId(id);
+            if (type == null) {
+                throw new IOException("Unbekannter AuditLog-PDU-Typ: " + id);
+            }
+            pdu.setPduType(type);
+        }
+        if ((mask & AUDIT_USER_NAME) != 0) pdu.setUserName(in.readString());
+        if ((mask & AUDIT_CLIENT_THREAD_NAME) != 0) pdu.setClientThreadName(in.readString());
+        if ((mask & AUDIT_SERVER_THREAD_NAME) != 0) pdu.setServerThreadName(in.readString());
+        if ((mask & AUDIT_TIME) != 0) pdu.setAuditTime(in.readSignedVarLong());
+        if ((mask & AUDIT_MESSAGE) != 0) pdu.setMessage(in.readString());
+        return pdu;
+    }
+
+    /**
+     * Wachsender Ausgabepuffer
+     */
+    static final class Output {
+
+        private byte[] buffer;
+        private int position;
+
+        Output(int initialSize) {
+            buffer = new byte[initialSize];
+        }
+
+        void reset() {
+            position = 0;
+        }
+
+        int capacity() {
+            return buffer.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensureCapacity(int additional) {
+            if (position + additional > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + additional));
+            }
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeSignedVarLong(long value) {
+            // ZigZag-Kodierung, damit auch kleine negative Werte kurz bleiben
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeString(String value) {
+            int length = value.length();
+            // Schneller Weg fuer reine ASCII-Strings: ein Byte pro Zeichen, kein Zwischenpuffer
+            boolean ascii = true;
+            for (int i = 0; i < length; i++) {
+                if (value.charAt(i) >= 0x80) {
+                    ascii = false;
+                    break;
+                }
+            }
+            if (ascii) {
+                writeVarLong(length);
+                ensureCapacity(length);
+                for (int i = 0; i < length; i++) {
+                    buffer[position++] = (byte) value.charAt(i);
+                }
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                writeVarLong(bytes.length);
+                ensureCapacity(bytes.length);
+                System.arraycopy(bytes, 0, buffer, position, bytes.length);
+                position += bytes.length;
+            }
+        }
+    }
+
+    /**
+     * Eingabepuffer ueber einem Ausschnitt eines Byte-Arrays
+     */
+    static final class Input {
+
+        private final byte[] data;
+        private int position;
+        private final int end;
+
+        Input(byte[] data, int offset, int length) {
+            this.data = data;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        int readByte() throws IOException {
+            if (position >= end) {
+                throw new IOException("Unerwartetes Ende der Nachricht");
+            }
+            return data[position++] & 0xFF;
+        }
+
+        long readVarLong() throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IOException("Fehlerhafter Varint");
+        }
+
+        long readSignedVarLong() throws IOException {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        int readLength() throws IOException {
+            long length = readVarLong();
+            if (length < 0 || length > end - position) {
+                throw new IOException("Unzulaessige Laengenangabe: " + length);
+            }
+            return (int) length;
+        }
+
+        String readString() throws IOException {
+            int length = readLength();
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
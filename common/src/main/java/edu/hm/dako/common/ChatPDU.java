@@ -64,6 +64,10 @@ public class ChatPDU implements Serializable {
     // Transportsystemen)
     private long numberOfRetries;
 
+    // Version der Mitgliedschaft (angemeldete User), wird bei jedem Login und Logout erhoeht. Login- und
+    // Logout-Events ohne Userliste enthalten nur die Aenderung (eventUserName) gegenueber der Vorgaengerversion.
+    private long membershipVersion;
+
     public ChatPDU() {
         pduType = PduType.UNDEFINED;
         userName = null;
@@ -81,6 +85,7 @@ public class ChatPDU implements Serializable {
         numberOfReceivedConfirms = 0;
         numberOfLostConfirms = 0;
         numberOfRetries = 0;
+        membershipVersion = 0;
     }
 
     /**
@@ -280,6 +285,43 @@ public class ChatPDU implements Serializable {
         return pdu;
     }
 
+    /**
+     * Erzeugen einer User-List-Request-PDU, mit der ein Client die vollstaendige Userliste anfordert
+     * @param userName Name des Clients
+     * @param membershipVersion Zuletzt beim Client bekannte Version der Userliste
+     * @return Erzeugte PDU
+     */
+    public static ChatPDU createUserListRequestPdu(String userName, long membershipVersion) {
+
+        ChatPDU pdu = new ChatPDU();
+        pdu.setPduType(PduType.USER_LIST_REQUEST);
+        pdu.setClientThreadName(Thread.currentThread().getName());
+        pdu.setUserName(userName);
+        pdu.setMembershipVersion(membershipVersion);
+        return pdu;
+    }
+
+    /**
+     * Erzeugen einer User-List-Response-PDU mit der vollstaendigen Userliste
+     * @param userName Name des anfragenden Clients
+     * @param clientList Liste der registrierten User
+     * @param membershipVersion Version der Userliste
+     * @param receivedPdu Empfangene PDU (User-List-Request-PDU)
+     * @return Erzeugte PDU
+     */
+    public static ChatPDU createUserListResponsePdu(String userName, Vector<String> clientList,
+                                                    long membershipVersion, ChatPDU receivedPdu) {
+
+        ChatPDU pdu = new ChatPDU();
+        pdu.setPduType(PduType.USER_LIST_RESPONSE);
+        pdu.setServerThreadName(Thread.currentThread().getName());
+        pdu.setClientThreadName(receivedPdu.getClientThreadName());
+        pdu.setUserName(userName);
+        pdu.setClients(clientList);
+        pdu.setMembershipVersion(membershipVersion);
+        return pdu;
+    }
+
     /**
      * Erzeugen einer Login-Event-Confirm-PDU
      * @param userName Name des Clients
@@ -348,7 +390,8 @@ public class ChatPDU implements Serializable {
                 + this.numberOfReceivedChatMessages + ", " + "\n" + "numberOfSentEvents: "
                 + this.numberOfSentEvents + ", " + "\n" + "numberOfLostConfirms: "
                 + this.numberOfLostConfirms + ", " + "\n" + "numberOfRetries: "
-                + this.numberOfRetries + "\n" + "clients (Userliste): " + this.clients + ", "
+                + this.numberOfRetries + "\n" + "membershipVersion: " + this.membershipVersion + ", "
+                + "\n" + "clients (Userliste): " + this.clients + ", "
                 + "\n" + "message: " + this.message + "\n"
                 + "**************************************************************************************************** ChatPdu"
                 + "\n";
@@ -481,4 +524,12 @@ public class ChatPDU implements Serializable {
     public void setErrorCode(int code) {
         this.errorCode = code;
     }
+
+    public long getMembershipVersion() {
+        return membershipVersion;
+    }
+
+    public void setMembershipVersion(long membershipVersion) {
+        this.membershipVersion = membershipVersion;
+    }
 }
\ No newline at end of file
@@ -6,5 +6,5 @@ package edu.hm.dako.common;
  */
 
 public enum ChatServerImplementationType {
-    TCPAdvancedImplementation, TCPSimpleImplementation, UDPAdvancedImplementation,
+    TCPAdvancedImplementation, TCPSimpleImplementation, UDPAdvancedImplementation, TCPNioImplementation,
 }
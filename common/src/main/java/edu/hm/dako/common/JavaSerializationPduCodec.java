@@ -0,0 +1,36 @@
+package edu.hm.dako.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * PDU-Codec auf Basis der Java-Serialisierung. Jede Nachricht wird mit einem eigenen Objektstrom
+ * serialisiert und ist damit in sich abgeschlossen.
+ */
+public class JavaSerializationPduCodec implements PduCodec {
+
+    // Anfangsgroesse des Ausgabepuffers in Byte
+    private static final int INITIAL_BUFFER_SIZE = 512;
+
+    @Override
+    public byte[] encode(Serializable message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(message);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public Serializable decode(byte[] data, int offset, int length) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data, offset, length))) {
+            return (Serializable) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package edu.hm.dako.common;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Kodiert und dekodiert einzelne PDUs (z. B. {@link ChatPDU}, {@link AuditLogPDU}) fuer die Uebertragung in
+ * abgeschlossenen Nachrichtenrahmen. Im Gegensatz zu einem ObjectOutputStream haelt ein Codec keinen Zustand
+ * zwischen zwei Nachrichten, jede Nachricht kann also unabhaengig von den anderen gelesen werden.
+ */
+public interface PduCodec {
+
+    /**
+     * Kodiert eine Nachricht in ein Byte-Array
+     * @param message Zu kodierende Nachricht
+     * @return Kodierte Nachricht
+     * @throws IOException Nachricht kann nicht kodiert werden
+     */
+    byte[] encode(Serializable message) throws IOException;
+
+    /**
+     * Dekodiert eine Nachricht aus einem Ausschnitt eines Byte-Arrays
+     * @param data Puffer mit der kodierten Nachricht
+     * @param offset Beginn der Nachricht im Puffer
+     * @param length Laenge der Nachricht in Byte
+     * @return Dekodierte Nachricht
+     * @throws IOException Nachricht kann nicht dekodiert werden
+     */
+    Serializable decode(byte[] data, int offset, int length) throws IOException;
+}
@@ -0,0 +1,63 @@
+package edu.hm.dako.common;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Erzeugt PDU-Codecs. Welcher Codec verwendet wird, kann je Installation ueber die System-Property
+ * {@value #PDU_CODEC_PROPERTY} festgelegt werden (Werte siehe {@link PduCodecType}, z. B.
+ * {@code -Ddako.pduCodec=BinaryCodec}). Chat-Server, Clients und AuditLog-Server muessen dabei denselben Codec
+ * verwenden.
+ */
+public final class PduCodecFactory {
+
+    // Name der System-Property zur Auswahl des Codecs
+    public static final String PDU_CODEC_PROPERTY = "dako.pduCodec";
+
+    private static final Logger log = LogManager.getLogger(PduCodecFactory.class);
+
+    private PduCodecFactory() {
+    }
+
+    /**
+     * Codec eines bestimmten Typs erzeugen
+     * @param type Codec-Typ
+     * @return Codec
+     */
+    public static PduCodec getCodec(PduCodecType type) {
+        return switch (type) {
+            case BinaryCodec -> new BinaryPduCodec();
+            case JavaSerializationCodec -> new JavaSerializationPduCodec();
+        };
+    }
+
+    /**
+     * Liefert den per System-Property konfigurierten Codec
+     * @param defaultType Codec-Typ, falls keine (gueltige) Property gesetzt ist; null, wenn dann kein Codec
+     *                    verwendet werden soll (z. B. fuer die klassische Uebertragung mit Objektstroemen)
+     * @return Codec oder null
+     */
+    public static PduCodec getConfiguredCodec(PduCodecType defaultType) {
+        PduCodecType type = getConfiguredCodecType(defaultType);
+        return type == null ? null : getCodec(type);
+    }
+
+    /**
+     * Liefert den per System-Property konfigurierten Codec-Typ
+     * @param defaultType Codec-Typ, falls keine (gueltige) Property gesetzt ist
+     * @return Codec-Typ oder defaultType
+     */
+    public static PduCodecType getConfiguredCodecType(PduCodecType defaultType) {
+        String value = System.getProperty(PDU_CODEC_PROPERTY);
+        if (value == null || value.isBlank()) {
+            return defaultType;
+        }
+        for (PduCodecType type : PduCodecType.values()) {
+            if (type.name().equalsIgnoreCase(value.trim())) {
+                return type;
+            }
+        }
+        log.error("Unbekannter PDU-Codec " + value + ", verwende " + defaultType);
+        return defaultType;
+    }
+}
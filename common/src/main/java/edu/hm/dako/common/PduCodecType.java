@@ -0,0 +1,8 @@
+package edu.hm.dako.common;
+
+/**
+ * Verfuegbare Kodierungen fuer die Uebertragung von PDUs
+ */
+public enum PduCodecType {
+    JavaSerializationCodec, BinaryCodec,
+}
@@ -17,7 +17,9 @@ public enum PduType {
     LOGOUT_EVENT(9, "Logout-Event"),
     CHAT_MESSAGE_EVENT_CONFIRM(10, "Chat-Message-Event-Confirm"),
     LOGIN_EVENT_CONFIRM(11, "Login-Event-Confirm"),
-    LOGOUT_EVENT_CONFIRM(12, "Logout-Event-Confirm");
+    LOGOUT_EVENT_CONFIRM(12, "Logout-Event-Confirm"),
+    USER_LIST_REQUEST(13, "User-List-Request"),
+    USER_LIST_RESPONSE(14, "User-List-Response");
 
     private final int id;
     private final String description;
@@ -9,6 +9,7 @@ public class SystemConstants {
     public static final String IMPL_TCP_ADVANCED = "TCPAdvanced";
     public static final String IMPL_UDP_ADVANCED = "UDPAdvanced";
     public static final String IMPL_TCP_SIMPLE = "TCPSimple";
+    public static final String IMPL_TCP_NIO = "TCPNio";
 
     // Bezeichnungen fuer verschiedene Audit-Log-Server-Implementierungen
     public static final String AUDIT_LOG_SERVER_TCP_IMPL = "TCP";
@@ -0,0 +1,130 @@
+package edu.hm.dako.common;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Erzeugt Threads und Executor-Services fuer das gewaehlte Ausfuehrungsmodell. Welches Modell verwendet wird, kann ueber
+ * die System-Property {@value #THREADING_PROPERTY} festgelegt werden (Werte siehe {@link ThreadingType}, z. B.
+ * {@code -Ddako.threading=VirtualThreads}).
+ * <p>
+ * Virtuelle Threads gibt es erst ab JDK 21, die Module werden aber weiterhin fuer JDK 16 uebersetzt. Die virtuellen
+ * Threads werden daher ueber Reflection erzeugt. Stehen sie in der laufenden JVM nicht zur Verfuegung, wird mit einer
+ * Fehlermeldung auf Plattform-Threads ausgewichen.
+ */
+public final class ThreadingFactory {
+
+    // Name der System-Property zur Auswahl des Ausfuehrungsmodells
+    public static final String THREADING_PROPERTY = "dako.threading";
+
+    private static final Logger log = LogManager.getLogger(ThreadingFactory.class);
+
+    // Kennzeichen, ob das Ausweichen auf Plattform-Threads bereits gemeldet wurde
+    private static final AtomicBoolean fallbackReported = new AtomicBoolean(false);
+
+    private ThreadingFactory() {
+    }
+
+    /**
+     * Liefert das per System-Property konfigurierte Ausfuehrungsmodell
+     * @param defaultType Ausfuehrungsmodell, falls keine (gueltige) Property gesetzt ist
+     * @return Ausfuehrungsmodell oder defaultType
+     */
+    public static ThreadingType getConfiguredThreadingType(ThreadingType defaultType) {
+        String value = System.getProperty(THREADING_PROPERTY);
+        if (value == null || value.isBlank()) {
+            return defaultType;
+        }
+        for (ThreadingType type : ThreadingType.values()) {
+            if (type.name().equalsIgnoreCase(value.trim())) {
+                return type;
+            }
+        }
+        log.error("Unbekanntes Ausfuehrungsmodell " + value + ", verwende " + defaultType);
+        return defaultType;
+    }
+
+    /**
+     * Prueft, ob die laufende JVM virtuelle Threads unterstuetzt
+     * @return true, wenn virtuelle Threads erzeugt werden koennen
+     */
+    public static boolean isVirtualThreadSupported() {
+        return virtualThreadFactory("Probe-") != null;
+    }
+
+    /**
+     * Executor-Service erzeugen, der fuer jede Aufgabe einen eigenen Thread verwendet
+     * @param type Ausfuehrungsmodell
+     * @param namePrefix Praefix fuer die Namen virtueller Threads
+     * @return Executor-Service; fuer Plattform-Threads ein Cached-Thread-Pool
+     */
+    public static ExecutorService newThreadPerTaskExecutor(ThreadingType type, String namePrefix) {
+        if (type == ThreadingType.VirtualThreads) {
+            ThreadFactory factory = virtualThreadFactory(namePrefix);
+            if (factory != null) {
+                try {
+                    return (ExecutorService) Executors.class
+                            .getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+                } catch (Exception e) {
+                    log.debug("Executor fuer virtuelle Threads nicht verfuegbar: " + e);
+                }
+            }
+            reportFallback();
+        }
+        return Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Thread im gewaehlten Ausfuehrungsmodell starten. Fuer virtuelle Threads wird der uebergebene Thread selbst nicht
+     * gestartet, sondern seine run-Methode in einem neuen virtuellen Thread gleichen Namens ausgefuehrt.
+     * @param type Ausfuehrungsmodell
+     * @param thread Zu startender Thread
+     * @return Tatsaechlich laufender Thread
+     */
+    public static Thread start(ThreadingType type, Thread thread) {
+        if (type == ThreadingType.VirtualThreads) {
+            ThreadFactory factory = virtualThreadFactory(thread.getName());
+            if (factory != null) {
+                Thread virtualThread = factory.newThread(thread);
+                virtualThread.setName(thread.getName());
+                virtualThread.start();
+                return virtualThread;
+            }
+            reportFallback();
+        }
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Ausweichen auf Plattform-Threads einmalig melden
+     */
+    private static void reportFallback() {
+        if (fallbackReported.compareAndSet(false, true)) {
+            log.error("Virtuelle Threads werden von dieser JVM (" + System.getProperty("java.version")
+                    + ") nicht unterstuetzt, verwende Plattform-Threads");
+        }
+    }
+
+    /**
+     * Thread-Factory fuer virtuelle Threads ueber Reflection erzeugen (Thread.ofVirtual().name(prefix, 0).factory())
+     * @param namePrefix Praefix fuer die Thread-Namen, die Threads werden fortlaufend nummeriert
+     * @return Thread-Factory oder null, falls virtuelle Threads nicht unterstuetzt werden
+     */
+    private static ThreadFactory virtualThreadFactory(String namePrefix) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Exception | LinkageError e) {
+            log.debug("Virtuelle Threads nicht verfuegbar: " + e);
+            return null;
+        }
+    }
+}
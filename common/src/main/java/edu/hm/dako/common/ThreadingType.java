@@ -0,0 +1,11 @@
+package edu.hm.dako.common;
+
+/**
+ * Verfuegbare Ausfuehrungsmodelle fuer Worker-, Client- und Listener-Threads
+ */
+public enum ThreadingType {
+    // Klassische Plattform-Threads (ein Betriebssystem-Thread je Session)
+    PlatformThreads,
+    // Virtuelle Threads (ab JDK 21), blockierende Verbindungen belegen keinen Betriebssystem-Thread
+    VirtualThreads,
+}
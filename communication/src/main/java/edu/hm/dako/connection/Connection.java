@@ -3,9 +3,10 @@ package edu.hm.dako.connection;
 import java.io.Serializable;
 
 /**
- * Wird vom Client und vom Server zur Kommunikation verwendet.
+ * Wird vom Client und vom Server zur Kommunikation verwendet. Ergaenzt die Sendeseite ({@link MessageSender}) um
+ * den blockierenden Empfang.
  */
-public interface Connection {
+public interface Connection extends MessageSender {
 
     /**
      * Blockiert maximal eine angegebene Zeit in ms bis eine serialisierte Nachricht als Java-Objekt eintrifft.
@@ -23,17 +24,4 @@ public interface Connection {
      * @throws Exception - Fehler in der Verbindung
      */
     Serializable receive() throws Exception;
-
-    /**
-     * Sendet eine Nachricht an den Kommunikationspartner.
-     * @param message Die zu sendende Nachricht
-     * @throws Exception Fehler in der Verbindung
-     */
-    public void send(Serializable message) throws Exception;
-
-    /**
-     * Baut die Verbindung zum Kommunikationspartner ab.
-     * @throws Exception - Fehler in der Verbindung
-     */
-    void close() throws Exception;
 }
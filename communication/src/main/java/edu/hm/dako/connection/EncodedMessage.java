@@ -0,0 +1,67 @@
+package edu.hm.dako.connection;
+
+import edu.hm.dako.common.PduCodec;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Nachricht, die unveraendert an viele Empfaenger verteilt wird (z. B. Chat- oder Login-Events). Der Rahmen wird
+ * beim ersten Senden einmal kodiert und danach fuer alle weiteren Verbindungen mit demselben Codec
+ * wiederverwendet, statt die Nachricht fuer jeden Empfaenger erneut zu serialisieren.
+ * <p>
+ * Die Nachricht darf nach dem Erzeugen nicht mehr veraendert werden, da sonst Rahmen und Nachricht
+ * auseinanderlaufen.
+ */
+public final class EncodedMessage {
+
+    // Zu verteilende Nachricht
+    private final Serializable message;
+
+    // Zuletzt erzeugter Rahmen, gilt nur fuer die Codec-Klasse, mit der er erzeugt wurde
+    private volatile Frame frame;
+
+    /**
+     * Konstruktor
+     * @param message Zu verteilende Nachricht
+     */
+    public EncodedMessage(Serializable message) {
+        this.message = message;
+    }
+
+    /**
+     * @return Zu verteilende Nachricht
+     */
+    public Serializable getMessage() {
+        return message;
+    }
+
+    /**
+     * Liefert den Rahmen (Laengenfeld und kodierte Nachricht) fuer einen Codec. Der Rahmen wird nur beim ersten
+     * Aufruf je Codec-Klasse erzeugt und darf vom Aufrufer nicht veraendert werden.
+     * @param codec Codec der sendenden Verbindung
+     * @return Gemeinsam genutzter Rahmen
+     * @throws IOException Nachricht kann nicht kodiert werden
+     */
+    public byte[] getFrame(PduCodec codec) throws IOException {
+        Frame current = frame;
+        if (current == null || current.codecClass != codec.getClass()) {
+            current = new Frame(codec.getClass(), MessageFraming.encodeFrame(codec, message));
+            frame = current;
+        }
+        return current.bytes;
+    }
+
+    /**
+     * Kodierter Rahmen mit zugehoeriger Codec-Klasse
+     */
+    private static final class Frame {
+        private final Class<?> codecClass;
+        private final byte[] bytes;
+
+        Frame(Class<?> codecClass, byte[] bytes) {
+            this.codecClass = codecClass;
+            this.bytes = bytes;
+        }
+    }
+}
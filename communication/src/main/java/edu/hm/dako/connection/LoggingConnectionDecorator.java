@@ -5,6 +5,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.Serializable;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Stattet ein {@link Connection} Objekt mit automatischem Logging aus. Umschliesst eine beliebige Connection-Instanz
@@ -17,18 +18,51 @@ public class LoggingConnectionDecorator implements Connection {
 
     private final Connection wrappedConnection;
 
+    // Serialisiert Sendevorgaenge; kein Monitor, damit virtuelle Threads beim Senden nicht gebunden werden
+    private final ReentrantLock sendLock = new ReentrantLock();
+
     public LoggingConnectionDecorator(Connection wrappedConnection) {
         this.wrappedConnection = wrappedConnection;
     }
 
     @Override
-    public synchronized void send(Serializable message) throws Exception {
+    public void send(Serializable message) throws Exception {
         ChatPDU pdu = (ChatPDU) message;
-        log.debug("Sende Nachricht, Chat-Inhalt: " + pdu.getMessage()
-                + ", Chat-User: " + pdu.getUserName());
-        wrappedConnection.send(message);
-        log.trace(pdu);
-        log.debug("Nachricht gesendet");
+        sendLock.lock();
+        try {
+            log.debug("Sende Nachricht, Chat-Inhalt: " + pdu.getMessage()
+                    + ", Chat-User: " + pdu.getUserName());
+            wrappedConnection.send(message);
+            log.trace(pdu);
+            log.debug("Nachricht gesendet");
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    @Override
+    public void send(EncodedMessage message) throws Exception {
+        ChatPDU pdu = (ChatPDU) message.getMessage();
+        sendLock.lock();
+        try {
+            log.debug("Sende verteilte Nachricht, Chat-Inhalt: " + pdu.getMessage()
+                    + ", Chat-User: " + pdu.getUserName());
+            wrappedConnection.send(message);
+            log.trace(pdu);
+            log.debug("Nachricht gesendet");
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isWritable() {
+        return wrappedConnection.isWritable();
+    }
+
+    @Override
+    public void setWritabilityListener(Runnable listener) {
+        wrappedConnection.setWritabilityListener(listener);
     }
 
     @Override
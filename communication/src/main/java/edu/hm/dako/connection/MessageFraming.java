@@ -0,0 +1,62 @@
+package edu.hm.dako.connection;
+
+import edu.hm.dako.common.PduCodec;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Rahmenbildung fuer Nachrichten auf Datenstrom-Verbindungen: Jede Nachricht wird mit einem {@link PduCodec}
+ * kodiert und mit einem 4 Byte langen Laengenfeld (Big Endian) versehen. Damit kann ein Empfaenger die
+ * Nachrichtengrenzen erkennen, ohne den Inhalt zu verstehen, was fuer nicht-blockierende Verbindungen notwendig ist.
+ */
+public final class MessageFraming {
+
+    // Laenge des Rahmenkopfs (Laengenfeld) in Byte
+    public static final int FRAME_HEADER_LENGTH = 4;
+
+    // Maximal zulaessige Laenge einer Nachricht (ohne Rahmenkopf) in Byte
+    public static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+    private MessageFraming() {
+    }
+
+    /**
+     * Kodiert eine Nachricht und erzeugt daraus einen vollstaendigen Rahmen inkl. Laengenfeld
+     * @param codec Zu verwendender Codec
+     * @param message Zu kodierende Nachricht
+     * @return Rahmen (Laengenfeld und kodierte Nachricht)
+     * @throws IOException Nachricht kann nicht kodiert werden oder ist zu gross
+     */
+    public static byte[] encodeFrame(PduCodec codec, Serializable message) throws IOException {
+        byte[] payload = codec.encode(message);
+        checkFrameLength(payload.length);
+        byte[] frame = new byte[FRAME_HEADER_LENGTH + payload.length];
+        writeFrameLength(frame, payload.length);
+        System.arraycopy(payload, 0, frame, FRAME_HEADER_LENGTH, payload.length);
+        return frame;
+    }
+
+    /**
+     * Traegt die Nachrichtenlaenge in die ersten vier Byte eines Rahmens ein
+     * @param frame Rahmen
+     * @param length Laenge der Nachricht ohne Rahmenkopf
+     */
+    public static void writeFrameLength(byte[] frame, int length) {
+        frame[0] = (byte) (length >>> 24);
+        frame[1] = (byte) (length >>> 16);
+        frame[2] = (byte) (length >>> 8);
+        frame[3] = (byte) length;
+    }
+
+    /**
+     * Prueft, ob eine empfangene oder zu sendende Nachrichtenlaenge zulaessig ist
+     * @param length Laenge der Nachricht ohne Rahmenkopf
+     * @throws IOException Laenge ist negativ oder zu gross
+     */
+    public static void checkFrameLength(int length) throws IOException {
+        if (length < 0 || length > MAX_FRAME_LENGTH) {
+            throw new IOException("Unzulaessige Nachrichtenlaenge: " + length);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package edu.hm.dako.connection;
+
+import java.io.Serializable;
+
+/**
+ * Sendeseite einer Verbindung. Verbindungen, die Nachrichten nicht blockierend empfangen koennen (z. B. die
+ * ereignisgesteuerten NIO-Verbindungen), bieten nur diese Schnittstelle an; {@link Connection} ergaenzt den
+ * blockierenden Empfang.
+ */
+public interface MessageSender {
+
+    /**
+     * Sendet eine Nachricht an den Kommunikationspartner.
+     * @param message Die zu sendende Nachricht
+     * @throws Exception Fehler in der Verbindung
+     */
+    void send(Serializable message) throws Exception;
+
+    /**
+     * Sendet eine Nachricht, die an viele Empfaenger verteilt wird. Verbindungen mit Rahmenbildung senden den
+     * einmal kodierten, gemeinsam genutzten Rahmen; alle anderen senden die Nachricht wie bei
+     * {@link #send(Serializable)}.
+     * @param message Die zu sendende Nachricht
+     * @throws Exception Fehler in der Verbindung
+     */
+    default void send(EncodedMessage message) throws Exception {
+        send(message.getMessage());
+    }
+
+    /**
+     * Verbindungen, die selbst puffern, nehmen oberhalb einer Obergrenze vorerst keine weiteren Nachrichten auf. Der
+     * Aufrufer soll dann mit dem Senden warten, bis die Verbindung ueber den Listener (siehe
+     * {@link #setWritabilityListener(Runnable)}) meldet, dass sie wieder schreibbereit ist.
+     * @return true, wenn die Verbindung weitere Nachrichten aufnimmt
+     */
+    default boolean isWritable() {
+        return true;
+    }
+
+    /**
+     * Listener setzen, der aufgerufen wird, sobald die Verbindung wieder schreibbereit ist. Verbindungen, die nicht
+     * puffern, sind immer schreibbereit und rufen den Listener nie auf.
+     * @param listener Listener
+     */
+    default void setWritabilityListener(Runnable listener) {
+    }
+
+    /**
+     * Baut die Verbindung zum Kommunikationspartner ab.
+     * @throws Exception - Fehler in der Verbindung
+     */
+    void close() throws Exception;
+}
@@ -0,0 +1,386 @@
+package edu.hm.dako.connection.nio;
+
+import edu.hm.dako.common.PduCodec;
+import edu.hm.dako.connection.EncodedMessage;
+import edu.hm.dako.connection.MessageFraming;
+import edu.hm.dako.connection.MessageSender;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serverseitige, nicht-blockierende TCP-Verbindung. Die Verbindung gehoert genau einer {@link NioEventLoop}.
+ * Ankommende Rahmen werden im Loop-Thread dekodiert und an den {@link NioConnectionHandler} gemeldet.
+ * Zu sendende Nachrichten werden von beliebigen Threads kodiert und in eine Warteschlange eingestellt, die
+ * der Loop-Thread abarbeitet, sobald der Kanal schreibbereit ist. Ein send blockiert also nie.
+ * <p>
+ * Die Warteschlange nimmt jeden Rahmen an, meldet aber ab {@value #HIGH_WATER_MARK} noch nicht gesendeten Bytes, dass
+ * sie nicht mehr schreibbereit ist ({@link #isWritable()}). Wer sendet, haelt weitere Nachrichten dann selbst zurueck,
+ * bis der Listener meldet, dass der Rueckstand wieder unter {@value #LOW_WATER_MARK} Bytes liegt.
+ * <p>
+ * Einen blockierenden Empfang gibt es nicht, die Verbindung bietet daher nur die Sendeseite ({@link MessageSender})
+ * an.
+ */
+public class NioConnection implements MessageSender {
+
+    private static final Logger log = LogManager.getLogger(NioConnection.class);
+
+    // Grenzen fuer den Rueckstand an noch nicht gesendeten Bytes
+    public static final int HIGH_WATER_MARK = 256 * 1024;
+    public static final int LOW_WATER_MARK = HIGH_WATER_MARK / 2;
+
+    private final NioEventLoop eventLoop;
+    private final SocketChannel channel;
+    private final NioConnectionHandler handler;
+    private final PduCodec codec;
+    private SelectionKey key;
+
+    // Bereits empfangener, aber noch unvollstaendiger Rahmen (im Schreibmodus), sonst null
+    private ByteBuffer pending;
+
+    // Zu sendende Rahmen in Sendereihenfolge
+    private final ConcurrentLinkedQueue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger outboundFrames = new AtomicInteger();
+    private final AtomicLong outboundBytes = new AtomicLong();
+
+    // Schreibbereitschaft fuer den Sender, mit Hysterese zwischen LOW_WATER_MARK und HIGH_WATER_MARK
+    private volatile boolean writable = true;
+    private volatile Runnable writabilityListener;
+
+    // Kennzeichen, ob das Leeren der Sendewarteschlange bereits veranlasst ist
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    private volatile boolean closeRequested = false;
+    private volatile boolean closed = false;
+
+    // Anwendungsspezifische Daten zur Verbindung (z. B. die Session eines Chat-Clients)
+    private volatile Object attachment;
+
+    /**
+     * Konstruktor
+     * @param eventLoop Event-Loop, der die Verbindung zugeordnet ist
+     * @param channel Kanal der Verbindung
+     * @param handler Handler fuer die Ereignisse der Verbindung
+     * @param codec Codec fuer die Nachrichten
+     */
+    NioConnection(NioEventLoop eventLoop, SocketChannel channel, NioConnectionHandler handler, PduCodec codec) {
+        this.eventLoop = eventLoop;
+        this.channel = channel;
+        this.handler = handler;
+        this.codec = codec;
+    }
+
+    /**
+     * Kanal beim Selector der Event-Loop registrieren
+     * @param selector Selector der Event-Loop
+     * @throws IOException Fehler bei der Registrierung
+     */
+    void register(Selector selector) throws IOException {
+        key = channel.register(selector, SelectionKey.OP_READ, this);
+    }
+
+    public Object getAttachment() {
+        return attachment;
+    }
+
+    public void setAttachment(Object attachment) {
+        this.attachment = attachment;
+    }
+
+    /**
+     * @return Anzahl der Rahmen, die noch nicht vollstaendig gesendet wurden
+     */
+    public int getNumberOfPendingFrames() {
+        return outboundFrames.get();
+    }
+
+    /**
+     * @return Anzahl der Bytes, die noch nicht gesendet wurden
+     */
+    public long getNumberOfPendingBytes() {
+        return outboundBytes.get();
+    }
+
+    @Override
+    public boolean isWritable() {
+        return writable;
+    }
+
+    @Override
+    public void setWritabilityListener(Runnable listener) {
+        this.writabilityListener = listener;
+    }
+
+    /**
+     * @return Adresse des Partners als String
+     */
+    public String getRemoteAddress() {
+        try {
+            return String.valueOf(channel.getRemoteAddress());
+        } catch (IOException e) {
+            return "unbekannt";
+        }
+    }
+
+    /**
+     * Daten vom Kanal lesen und alle vollstaendigen Rahmen an den Handler weitergeben.
+     * Wird im Loop-Thread aufgerufen.
+     * @param buffer Gemeinsamer Lesepuffer der Event-Loop
+     */
+    void handleRead(ByteBuffer buffer) {
+        int n;
+        do {
+            buffer.clear();
+            try {
+                n = channel.read(buffer);
+            } catch (IOException e) {
+                log.debug("Verbindungsabbruch beim Lesen von " + getRemoteAddress() + ": " + e);
+                closeNow();
+                return;
+            }
+            if (n < 0) {
+                log.debug("End of File beim Empfang, Verbindungsabbau durch " + getRemoteAddress());
+                closeNow();
+                return;
+            }
+            if (n > 0) {
+                buffer.flip();
+                consume(buffer);
+            }
+        } while (n == buffer.capacity() && !closed);
+    }
+
+    /**
+     * Gelesene Daten verarbeiten. Unvollstaendige Rahmen werden bis zum naechsten Lesevorgang aufbewahrt.
+     * @param data Gelesene Daten (im Lesemodus)
+     */
+    private void consume(ByteBuffer data) {
+        if (pending != null) {
+            appendToPending(data);
+            pending.flip();
+            decodeFrames(pending);
+            if (pending.hasRemaining()) {
+                pending.compact();
+            } else {
+                pending = null;
+            }
+            return;
+        }
+
+        decodeFrames(data);
+        if (data.hasRemaining() && !closed) {
+            // Puffer gleich fuer den kompletten Rahmen anlegen, falls die Laenge schon bekannt ist
+            int size = data.remaining();
+            if (size >= MessageFraming.FRAME_HEADER_LENGTH) {
+                size = Math.max(size, MessageFraming.FRAME_HEADER_LENGTH + data.getInt(data.position()));
+            }
+            pending = ByteBuffer.allocate(Math.max(size, 256));
+            pending.put(data);
+        }
+    }
+
+    /**
+     * Daten an den Puffer fuer unvollstaendige Rahmen anhaengen, Puffer bei Bedarf vergroessern
+     * @param data Anzuhaengende Daten (im Lesemodus)
+     */
+    private void appendToPending(ByteBuffer data) {
+        if (pending.remaining() < data.remaining()) {
+            int required = pending.position() + data.remaining();
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(required, pending.capacity() * 2));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+        pending.put(data);
+    }
+
+    /**
+     * Alle vollstaendigen Rahmen aus einem Puffer dekodieren und an den Handler melden
+     * @param buffer Puffer im Lesemodus, danach steht die Position hinter dem letzten vollstaendigen Rahmen
+     */
+    private void decodeFrames(ByteBuffer buffer) {
+        while (!closed && buffer.remaining() >= MessageFraming.FRAME_HEADER_LENGTH) {
+            int length = buffer.getInt(buffer.position());
+            try {
+                MessageFraming.checkFrameLength(length);
+            } catch (IOException e) {
+                log.error("Fehlerhafter Rahmen von " + getRemoteAddress() + ": " + e.getMessage());
+                closeNow();
+                return;
+            }
+            if (buffer.remaining() < MessageFraming.FRAME_HEADER_LENGTH + length) {
+                return;
+            }
+            buffer.position(buffer.position() + MessageFraming.FRAME_HEADER_LENGTH);
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+
+            Serializable message;
+            try {
+                message = codec.decode(payload, 0, length);
+            } catch (IOException e) {
+                log.error("Nachricht von " + getRemoteAddress() + " kann nicht dekodiert werden: " + e);
+                closeNow();
+                return;
+            }
+            handler.messageReceived(this, message);
+        }
+    }
+
+    /**
+     * Kanal ist wieder schreibbereit. Wird im Loop-Thread aufgerufen.
+     */
+    void handleWrite() {
+        flush();
+    }
+
+    /**
+     * Einen fertigen Rahmen in die Sendewarteschlange einstellen
+     * @param frame Rahmen inkl. Laengenfeld
+     * @throws IOException Verbindung ist bereits geschlossen
+     */
+    void enqueue(ByteBuffer frame) throws IOException {
+        if (closed || closeRequested) {
+            throw new IOException("Sendeversuch, obwohl Verbindung geschlossen ist");
+        }
+        if (outboundBytes.addAndGet(frame.remaining()) >= HIGH_WATER_MARK) {
+            writable = false;
+        }
+        outbound.add(frame);
+        outboundFrames.incrementAndGet();
+        if (flushScheduled.compareAndSet(false, true)) {
+            if (eventLoop.inEventLoop()) {
+                flush();
+            } else {
+                eventLoop.execute(this::flush);
+            }
+        }
+    }
+
+    /**
+     * Sendewarteschlange so weit wie moeglich leeren. Kann der Kanal nicht alles aufnehmen, wird auf
+     * Schreibbereitschaft gewartet. Wird nur im Loop-Thread aufgerufen.
+     */
+    private void flush() {
+        while (!closed) {
+            ByteBuffer frame;
+            while ((frame = outbound.peek()) != null) {
+                try {
+                    outboundBytes.addAndGet(-channel.write(frame));
+                } catch (IOException e) {
+                    log.debug("Verbindungsabbruch beim Senden an " + getRemoteAddress() + ": " + e);
+                    closeNow();
+                    return;
+                }
+                checkWritable();
+                if (frame.hasRemaining()) {
+                    // Kanal ist voll, auf OP_WRITE warten
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+                outbound.poll();
+                outboundFrames.decrementAndGet();
+            }
+
+            if ((key.interestOps() & SelectionKey.OP_WRITE) != 0) {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            }
+            flushScheduled.set(false);
+
+            // Zwischenzeitlich eingestellte Rahmen noch mitnehmen
+            if (outbound.isEmpty() || !flushScheduled.compareAndSet(false, true)) {
+                break;
+            }
+        }
+        if (closeRequested && outbound.isEmpty()) {
+            closeNow();
+        }
+    }
+
+    /**
+     * Schreibbereitschaft wiederherstellen und melden, sobald der Rueckstand unter die untere Grenze faellt.
+     * Wird nur im Loop-Thread aufgerufen.
+     */
+    private void checkWritable() {
+        if (!writable && outboundBytes.get() <= LOW_WATER_MARK) {
+            writable = true;
+            // Ein send kann die obere Grenze inzwischen wieder ueberschritten haben
+            if (outboundBytes.get() >= HIGH_WATER_MARK) {
+                writable = false;
+                return;
+            }
+            Runnable listener = writabilityListener;
+            if (listener != null) {
+                listener.run();
+            }
+        }
+    }
+
+    @Override
+    public void send(Serializable message) throws Exception {
+        enqueue(ByteBuffer.wrap(MessageFraming.encodeFrame(codec, message)));
+    }
+
+    @Override
+    public void send(EncodedMessage message) throws Exception {
+        // Gemeinsamer Rahmen, jede Verbindung erhaelt nur eine eigene Leseposition
+        enqueue(ByteBuffer.wrap(message.getFrame(codec)).asReadOnlyBuffer());
+    }
+
+    /**
+     * Verbindung abbauen, nachdem alle bereits eingestellten Nachrichten gesendet wurden
+     */
+    @Override
+    public void close() {
+        if (closed || closeRequested) {
+            return;
+        }
+        closeRequested = true;
+        eventLoop.execute(() -> {
+            if (outbound.isEmpty()) {
+                closeNow();
+            } else if (flushScheduled.compareAndSet(false, true)) {
+                flush();
+            }
+        });
+    }
+
+    /**
+     * Verbindung sofort abbauen und den Handler informieren. Wird nur im Loop-Thread aufgerufen.
+     */
+    void closeNow() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("Exception beim Schliessen der Verbindung: " + e);
+        }
+        outbound.clear();
+        outboundFrames.set(0);
+        outboundBytes.set(0);
+
+        // Wartende Sender wecken, ihr naechster Sendeversuch scheitert
+        writable = true;
+        Runnable listener = writabilityListener;
+        if (listener != null) {
+            listener.run();
+        }
+        handler.connectionClosed(this);
+    }
+}
@@ -0,0 +1,30 @@
+package edu.hm.dako.connection.nio;
+
+import java.io.Serializable;
+
+/**
+ * Callback-Schnittstelle fuer den NIO-basierten Server. Die Methoden werden im Event-Loop-Thread aufgerufen, dem
+ * die Verbindung zugeordnet ist. Alle Aufrufe fuer eine Verbindung erfolgen daher nacheinander im selben Thread.
+ * Die Methoden duerfen nicht blockieren, da sonst alle Verbindungen des Event-Loops warten muessen.
+ */
+public interface NioConnectionHandler {
+
+    /**
+     * Eine neue Verbindung wurde angenommen
+     * @param connection Neue Verbindung
+     */
+    void connectionOpened(NioConnection connection);
+
+    /**
+     * Eine vollstaendige Nachricht ist auf einer Verbindung angekommen
+     * @param connection Verbindung, auf der die Nachricht empfangen wurde
+     * @param message Empfangene Nachricht
+     */
+    void messageReceived(NioConnection connection, Serializable message);
+
+    /**
+     * Eine Verbindung wurde abgebaut (vom Partner oder lokal)
+     * @param connection Abgebaute Verbindung
+     */
+    void connectionClosed(NioConnection connection);
+}
@@ -0,0 +1,195 @@
+package edu.hm.dako.connection.nio;
+
+import edu.hm.dako.common.PduCodec;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Event-Loop eines NIO-Servers: Ein Thread mit einem eigenen Selector bedient eine Menge von Verbindungen.
+ * Aenderungen an den Registrierungen werden als Aufgaben in die Loop eingestellt und im Loop-Thread
+ * ausgefuehrt, damit der Selector nur von einem Thread veraendert wird.
+ */
+class NioEventLoop extends Thread {
+
+    private static final Logger log = LogManager.getLogger(NioEventLoop.class);
+
+    // Groesse des gemeinsamen Lesepuffers einer Event-Loop in Byte
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final Selector selector;
+
+    // Codec fuer die Nachrichten der Verbindungen dieser Loop
+    private final PduCodec codec;
+
+    // Aufgaben, die im Loop-Thread auszufuehren sind
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    // Lesepuffer, wird von allen Verbindungen der Loop gemeinsam genutzt
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+    // Server-Socket, dessen Verbindungsaufbauwuensche diese Loop annimmt (nur bei einer Loop gesetzt)
+    private NioServerSocket acceptingServerSocket;
+
+    private volatile boolean closed = false;
+
+    /**
+     * Konstruktor
+     * @param name Name des Loop-Threads
+     * @param codec Codec fuer die Nachrichten der Verbindungen
+     * @throws IOException Selector kann nicht geoeffnet werden
+     */
+    NioEventLoop(String name, PduCodec codec) throws IOException {
+        super(name);
+        setDaemon(true);
+        this.codec = codec;
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Registriert den Listen-Kanal eines Servers bei dieser Loop
+     * @param serverSocket Server-Socket, der die angenommenen Verbindungen verteilt
+     * @param channel Listen-Kanal
+     */
+    void registerServerChannel(NioServerSocket serverSocket, ServerSocketChannel channel) {
+        execute(() -> {
+            try {
+                acceptingServerSocket = serverSocket;
+                channel.register(selector, SelectionKey.OP_ACCEPT);
+            } catch (IOException e) {
+                log.error("Listen-Kanal kann nicht registriert werden: " + e);
+            }
+        });
+    }
+
+    /**
+     * Registriert eine angenommene Verbindung bei dieser Loop
+     * @param channel Kanal der Verbindung
+     * @param handler Handler fuer die Ereignisse der Verbindung
+     */
+    void registerConnection(SocketChannel channel, NioConnectionHandler handler) {
+        execute(() -> {
+            NioConnection connection = new NioConnection(this, channel, handler, codec);
+            try {
+                connection.register(selector);
+            } catch (IOException e) {
+                log.error("Verbindung kann nicht registriert werden: " + e);
+                connection.closeNow();
+                return;
+            }
+            handler.connectionOpened(connection);
+        });
+    }
+
+    /**
+     * Stellt eine Aufgabe zur Ausfuehrung im Loop-Thread ein und weckt den Selector auf
+     * @param task Auszufuehrende Aufgabe
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * @return true, wenn der aufrufende Thread der Loop-Thread ist
+     */
+    boolean inEventLoop() {
+        return Thread.currentThread() == this;
+    }
+
+    /**
+     * Beendet die Loop und schliesst alle ihr zugeordneten Verbindungen
+     */
+    void shutdown() {
+        closed = true;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        log.debug(getName() + " gestartet");
+        while (!closed) {
+            try {
+                selector.select();
+                runTasks();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    processKey(key);
+                }
+            } catch (IOException e) {
+                log.error(getName() + ": Fehler im Selector: " + e);
+            }
+        }
+        closeAll();
+        log.debug(getName() + " beendet");
+    }
+
+    /**
+     * Alle anstehenden Aufgaben ausfuehren
+     */
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error(getName() + ": Fehler bei der Ausfuehrung einer Aufgabe: " + e);
+            }
+        }
+    }
+
+    /**
+     * Bereitgemeldeten Schluessel bearbeiten
+     * @param key Schluessel aus dem Selector
+     */
+    private void processKey(SelectionKey key) {
+        try {
+            if (key.isAcceptable()) {
+                acceptingServerSocket.acceptPending();
+                return;
+            }
+            NioConnection connection = (NioConnection) key.attachment();
+            if (key.isReadable()) {
+                connection.handleRead(readBuffer);
+            }
+            if (key.isValid() && key.isWritable()) {
+                connection.handleWrite();
+            }
+        } catch (CancelledKeyException e) {
+            // Verbindung wurde zwischenzeitlich geschlossen
+        } catch (RuntimeException e) {
+            log.error(getName() + ": Fehler bei der Bearbeitung eines Ereignisses: " + e);
+            if (key.attachment() instanceof NioConnection connection) {
+                connection.closeNow();
+            }
+        }
+    }
+
+    /**
+     * Alle Verbindungen der Loop schliessen und den Selector freigeben
+     */
+    private void closeAll() {
+        runTasks();
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof NioConnection connection) {
+                connection.closeNow();
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            log.debug("Fehler beim Schliessen des Selectors: " + e);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package edu.hm.dako.connection.nio;
+
+import edu.hm.dako.common.PduCodec;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Server-Socket auf Basis von Java NIO. Statt eines Threads pro Verbindung bedient eine kleine, feste Anzahl von
+ * Event-Loops (je ein Thread mit eigenem Selector) alle Verbindungen. Angenommene Verbindungen werden reihum auf
+ * die Event-Loops verteilt. Die Anwendung wird ueber einen {@link NioConnectionHandler} informiert.
+ */
+public class NioServerSocket {
+
+    private static final Logger log = LogManager.getLogger(NioServerSocket.class);
+
+    // Standardanzahl der Event-Loops
+    public static final int DEFAULT_NUMBER_OF_EVENT_LOOPS = Runtime.getRuntime().availableProcessors();
+
+    // Laenge der Warteschlange fuer noch nicht angenommene Verbindungsaufbauwuensche
+    private static final int ACCEPT_BACKLOG = 1024;
+
+    private final ServerSocketChannel serverChannel;
+    private final NioEventLoop[] eventLoops;
+    private final int sendBufferSize;
+    private final int receiveBufferSize;
+    private NioConnectionHandler handler;
+
+    // Index der Event-Loop, der die naechste Verbindung zugeordnet wird
+    private int nextEventLoop = 0;
+
+    /**
+     * Erzeugt ein NIO-Serversocket und bindet es an einen Port
+     * @param port Portnummer, die verwendet werden soll
+     * @param sendBufferSize Groesse des Sendepuffers einer Verbindung in Byte
+     * @param receiveBufferSize Groesse des Empfangspuffers einer Verbindung in Byte
+     * @param numberOfEventLoops Anzahl der Event-Loops (Threads)
+     * @param codec Codec fuer die Nachrichten
+     * @throws BindException Port schon belegt
+     * @throws IOException I/O-Fehler bei der Socket-Erzeugung
+     */
+    public NioServerSocket(int port, int sendBufferSize, int receiveBufferSize, int numberOfEventLoops,
+                           PduCodec codec) throws IOException {
+        this.sendBufferSize = sendBufferSize;
+        this.receiveBufferSize = receiveBufferSize;
+        try {
+            serverChannel = ServerSocketChannel.open();
+            // Bind erst nach Setzen der SO_REUSEADDR Option, sonst wird die Option nicht angenommen
+            serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            serverChannel.bind(new InetSocketAddress(port), ACCEPT_BACKLOG);
+            serverChannel.configureBlocking(false);
+        } catch (BindException e) {
+            log.debug("Port " + port + " auf dem Rechner schon in Benutzung, Bind Exception: " + e);
+            throw e;
+        } catch (IOException e) {
+            log.debug("Schwerwiegender Fehler beim Anlegen eines NIO-Sockets mit Portnummer " + port + ": " + e);
+            throw e;
+        }
+
+        eventLoops = new NioEventLoop[Math.max(1, numberOfEventLoops)];
+        for (int i = 0; i < eventLoops.length; i++) {
+            eventLoops[i] = new NioEventLoop("NioEventLoop-" + i, codec);
+        }
+        log.debug("NIO-Serversocket mit " + eventLoops.length + " Event-Loops an Port " + port + " gebunden");
+    }
+
+    /**
+     * Event-Loops starten und Verbindungsaufbauwuensche annehmen
+     * @param handler Handler fuer die Ereignisse aller Verbindungen
+     */
+    public void start(NioConnectionHandler handler) {
+        this.handler = handler;
+        for (NioEventLoop eventLoop : eventLoops) {
+            eventLoop.start();
+        }
+        // Die erste Event-Loop nimmt auch die Verbindungsaufbauwuensche an
+        eventLoops[0].registerServerChannel(this, serverChannel);
+    }
+
+    /**
+     * Alle anstehenden Verbindungsaufbauwuensche annehmen und auf die Event-Loops verteilen.
+     * Wird im Thread der annehmenden Event-Loop aufgerufen.
+     */
+    void acceptPending() {
+        SocketChannel channel;
+        try {
+            while ((channel = serverChannel.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.setOption(StandardSocketOptions.SO_KEEPALIVE, false);
+                channel.setOption(StandardSocketOptions.SO_SNDBUF, sendBufferSize);
+                channel.setOption(StandardSocketOptions.SO_RCVBUF, receiveBufferSize);
+                log.debug("Neuer Verbindungsaufbauwunsch von " + channel.getRemoteAddress() + " angenommen");
+
+                eventLoops[nextEventLoop].registerConnection(channel, handler);
+                nextEventLoop = (nextEventLoop + 1) % eventLoops.length;
+            }
+        } catch (IOException e) {
+            if (serverChannel.isOpen()) {
+                log.error("Exception beim Entgegennehmen von Verbindungsaufbauwuenschen: " + e);
+            }
+        }
+    }
+
+    /**
+     * Listen-Kanal schliessen und alle Event-Loops beenden
+     * @throws IOException Fehler beim Schliessen
+     */
+    public void close() throws IOException {
+        log.debug("NIO-Serversocket wird geschlossen");
+        serverChannel.close();
+        for (NioEventLoop eventLoop : eventLoops) {
+            eventLoop.shutdown();
+        }
+    }
+
+    /**
+     * @return true, falls der Listen-Kanal bereits geschlossen ist
+     */
+    public boolean isClosed() {
+        return !serverChannel.isOpen();
+    }
+}
@@ -1,11 +1,18 @@
 package edu.hm.dako.connection.tcp;
 
+import edu.hm.dako.common.PduCodec;
 import edu.hm.dako.connection.Connection;
 import edu.hm.dako.connection.ConnectionTimeoutException;
+import edu.hm.dako.connection.EncodedMessage;
 import edu.hm.dako.connection.EndOfFileException;
+import edu.hm.dako.connection.MessageFraming;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
@@ -14,9 +21,12 @@ import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Implementierung der TCP-Verbindung
+ * Implementierung der TCP-Verbindung. Ohne Codec werden die Nachrichten ueber Objektstroeme uebertragen,
+ * mit Codec werden sie einzeln kodiert und mit einem Laengenfeld versehen (siehe {@link MessageFraming}).
+ * Die Rahmenvariante wird z. B. fuer die Kommunikation mit dem NIO-basierten Server benoetigt.
  * @author Peter Mandl
  */
 public class TcpConnection implements Connection {
@@ -27,6 +37,15 @@ public class TcpConnection implements Connection {
     // Ein- und Ausgabestrom der Verbindung
     private ObjectOutputStream out;
     private ObjectInputStream in;
+    // Codec fuer die Rahmenvariante, null bei Uebertragung ueber Objektstroeme
+    private final PduCodec codec;
+    // Ein- und Ausgabestrom der Rahmenvariante
+    private DataOutputStream framedOut;
+    private DataInputStream framedIn;
+
+    // Serialisiert Sendevorgaenge, falls mehrere Threads ueber die Verbindung senden. Kein Monitor, damit ein
+    // blockierender Sendevorgang einen virtuellen Thread nicht an seinen Traeger-Thread bindet.
+    private final ReentrantLock sendLock = new ReentrantLock();
 
     /**
      * Verbindungsendpunkt auf Serverseite anlegen
@@ -38,6 +57,21 @@ public class TcpConnection implements Connection {
      */
     public TcpConnection(ServerSocket serverSocket, int sendBufferSize, int receiveBufferSize,
                          boolean keepAlive, boolean TcpNoDelay) throws IOException {
+        this(serverSocket, sendBufferSize, receiveBufferSize, keepAlive, TcpNoDelay, null);
+    }
+
+    /**
+     * Verbindungsendpunkt auf Serverseite anlegen
+     * @param serverSocket TCP-Serversocket (mit Listen-Port)
+     * @param sendBufferSize Groesse des Sendepuffers in Byte
+     * @param receiveBufferSize Groesse des Empfangspuffers in Byte
+     * @param keepAlive Option KEEPAALIVE
+     * @param TcpNoDelay Option TCP_NODELAY
+     * @param codec Codec fuer die Rahmenvariante, null fuer Objektstroeme
+     */
+    public TcpConnection(ServerSocket serverSocket, int sendBufferSize, int receiveBufferSize,
+                         boolean keepAlive, boolean TcpNoDelay, PduCodec codec) throws IOException {
+        this.codec = codec;
         try {
             // Verbindungsaufbauwunsch akzeptieren
             this.socket = serverSocket.accept();
@@ -72,6 +106,26 @@ public class TcpConnection implements Connection {
     public TcpConnection(String remoteServerAddress, int serverPort, String localHost,
                          int localPort, int sendBufferSize, int receiveBufferSize,
                          boolean keepAlive, boolean TcpNoDelay) throws IOException {
+        this(remoteServerAddress, serverPort, localHost, localPort, sendBufferSize, receiveBufferSize,
+                keepAlive, TcpNoDelay, null);
+    }
+
+    /**
+     * Verbindungsendpunkt auf Clientseite anlegen
+     * @param remoteServerAddress Entfernter Hostname
+     * @param serverPort Port des Servers
+     * @param localHost Lokale IP_Adresse, die verwendet werden soll
+     * @param localPort Lokaler Port (bei 0 wird einer vergeben)
+     * @param sendBufferSize Groesse des Sendepuffers in Byte
+     * @param receiveBufferSize Groesse des Empfangspuffers in Byte
+     * @param keepAlive Option KEEPAALIVE
+     * @param TcpNoDelay Option TCP_NODELAY
+     * @param codec Codec fuer die Rahmenvariante, null fuer Objektstroeme
+     */
+    public TcpConnection(String remoteServerAddress, int serverPort, String localHost,
+                         int localPort, int sendBufferSize, int receiveBufferSize,
+                         boolean keepAlive, boolean TcpNoDelay, PduCodec codec) throws IOException {
+        this.codec = codec;
         try {
             // Socket erzeugen
             this.socket = new Socket();
@@ -103,6 +157,12 @@ public class TcpConnection implements Connection {
      */
     private void createObjectStreams() throws IOException {
         try {
+            if (codec != null) {
+                // Rahmenvariante: Keine Objektstroeme, nur gepufferte Datenstroeme
+                framedOut = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                framedIn = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                return;
+            }
             out = new ObjectOutputStream(socket.getOutputStream());
             in = new ObjectInputStream(socket.getInputStream());
         } catch (IOException e) {
@@ -169,7 +229,7 @@ public class TcpConnection implements Connection {
 
         try {
             socket.setSoTimeout(timeout);
-            Object message = in.readObject();
+            Object message = (codec != null) ? readFrame() : in.readObject();
             socket.setSoTimeout(0);
             return (Serializable) message;
         } catch (java.net.SocketTimeoutException e) {
@@ -192,7 +252,7 @@ public class TcpConnection implements Connection {
         }
         try {
             socket.setSoTimeout(0);
-            Object message = in.readObject();
+            Object message = (codec != null) ? readFrame() : in.readObject();
             return (Serializable) message;
         } catch (Exception e) {
             log.debug("Exception beim Empfang " + socket.getInetAddress());
@@ -214,8 +274,57 @@ public class TcpConnection implements Connection {
         }
 
         try {
-            out.writeObject(message);
-            out.flush();
+            if (codec != null) {
+                byte[] frame = MessageFraming.encodeFrame(codec, message);
+                sendLock.lock();
+                try {
+                    framedOut.write(frame);
+                    framedOut.flush();
+                } finally {
+                    sendLock.unlock();
+                }
+            } else {
+                sendLock.lock();
+                try {
+                    out.writeObject(message);
+                    out.flush();
+                } finally {
+                    sendLock.unlock();
+                }
+            }
+        } catch (Exception e) {
+            log.debug("Exception beim Sendeversuch an " + socket.getInetAddress());
+            log.debug(e.getMessage());
+            throw new IOException();
+        }
+    }
+
+    @Override
+    public void send(EncodedMessage message) throws Exception {
+
+        // Objektstroeme haben Zustand ueber mehrere Nachrichten, dort ist kein gemeinsamer Rahmen moeglich
+        if (codec == null) {
+            send(message.getMessage());
+            return;
+        }
+        if (socket.isClosed()) {
+            log.debug("Sendeversuch, obwohl Socket geschlossen ist");
+            throw new IOException();
+        }
+        if (!socket.isConnected()) {
+            log.debug("Sendeversuch, obwohl Verbindung nicht mehr steht");
+            throw new IOException();
+        }
+
+        try {
+            byte[] frame = message.getFrame(codec);
+            sendLock.lock();
+            try {
+                framedOut.write(frame);
+                framedOut.flush();
+            } finally {
+                sendLock.unlock();
+            }
         } catch (Exception e) {
             log.debug("Exception beim Sendeversuch an " + socket.getInetAddress());
             log.debug(e.getMessage());
@@ -223,10 +332,34 @@ public class TcpConnection implements Connection {
         }
     }
 
+    /**
+     * Liest einen vollstaendigen Rahmen und dekodiert die enthaltene Nachricht
+     * @return Empfangene Nachricht
+     * @throws IOException Fehler beim Lesen oder Dekodieren
+     */
+    private Serializable readFrame() throws IOException {
+        int length = framedIn.readInt();
+        MessageFraming.checkFrameLength(length);
+        byte[] payload = new byte[length];
+        framedIn.readFully(payload);
+        return codec.decode(payload, 0, length);
+    }
+
+    /**
+     * @return Adresse und Port des Kommunikationspartners in der Form host:port
+     */
+    public String getRemoteAddress() {
+        return socket.getInetAddress().getHostAddress() + ":" + socket.getPort();
+    }
+
     @Override
     public synchronized void close() throws IOException {
         try {
-            out.flush();
+            if (codec != null) {
+                framedOut.flush();
+            } else {
+                out.flush();
+            }
             log.debug("Verbindungssocket wird geschlossen, lokaler Port: "
                     + socket.getLocalPort() + ", entfernter Port: " + socket.getPort());
             socket.close();
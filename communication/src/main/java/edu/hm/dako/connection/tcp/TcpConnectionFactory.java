@@ -1,5 +1,6 @@
 package edu.hm.dako.connection.tcp;
 
+import edu.hm.dako.common.PduCodec;
 import edu.hm.dako.connection.Connection;
 import edu.hm.dako.connection.ConnectionFactory;
 import org.apache.logging.log4j.LogManager;
@@ -20,6 +21,23 @@ public class TcpConnectionFactory implements ConnectionFactory {
     // Zaehlt die Verbindungsaufbauversuche, bis eine Verbindung vom Server
     // angenommen wird
     private long connectionTryCounter = 0;
+    // Codec fuer die Rahmenvariante der Verbindung, null fuer Objektstroeme
+    private final PduCodec codec;
+
+    /**
+     * Erzeugt Verbindungen, die Nachrichten ueber Objektstroeme uebertragen
+     */
+    public TcpConnectionFactory() {
+        this(null);
+    }
+
+    /**
+     * Erzeugt Verbindungen, die Nachrichten einzeln kodiert in Rahmen uebertragen
+     * @param codec Zu verwendender Codec, null fuer Objektstroeme
+     */
+    public TcpConnectionFactory(PduCodec codec) {
+        this.codec = codec;
+    }
 
     /**
      * Baut eine Verbindung zum Server auf. Der Verbindungsaufbau wird mehrmals versucht.
@@ -38,7 +56,7 @@ public class TcpConnectionFactory implements ConnectionFactory {
                 connectionTryCounter++;
                 log.debug(connectionTryCounter + ". Verbindungsaufbauversuch");
                 connection = new TcpConnection(remoteServerAddress, serverPort,
-                        localHost, localPort, sendBufferSize, receiveBufferSize, false, true);
+                        localHost, localPort, sendBufferSize, receiveBufferSize, false, true, codec);
                 connected = true;
             } catch (IOException e) {
                 log.error("Exception beim Verbindungsaufbau " + e.getMessage());
@@ -1,5 +1,6 @@
 package edu.hm.dako.connection.tcp;
 
+import edu.hm.dako.common.PduCodec;
 import edu.hm.dako.connection.Connection;
 import edu.hm.dako.connection.ServerSocketInterface;
 import org.apache.logging.log4j.LogManager;
@@ -20,6 +21,8 @@ public class TcpServerSocket implements ServerSocketInterface {
     private static java.net.ServerSocket serverSocket;
     int sendBufferSize;
     int receiveBufferSize;
+    // Codec fuer die Nachrichtenrahmen, null = Objektstroeme
+    PduCodec codec;
 
     /**
      * Erzeugt ein TCP-Serversocket und bindet es an einen Port.
@@ -31,7 +34,22 @@ public class TcpServerSocket implements ServerSocketInterface {
      */
     public TcpServerSocket(int port, int sendBufferSize, int receiveBufferSize)
             throws BindException, IOException {
+        this(port, sendBufferSize, receiveBufferSize, null);
+    }
+
+    /**
+     * Erzeugt ein TCP-Serversocket und bindet es an einen Port.
+     * @param port Portnummer, die verwendet werden soll
+     * @param sendBufferSize Groesse des Sendepuffers in Byte
+     * @param receiveBufferSize Groesse des Empfangspuffers in Byte
+     * @param codec Codec fuer die angenommenen Verbindungen, null fuer Objektstroeme
+     * @throws BindException Port schon belegt
+     * @throws IOException I/O-Fehler bei der Socket-Erzeugung
+     */
+    public TcpServerSocket(int port, int sendBufferSize, int receiveBufferSize, PduCodec codec)
+            throws BindException, IOException {
 
+        this.codec = codec;
         this.sendBufferSize = sendBufferSize;
         this.receiveBufferSize = receiveBufferSize;
         try {
@@ -56,7 +74,7 @@ public class TcpServerSocket implements ServerSocketInterface {
     @Override
     public Connection accept() throws IOException {
         return new TcpConnection(serverSocket, sendBufferSize, receiveBufferSize,
-                false, true);
+                false, true, codec);
     }
 
     @Override
@@ -1,5 +1,6 @@
 package edu.hm.dako.connection.udp;
 
+import edu.hm.dako.common.PduCodec;
 import edu.hm.dako.connection.ConnectionFactory;
 import edu.hm.dako.connection.Connection;
 
@@ -10,6 +11,21 @@ import java.net.InetAddress;
  */
 public class UdpClientConnectionFactory implements ConnectionFactory {
 
+    // Codec fuer die Datagramme, null = Standard des UdpSocket
+    private final PduCodec codec;
+
+    public UdpClientConnectionFactory() {
+        this(null);
+    }
+
+    /**
+     * Konstruktor
+     * @param codec Codec fuer die Datagramme, null fuer den Standard-Codec
+     */
+    public UdpClientConnectionFactory(PduCodec codec) {
+        this.codec = codec;
+    }
+
     @Override
     public Connection connectToServer(String remoteServerAddress, int serverPort,
                                       int localPort, int sendBufferSize, int receiveBufferSize) throws Exception {
@@ -17,6 +33,9 @@ public class UdpClientConnectionFactory implements ConnectionFactory {
         UdpSocket udpSocket = new UdpSocket(localPort, sendBufferSize, receiveBufferSize);
         udpSocket.setRemoteAddress(InetAddress.getByName(remoteServerAddress));
         udpSocket.setRemotePort(serverPort);
+        if (codec != null) {
+            udpSocket.setCodec(codec);
+        }
 
         // Maximale Wartezeit beim Empfang einer Nachricht in Millisekunden.
         // Wenn in dieser Zeit keine Nachricht kommt, wird das Empfangen abgebrochen.
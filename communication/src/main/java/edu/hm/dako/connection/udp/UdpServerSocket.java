@@ -1,6 +1,7 @@
 package edu.hm.dako.connection.udp;
 
 
+import edu.hm.dako.common.PduCodec;
 import edu.hm.dako.connection.ServerSocketInterface;
 import edu.hm.dako.connection.Connection;
 
@@ -20,6 +21,22 @@ public class UdpServerSocket implements ServerSocketInterface {
                 receiveBufferSize);
     }
 
+    /**
+     * Konstruktor
+     * @param serverPort UDP-Port des Servers
+     * @param sendBufferSize Groesse des Sendepuffers in Byte
+     * @param receiveBufferSize Groesse des Empfangspuffers in Byte
+     * @param codec Codec fuer die Datagramme, null fuer den Standard-Codec
+     * @throws SocketException Fehler beim Erzeugen des Sockets
+     */
+    public UdpServerSocket(int serverPort, int sendBufferSize,
+                           int receiveBufferSize, PduCodec codec) throws SocketException {
+        this(serverPort, sendBufferSize, receiveBufferSize);
+        if (codec != null) {
+            socket.setCodec(codec);
+        }
+    }
+
     @Override
     public Connection accept() throws Exception {
         return new UdpServerConnection(socket);
@@ -1,13 +1,12 @@
 package edu.hm.dako.connection.udp;
 
+import edu.hm.dako.common.JavaSerializationPduCodec;
+import edu.hm.dako.common.PduCodec;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.io.StreamCorruptedException;
 import java.net.BindException;
 import java.net.DatagramPacket;
@@ -19,8 +18,8 @@ import java.net.SocketTimeoutException;
 
 /**
  * Diese Klasse kapselt die Datagram-Sockets und stellt eine etwas komfortablere Schnittstelle zur Verfuegung.
- * Der Mehrwert dieser Klasse im Vergleich zur Standard-DatagramSocket-Klasse ist die Nutzung eines Objektstroms zur
- * Kommunikation ueber UDP.
+ * Der Mehrwert dieser Klasse im Vergleich zur Standard-DatagramSocket-Klasse ist die Nutzung eines PDU-Codecs zur
+ * Kommunikation ueber UDP (standardmaessig Java-Serialisierung, jedes Datagramm enthaelt genau eine Nachricht).
  * Achtung: Maximale Datagramlaenge: 64 KByte
  * @author Mandl
  * @version 1.0.0
@@ -32,6 +31,8 @@ public class UdpSocket {
     private DatagramSocket socket;
     private InetAddress remoteAddress;
     private int remotePort;
+    // Codec fuer die Kodierung der Datagramme
+    private PduCodec codec = new JavaSerializationPduCodec();
 
     /**
      * Konstruktor
@@ -125,12 +126,9 @@ public class UdpSocket {
             throw e3;
         }
 
-        ByteArrayInputStream bais = new ByteArrayInputStream(packet.getData());
-        ObjectInputStream ois = new ObjectInputStream(bais);
-
         Object pdu;
         try {
-            pdu = ois.readObject();
+            pdu = codec.decode(packet.getData(), packet.getOffset(), packet.getLength());
 
             remoteAddress = packet.getAddress();
             remotePort = packet.getPort();
@@ -138,10 +136,6 @@ public class UdpSocket {
             log.debug("Entfernter Port: " + packet.getPort() + ", Zielport: "
                     + socket.getLocalPort());
 
-        } catch (ClassNotFoundException e1) {
-            log.error("ClassNotFoundException beim Empfang: ", e1);
-            // throw e1;
-            return null;
         } catch (StreamCorruptedException e2) {
             log.error("Invalid Stream beim Empfang: ", e2);
             // throw e2;
@@ -162,10 +156,7 @@ public class UdpSocket {
      * @throws IOException Fehler beim Senden
      */
     public void send(InetAddress remoteAddress, int remotePort, Object pdu) throws IOException {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        ObjectOutputStream os = new ObjectOutputStream(out);
-        os.writeObject(pdu);
-        byte[] bytes = out.toByteArray();
+        byte[] bytes = codec.encode((Serializable) pdu);
 
         log.debug("Zu sendende Bytes: " + bytes.length);
 
@@ -182,6 +173,21 @@ public class UdpSocket {
         }
     }
 
+    /**
+     * @return Verwendeter Codec
+     */
+    public PduCodec getCodec() {
+        return codec;
+    }
+
+    /**
+     * Codec fuer die Kodierung der Datagramme setzen, muss auf beiden Seiten gleich sein
+     * @param codec Codec
+     */
+    public void setCodec(PduCodec codec) {
+        this.codec = codec;
+    }
+
     /**
      * Datagram-Socket schliessen
      */
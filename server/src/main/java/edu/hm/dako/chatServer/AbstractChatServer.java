@@ -15,4 +15,32 @@ public abstract class AbstractChatServer implements ChatServerInterface {
 
     // Referenz auf Server GUI fuer die Meldung von Ereignissen
     protected ChatServerGuiInterface serverGuiInterface;
+
+    // Raeumt die Clientliste periodisch auf
+    protected ClientListReaper reaper;
+
+    /**
+     * Startet das periodische Aufraeumen der Clientliste
+     */
+    protected void startClientListReaper() {
+        reaper = new ClientListReaper(clients, ClientListReaper.getConfiguredInterval());
+        reaper.start();
+    }
+
+    /**
+     * @return Reaper der Clientliste mit seinen Messwerten, null, falls der Server nicht laeuft
+     */
+    public ClientListReaper getClientListReaper() {
+        return reaper;
+    }
+
+    /**
+     * Beendet das periodische Aufraeumen der Clientliste
+     */
+    protected void stopClientListReaper() {
+        if (reaper != null) {
+            reaper.stop();
+            reaper = null;
+        }
+    }
 }
@@ -2,23 +2,25 @@ package edu.hm.dako.chatServer;
 
 
 import edu.hm.dako.common.ChatPDU;
-import edu.hm.dako.connection.Connection;
+import edu.hm.dako.connection.MessageSender;
 
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Abstrakte Klasse mit Basisfunktionalitaet fuer serverseitige Worker-Threads
+ * Abstrakte Klasse mit Basisfunktionalitaet fuer die serverseitige Bedienung einer Session mit einem Client. Wie die
+ * Nachrichten empfangen werden (Worker-Thread mit blockierendem Empfang oder Event-Loop), legen die Unterklassen
+ * fest.
  * @author Peter Mandl
  */
-public abstract class AbstractWorkerThread extends Thread {
+public abstract class AbstractChatSession {
 
-    // Verbindungs-Handle
-    protected Connection connection;
+    // Verbindungs-Handle (Sendeseite)
+    protected MessageSender connection;
 
-    // Kennzeichen zum Beenden des Worker-Threads
+    // Kennzeichen zum Beenden der Session
     protected boolean finished = false;
 
-    // Username des durch den Worker-Thread bedienten Clients
+    // Username des durch die Session bedienten Clients
     protected String userName = null;
 
     // Client-Threadname
@@ -27,7 +29,7 @@ public abstract class AbstractWorkerThread extends Thread {
     // Startzeit fuer die Serverbearbeitungszeit
     protected long startTime;
 
-    // Gemeinsam fuer alle Workerthreads verwaltete Liste aller eingeloggten
+    // Gemeinsam fuer alle Sessions verwaltete Liste aller eingeloggten
     // Clients
     protected SharedChatClientList clients;
 
@@ -45,7 +47,7 @@ public abstract class AbstractWorkerThread extends Thread {
      * @param counter Referenz auf diverse Zaehler fuer Tests
      * @param serverGuiInterface Referenz auf GUI des Chat-Servers
      */
-    public AbstractWorkerThread(Connection con, SharedChatClientList clients,
+    public AbstractChatSession(MessageSender con, SharedChatClientList clients,
                                 SharedServerCounter counter, ChatServerGuiInterface serverGuiInterface) {
         this.connection = con;
         this.clients = clients;
@@ -75,10 +77,8 @@ public abstract class AbstractWorkerThread extends Thread {
     protected abstract void chatMessageRequestAction(ChatPDU receivedPdu);
 
     /**
-     * Aktion fuer die Behandlung ankommender ChatMessageConfirm-PDUs
-     * Verarbeitung einer ankommenden Nachricht eines Clients (Implementierung des serverseitigen
-     * Chat-Zustandsautomaten)
-     * @throws Exception Schwerwiegender Fehler, z. B. in der Verbindung zum Client
+     * Aktion fuer die Behandlung ankommender User-List-Requests: Vollstaendige Userliste an den Client senden
+     * @param receivedPdu Empfangene PDU
      */
-    protected abstract void handleIncomingMessage() throws Exception;
+    protected abstract void userListRequestAction(ChatPDU receivedPdu);
 }
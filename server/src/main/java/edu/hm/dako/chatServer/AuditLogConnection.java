@@ -1,7 +1,9 @@
 package edu.hm.dako.chatServer;
 
 import edu.hm.dako.connection.udp.UdpClientConnection;
+import edu.hm.dako.common.PduCodecFactory;
 import edu.hm.dako.connection.udp.UdpClientConnectionFactory;
+import edu.hm.dako.common.AuditLogBatchPDU;
 import edu.hm.dako.common.AuditLogPDU;
 import edu.hm.dako.common.AuditLogPduType;
 import edu.hm.dako.common.ChatPDU;
@@ -11,8 +13,41 @@ import edu.hm.dako.connection.tcp.TcpConnectionFactory;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
 /**
  * Verwaltet eine logische Verbindung zum AuditLog-Server ueber UDP oder TCP
+ * <p>
+ * Worker-Threads stellen AuditLog-Saetze nur in einen begrenzten, sperrfreien {@link AuditLogRingBuffer} ein. Ein
+ * eigener Sender-Thread entnimmt die Saetze und sendet sie zum AuditLog-Server, damit das Senden nicht in die
+ * Antwortzeit der Chat-Requests eingeht. Kapazitaet und Verhalten bei vollem Puffer koennen ueber die
+ * System-Properties {@value #CAPACITY_PROPERTY} und {@value #POLICY_PROPERTY} eingestellt werden.
+ * <p>
+ * Der Sender-Thread fasst die Saetze zu {@link AuditLogBatchPDU}s zusammen. Groesse und maximale Wartezeit eines
+ * Stapels werden ueber {@value #BATCH_RECORDS_PROPERTY}, {@value #BATCH_BYTES_PROPERTY} und
+ * {@value #BATCH_LINGER_PROPERTY} eingestellt; mit {@value #BATCH_RECORDS_PROPERTY}=1 wird jeder Satz einzeln
+ * gesendet.
+ * <p>
+ * Ueber UDP werden alle Saetze, auch einzelne, als Stapel mit Sequenznummer ueber einen
+ * {@link AuditLogReliableUdpSender} gesendet, der verlorene Stapel auf Anforderung des AuditLog-Servers wiederholt.
+ * Die Groesse seines Wiederholungspuffers wird ueber {@value #UDP_RETRANSMIT_BUFFER_PROPERTY} eingestellt. Ist der
+ * Wiederholungspuffer voll, weil der AuditLog-Server nicht bestaetigt, entnimmt der Sender-Thread keine weiteren
+ * Saetze.
+ * <p>
+ * Mit der Strategie {@link AuditLogQueuePolicy#SPILL} werden Saetze, die bei ausgelasteter oder unterbrochener
+ * Verbindung nicht in den Ringpuffer passen, in eine zweite, gleich grosse Warteschlange eingestellt. Der
+ * Sender-Thread schreibt sie blockweise in eine {@link AuditLogSpool Auslagerungsdatei} (Verzeichnis
+ * {@value #SPOOL_DIR_PROPERTY}, Groesse {@value #SPOOL_MAX_BYTES_PROPERTY}, mit {@value #SPOOL_FORCE_PROPERTY}=true
+ * wird jeder Block auf das Speichermedium erzwungen) und sendet sie in derselben Reihenfolge nach; ist auch diese
+ * Warteschlange voll, wird der Satz verworfen. Bricht die TCP-Verbindung ab, haelt der Sender-Thread den nicht gesendeten
+ * Stapel zurueck und baut die Verbindung in Abstaenden neu auf. Die Worker-Threads warten dabei nie auf den
+ * AuditLog-Server.
  * @author P. Mandl
  */
 public class AuditLogConnection {
@@ -22,15 +57,95 @@ public class AuditLogConnection {
     // Puffergroessen
     static final int DEFAULT_SENDBUFFER_AUDITLOG_SIZE = 400000;
     static final int DEFAULT_RECEIVEBUFFER_AUDITLOG_SIZE = 40000;
+
+    // System-Properties zur Konfiguration des Ringpuffers
+    public static final String CAPACITY_PROPERTY = "dako.auditLog.queueCapacity";
+    public static final String POLICY_PROPERTY = "dako.auditLog.policy";
+
+    // Standardwerte
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final AuditLogQueuePolicy DEFAULT_POLICY = AuditLogQueuePolicy.SPILL;
+
+    // Wartezeiten des Sender-Threads bzw. eines blockierten Worker-Threads in ns
+    private static final long IDLE_PARK_NANOS = 10_000_000L;
+    private static final long BLOCK_PARK_NANOS = 50_000L;
+
+    // System-Properties zur Konfiguration der Stapelbildung
+    public static final String BATCH_RECORDS_PROPERTY = "dako.auditLog.batchRecords";
+    public static final String BATCH_BYTES_PROPERTY = "dako.auditLog.batchBytes";
+    public static final String BATCH_LINGER_PROPERTY = "dako.auditLog.batchLingerMillis";
+
+    // Standardwerte der Stapelbildung; die Groesse bleibt auch bei UDP unter der maximalen Datagrammgroesse
+    public static final int DEFAULT_BATCH_RECORDS = 256;
+    public static final int DEFAULT_BATCH_BYTES = 32000;
+    public static final int DEFAULT_BATCH_LINGER_MILLIS = 5;
+
+    // Wiederholungspuffer der gesicherten UDP-Uebertragung in Stapeln
+    public static final String UDP_RETRANSMIT_BUFFER_PROPERTY = "dako.auditLog.udpRetransmitBuffer";
+    public static final int DEFAULT_UDP_RETRANSMIT_BUFFER = 1024;
+
+    // System-Properties zur Konfiguration der Auslagerungsdatei
+    public static final String SPOOL_DIR_PROPERTY = "dako.auditLog.spoolDir";
+    public static final String SPOOL_MAX_BYTES_PROPERTY = "dako.auditLog.spoolMaxBytes";
+    public static final String SPOOL_FORCE_PROPERTY = "dako.auditLog.spoolForce";
+    public static final String DEFAULT_SPOOL_DIR = "auditlog-spool";
+    public static final long DEFAULT_SPOOL_MAX_BYTES = 256L * 1024 * 1024;
+
+    // Abstand der Verbindungsversuche bei unterbrochener Verbindung in ns
+    private static final long RECONNECT_NANOS = 1_000_000_000L;
+
+    // Geschaetzter Platzbedarf eines Satzes ohne Strings (Feldmaske, Typ, Zeitstempel, Laengen)
+    private static final int RECORD_OVERHEAD = 24;
+
+    // Maximale Wartezeit beim Schliessen, bis alle Saetze gesendet sind, in ms
+    private static final long CLOSE_TIMEOUT = 10000;
     private static final Logger log = LogManager.getLogger(AuditLogConnection.class);
     // Verbindungstyp
     private final int connectionType; // UDP oder TCP
     protected UdpClientConnection udpConnectionToAuditLogServer = null;
     protected TcpConnection tcpConnectionToAuditLogServer = null;
+    // Gesicherte Uebertragung ueber UDP
+    private AuditLogReliableUdpSender reliableUdpSender = null;
     String auditLogServer;
     int auditLogPort;
-    // Zaehlt abgehende AuditLog-Saetze
-    private long counter = 0;
+    // Zaehlt abgehende AuditLog-Saetze, wird nur vom Sender-Thread geschrieben
+    private volatile long counter = 0;
+
+    // Ringpuffer zwischen Worker-Threads und Sender-Thread
+    private final AuditLogRingBuffer<AuditLogPDU> ringBuffer;
+    private final AuditLogQueuePolicy policy;
+
+    // Auslagerungsdatei fuer die Strategie SPILL und die Warteschlange davor, null bei anderen Strategien
+    private AuditLogSpool spool = null;
+    private AuditLogRingBuffer<AuditLogPDU> spillQueue = null;
+
+    // Sender-Thread und sein Zustand
+    private volatile Thread senderThread = null;
+    private volatile boolean senderIdle = false;
+    private volatile boolean closing = false;
+    private volatile boolean sendErrorReported = false;
+    private volatile long closeDeadline = 0;
+
+    // Zustand der Verbindung, wird nur vom Sender-Thread geschrieben. Nur eine TCP-Verbindung gilt nach einem Fehler
+    // als unterbrochen; ueber UDP wird der zurueckgehaltene Stapel nach RECONNECT_NANOS erneut uebergeben.
+    private volatile boolean linkUp = true;
+    private boolean udpRetryPending = false;
+    private long nextReconnectTime = 0;
+
+    // Stapelbildung, wird nur vom Sender-Thread verwendet
+    private final int maxBatchRecords;
+    private final int maxBatchBytes;
+    private final long batchLingerNanos;
+    private AuditLogBatchPDU batch;
+    private int batchBytes = 0;
+    private long batchStartTime = 0;
+
+    // Messwerte
+    private volatile long numberOfSentMessages = 0;
+    private volatile int maxDepth = 0;
+    private final LongAdder numberOfDroppedRecords = new LongAdder();
+    private final LongAdder numberOfSpilledRecords = new LongAdder();
+    private volatile long numberOfReconnects = 0;
 
     /**
      * Konstruktor
@@ -39,6 +154,27 @@ public class AuditLogConnection {
      * @param auditLogPort Port fuer AuditLog-Server
      */
     public AuditLogConnection(int connectionType, String auditLogServer, int auditLogPort) {
+        this(connectionType, auditLogServer, auditLogPort, getConfiguredCapacity(), getConfiguredPolicy());
+    }
+
+    /**
+     * Konstruktor
+     * @param connectionType Verbindungstyp (UDP oder TCP)
+     * @param auditLogServer Host des AuditLog-Servers
+     * @param auditLogPort Port fuer AuditLog-Server
+     * @param capacity Kapazitaet des Ringpuffers
+     * @param policy Verhalten bei vollem Ringpuffer
+     */
+    public AuditLogConnection(int connectionType, String auditLogServer, int auditLogPort, int capacity,
+                              AuditLogQueuePolicy policy) {
+
+        this.ringBuffer = new AuditLogRingBuffer<>(capacity);
+        this.policy = policy;
+        this.maxBatchRecords = Math.max(1, Integer.getInteger(BATCH_RECORDS_PROPERTY, DEFAULT_BATCH_RECORDS));
+        this.maxBatchBytes = Math.max(1, Integer.getInteger(BATCH_BYTES_PROPERTY, DEFAULT_BATCH_BYTES));
+        this.batchLingerNanos = Math.max(0, Integer.getInteger(BATCH_LINGER_PROPERTY, DEFAULT_BATCH_LINGER_MILLIS))
+                * 1_000_000L;
+        this.batch = new AuditLogBatchPDU(maxBatchRecords);
 
         this.auditLogServer = auditLogServer;
         this.auditLogPort = auditLogPort;
@@ -60,17 +196,22 @@ public class AuditLogConnection {
 
             if (connectionType == AUDITLOG_CONNECTION_TYPE_UDP) {
                 // Verbindung zum AuditLog-Server und Verbindungsparameter
-                UdpClientConnectionFactory udpFactory = new UdpClientConnectionFactory();
+                UdpClientConnectionFactory udpFactory = new UdpClientConnectionFactory(
+                        PduCodecFactory.getConfiguredCodec(null));
                 udpConnectionToAuditLogServer = (UdpClientConnection) udpFactory.connectToServer(auditLogServer,
                         auditLogPort, 0, DEFAULT_SENDBUFFER_AUDITLOG_SIZE, DEFAULT_RECEIVEBUFFER_AUDITLOG_SIZE);
+                reliableUdpSender = new AuditLogReliableUdpSender(udpConnectionToAuditLogServer,
+                        Integer.getInteger(UDP_RETRANSMIT_BUFFER_PROPERTY, DEFAULT_UDP_RETRANSMIT_BUFFER));
 
             } else {
 
-                TcpConnectionFactory tcpFactory = new TcpConnectionFactory();
-                tcpConnectionToAuditLogServer = (TcpConnection) tcpFactory.connectToServer(auditLogServer,
-                        auditLogPort, 0, DEFAULT_SENDBUFFER_AUDITLOG_SIZE, DEFAULT_RECEIVEBUFFER_AUDITLOG_SIZE);
+                tcpConnectionToAuditLogServer = connectTcp();
 
             }
+            if (policy == AuditLogQueuePolicy.SPILL) {
+                openSpool();
+            }
+            startSender();
             System.out.println("Verbindung zu AuditLog-Server steht");
         } catch (Exception e) {
             log.error("Exception bei Verbindungsaufbau zum Auditlog-Server");
@@ -80,60 +221,560 @@ public class AuditLogConnection {
     }
 
     /**
-     * Senden eines AuditLog-Satzes zum AuditLog-Server
+     * TCP-Verbindung zum AuditLog-Server aufbauen
+     * @return Verbindung
+     * @throws Exception Fehler beim Verbindungsaufbau
+     */
+    private TcpConnection connectTcp() throws Exception {
+        TcpConnectionFactory tcpFactory = new TcpConnectionFactory(PduCodecFactory.getConfiguredCodec(null));
+        return (TcpConnection) tcpFactory.connectToServer(auditLogServer, auditLogPort, 0,
+                DEFAULT_SENDBUFFER_AUDITLOG_SIZE, DEFAULT_RECEIVEBUFFER_AUDITLOG_SIZE);
+    }
+
+    /**
+     * Auslagerungsdatei oeffnen; noch nicht gesendete Saetze eines frueheren Laufs werden zuerst gesendet. Kann die
+     * Datei nicht geoeffnet werden, werden Saetze, die nicht in den Ringpuffer passen, verworfen.
+     */
+    private void openSpool() {
+        File directory = new File(System.getProperty(SPOOL_DIR_PROPERTY, DEFAULT_SPOOL_DIR));
+        long maxBytes = Long.getLong(SPOOL_MAX_BYTES_PROPERTY, DEFAULT_SPOOL_MAX_BYTES);
+        boolean force = Boolean.getBoolean(SPOOL_FORCE_PROPERTY);
+        try {
+            spool = new AuditLogSpool(directory, maxBytes, force);
+            spillQueue = new AuditLogRingBuffer<>(ringBuffer.getCapacity());
+        } catch (IOException e) {
+            System.out.println("AuditLog-Auslagerungsdatei in " + directory + " kann nicht geoeffnet werden");
+            ExceptionHandler.logException(e);
+        }
+    }
+
+    /**
+     * Uebergabe eines AuditLog-Satzes an den Sender-Thread. Der Satz wird im aufrufenden Worker-Thread erzeugt und in
+     * den Ringpuffer eingestellt, gesendet wird er asynchron. Ist der Ringpuffer voll, entscheidet die
+     * {@link AuditLogQueuePolicy} ueber das weitere Vorgehen.
      * @param pdu Chat-PDU zum Entnehmen von Parametern für den AuditLog-Satz
      * @param type Typ der AuditLog-PDU, der zu senden ist
      * @throws Exception Fehler beim Senden zum AuditLog-Server
      */
-    public synchronized void send(ChatPDU pdu, AuditLogPduType type) throws Exception {
+    public void send(ChatPDU pdu, AuditLogPduType type) throws Exception {
 
         // AuditLog-Satz erzeugen
         AuditLogPDU auditLogPdu = createAuditLogPdu(pdu);
         auditLogPdu.setPduType(type);
 
-        // AuditLog-Satz senden
+        if (closing) {
+            numberOfDroppedRecords.increment();
+            return;
+        }
+
+        // Solange ausgelagerte Saetze vorhanden sind, werden neue Saetze dahinter eingereiht
+        if (policy == AuditLogQueuePolicy.SPILL && getSpoolDepth() > 0) {
+            spill(auditLogPdu);
+            return;
+        }
+
+        while (!ringBuffer.offer(auditLogPdu)) {
+            if (policy == AuditLogQueuePolicy.DROP) {
+                numberOfDroppedRecords.increment();
+                return;
+            } else if (policy == AuditLogQueuePolicy.SPILL) {
+                spill(auditLogPdu);
+                return;
+            }
+            // BLOCK: Sender wecken und kurz warten, bis wieder Platz ist
+            if (closing) {
+                numberOfDroppedRecords.increment();
+                return;
+            }
+            wakeUpSender();
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+        }
+        if (senderIdle) {
+            wakeUpSender();
+        }
+    }
+
+    /**
+     * AuditLog-Satz fuer die Auslagerungsdatei einstellen; geschrieben wird er vom Sender-Thread. Ist die
+     * Warteschlange voll oder keine Auslagerungsdatei verfuegbar, wird der Satz verworfen.
+     * @param auditLogPdu AuditLog-Satz
+     */
+    private void spill(AuditLogPDU auditLogPdu) {
+        AuditLogRingBuffer<AuditLogPDU> queue = spillQueue;
+        if (queue == null || !queue.offer(auditLogPdu)) {
+            numberOfDroppedRecords.increment();
+            return;
+        }
+        wakeUpSender();
+    }
+
+    /**
+     * Eingestellte Saetze blockweise in die Auslagerungsdatei schreiben. Laeuft nur im Sender-Thread.
+     */
+    private void writeSpilledRecords() {
+        if (spillQueue == null || spillQueue.isEmpty()) {
+            return;
+        }
+        List<AuditLogPDU> records = new ArrayList<>(spillQueue.size());
+        AuditLogPDU auditLogPdu;
+        while ((auditLogPdu = spillQueue.poll()) != null) {
+            records.add(auditLogPdu);
+        }
+        int written = spool.append(records);
+        numberOfSpilledRecords.add(written);
+        if (written < records.size()) {
+            numberOfDroppedRecords.add(records.size() - written);
+            log.debug((records.size() - written) + " AuditLog-Saetze passen nicht in die Auslagerungsdatei");
+        }
+    }
+
+    private int getSpoolDepth() {
+        AuditLogSpool current = spool;
+        AuditLogRingBuffer<AuditLogPDU> queue = spillQueue;
+        return (current == null ? 0 : current.size()) + (queue == null ? 0 : queue.size());
+    }
+
+    /**
+     * Sender-Thread wecken, falls er auf neue Saetze wartet
+     */
+    private void wakeUpSender() {
+        Thread thread = senderThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Sender-Thread starten
+     */
+    private void startSender() {
+        Thread thread = new Thread(this::runSender, "AuditLogSender");
+        thread.setDaemon(true);
+        senderThread = thread;
+        if (reliableUdpSender != null) {
+            reliableUdpSender.setSenderThread(thread);
+        }
+        thread.start();
+    }
+
+    /**
+     * Sender-Thread: Entnimmt AuditLog-Saetze aus dem Ringpuffer bzw. dem Ueberlaufspeicher, fasst sie zu Stapeln
+     * zusammen und sendet sie blockierend zum AuditLog-Server. Ein Stapel wird gesendet, sobald er die maximale
+     * Anzahl an Saetzen oder die maximale Groesse erreicht hat oder sein aeltester Satz die maximale Wartezeit
+     * ueberschreitet. Der Thread beendet sich, sobald die Verbindung geschlossen werden soll und alle Saetze gesendet
+     * sind. Bei UDP verarbeitet er zusaetzlich die Rueckmeldungen des AuditLog-Servers.
+     * <p>
+     * Ist die Verbindung unterbrochen oder nimmt der AuditLog-Server ueber UDP nichts mehr an, entnimmt der Thread
+     * keine weiteren Saetze; die Worker-Threads lagern dann aus. Wird die Verbindung in diesem Zustand geschlossen,
+     * werden die noch nicht gesendeten Saetze vorne in die Auslagerungsdatei geschrieben.
+     */
+    private void runSender() {
+        while (true) {
+            processFeedback();
+            writeSpilledRecords();
+            if (!linkUp && !reconnect()) {
+                if (closing) {
+                    saveUnsentRecords();
+                    break;
+                }
+                LockSupport.parkNanos(this, Math.max(0, nextReconnectTime - System.nanoTime()));
+                continue;
+            }
+            if (udpRetryPending && !retryUdpBatch()) {
+                if (closing) {
+                    saveUnsentRecords();
+                    break;
+                }
+                LockSupport.parkNanos(this, Math.max(0, nextReconnectTime - System.nanoTime()));
+                continue;
+            }
+            if (reliableUdpSender != null && reliableUdpSender.isWindowFull()) {
+                if (closing && System.nanoTime() - closeDeadline > 0) {
+                    linkUp = false;
+                    saveUnsentRecords();
+                    break;
+                }
+                LockSupport.parkNanos(this, Math.min(IDLE_PARK_NANOS, reliableUdpSender.getNanosUntilProbe()));
+                continue;
+            }
+            AuditLogPDU auditLogPdu = nextRecord();
+            if (auditLogPdu != null) {
+                addToBatch(auditLogPdu);
+                if (batch.size() >= maxBatchRecords || batchBytes >= maxBatchBytes) {
+                    flushBatch();
+                }
+                continue;
+            }
+            long lingerRemaining = batchLingerNanos - (System.nanoTime() - batchStartTime);
+            if (!batch.isEmpty() && (closing || lingerRemaining <= 0)) {
+                flushBatch();
+                continue;
+            }
+            if (closing && ringBuffer.isEmpty() && getSpoolDepth() == 0) {
+                break;
+            }
+            senderIdle = true;
+            if (ringBuffer.isEmpty() && getSpoolDepth() == 0 && !closing) {
+                long parkNanos = batch.isEmpty() ? IDLE_PARK_NANOS : lingerRemaining;
+                if (reliableUdpSender != null) {
+                    parkNanos = Math.min(parkNanos, reliableUdpSender.getNanosUntilProbe());
+                }
+                LockSupport.parkNanos(this, parkNanos);
+            }
+            senderIdle = false;
+        }
+    }
+
+    /**
+     * Unterbrochene TCP-Verbindung neu aufbauen, hoechstens einmal je {@value #RECONNECT_NANOS} ns. Danach wird
+     * zuerst der zurueckgehaltene Stapel gesendet.
+     * @return true, wenn die Verbindung wieder steht
+     */
+    private boolean reconnect() {
+        if (connectionType != AUDITLOG_CONNECTION_TYPE_TCP) {
+            // Ueber UDP gibt es keine Verbindung, die neu aufzubauen waere
+            linkUp = true;
+            return true;
+        }
+        long now = System.nanoTime();
+        if (now - nextReconnectTime < 0) {
+            return false;
+        }
+        nextReconnectTime = now + RECONNECT_NANOS;
+        try {
+            tcpConnectionToAuditLogServer.close();
+        } catch (Exception e) {
+            log.debug("Fehler beim Schliessen der unterbrochenen Verbindung zum AuditLog-Server: " + e);
+        }
+        try {
+            tcpConnectionToAuditLogServer = connectTcp();
+        } catch (Exception e) {
+            log.debug("Verbindung zum AuditLog-Server kann nicht wieder aufgebaut werden: " + e);
+            return false;
+        }
+        linkUp = true;
+        numberOfReconnects++;
+        System.out.println("Verbindung zum AuditLog-Server wieder aufgebaut, " + getDepth()
+                + " AuditLog-Saetze werden nachgesendet");
+        if (!batch.isEmpty()) {
+            flushBatch();
+        }
+        return linkUp;
+    }
+
+    /**
+     * Zurueckgehaltenen Stapel erneut an die gesicherte UDP-Uebertragung uebergeben, hoechstens einmal je
+     * {@value #RECONNECT_NANOS} ns
+     * @return true, wenn der Stapel uebergeben ist
+     */
+    private boolean retryUdpBatch() {
+        long now = System.nanoTime();
+        if (now - nextReconnectTime < 0) {
+            return false;
+        }
+        flushBatch();
+        return !udpRetryPending;
+    }
+
+    /**
+     * Zurueckgehaltenen Stapel und Ringpuffer vor die Saetze der Auslagerungsdatei schreiben, damit sie beim
+     * naechsten Start in der urspruenglichen Reihenfolge gesendet werden
+     */
+    private void saveUnsentRecords() {
+        writeSpilledRecords();
+        List<AuditLogPDU> unsent = new ArrayList<>(batch.getRecords());
+        AuditLogPDU auditLogPdu;
+        while ((auditLogPdu = ringBuffer.poll()) != null) {
+            unsent.add(auditLogPdu);
+        }
+        batch = new AuditLogBatchPDU(maxBatchRecords);
+        batchBytes = 0;
+        if (unsent.isEmpty()) {
+            return;
+        }
+        try {
+            if (spool == null) {
+                throw new IOException("Keine Auslagerungsdatei (Strategie " + policy + ")");
+            }
+            spool.prepend(unsent);
+            numberOfSpilledRecords.add(unsent.size());
+        } catch (IOException e) {
+            numberOfDroppedRecords.add(unsent.size());
+            log.error(unsent.size() + " AuditLog-Saetze konnten nicht gesichert werden: " + e);
+        }
+    }
+
+    /**
+     * Rueckmeldungen des AuditLog-Servers verarbeiten (nur bei UDP). Laeuft nur im Sender-Thread.
+     */
+    private void processFeedback() {
+        if (reliableUdpSender == null) {
+            return;
+        }
+        try {
+            reliableUdpSender.processFeedback();
+        } catch (Exception e) {
+            log.debug("AuditLog-Stapel konnten nicht wiederholt werden: " + e);
+        }
+    }
+
+    /**
+     * AuditLog-Satz an den aktuellen Stapel anhaengen
+     * @param auditLogPdu AuditLog-Satz
+     */
+    private void addToBatch(AuditLogPDU auditLogPdu) {
+        if (batch.isEmpty()) {
+            batchStartTime = System.nanoTime();
+        }
+        batch.add(auditLogPdu);
+        batchBytes += estimateSize(auditLogPdu);
+    }
+
+    /**
+     * Obergrenze fuer die kodierte Groesse eines AuditLog-Satzes (UTF-8 benoetigt hoechstens drei Bytes je Zeichen)
+     * @param auditLogPdu AuditLog-Satz
+     * @return Geschaetzte Groesse in Bytes
+     */
+    private static int estimateSize(AuditLogPDU auditLogPdu) {
+        return RECORD_OVERHEAD + 3 * (length(auditLogPdu.getUserName()) + length(auditLogPdu.getClientThreadName())
+                + length(auditLogPdu.getServerThreadName()) + length(auditLogPdu.getMessage()));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    /**
+     * Aktuellen Stapel senden. Ein Stapel mit nur einem Satz wird ueber TCP als einfache AuditLog-PDU gesendet, ueber
+     * UDP wird jeder Stapel gesichert gesendet. Danach wird ein neuer Stapel angelegt, da ein Objektstrom ohne
+     * PDU-Codec bereits gesendete Objekte nur als Rueckverweis uebertraegt und der Wiederholungspuffer die
+     * gesendeten Stapel aufbewahrt. Schlaegt das Senden fehl, bleibt der Stapel erhalten.
+     */
+    private void flushBatch() {
+        boolean sent;
+        if (connectionType == AUDITLOG_CONNECTION_TYPE_UDP || batch.size() > 1) {
+            sent = write(batch, batch.size());
+        } else {
+            sent = write(batch.getRecords().get(0), 1);
+        }
+        if (!sent) {
+            // Stapel bleibt bis zum erneuten Verbindungsaufbau erhalten
+            return;
+        }
+        batch = new AuditLogBatchPDU(maxBatchRecords);
+        batchBytes = 0;
+    }
+
+    /**
+     * Naechsten AuditLog-Satz entnehmen, zuerst aus dem Ringpuffer, dann aus der Auslagerungsdatei
+     * @return AuditLog-Satz oder null
+     */
+    private AuditLogPDU nextRecord() {
+        int depth = getDepth();
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+        AuditLogPDU auditLogPdu = ringBuffer.poll();
+        if (auditLogPdu == null && spool != null) {
+            try {
+                auditLogPdu = spool.poll();
+            } catch (IOException e) {
+                System.out.println("AuditLog-Auslagerungsdatei " + spool.getFile() + " nicht lesbar, Inhalt verworfen");
+                ExceptionHandler.logException(e);
+                numberOfDroppedRecords.add(spool.clear());
+            }
+        }
+        return auditLogPdu;
+    }
+
+    /**
+     * Einen AuditLog-Satz oder einen Stapel zum AuditLog-Server senden. Laeuft nur im Sender-Thread. Ueber TCP gilt
+     * die Verbindung nach einem Fehler als unterbrochen und wird neu aufgebaut. Ueber UDP wird der Stapel
+     * zurueckgehalten und spaeter erneut uebergeben; Sendefehler einzelner Datagramme faengt bereits die gesicherte
+     * Uebertragung ab.
+     * @param message AuditLog-Satz oder Stapel
+     * @param numberOfRecords Anzahl der enthaltenen AuditLog-Saetze
+     * @return true, wenn gesendet wurde
+     */
+    private boolean write(Serializable message, int numberOfRecords) {
         try {
             if (connectionType == AUDITLOG_CONNECTION_TYPE_UDP) {
-                udpConnectionToAuditLogServer.send(auditLogPdu);
+                reliableUdpSender.send((AuditLogBatchPDU) message);
             } else {
-                tcpConnectionToAuditLogServer.send(auditLogPdu);
+                tcpConnectionToAuditLogServer.send(message);
             }
-            counter++;
-            System.out.println("AuditLog-Satz gesendet: " + counter);
-
+            counter += numberOfRecords;
+            numberOfSentMessages++;
+            udpRetryPending = false;
+            return true;
         } catch (Exception e) {
-            System.out.println("Fehler beim Senden eines AuditLog-Satzes");
-            ExceptionHandler.logException(e);
-            throw new Exception();
+            if (connectionType == AUDITLOG_CONNECTION_TYPE_TCP) {
+                linkUp = false;
+            } else {
+                udpRetryPending = true;
+            }
+            nextReconnectTime = System.nanoTime() + RECONNECT_NANOS;
+            if (!sendErrorReported) {
+                // Nur der erste Fehler wird ausfuehrlich protokolliert
+                sendErrorReported = true;
+                System.out.println("Fehler beim Senden eines AuditLog-Satzes, "
+                        + (linkUp ? "erneuter Versuch" : "Verbindung wird neu aufgebaut"));
+                ExceptionHandler.logException(e);
+            } else {
+                log.debug("AuditLog-Saetze konnten nicht gesendet werden: " + e);
+            }
+            return false;
         }
     }
 
     /**
-     * Schliessen der Verbindung zum AuditLog-Server
+     * Schliessen der Verbindung zum AuditLog-Server. Zuvor werden alle bereits eingestellten AuditLog-Saetze
+     * gesendet. Bei UDP wird gewartet, bis der AuditLog-Server alle Stapel und das Ende-Kommando bestaetigt hat. Ist
+     * der AuditLog-Server nicht erreichbar, bleiben die noch nicht gesendeten Saetze in der Auslagerungsdatei.
      * @throws Exception - Fehler beim Schliessen der Verbindung
      */
     public synchronized void close() throws Exception {
+        // Ein Sender-Thread, der auf Bestaetigungen wartet, gibt nach der halben Wartezeit auf
+        closeDeadline = System.nanoTime() + CLOSE_TIMEOUT * 1_000_000L / 2;
+        closing = true;
+        Thread thread = senderThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join(CLOSE_TIMEOUT);
+            if (thread.isAlive()) {
+                log.error("AuditLog-Saetze konnten nicht innerhalb von " + CLOSE_TIMEOUT + " ms gesendet werden, "
+                        + getDepth() + " Saetze verworfen");
+            }
+        }
+
         try {
 
             AuditLogPDU closePdu = new AuditLogPDU();
             closePdu.setPduType(AuditLogPduType.FINISH_AUDIT_REQUEST);
 
-            if (connectionType == AUDITLOG_CONNECTION_TYPE_UDP) {
-                udpConnectionToAuditLogServer.send(closePdu);
+            if (!linkUp) {
+                // AuditLog-Server nicht erreichbar, kein Ende-Kommando
+                closeUnreachableConnection();
+            } else if (connectionType == AUDITLOG_CONNECTION_TYPE_UDP) {
+                // Das Ende-Kommando wird als letzter gesicherter Stapel gesendet
+                if (!reliableUdpSender.finish(CLOSE_TIMEOUT)) {
+                    log.error("AuditLog-Server hat nicht innerhalb von " + CLOSE_TIMEOUT + " ms alle Stapel bestaetigt");
+                }
+                reliableUdpSender.close();
                 udpConnectionToAuditLogServer.close();
             } else {
                 tcpConnectionToAuditLogServer.send(closePdu);
                 tcpConnectionToAuditLogServer.close();
             }
-            System.out.println("Verbindung zum AuditLog-Server beendet, Gesendete AuditLog-Saetze: " + counter);
+            System.out.println("Verbindung zum AuditLog-Server beendet, " + this);
 
         } catch (Exception e) {
             System.out.println("Fehler beim Schliessen der Verbindung zum AuditLog-Server");
             ExceptionHandler.logException(e);
             throw new Exception();
+        } finally {
+            if (spool != null) {
+                spool.close();
+            }
+        }
+    }
+
+    /**
+     * Unterbrochene Verbindung ohne Ende-Kommando schliessen; Fehler werden nur protokolliert
+     */
+    private void closeUnreachableConnection() {
+        try {
+            if (connectionType == AUDITLOG_CONNECTION_TYPE_UDP) {
+                reliableUdpSender.close();
+                udpConnectionToAuditLogServer.close();
+            } else {
+                tcpConnectionToAuditLogServer.close();
+            }
+        } catch (Exception e) {
+            log.debug("Fehler beim Schliessen der unterbrochenen Verbindung zum AuditLog-Server: " + e);
         }
     }
 
+    /**
+     * @return Konfigurierte Kapazitaet des Ringpuffers
+     */
+    public static int getConfiguredCapacity() {
+        return Integer.getInteger(CAPACITY_PROPERTY, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @return Konfiguriertes Verhalten bei vollem Ringpuffer
+     */
+    public static AuditLogQueuePolicy getConfiguredPolicy() {
+        String value = System.getProperty(POLICY_PROPERTY);
+        if (value == null || value.isBlank()) {
+            return DEFAULT_POLICY;
+        }
+        try {
+            return AuditLogQueuePolicy.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.error("Unbekannte Strategie fuer AuditLog-Warteschlange " + value + ", verwende " + DEFAULT_POLICY);
+            return DEFAULT_POLICY;
+        }
+    }
+
+    /**
+     * @return Aktuelle Anzahl noch nicht gesendeter AuditLog-Saetze (Ringpuffer und Ueberlaufspeicher)
+     */
+    public int getDepth() {
+        return ringBuffer.size() + getSpoolDepth();
+    }
+
+    /**
+     * @return Maximale Anzahl gleichzeitig wartender AuditLog-Saetze
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public int getCapacity() {
+        return ringBuffer.getCapacity();
+    }
+
+    public AuditLogQueuePolicy getPolicy() {
+        return policy;
+    }
+
+    public long getNumberOfSentRecords() {
+        return counter;
+    }
+
+    /**
+     * @return Anzahl gesendeter Nachrichten (einzelne Saetze und Stapel)
+     */
+    public long getNumberOfSentMessages() {
+        return numberOfSentMessages;
+    }
+
+    public long getNumberOfDroppedRecords() {
+        return numberOfDroppedRecords.sum();
+    }
+
+    public long getNumberOfSpilledRecords() {
+        return numberOfSpilledRecords.sum();
+    }
+
+    /**
+     * @return Anzahl der erneuten Verbindungsaufbauten nach einer Unterbrechung
+     */
+    public long getNumberOfReconnects() {
+        return numberOfReconnects;
+    }
+
+    @Override
+    public String toString() {
+        return "Gesendete AuditLog-Saetze: " + counter + " in " + numberOfSentMessages + " Nachrichten, verworfen: "
+                + getNumberOfDroppedRecords() + ", ausgelagert: " + getNumberOfSpilledRecords() + ", Tiefe: "
+                + getDepth() + ", max. Tiefe: " + maxDepth + " (Kapazitaet " + getCapacity() + ", Strategie "
+                + policy + ")" + (numberOfReconnects == 0 ? "" : ", Verbindungsaufbauten: " + numberOfReconnects)
+                + (reliableUdpSender == null ? "" : ", " + reliableUdpSender);
+    }
+
     /**
      * AuditLog-PDU erzeugen
      * @param chatPdu - Empfangene Chat-PDU, aus der Daten entnommen werden
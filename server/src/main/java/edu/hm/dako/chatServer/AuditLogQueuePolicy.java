@@ -0,0 +1,13 @@
+package edu.hm.dako.chatServer;
+
+/**
+ * Verhalten der {@link AuditLogConnection}, wenn der Ringpuffer fuer AuditLog-Saetze voll ist
+ */
+public enum AuditLogQueuePolicy {
+    // Worker-Thread wartet, bis wieder Platz im Ringpuffer ist
+    BLOCK,
+    // AuditLog-Satz wird verworfen und gezaehlt
+    DROP,
+    // AuditLog-Satz wird in eine Auslagerungsdatei geschrieben und spaeter in Reihenfolge gesendet
+    SPILL,
+}
@@ -0,0 +1,334 @@
+package edu.hm.dako.chatServer;
+
+import edu.hm.dako.common.AuditLogAckPDU;
+import edu.hm.dako.common.AuditLogBatchPDU;
+import edu.hm.dako.common.AuditLogPDU;
+import edu.hm.dako.common.AuditLogPduType;
+import edu.hm.dako.connection.udp.UdpClientConnection;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Gesicherte, geordnete Uebertragung von AuditLog-Stapeln ueber UDP.
+ * <p>
+ * Jeder Stapel erhaelt die Kennung dieses Senders und eine fortlaufende Sequenznummer und wird bis zur Bestaetigung
+ * in einem begrenzten Wiederholungspuffer aufbewahrt. Der AuditLog-Server bestaetigt kumulativ und fordert fehlende
+ * Stapel gesammelt an ({@link AuditLogAckPDU}); angeforderte Stapel werden erneut gesendet. Bleibt eine Bestaetigung
+ * laenger als {@value #RETRANSMIT_TIMEOUT} ms aus, wird der juengste unbestaetigte Stapel erneut gesendet, damit
+ * der Server auch Verluste am Ende einer Lastspitze erkennt.
+ * <p>
+ * Ist der Wiederholungspuffer voll ({@link #isWindowFull()}), entnimmt der Sender-Thread der
+ * {@link AuditLogConnection} keine weiteren Saetze, bis der Server wieder bestaetigt. Nur das Ende-Kommando in
+ * {@link #finish(long)} wird auch bei vollem Puffer gesendet; dafuer wird der aelteste unbestaetigte Stapel aufgegeben
+ * und seine Saetze gezaehlt, ob er angekommen ist, weiss nur der Server. Fordert der Server ihn spaeter an, erhaelt er
+ * einen leeren Stapel mit dieser Sequenznummer, damit die Luecke geschlossen wird, und zaehlt ihn als verloren.
+ * <p>
+ * Bis auf den Empfang der Rueckmeldungen, der in einem eigenen Thread laeuft, werden alle Methoden nur vom
+ * Sender-Thread der {@link AuditLogConnection} bzw. nach dessen Ende beim Schliessen aufgerufen.
+ */
+class AuditLogReliableUdpSender {
+
+    // Wartezeit auf eine Bestaetigung, bevor der juengste unbestaetigte Stapel erneut gesendet wird, in ms
+    static final long RETRANSMIT_TIMEOUT = 200;
+
+    // Mindestabstand zwischen zwei Wiederholungen desselben Stapels in ms
+    static final long MIN_RETRANSMIT_INTERVAL = 100;
+
+    // Wartezeit beim Empfang der Rueckmeldungen in ms
+    private static final int FEEDBACK_RECEIVE_TIMEOUT = 200;
+
+    private static final Logger log = LogManager.getLogger(AuditLogReliableUdpSender.class);
+
+    private final UdpClientConnection connection;
+    private final long senderId;
+
+    // Wiederholungspuffer, Sequenznummer s liegt an Position s % Kapazitaet
+    private final AuditLogBatchPDU[] buffer;
+    private final long[] lastSent;
+    private long lastSequenceNumber = 0;
+    // Bis einschliesslich dieser Sequenznummern sind alle Stapel bestaetigt bzw. aus dem Puffer entfernt
+    private long acknowledged = 0;
+    private long abandoned = 0;
+    private long lastAckTime = System.nanoTime();
+    private long lastProbeTime = 0;
+
+    // Empfangene Rueckmeldungen, werden vom Sender-Thread verarbeitet
+    private final ConcurrentLinkedQueue<AuditLogAckPDU> feedback = new ConcurrentLinkedQueue<>();
+    private final Thread feedbackThread;
+    private volatile Thread senderThread;
+    private volatile boolean running = true;
+
+    // Messwerte
+    private long numberOfRetransmissions = 0;
+    private long numberOfAbandonedRecords = 0;
+    private long numberOfNacks = 0;
+
+    /**
+     * Konstruktor, startet den Thread fuer den Empfang der Rueckmeldungen
+     * @param connection UDP-Verbindung zum AuditLog-Server
+     * @param capacity Anzahl der Stapel im Wiederholungspuffer
+     */
+    AuditLogReliableUdpSender(UdpClientConnection connection, int capacity) {
+        this.connection = connection;
+        this.senderId = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+        this.buffer = new AuditLogBatchPDU[Math.max(1, capacity)];
+        this.lastSent = new long[buffer.length];
+        this.feedbackThread = new Thread(this::receiveFeedback, "AuditLogFeedback");
+        this.feedbackThread.setDaemon(true);
+        this.feedbackThread.start();
+    }
+
+    /**
+     * Thread, der bei eintreffenden Rueckmeldungen geweckt wird
+     * @param senderThread Sender-Thread
+     */
+    void setSenderThread(Thread senderThread) {
+        this.senderThread = senderThread;
+    }
+
+    /**
+     * Stapel mit der naechsten Sequenznummer senden und bis zur Bestaetigung aufbewahren. Geht das Datagramm beim
+     * Senden verloren, wird der Stapel wie bei einem Verlust im Netz auf Anforderung wiederholt.
+     * @param batch Stapel, wird danach nicht mehr veraendert
+     * @throws Exception Fehler beim Verarbeiten der Rueckmeldungen
+     */
+    void send(AuditLogBatchPDU batch) throws Exception {
+        processFeedback();
+        long sequenceNumber = lastSequenceNumber + 1;
+        if (sequenceNumber - base() > buffer.length) {
+            abandonOldest();
+        }
+        long now = System.nanoTime();
+        if (isAcknowledged()) {
+            // Die Wartezeit auf eine Bestaetigung beginnt mit dem ersten unbestaetigten Stapel
+            lastAckTime = now;
+        }
+        batch.setSenderId(senderId);
+        batch.setSequenceNumber(sequenceNumber);
+        lastSequenceNumber = sequenceNumber;
+        int slot = slot(sequenceNumber);
+        buffer[slot] = batch;
+        lastSent[slot] = now;
+        try {
+            connection.send(batch);
+        } catch (IOException e) {
+            log.debug("AuditLog-Stapel " + sequenceNumber + " konnte nicht gesendet werden: " + e);
+        }
+    }
+
+    /**
+     * Eingetroffene Rueckmeldungen verarbeiten: bestaetigte Stapel freigeben, angeforderte Stapel erneut senden.
+     * Bleibt eine Bestaetigung aus, wird der juengste unbestaetigte Stapel erneut gesendet.
+     * @throws Exception Fehler beim Senden
+     */
+    void processFeedback() throws Exception {
+        AuditLogAckPDU ack;
+        while ((ack = feedback.poll()) != null) {
+            if (ack.getSenderId() != senderId) {
+                continue;
+            }
+            acknowledge(ack.getAcknowledgedSequenceNumber());
+            long[] missing = ack.getMissingSequenceNumbers();
+            if (missing.length > 0) {
+                numberOfNacks++;
+            }
+            for (long sequenceNumber : missing) {
+                retransmit(sequenceNumber);
+            }
+        }
+        long now = System.nanoTime();
+        if (lastSequenceNumber > acknowledged && now - lastAckTime >= RETRANSMIT_TIMEOUT * 1_000_000L
+                && now - lastProbeTime >= RETRANSMIT_TIMEOUT * 1_000_000L) {
+            lastProbeTime = now;
+            retransmit(lastSequenceNumber);
+        }
+    }
+
+    /**
+     * @return true, wenn der Wiederholungspuffer voll ist und erst Bestaetigungen abgewartet werden sollten
+     */
+    boolean isWindowFull() {
+        return lastSequenceNumber - base() >= buffer.length;
+    }
+
+    /**
+     * @return true, wenn alle gesendeten Stapel bestaetigt oder aufgegeben sind
+     */
+    boolean isAcknowledged() {
+        return acknowledged >= lastSequenceNumber;
+    }
+
+    /**
+     * @return Wartezeit in ns, bis spaetestens wieder {@link #processFeedback()} aufgerufen werden sollte
+     */
+    long getNanosUntilProbe() {
+        if (isAcknowledged()) {
+            return Long.MAX_VALUE;
+        }
+        long now = System.nanoTime();
+        long sinceAck = now - lastAckTime;
+        long sinceProbe = now - lastProbeTime;
+        return Math.max(0, RETRANSMIT_TIMEOUT * 1_000_000L - Math.min(sinceAck, sinceProbe));
+    }
+
+    /**
+     * Ende-Kommando als letzten Stapel senden und warten, bis alle Stapel bestaetigt sind
+     * @param timeout Maximale Wartezeit in ms
+     * @return true, wenn der AuditLog-Server alles bestaetigt hat
+     * @throws Exception Fehler beim Senden
+     */
+    boolean finish(long timeout) throws Exception {
+        setSenderThread(Thread.currentThread());
+        AuditLogPDU finishPdu = new AuditLogPDU();
+        finishPdu.setPduType(AuditLogPduType.FINISH_AUDIT_REQUEST);
+        AuditLogBatchPDU finishBatch = new AuditLogBatchPDU(1);
+        finishBatch.add(finishPdu);
+        send(finishBatch);
+
+        long deadline = System.nanoTime() + timeout * 1_000_000L;
+        while (!isAcknowledged() && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(this, Math.min(getNanosUntilProbe(), MIN_RETRANSMIT_INTERVAL * 1_000_000L));
+            processFeedback();
+        }
+        return isAcknowledged();
+    }
+
+    /**
+     * Empfang der Rueckmeldungen beenden. Der Thread beendet sich spaetestens nach Ablauf seiner Wartezeit beim
+     * Empfang; erst danach darf die Verbindung geschlossen werden.
+     * @throws InterruptedException Unterbrechung beim Warten auf das Threadende
+     */
+    void close() throws InterruptedException {
+        running = false;
+        feedbackThread.join(2L * FEEDBACK_RECEIVE_TIMEOUT);
+    }
+
+    long getSenderId() {
+        return senderId;
+    }
+
+    long getNumberOfRetransmissions() {
+        return numberOfRetransmissions;
+    }
+
+    long getNumberOfAbandonedRecords() {
+        return numberOfAbandonedRecords;
+    }
+
+    @Override
+    public String toString() {
+        return "gesicherte UDP-Uebertragung: Sender " + senderId + ", " + lastSequenceNumber + " Stapel, "
+                + numberOfNacks + " NACKs, " + numberOfRetransmissions + " Wiederholungen, aufgegeben: "
+                + numberOfAbandonedRecords + " Saetze, unbestaetigt: " + (lastSequenceNumber - acknowledged);
+    }
+
+    /**
+     * Thread fuer den Empfang der Rueckmeldungen des AuditLog-Servers
+     */
+    private void receiveFeedback() {
+        while (running) {
+            try {
+                Serializable message = connection.receive(FEEDBACK_RECEIVE_TIMEOUT);
+                if (message instanceof AuditLogAckPDU ack) {
+                    feedback.add(ack);
+                    Thread thread = senderThread;
+                    if (thread != null) {
+                        LockSupport.unpark(thread);
+                    }
+                }
+            } catch (SocketTimeoutException e) {
+                // Keine Rueckmeldung, weiter warten
+            } catch (Exception e) {
+                if (running) {
+                    log.debug("Fehler beim Empfang einer AuditLog-Rueckmeldung: " + e);
+                    LockSupport.parkNanos(FEEDBACK_RECEIVE_TIMEOUT * 1_000_000L);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stapel bis einschliesslich der Sequenznummer freigeben
+     */
+    private void acknowledge(long sequenceNumber) {
+        long upTo = Math.min(sequenceNumber, lastSequenceNumber);
+        if (upTo <= acknowledged) {
+            return;
+        }
+        for (long s = Math.max(acknowledged, abandoned) + 1; s <= upTo; s++) {
+            buffer[slot(s)] = null;
+        }
+        acknowledged = upTo;
+        abandoned = Math.max(abandoned, upTo);
+        lastAckTime = System.nanoTime();
+    }
+
+    /**
+     * Aeltesten unbestaetigten Stapel aufgeben, um Platz im Wiederholungspuffer zu schaffen
+     */
+    private void abandonOldest() {
+        long sequenceNumber = base() + 1;
+        int slot = slot(sequenceNumber);
+        AuditLogBatchPDU batch = buffer[slot];
+        if (batch != null) {
+            numberOfAbandonedRecords += batch.size();
+            buffer[slot] = null;
+        }
+        abandoned = sequenceNumber;
+        log.debug("AuditLog-Stapel " + sequenceNumber + " aus dem Wiederholungspuffer verdraengt");
+    }
+
+    /**
+     * Angeforderten Stapel erneut senden; ein aufgegebener Stapel wird durch einen leeren ersetzt. Fordert der Server
+     * einen bereits bestaetigten Stapel an, wurde er neu gestartet und erhaelt ebenfalls einen leeren Stapel. Fehler
+     * beim Senden werden nur protokolliert.
+     */
+    private void retransmit(long sequenceNumber) throws Exception {
+        if (sequenceNumber > lastSequenceNumber) {
+            return;
+        }
+        int slot = slot(sequenceNumber);
+        long now = System.nanoTime();
+        AuditLogBatchPDU batch = sequenceNumber <= base() ? null : buffer[slot];
+        if (batch == null) {
+            AuditLogBatchPDU gap = new AuditLogBatchPDU(0);
+            gap.setSenderId(senderId);
+            gap.setSequenceNumber(sequenceNumber);
+            try {
+                connection.send(gap);
+            } catch (IOException e) {
+                log.debug("Leerer AuditLog-Stapel " + sequenceNumber + " konnte nicht gesendet werden: " + e);
+            }
+            return;
+        }
+        if (now - lastSent[slot] < MIN_RETRANSMIT_INTERVAL * 1_000_000L) {
+            return;
+        }
+        lastSent[slot] = now;
+        numberOfRetransmissions++;
+        try {
+            connection.send(batch);
+        } catch (IOException e) {
+            // Wie beim ersten Senden: der Stapel wird auf die naechste Anforderung hin wiederholt
+            log.debug("AuditLog-Stapel " + sequenceNumber + " konnte nicht wiederholt werden: " + e);
+        }
+    }
+
+    /**
+     * @return Sequenznummer, bis zu der keine Stapel mehr im Puffer liegen
+     */
+    private long base() {
+        return Math.max(acknowledged, abandoned);
+    }
+
+    private int slot(long sequenceNumber) {
+        return (int) (sequenceNumber % buffer.length);
+    }
+}
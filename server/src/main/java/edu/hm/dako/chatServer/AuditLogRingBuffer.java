@@ -0,0 +1,107 @@
+package edu.hm.dako.chatServer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Begrenzter, sperrfreier Ringpuffer fuer beliebig viele Erzeuger und genau einen Verbraucher.
+ * <p>
+ * Jeder Platz traegt eine Sequenznummer, an der Erzeuger und Verbraucher erkennen, ob der Platz frei bzw. belegt
+ * ist. Erzeuger reservieren einen Platz per CAS auf den Schreibzeiger, der Verbraucher liest ohne CAS, da nur ein
+ * Thread entnimmt. Ist der Puffer voll, kehrt {@link #offer(Object)} sofort mit false zurueck; das weitere Vorgehen
+ * entscheidet der Aufrufer.
+ * @param <E> Typ der Eintraege
+ */
+public class AuditLogRingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> buffer;
+    private final AtomicLongArray sequences;
+
+    // Naechste zu vergebende Schreibposition (alle Erzeuger)
+    private final AtomicLong tail = new AtomicLong();
+
+    // Naechste Leseposition, wird nur vom Verbraucher geschrieben
+    private volatile long head = 0;
+
+    /**
+     * Konstruktor
+     * @param requestedCapacity Gewuenschte Kapazitaet, wird auf die naechste Zweierpotenz aufgerundet
+     */
+    public AuditLogRingBuffer(int requestedCapacity) {
+        int size = 1;
+        while (size < Math.max(2, requestedCapacity) && size < (1 << 30)) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Eintrag einstellen, ohne zu warten
+     * @param element Eintrag
+     * @return true, wenn der Eintrag eingestellt wurde; false, wenn der Puffer voll ist
+     */
+    public boolean offer(E element) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    buffer.lazySet(index, element);
+                    // Freigabe fuer den Verbraucher erst nach dem Schreiben des Eintrags
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+            // Platz wurde von einem anderen Erzeuger belegt, neuer Versuch
+        }
+    }
+
+    /**
+     * Naechsten Eintrag entnehmen. Darf nur vom Verbraucher-Thread aufgerufen werden.
+     * @return Eintrag oder null, wenn der Puffer leer ist
+     */
+    public E poll() {
+        long position = head;
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        E element = buffer.get(index);
+        buffer.lazySet(index, null);
+        // Platz fuer die naechste Runde der Erzeuger freigeben
+        sequences.set(index, position + capacity);
+        head = position + 1;
+        return element;
+    }
+
+    /**
+     * @return Ungefaehre Anzahl an Eintraegen im Puffer
+     */
+    public int size() {
+        long size = tail.get() - head;
+        if (size < 0) {
+            return 0;
+        }
+        return (int) Math.min(size, capacity);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,343 @@
+package edu.hm.dako.chatServer;
+
+import edu.hm.dako.common.AuditLogPDU;
+import edu.hm.dako.common.BinaryPduCodec;
+import edu.hm.dako.common.PduCodec;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * Auslagerungsdatei fuer AuditLog-Saetze, die nicht sofort gesendet werden koennen, weil die Verbindung zum
+ * AuditLog-Server ausgelastet oder unterbrochen ist.
+ * <p>
+ * Die Datei wird nur vom Sender-Thread der {@link AuditLogConnection} beschrieben und gelesen: Er haengt die Saetze,
+ * die die Worker-Threads in eine Warteschlange eingestellt haben, blockweise an ({@link #append(List)}) und entnimmt
+ * sie in derselben Reihenfolge ({@link #poll()}). Die Worker-Threads warten damit nie auf das Speichermedium. Jeder
+ * Satz wird mit dem
+ * {@link BinaryPduCodec} kodiert und als {@code Laenge | CRC32 | Daten} abgelegt. Die Leseposition wird in einer
+ * zweiten Datei gemerkt, damit nach einem Neustart des Chat-Servers die noch nicht gesendeten Saetze zuerst gesendet
+ * werden; nach einem Absturz werden hoechstens die seit dem letzten Merken gesendeten Saetze erneut gesendet. Sobald
+ * alle Saetze entnommen sind, wird die Datei wieder geleert.
+ * <p>
+ * Jeder Block wird ohne eigenen Puffer sofort in die Datei geschrieben und uebersteht damit einen Absturz des
+ * Chat-Servers. Gegen einen Ausfall des Betriebssystems sind die Saetze nur geschuetzt, wenn jeder Block zusaetzlich
+ * auf das Speichermedium erzwungen wird (Parameter {@code force}); das kostet je Block einen Schreibvorgang auf dem
+ * Speichermedium.
+ */
+class AuditLogSpool implements Closeable {
+
+    static final String FILE_NAME = "AuditLogSpool.dat";
+    static final String POSITION_FILE_NAME = "AuditLogSpool.pos";
+
+    // Laenge und CRC32 vor jedem Satz
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    // Die Leseposition wird gemerkt, sobald so viele Bytes seit dem letzten Merken gelesen wurden
+    private static final long POSITION_SAVE_BYTES = 1024 * 1024;
+
+    private static final Logger log = LogManager.getLogger(AuditLogSpool.class);
+
+    private final PduCodec codec = new BinaryPduCodec();
+    private final File file;
+    private final File positionFile;
+    private final long maxBytes;
+    private final boolean force;
+    private FileChannel channel;
+
+    private final ByteBuffer headerBuffer = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+    private final CRC32 crc = new CRC32();
+    private long writePosition;
+    private long readPosition;
+    private long savedReadPosition;
+
+    // Anzahl der enthaltenen Saetze, wird ohne Sperre abgefragt
+    private final AtomicInteger depth = new AtomicInteger();
+
+    /**
+     * Auslagerungsdatei oeffnen bzw. anlegen. Noch nicht gesendete Saetze eines frueheren Laufs bleiben erhalten,
+     * ein unvollstaendiger letzter Satz wird abgeschnitten.
+     *
+     * @param directory Verzeichnis der Auslagerungsdatei
+     * @param maxBytes Maximale Groesse der noch nicht gesendeten Saetze in Bytes
+     * @param force true: jeden angehaengten Block auf das Speichermedium erzwingen
+     * @throws IOException Fehler beim Oeffnen
+     */
+    AuditLogSpool(File directory, long maxBytes, boolean force) throws IOException {
+        Files.createDirectories(directory.toPath());
+        this.file = new File(directory, FILE_NAME);
+        this.positionFile = new File(directory, POSITION_FILE_NAME);
+        this.maxBytes = maxBytes;
+        this.force = force;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        recover();
+    }
+
+    /**
+     * Leseposition laden und die Saetze dahinter zaehlen
+     */
+    private void recover() throws IOException {
+        long size = channel.size();
+        readPosition = loadReadPosition();
+        if (readPosition > size) {
+            readPosition = 0;
+        }
+        long position = readPosition;
+        int records = 0;
+        while (true) {
+            int length = readRecordLength(position, size);
+            if (length < 0) {
+                break;
+            }
+            position += RECORD_HEADER_SIZE + length;
+            records++;
+        }
+        if (position < size) {
+            log.error("AuditLog-Auslagerungsdatei " + file + " ab Position " + position + " unvollstaendig, "
+                    + (size - position) + " Bytes abgeschnitten");
+            channel.truncate(position);
+        }
+        writePosition = position;
+        savedReadPosition = readPosition;
+        depth.set(records);
+        if (records == 0) {
+            reset();
+        } else {
+            System.out.println(records + " AuditLog-Saetze aus der Auslagerungsdatei " + file
+                    + " werden nachgesendet");
+        }
+    }
+
+    /**
+     * Laenge des Satzes an der Position pruefen
+     *
+     * @return Laenge der Daten oder -1, wenn dort kein vollstaendiger, unversehrter Satz steht
+     */
+    private int readRecordLength(long position, long size) throws IOException {
+        if (position + RECORD_HEADER_SIZE > size) {
+            return -1;
+        }
+        headerBuffer.clear();
+        readFully(headerBuffer, position);
+        int length = headerBuffer.getInt(0);
+        if (length <= 0 || position + RECORD_HEADER_SIZE + length > size) {
+            return -1;
+        }
+        ByteBuffer data = ByteBuffer.allocate(length);
+        readFully(data, position + RECORD_HEADER_SIZE);
+        crc.reset();
+        crc.update(data.array(), 0, length);
+        return (int) crc.getValue() == headerBuffer.getInt(4) ? length : -1;
+    }
+
+    private long loadReadPosition() {
+        if (!positionFile.exists()) {
+            return 0;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(positionFile.toPath());
+            return bytes.length == Long.BYTES ? ByteBuffer.wrap(bytes).getLong() : 0;
+        } catch (IOException e) {
+            log.error("Leseposition der AuditLog-Auslagerungsdatei nicht lesbar: " + e);
+            return 0;
+        }
+    }
+
+    private void saveReadPosition() throws IOException {
+        Files.write(positionFile.toPath(), ByteBuffer.allocate(Long.BYTES).putLong(readPosition).array());
+        savedReadPosition = readPosition;
+    }
+
+    /**
+     * Block von Saetzen anhaengen und ggf. einmal fuer den ganzen Block auf das Speichermedium erzwingen. Wird nur
+     * vom Sender-Thread aufgerufen.
+     *
+     * @param records Saetze in Sendereihenfolge
+     * @return Anzahl der angehaengten Saetze; die restlichen passen nicht mehr in die Datei oder konnten nicht
+     * geschrieben werden
+     */
+    synchronized int append(List<AuditLogPDU> records) {
+        if (channel == null) {
+            return 0;
+        }
+        int appended = 0;
+        try {
+            for (AuditLogPDU pdu : records) {
+                byte[] data = codec.encode(pdu);
+                crc.reset();
+                crc.update(data);
+                ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + data.length);
+                record.putInt(data.length).putInt((int) crc.getValue()).put(data).flip();
+                if (writePosition - readPosition + record.limit() > maxBytes) {
+                    break;
+                }
+                writeFully(record, writePosition);
+                writePosition += record.limit();
+                depth.incrementAndGet();
+                appended++;
+            }
+            if (force && appended > 0) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            log.error("AuditLog-Saetze konnten nicht ausgelagert werden: " + e);
+        }
+        return appended;
+    }
+
+    /**
+     * Aeltesten Satz entnehmen. Wird nur vom Sender-Thread aufgerufen.
+     *
+     * @return AuditLog-Satz oder null, wenn die Datei leer ist
+     * @throws IOException Fehler beim Lesen
+     */
+    synchronized AuditLogPDU poll() throws IOException {
+        if (depth.get() == 0 || channel == null) {
+            return null;
+        }
+        headerBuffer.clear();
+        readFully(headerBuffer, readPosition);
+        int length = headerBuffer.getInt(0);
+        ByteBuffer data = ByteBuffer.allocate(length);
+        readFully(data, readPosition + RECORD_HEADER_SIZE);
+        readPosition += RECORD_HEADER_SIZE + length;
+        depth.decrementAndGet();
+
+        if (depth.get() == 0) {
+            reset();
+        } else if (readPosition - savedReadPosition >= POSITION_SAVE_BYTES) {
+            saveReadPosition();
+        }
+        return (AuditLogPDU) codec.decode(data.array(), 0, length);
+    }
+
+    /**
+     * Saetze vor allen enthaltenen Saetzen einfuegen. Wird beim Schliessen der Verbindung verwendet, wenn der
+     * AuditLog-Server nicht erreichbar ist, damit beim naechsten Start die Reihenfolge erhalten bleibt.
+     *
+     * @param records Saetze in Sendereihenfolge
+     * @throws IOException Fehler beim Schreiben
+     */
+    synchronized void prepend(List<AuditLogPDU> records) throws IOException {
+        if (records.isEmpty() || channel == null) {
+            return;
+        }
+        File newFile = new File(file.getParentFile(), FILE_NAME + ".new");
+        long position = 0;
+        try (FileChannel newChannel = FileChannel.open(newFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (AuditLogPDU pdu : records) {
+                byte[] data = codec.encode(pdu);
+                crc.reset();
+                crc.update(data);
+                ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + data.length);
+                record.putInt(data.length).putInt((int) crc.getValue()).put(data).flip();
+                while (record.hasRemaining()) {
+                    position += newChannel.write(record, position);
+                }
+            }
+            long remaining = writePosition - readPosition;
+            long copied = 0;
+            while (copied < remaining) {
+                copied += channel.transferTo(readPosition + copied, remaining - copied, newChannel.position(
+                        position + copied));
+            }
+            position += remaining;
+            newChannel.force(true);
+        }
+        channel.close();
+        Files.move(newFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        readPosition = 0;
+        writePosition = position;
+        depth.addAndGet(records.size());
+        saveReadPosition();
+    }
+
+    /**
+     * Alle Saetze verwerfen, z. B. wenn die Datei nicht mehr lesbar ist
+     *
+     * @return Anzahl der verworfenen Saetze
+     */
+    synchronized int clear() {
+        int discarded = depth.getAndSet(0);
+        try {
+            reset();
+        } catch (IOException e) {
+            log.error("AuditLog-Auslagerungsdatei " + file + " kann nicht geleert werden: " + e);
+        }
+        return discarded;
+    }
+
+    /**
+     * @return Anzahl der enthaltenen Saetze
+     */
+    int size() {
+        return depth.get();
+    }
+
+    boolean isEmpty() {
+        return depth.get() == 0;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Leseposition merken und Datei schliessen
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        if (depth.get() > 0) {
+            channel.force(true);
+            saveReadPosition();
+            System.out.println(depth.get() + " AuditLog-Saetze bleiben in der Auslagerungsdatei " + file);
+        }
+        channel.close();
+        channel = null;
+    }
+
+    /**
+     * Leere Datei auf Laenge 0 zuruecksetzen
+     */
+    private void reset() throws IOException {
+        channel.truncate(0);
+        writePosition = 0;
+        readPosition = 0;
+        saveReadPosition();
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unerwartetes Ende der AuditLog-Auslagerungsdatei " + file);
+            }
+            position += read;
+        }
+        buffer.flip();
+    }
+}
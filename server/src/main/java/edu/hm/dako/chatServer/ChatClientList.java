@@ -0,0 +1,198 @@
+package edu.hm.dako.chatServer;
+
+import edu.hm.dako.common.ClientConversationStatus;
+
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * Schnittstelle der serverseitigen Liste aller angemeldeten Clients inkl. ihrer Wartelisten
+ */
+public interface ChatClientList {
+
+    /**
+     * Loeschen der gesamten Liste
+     */
+    void deleteAll();
+
+    /**
+     * Status eines Clients veraendern
+     * @param userName Name des Users (Clients)
+     * @param newStatus Neuer Status
+     */
+    void changeClientStatus(String userName, ClientConversationStatus newStatus);
+
+    /**
+     * Lesen des Conversation-Status fuer einen Client
+     * @param userName Name des Users (Clients)
+     * @return Conversation-Status des Clients, UNREGISTERED, falls der Client nicht in der Liste ist
+     */
+    ClientConversationStatus getClientStatus(String userName);
+
+    /**
+     * Client auslesen
+     * @param userName Name des Clients
+     * @return Referenz auf den gesuchten Client oder null
+     */
+    ClientListEntry getClient(String userName);
+
+    /**
+     * Stellt eine Liste aller Namen der eingetragenen Clients bereit
+     * @return Vektor mit allen Namen der eingetragenen Clients
+     */
+    Vector<String> getClientNameList();
+
+    /**
+     * Stellt alle eingetragenen Clients fuer das Verteilen von Events bereit. Die Liste darf nicht veraendert
+     * werden.
+     * @return Momentaufnahme aller Eintraege
+     */
+    List<ClientListEntry> getClientEntries();
+
+    /**
+     * Stellt eine Liste aller Namen der eingetragenen Clients bereit, die im Zustand REGISTERING oder REGISTERED sind
+     * @return Vektor mit allen Namen der eingetragenen Clients, die registriert sind oder die sich gerade registrieren
+     */
+    Vector<String> getRegisteredClientNameList();
+
+    /**
+     * Prueft, ob ein Client in der Userliste ist
+     * @param userName Name des Clients
+     * @return true = Client existiert, false = Client existiert nicht
+     */
+    boolean existsClient(String userName);
+
+    /**
+     * Legt einen neuen Client an
+     * @param userName Name des neuen Clients
+     * @param client Client-Daten
+     */
+    void createClient(String userName, ClientListEntry client);
+
+    /**
+     * Aktualisierung eines vorhandenen Clients
+     * @param userName Name des Clients
+     * @param client Client-Daten
+     */
+    void updateClient(String userName, ClientListEntry client);
+
+    /**
+     * Prueft, ob ein Client in keiner Warteliste mehr ist und daher geloescht werden kann
+     * @param userName Name des Clients
+     * @return true Loeschen moeglich, sonst false
+     */
+    boolean deletable(String userName);
+
+    /**
+     * Loescht einen Client zwangsweise inkl. aller Eintraege in Wartelisten
+     * @param userName Name des Clients
+     */
+    void deleteClientWithoutCondition(String userName);
+
+    /**
+     * Entfernt einen Client aus der Clientliste, sofern er zum Beenden vorgemerkt und in keiner Warteliste mehr ist
+     * @param userName Name des Clients
+     * @return true bei erfolgreichem Loeschen, sonst false
+     */
+    boolean deleteClient(String userName);
+
+    /**
+     * Garbage Collector der Clientliste bereinigt nicht mehr benoetigte Clients
+     * @return Namensliste aller entfernten Clients
+     */
+    Vector<String> gcClientList();
+
+    /**
+     * @return Dauer des letzten Laufs der Garbage Collection in ns
+     */
+    long getLastGcHoldTime();
+
+    /**
+     * @return Aktuelle Version der Mitgliedschaft (wird bei jedem Login- und Logout-Event erhoeht)
+     */
+    long getMembershipVersion();
+
+    /**
+     * Erhoeht die Version der Mitgliedschaft fuer ein neues Login- oder Logout-Event
+     * @return Neue Version
+     */
+    long nextMembershipVersion();
+
+    /**
+     * @return Laenge der Liste
+     */
+    long size();
+
+    /**
+     * Erhoeht den Zaehler fuer empfangene Chat-Event-Confirm-PDUs fuer einen Client
+     * @param userName Name des Clients
+     */
+    void incrNumberOfReceivedChatEventConfirms(String userName);
+
+    /**
+     * Erhoeht den Zaehler fuer gesendete Chat-Event-PDUs fuer einen Client
+     * @param userName Name des Clients
+     */
+    void incrNumberOfSentChatEvents(String userName);
+
+    /**
+     * Erhoeht den Zaehler fuer empfangene Chat-Message-PDUs eines Client
+     * @param userName Name des Clients
+     */
+    void incrNumberOfReceivedChatMessages(String userName);
+
+    /**
+     * Setzt die Ankunftszeit eines Chat-Requests fuer die Serverzeitmessung
+     * @param userName Name des Clients
+     * @param startTime Ankunftszeit
+     */
+    void setRequestStartTime(String userName, long startTime);
+
+    /**
+     * Liefert die Ankunftszeit eines Chat-Requests
+     * @param userName Name des Clients
+     * @return Ankunftszeit des Requests in ns
+     */
+    long getRequestStartTime(String userName);
+
+    /**
+     * Erstellt eine Liste aller Clients, die noch ein Event bestaetigen muessen
+     * @param userName Id des Clients, fuer den eine Warteliste erstellt werden soll
+     * @return Kopie der Warteliste des Clients
+     */
+    Vector<String> createWaitList(String userName);
+
+    /**
+     * Loescht eine Event-Warteliste fuer einen Client
+     * @param userName Name des Clients, fuer den die Liste geloescht werden soll
+     */
+    void deleteWaitList(String userName);
+
+    /**
+     * Loescht einen Eintrag aus der Event-Warteliste
+     * @param userName Name des Clients, fuer den ein Listeneintrag aus seiner Warteliste geloescht werden soll
+     * @param entryName Name des Clients, der aus der Event-Warteliste geloescht werden soll
+     * @return Anzahl der noch vorhandenen Eintraege in der Liste
+     * @throws Exception Eintrag, der geloescht werden sollte, ist nicht vorhanden
+     */
+    int deleteWaitListEntry(String userName, String entryName) throws Exception;
+
+    /**
+     * Liefert die Laenge der Event-Warteliste fuer einen Client
+     * @param userName Name des Clients
+     * @return Anzahl der noch vorhandenen Eintraege in der Liste
+     */
+    int getWaitListSize(String userName);
+
+    /**
+     * Setzt Kennzeichen, dass die Arbeit fuer einen User eingestellt werden kann
+     * @param userName Name des Clients
+     */
+    void finish(String userName);
+
+    /**
+     * Ausgeben der aktuellen Clientliste einschliesslich der Wartelisten der Clients
+     * @return Liste mit Clients
+     */
+    String printClientList();
+}
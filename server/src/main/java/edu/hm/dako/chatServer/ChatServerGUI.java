@@ -68,7 +68,7 @@ public class ChatServerGUI extends Application implements ChatServerGuiInterface
     private final ServerStartData data = new ServerStartData();
     // Moegliche Belegungen des Implementierungsfeldes in der GUI
     ObservableList<String> implTypeOptions = FXCollections.observableArrayList(
-            SystemConstants.IMPL_TCP_SIMPLE, SystemConstants.IMPL_TCP_ADVANCED);
+            SystemConstants.IMPL_TCP_SIMPLE, SystemConstants.IMPL_TCP_NIO, SystemConstants.IMPL_TCP_ADVANCED);
     ObservableList<String> auditLogServerImplTypeOptions = FXCollections.observableArrayList(
             SystemConstants.AUDIT_LOG_SERVER_TCP_IMPL, SystemConstants.AUDIT_LOG_SERVER_UDP_IMPL);
     // Server-Startzeit als String
@@ -481,6 +481,8 @@ public class ChatServerGUI extends Application implements ChatServerGuiInterface
             serverImpl = ChatServerImplementationType.TCPAdvancedImplementation;
         } else if (implType.equals(SystemConstants.IMPL_TCP_SIMPLE)) {
             serverImpl = ChatServerImplementationType.TCPSimpleImplementation;
+        } else if (implType.equals(SystemConstants.IMPL_TCP_NIO)) {
+            serverImpl = ChatServerImplementationType.TCPNioImplementation;
         }
 
         AuditLogImplementationType auditLogImplementationType = AuditLogImplementationType.AuditLogServerTCPImplementation;
@@ -534,6 +536,8 @@ public class ChatServerGUI extends Application implements ChatServerGuiInterface
             serverImpl = ChatServerImplementationType.TCPAdvancedImplementation;
         } else if (implType.equals(SystemConstants.IMPL_TCP_SIMPLE)) {
             serverImpl = ChatServerImplementationType.TCPSimpleImplementation;
+        } else if (implType.equals(SystemConstants.IMPL_TCP_NIO)) {
+            serverImpl = ChatServerImplementationType.TCPNioImplementation;
         }
 
         try {
@@ -0,0 +1,125 @@
+package edu.hm.dako.chatServer;
+
+import edu.hm.dako.common.ClientConversationStatus;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Lastmessung fuer die Clientliste: Mehrere Threads greifen mit einem fuer den Chat-Server typischen Mix aus
+ * Lesezugriffen, Zaehlererhoehungen, Event-Verteilungen und Logins/Logouts gleichzeitig auf die Liste zu. Verglichen
+ * werden die sperrfreie {@link SharedChatClientList} und die synchronisierte {@link SynchronizedChatClientList}.
+ * <p>
+ * Aufruf: ClientListContentionBenchmark [Threads] [Clients] [Messdauer in s]
+ */
+public class ClientListContentionBenchmark {
+
+    // Anzahl der Messrunden je Implementierung (die erste dient zum Aufwaermen)
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0])
+                : Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+        int numberOfClients = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        System.out.println("Threads: " + threads + ", Clients: " + numberOfClients + ", Messdauer: " + seconds
+                + " s je Runde");
+
+        for (int round = 0; round < ROUNDS; round++) {
+            String prefix = (round == 0) ? "Aufwaermen " : "Runde " + round + " ";
+            report(prefix + "SharedChatClientList (sperrfrei):     ",
+                    run(SharedChatClientList::new, threads, numberOfClients, seconds));
+            report(prefix + "SynchronizedChatClientList:           ",
+                    run(SynchronizedChatClientList::new, threads, numberOfClients, seconds));
+        }
+    }
+
+    /**
+     * Eine Messrunde durchfuehren
+     * @param listFactory Erzeugt die zu messende Liste
+     * @param threads Anzahl gleichzeitiger Threads
+     * @param numberOfClients Anzahl der Clients in der Liste
+     * @param seconds Messdauer
+     * @return Operationen pro Sekunde
+     */
+    private static double run(Supplier<ChatClientList> listFactory, int threads, int numberOfClients,
+                              int seconds) throws InterruptedException {
+        ChatClientList clients = listFactory.get();
+        String[] names = new String[numberOfClients];
+        for (int i = 0; i < numberOfClients; i++) {
+            names[i] = "Client-" + i;
+            createRegisteredClient(clients, names[i]);
+        }
+
+        LongAdder operations = new LongAdder();
+        CountDownLatch startSignal = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long endTime = System.nanoTime() + seconds * 1_000_000_000L;
+
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    startSignal.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long count = 0;
+                    long sink = 0;
+                    while ((count & 0xFF) != 0 || System.nanoTime() < endTime) {
+                        String name = names[random.nextInt(numberOfClients)];
+                        int operation = random.nextInt(100);
+                        if (operation < 50) {
+                            // Zaehler beim Verteilen eines Events
+                            ClientListEntry client = clients.getClient(name);
+                            if (client != null) {
+                                clients.incrNumberOfSentChatEvents(name);
+                            }
+                        } else if (operation < 70) {
+                            sink += clients.existsClient(name) ? 1 : 0;
+                        } else if (operation < 90) {
+                            sink += clients.getClientStatus(name).ordinal();
+                        } else if (operation < 99) {
+                            // Verteilen eines Events: alle Clients durchlaufen
+                            for (ClientListEntry client : clients.getClientEntries()) {
+                                sink += client.getStatus().ordinal();
+                            }
+                        } else {
+                            // Logout und erneuter Login
+                            clients.deleteClientWithoutCondition(name);
+                            createRegisteredClient(clients, name);
+                        }
+                        count++;
+                    }
+                    operations.add(count + (sink == 42 ? 1 : 0));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "Benchmark-" + t);
+            thread.start();
+        }
+
+        long start = System.nanoTime();
+        startSignal.countDown();
+        done.await();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        return operations.sum() / elapsed;
+    }
+
+    /**
+     * Registrierten Client ohne Verbindung in die Liste eintragen
+     * @param clients Clientliste
+     * @param name Name des Clients
+     */
+    private static void createRegisteredClient(ChatClientList clients, String name) {
+        ClientListEntry client = new ClientListEntry(name, null);
+        client.setStatus(ClientConversationStatus.REGISTERED);
+        clients.createClient(name, client);
+    }
+
+    private static void report(String label, double operationsPerSecond) {
+        System.out.printf("%s %,14.0f Operationen/s%n", label, operationsPerSecond);
+    }
+}
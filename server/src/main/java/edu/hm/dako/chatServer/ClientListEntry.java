@@ -1,11 +1,18 @@
 package edu.hm.dako.chatServer;
 
+import edu.hm.dako.common.ChatPDU;
 import edu.hm.dako.common.ClientConversationStatus;
-import edu.hm.dako.connection.Connection;
+import edu.hm.dako.connection.EncodedMessage;
+import edu.hm.dako.connection.MessageSender;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Eintrag in der serverseitigen Clientliste zur Verwaltung der angemeldeten User inkl.
@@ -13,56 +20,74 @@ import java.util.Vector;
  * <p>
  * Der Eintrag enthaelt auch eine Wartelsite fuer Clients (User), die auf eine Confirm-Nachricht
  * fuer ein vorher gesendetes Event warten. Diese Liste wird nur im AdvancedChat benötigt.
+ * Aenderungen an der Warteliste sollen ueber die {@link ChatClientList} erfolgen, da diese zusaetzlich einen
+ * Rueckwaertsindex (Client - Anzahl der Wartelisten, in denen er steht) pflegt.
+ * <p>
+ * Alle Nachrichten an den Client laufen ueber seine {@link OutboundQueue}, damit ein langsamer Client die
+ * Worker-Threads der anderen Clients nicht blockiert.
+ * <p>
+ * Der Eintrag ist ohne Sperren thread-sicher: Einfache Attribute sind volatile, Zaehler werden als
+ * {@link LongAdder} gefuehrt und Statusuebergaenge koennen atomar mit {@link #compareAndSetStatus} erfolgen.
  * @author Peter Mandl
  */
 public class ClientListEntry {
     private static final Logger log = LogManager.getLogger(ClientListEntry.class);
     // Kennzeichen zum Beenden des Worker-Threads
-    boolean finished;
+    volatile boolean finished;
     // Login-Name des Clients
-    private String userName;
+    private volatile String userName;
     // Verbindungs-Handle fuer Transportverbindung zum Client
-    private Connection con;
+    private volatile MessageSender con;
     // Login-Zeitpunkt
 
     // Ankunftszeit einer Chat-Message fuer die Serverzeit-Messung
-    private long startTime;
+    private volatile long startTime;
 
     // Conversation-Status des Clients
-    private ClientConversationStatus status;
+    private final AtomicReference<ClientConversationStatus> status = new AtomicReference<>();
 
     // Anzahl der verarbeiteten Chat-Nachrichten des Clients (Sequenznummer)
-    private long numberOfReceivedChatMessages;
+    private final LongAdder numberOfReceivedChatMessages = new LongAdder();
 
     // Anzahl gesendeter Events (ChatMessageEvents, LoginEvents, LogoutEvents),
     // die der Server fuer den Client sendet
-    private long numberOfSentEvents;
+    private final LongAdder numberOfSentEvents = new LongAdder();
 
     // Anzahl aller empfangenen Confirms (ChatMessageConfirm, LoginConfirm,
     // LogoutConfirm) fuer den Client
-    private long numberOfReceivedEventConfirms;
+    private final LongAdder numberOfReceivedEventConfirms = new LongAdder();
 
     // Anzahl nicht erhaltener Bestaetigungen (derzeit nicht genutzt)
-    private long numberOfLostEventConfirms;
+    private final LongAdder numberOfLostEventConfirms = new LongAdder();
 
     // Anzahl an Nachrichtenwiederholungen (derzeit nicht genutzt)
-    private long numberOfRetries;
+    private final LongAdder numberOfRetries = new LongAdder();
 
     // Liste, die auf alle Clients verweist, die noch kein Event-Confirm fuer
     // einen konkret laufenden Request gesendet haben (nur fuer Advanced Chat notwendig)
-    private Vector<String> waitList;
+    private final Vector<String> waitList;
+
+    // Sendewarteschlange fuer alle Nachrichten an den Client
+    private final OutboundQueue outboundQueue;
+
+    public ClientListEntry(String userName, MessageSender con) {
+        this(userName, con, OutboundQueue.getSharedWriter());
+    }
 
-    public ClientListEntry(String userName, Connection con) {
+    /**
+     * Konstruktor
+     * @param userName Login-Name des Clients
+     * @param con Verbindung zum Client
+     * @param outboundWriter Executor, auf dem die Sendewarteschlange abgearbeitet wird
+     */
+    public ClientListEntry(String userName, MessageSender con, Executor outboundWriter) {
+        this.outboundQueue = new OutboundQueue(userName, con, OutboundQueue.getConfiguredCapacity(),
+                OutboundQueue.getConfiguredPolicy(), outboundWriter);
         this.userName = userName;
         this.con = con;
         this.finished = false;
         this.startTime = 0;
-        this.status = ClientConversationStatus.UNREGISTERED;
-        this.numberOfReceivedChatMessages = 0;
-        this.numberOfSentEvents = 0;
-        this.numberOfReceivedEventConfirms = 0;
-        this.numberOfLostEventConfirms = 0;
-        this.numberOfRetries = 0;
+        this.status.set(ClientConversationStatus.UNREGISTERED);
         this.waitList = new Vector<>();
     }
 
@@ -74,145 +99,214 @@ public class ClientListEntry {
                 "\n" +
                 "Connection: " + this.con +
                 "\n" +
-                "Status: " + this.status +
+                "Status: " + this.status.get() +
+                "\n" +
+                "Sendewarteschlange: " + this.outboundQueue +
                 "\n" +
                 "+++++++++++++++++++++++++++++++++++++++++++++ChatClientListEntry";
     }
 
-    public synchronized String getUserName() {
+    public String getUserName() {
         return userName;
     }
 
-    public synchronized void setUserName(String userName) {
+    public void setUserName(String userName) {
         this.userName = userName;
     }
 
-    public synchronized Connection getConnection() {
+    public MessageSender getConnection() {
         return (con);
     }
 
-    public synchronized void setConnection(Connection con) {
+    public void setConnection(MessageSender con) {
         this.con = con;
     }
 
-    public synchronized void setLoginTime(long time) {
+    public OutboundQueue getOutboundQueue() {
+        return outboundQueue;
+    }
+
+    /**
+     * PDU ueber die Sendewarteschlange an den Client senden
+     * @param pdu Zu sendende PDU
+     * @return true, wenn die PDU eingestellt wurde
+     */
+    public boolean send(ChatPDU pdu) {
+        return outboundQueue.send(pdu);
     }
 
-    public synchronized long getStartTime() {
+    /**
+     * PDU ueber die Sendewarteschlange an den Client senden, nachdem alle vorher eingestellten Nachrichten
+     * geschrieben sind (siehe {@link OutboundQueue#sendFenced(ChatPDU)})
+     * @param pdu Zu sendende PDU
+     * @return true, wenn die PDU eingestellt wurde
+     */
+    public boolean sendFenced(ChatPDU pdu) {
+        return outboundQueue.sendFenced(pdu);
+    }
+
+    /**
+     * Einmal kodierte Nachricht ueber die Sendewarteschlange an den Client senden
+     * @param message Zu sendende Nachricht
+     * @return true, wenn die Nachricht eingestellt wurde
+     */
+    public boolean send(EncodedMessage message) {
+        return outboundQueue.send(message);
+    }
+
+    /**
+     * PDU ueber die Sendewarteschlange an den Client senden, ohne zu warten
+     * (siehe {@link OutboundQueue#trySend(ChatPDU)})
+     * @param pdu Zu sendende PDU
+     * @return true, wenn die PDU eingestellt wurde
+     */
+    public boolean trySend(ChatPDU pdu) {
+        return outboundQueue.trySend(pdu);
+    }
+
+    /**
+     * Einmal kodierte Nachricht ueber die Sendewarteschlange an den Client senden, ohne zu warten
+     * (siehe {@link OutboundQueue#trySend(EncodedMessage)})
+     * @param message Zu sendende Nachricht
+     * @return true, wenn die Nachricht eingestellt wurde
+     */
+    public boolean trySend(EncodedMessage message) {
+        return outboundQueue.trySend(message);
+    }
+
+    public void setLoginTime(long time) {
+    }
+
+    public long getStartTime() {
         return (startTime);
     }
 
-    public synchronized void setStartTime(long startTime) {
+    public void setStartTime(long startTime) {
         this.startTime = startTime;
     }
 
-    public synchronized long getNumberOfReceivedChatMessages() {
-        return (numberOfReceivedChatMessages);
+    public long getNumberOfReceivedChatMessages() {
+        return numberOfReceivedChatMessages.sum();
+    }
+
+    public void setNumberOfReceivedChatMessages(long nr) {
+        numberOfReceivedChatMessages.reset();
+        numberOfReceivedChatMessages.add(nr);
     }
 
-    public synchronized void setNumberOfReceivedChatMessages(long nr) {
-        this.numberOfReceivedChatMessages = nr;
+    public long getNumberOfSentEvents() {
+        return numberOfSentEvents.sum();
     }
 
-    public synchronized long getNumberOfSentEvents() {
-        return (numberOfSentEvents);
+    public void setNumberOfSentEvents(long nr) {
+        numberOfSentEvents.reset();
+        numberOfSentEvents.add(nr);
     }
 
-    public synchronized void setNumberOfSentEvents(long nr) {
-        this.numberOfSentEvents = nr;
+    public long getNumberOfReceivedEventConfirms() {
+        return numberOfReceivedEventConfirms.sum();
     }
 
-    public synchronized long getNumberOfReceivedEventConfirms() {
-        return (numberOfReceivedEventConfirms);
+    public void setNumberOfReceivedEventConfirms(long nr) {
+        numberOfReceivedEventConfirms.reset();
+        numberOfReceivedEventConfirms.add(nr);
     }
 
-    public synchronized void setNumberOfReceivedEventConfirms(long nr) {
-        this.numberOfReceivedEventConfirms = nr;
+    public long getNumberOfLostEventConfirms() {
+        return numberOfLostEventConfirms.sum();
     }
 
-    public synchronized long getNumberOfLostEventConfirms() {
-        return (numberOfLostEventConfirms);
+    public void setNumberOfLostEventConfirms(long nr) {
+        numberOfLostEventConfirms.reset();
+        numberOfLostEventConfirms.add(nr);
     }
 
-    public synchronized void setNumberOfLostEventConfirms(long nr) {
-        this.numberOfLostEventConfirms = nr;
+    public long getNumberOfRetries() {
+        return numberOfRetries.sum();
     }
 
-    public synchronized long getNumberOfRetries() {
-        return (numberOfRetries);
+    public void setNumberOfRetries(long nr) {
+        numberOfRetries.reset();
+        numberOfRetries.add(nr);
     }
 
-    public synchronized void setNumberOfRetries(long nr) {
-        this.numberOfRetries = nr;
+    public ClientConversationStatus getStatus() {
+        return status.get();
     }
 
-    public synchronized ClientConversationStatus getStatus() {
-        return status;
+    public void setStatus(ClientConversationStatus status) {
+        this.status.set(status);
     }
 
-    public synchronized void setStatus(ClientConversationStatus status) {
-        this.status = status;
+    /**
+     * Atomarer Statusuebergang
+     * @param expectedStatus Erwarteter aktueller Status
+     * @param newStatus Neuer Status
+     * @return true, wenn der Status geaendert wurde; false, wenn der Client nicht im erwarteten Status war
+     */
+    public boolean compareAndSetStatus(ClientConversationStatus expectedStatus, ClientConversationStatus newStatus) {
+        return status.compareAndSet(expectedStatus, newStatus);
     }
 
-    public synchronized boolean isFinished() {
+    public boolean isFinished() {
         return finished;
     }
 
-    public synchronized void setFinished(boolean finished) {
+    public void setFinished(boolean finished) {
         this.finished = finished;
     }
 
-    public synchronized void incrNumberOfSentEvents() {
-        this.numberOfSentEvents++;
+    public void incrNumberOfSentEvents() {
+        numberOfSentEvents.increment();
     }
 
-    public synchronized void incrNumberOfReceivedEventConfirms() {
-        this.numberOfReceivedEventConfirms++;
+    public void incrNumberOfReceivedEventConfirms() {
+        numberOfReceivedEventConfirms.increment();
     }
 
-    public synchronized void incrNumberOfLostEventConfirms() {
-        this.numberOfLostEventConfirms++;
+    public void incrNumberOfLostEventConfirms() {
+        numberOfLostEventConfirms.increment();
     }
 
-    public synchronized void incrNumberOfReceivedChatMessages() {
-        this.numberOfReceivedChatMessages++;
+    public void incrNumberOfReceivedChatMessages() {
+        numberOfReceivedChatMessages.increment();
     }
 
-    public synchronized void incrNumberOfRetries() {
-        this.numberOfRetries++;
+    public void incrNumberOfRetries() {
+        numberOfRetries.increment();
     }
 
     /**
-     * Ergaenzen eines Eintrags in der Warteliste
+     * Ergaenzen eines Eintrags in der Warteliste. Aenderungen erfolgen nur ueber die Clientliste, die ihren
+     * Rueckwaertsindex dabei mitfuehrt.
      * @param userName Name des Clients
      */
-    public synchronized void addWaitListEntry(String userName) {
+    void addWaitListEntry(String userName) {
         this.waitList.add(userName);
         log.debug("Warteliste von " + this.userName + " ergaenzt um " + userName);
     }
 
     /**
-     * Lesen der Wartelsite fuer ein Event
-     * @return
+     * Entfernen eines Eintrags aus der Warteliste
+     * @param userName Name des Clients
+     * @return true, wenn der Eintrag in der Warteliste vorhanden war
      */
-    public synchronized Vector<String> getWaitList() {
-        return waitList;
+    boolean removeWaitListEntry(String userName) {
+        return this.waitList.remove(userName);
     }
 
     /**
-     * Aktualisierung der Liste aller Clients, die auf ein Confirm fuer ein
-     * gesendetes Event warten
-     * @param list Clientliste
+     * Lesen der Warteliste fuer ein Event
+     * @return Nicht veraenderbare Sicht auf die Warteliste
      */
-    public synchronized void setWaitList(Vector<String> list) {
-        this.waitList = list;
-        log.debug("Warteliste von " + this.userName + ": " + waitList);
+    List<String> getWaitList() {
+        return Collections.unmodifiableList(waitList);
     }
 
     /**
      * Loesche einer Warteliste fuer ein Event
      */
-    public synchronized void clearWaitList() {
+    void clearWaitList() {
         waitList.clear();
     }
 }
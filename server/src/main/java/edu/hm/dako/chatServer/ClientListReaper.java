@@ -0,0 +1,176 @@
+package edu.hm.dako.chatServer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Vector;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Raeumt die Clientliste periodisch in einem eigenen Thread auf. Die Garbage Collection der Clientliste
+ * ({@link ChatClientList#gcClientList()}) durchlaeuft die gesamte Clientliste; sie laeuft deshalb nicht vor jeder
+ * empfangenen Nachricht im Worker-Thread, sondern in einem festen Intervall.
+ * <p>
+ * Das Intervall kann ueber die System-Property {@value #INTERVAL_PROPERTY} (in ms) eingestellt werden. Die Messwerte
+ * (Anzahl Laeufe, entfernte Clients, Sperrdauer) werden alle {@value #REPORT_INTERVAL_PROPERTY} ms protokolliert,
+ * 0 schaltet die Ausgabe ab.
+ */
+public class ClientListReaper {
+
+    // System-Property fuer das Intervall in ms
+    public static final String INTERVAL_PROPERTY = "dako.clientListReaper.interval";
+    public static final long DEFAULT_INTERVAL = 1000;
+
+    // System-Property fuer das Intervall der Messwert-Ausgabe in ms
+    public static final String REPORT_INTERVAL_PROPERTY = "dako.clientListReaper.reportInterval";
+    public static final long DEFAULT_REPORT_INTERVAL = 60000;
+
+    private static final Logger log = LogManager.getLogger(ClientListReaper.class);
+
+    private final ChatClientList clients;
+    private final long interval;
+    private final long reportInterval;
+    private ScheduledExecutorService scheduler;
+
+    // Messwerte
+    private final AtomicLong numberOfRuns = new AtomicLong();
+    private final AtomicLong numberOfReapedClients = new AtomicLong();
+    private final AtomicLong totalHoldTime = new AtomicLong();
+    private final AtomicLong maxHoldTime = new AtomicLong();
+
+    // Laengste Sperrdauer seit der letzten Ausgabe und Zeitpunkt der letzten Ausgabe (nur im Reaper-Thread)
+    private long maxHoldTimeSinceReport = 0;
+    private long lastReportTime = System.nanoTime();
+
+    /**
+     * Konstruktor
+     * @param clients Clientliste
+     * @param interval Intervall zwischen zwei Laeufen in ms
+     */
+    public ClientListReaper(ChatClientList clients, long interval) {
+        this(clients, interval, getConfiguredReportInterval());
+    }
+
+    /**
+     * Konstruktor
+     * @param clients Clientliste
+     * @param interval Intervall zwischen zwei Laeufen in ms
+     * @param reportInterval Intervall zwischen zwei Ausgaben der Messwerte in ms, 0: keine Ausgabe
+     */
+    public ClientListReaper(ChatClientList clients, long interval, long reportInterval) {
+        this.clients = clients;
+        this.interval = Math.max(1, interval);
+        this.reportInterval = Math.max(0, reportInterval);
+    }
+
+    /**
+     * @return Konfiguriertes Intervall in ms
+     */
+    public static long getConfiguredInterval() {
+        return Long.getLong(INTERVAL_PROPERTY, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * @return Konfiguriertes Intervall fuer die Ausgabe der Messwerte in ms
+     */
+    public static long getConfiguredReportInterval() {
+        return Long.getLong(REPORT_INTERVAL_PROPERTY, DEFAULT_REPORT_INTERVAL);
+    }
+
+    /**
+     * Periodisches Aufraeumen starten
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ClientListReaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::reap, interval, interval, TimeUnit.MILLISECONDS);
+        log.debug("ClientListReaper gestartet, Intervall: " + interval + " ms");
+    }
+
+    /**
+     * Periodisches Aufraeumen beenden
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+            log.debug("ClientListReaper beendet: " + this);
+        }
+    }
+
+    /**
+     * Ein Lauf der Garbage Collection
+     */
+    void reap() {
+        try {
+            Vector<String> deletedClients = clients.gcClientList();
+            long holdTime = clients.getLastGcHoldTime();
+            numberOfRuns.incrementAndGet();
+            totalHoldTime.addAndGet(holdTime);
+            maxHoldTime.accumulateAndGet(holdTime, Math::max);
+            maxHoldTimeSinceReport = Math.max(maxHoldTimeSinceReport, holdTime);
+            if (!deletedClients.isEmpty()) {
+                numberOfReapedClients.addAndGet(deletedClients.size());
+                log.debug("ClientListReaper hat Clients entfernt: " + deletedClients + ", Sperrdauer: "
+                        + holdTime / 1000 + " us");
+            }
+            report();
+        } catch (Exception e) {
+            // Der Reaper darf sich durch einen Fehler nicht beenden
+            log.error("Fehler bei der Garbage Collection der Clientliste: " + e);
+        }
+    }
+
+    /**
+     * Messwerte ausgeben, falls das Ausgabeintervall abgelaufen ist. Wird nur im Reaper-Thread aufgerufen.
+     */
+    private void report() {
+        long now = System.nanoTime();
+        if (reportInterval == 0 || now - lastReportTime < TimeUnit.MILLISECONDS.toNanos(reportInterval)) {
+            return;
+        }
+        log.info("ClientListReaper: " + this + ", max. Sperrdauer im letzten Intervall: "
+                + maxHoldTimeSinceReport / 1000 + " us");
+        maxHoldTimeSinceReport = 0;
+        lastReportTime = now;
+    }
+
+    public long getNumberOfRuns() {
+        return numberOfRuns.get();
+    }
+
+    public long getNumberOfReapedClients() {
+        return numberOfReapedClients.get();
+    }
+
+    /**
+     * @return Summe der Zeiten, in denen der Reaper die Clientliste gesperrt hat, in ns
+     */
+    public long getTotalHoldTime() {
+        return totalHoldTime.get();
+    }
+
+    /**
+     * @return Laengste Zeit, in der der Reaper die Clientliste gesperrt hat, in ns
+     */
+    public long getMaxHoldTime() {
+        return maxHoldTime.get();
+    }
+
+    @Override
+    public String toString() {
+        long runs = numberOfRuns.get();
+        return "Laeufe: " + runs + ", entfernte Clients: " + numberOfReapedClients.get()
+                + ", mittlere Sperrdauer: " + (runs == 0 ? 0 : totalHoldTime.get() / runs / 1000)
+                + " us, max. Sperrdauer: " + maxHoldTime.get() / 1000 + " us";
+    }
+}
@@ -0,0 +1,120 @@
+package edu.hm.dako.chatServer;
+
+import edu.hm.dako.common.ChatPDU;
+import edu.hm.dako.common.ExceptionHandler;
+import edu.hm.dako.connection.nio.NioConnection;
+import edu.hm.dako.connection.nio.NioConnectionHandler;
+import edu.hm.dako.connection.nio.NioServerSocket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Serializable;
+import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chat-Server-Implementierung auf Basis von Java NIO. Alle Verbindungen werden von einer kleinen, festen Anzahl
+ * von Event-Loops bedient, es gibt keinen Thread pro Client. Die Protokollverarbeitung entspricht der des
+ * Simple-Chat-Servers; sie laeuft auf dem Worker-Executor, damit die Event-Loops nur Ein- und Ausgabe erledigen.
+ */
+public class NioChatServerImpl extends AbstractChatServer implements NioConnectionHandler {
+
+    private static final Logger log = LogManager.getLogger(NioChatServerImpl.class);
+
+    // Socket fuer die Event-Loops, die alle Verbindungen bedienen
+    private final NioServerSocket socket;
+
+    // Executor fuer die Bearbeitung der empfangenen Nachrichten
+    private final ExecutorService executorService;
+
+    // Verbindung zum AuditLog-Server
+    private final AuditLogConnection auditLogConnection;
+
+    /**
+     * Konstruktor
+     * @param executorService Executor fuer die Bearbeitung der empfangenen Nachrichten
+     * @param socket NIO-Serversocket
+     * @param serverGuiInterface Referenz auf das Server-GUI-Interface
+     * @param auditLogConnection Referenz auf Auditlog-Server-Verbindung, null, falls nicht verbunden
+     */
+    public NioChatServerImpl(ExecutorService executorService, NioServerSocket socket,
+                             ChatServerGuiInterface serverGuiInterface, AuditLogConnection auditLogConnection) {
+        this.executorService = executorService;
+        this.socket = socket;
+        this.serverGuiInterface = serverGuiInterface;
+        counter = new SharedServerCounter();
+        counter.logoutCounter = new AtomicInteger(0);
+        counter.eventCounter = new AtomicInteger(0);
+        counter.confirmCounter = new AtomicInteger(0);
+        this.auditLogConnection = auditLogConnection;
+        log.debug("NioChatServerImpl konstruiert");
+    }
+
+    @Override
+    public void start() {
+        // Clientliste erzeugen
+        clients = SharedChatClientList.getInstance();
+        startClientListReaper();
+        socket.start(this);
+        System.out.println("NioChatServer wartet auf Verbindungsanfragen von Clients...");
+    }
+
+    @Override
+    public void connectionOpened(NioConnection connection) {
+        log.debug("Neue Verbindung von " + connection.getRemoteAddress());
+        connection.setAttachment(new NioChatWorkerImpl(connection, clients, counter, serverGuiInterface,
+                auditLogConnection, executorService));
+    }
+
+    @Override
+    public void messageReceived(NioConnection connection, Serializable message) {
+        // Nur einstellen, bearbeitet wird auf dem Worker-Executor
+        NioChatWorkerImpl worker = (NioChatWorkerImpl) connection.getAttachment();
+        worker.onMessage((ChatPDU) message);
+    }
+
+    @Override
+    public void connectionClosed(NioConnection connection) {
+        NioChatWorkerImpl worker = (NioChatWorkerImpl) connection.getAttachment();
+        if (worker != null) {
+            worker.onClose();
+        }
+    }
+
+    @Override
+    public void stop() throws Exception {
+
+        // Alle Verbindungen zu aktiven Clients abbauen
+        Vector<String> sendList = clients.getClientNameList();
+        for (String s : new Vector<>(sendList)) {
+            ClientListEntry client = clients.getClient(s);
+            try {
+                if (client != null) {
+                    client.getConnection().close();
+                    log.debug("Verbindung zu Client " + client.getUserName() + " geschlossen");
+                }
+            } catch (Exception e) {
+                log.debug("Fehler beim Schliessen der Verbindung zu Client " + s);
+                ExceptionHandler.logException(e);
+            }
+        }
+
+        // Loeschen der Userliste
+        stopClientListReaper();
+        clients.deleteAll();
+
+        // Serversocket und Event-Loops schliessen
+        socket.close();
+        log.debug("NIO-Serversocket geschlossen");
+        executorService.shutdown();
+
+        // Verbindung zu AuditLog-Server schliessen
+        if (auditLogConnection != null) {
+            auditLogConnection.close();
+            log.debug("AuditLogServer Connection closed");
+        }
+
+        System.out.println("NioChatServer beendet sich");
+    }
+}
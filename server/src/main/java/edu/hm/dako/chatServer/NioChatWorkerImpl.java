@@ -0,0 +1,149 @@
+package edu.hm.dako.chatServer;
+
+import edu.hm.dako.common.ChatPDU;
+import edu.hm.dako.common.ExceptionHandler;
+import edu.hm.dako.connection.nio.NioConnection;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Serverseitige Session mit einem Client fuer den NIO-basierten Server. Die Verarbeitung der Nachrichten entspricht
+ * der des {@link SimpleChatWorkerThreadImpl}, es wird aber kein eigener Thread je Client gestartet.
+ * <p>
+ * Die Event-Loop stellt die empfangenen Nachrichten nur in den Posteingang der Session ein und kehrt sofort zurueck.
+ * Bearbeitet werden sie auf dem Worker-Executor des Servers, damit ein Login oder Logout (z. B. das Warten auf die
+ * gemeinsame Sperre fuer die Userliste) nicht alle Verbindungen der Event-Loop aufhaelt. Je Session laeuft hoechstens
+ * eine Bearbeitung gleichzeitig, die Reihenfolge der Nachrichten bleibt also erhalten.
+ */
+public class NioChatWorkerImpl extends SimpleChatSession {
+
+    private static final Logger log = LogManager.getLogger(NioChatWorkerImpl.class);
+
+    // Executor, auf dem die Nachrichten bearbeitet werden
+    private final Executor workerExecutor;
+
+    // Posteingang: empfangene Nachrichten und Verbindungsabbau in Empfangsreihenfolge
+    private final ConcurrentLinkedQueue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+
+    // Kennzeichen, ob eine Bearbeitung eingeplant ist bzw. laeuft
+    private final AtomicBoolean processingScheduled = new AtomicBoolean(false);
+
+    /**
+     * Konstruktor
+     * @param con Verbindung zum Chat-Client
+     * @param clients Liste der angemeldeten Chat-Clients
+     * @param counter Referenz auf diverse Zaehler fuer Tests
+     * @param serverGuiInterface Referenz auf GUI des Chat-Servers
+     * @param auditLogConnection Verbindung zum AuditLog-Server, null, falls nicht verbunden
+     * @param workerExecutor Executor, auf dem die Nachrichten bearbeitet werden
+     */
+    public NioChatWorkerImpl(NioConnection con, SharedChatClientList clients, SharedServerCounter counter,
+                             ChatServerGuiInterface serverGuiInterface, AuditLogConnection auditLogConnection,
+                             Executor workerExecutor) {
+        super(con, clients, counter, serverGuiInterface, auditLogConnection);
+        this.workerExecutor = workerExecutor;
+    }
+
+    /**
+     * Eine Nachricht des Clients zur Bearbeitung einstellen. Wird im Thread der Event-Loop aufgerufen.
+     * @param receivedPdu Empfangene PDU
+     */
+    public void onMessage(ChatPDU receivedPdu) {
+        // Zeitmessung fuer Serverbearbeitungszeit beginnt mit dem Empfang
+        long receiveTime = System.nanoTime();
+        submit(() -> processReceivedMessage(receivedPdu, receiveTime));
+    }
+
+    /**
+     * Die Verbindung zum Client wurde abgebaut. Wird im Thread der Event-Loop aufgerufen, die Session wird nach den
+     * bereits eingestellten Nachrichten beendet.
+     */
+    public void onClose() {
+        submit(() -> {
+            finished = true;
+            closeConnection();
+        });
+    }
+
+    /**
+     * Aufgabe in den Posteingang einstellen und die Bearbeitung einplanen, falls nicht schon eine laeuft
+     * @param task Aufgabe
+     */
+    private void submit(Runnable task) {
+        mailbox.add(task);
+        if (processingScheduled.compareAndSet(false, true)) {
+            try {
+                workerExecutor.execute(this::processMailbox);
+            } catch (RejectedExecutionException e) {
+                // Server wird beendet
+                processingScheduled.set(false);
+                log.debug("Bearbeitung fuer " + userName + " konnte nicht eingeplant werden: " + e);
+            }
+        }
+    }
+
+    /**
+     * Posteingang abarbeiten. Laeuft je Session hoechstens einmal gleichzeitig.
+     */
+    private void processMailbox() {
+        while (true) {
+            Runnable task;
+            while ((task = mailbox.poll()) != null) {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    log.error("Exception waehrend der Nachrichtenverarbeitung");
+                    ExceptionHandler.logException(e);
+                }
+            }
+            processingScheduled.set(false);
+
+            // Zwischenzeitlich eingestellte Aufgaben noch mitnehmen
+            if (mailbox.isEmpty() || !processingScheduled.compareAndSet(false, true)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Eine Nachricht des Clients bearbeiten. Wird auf dem Worker-Executor aufgerufen.
+     * @param receivedPdu Empfangene PDU
+     * @param receiveTime Empfangszeitpunkt in der Event-Loop
+     */
+    private void processReceivedMessage(ChatPDU receivedPdu, long receiveTime) {
+        if (finished) {
+            return;
+        }
+        startTime = receiveTime;
+
+        // Der Name des Threads wird beim Login veraendert und muss danach wiederhergestellt werden
+        String threadName = Thread.currentThread().getName();
+        try {
+            processMessage(receivedPdu);
+        } finally {
+            Thread.currentThread().setName(threadName);
+        }
+
+        checkIfClientIsDeletable();
+        if (finished) {
+            log.debug("Session fuer " + userName + " wird beendet");
+            closeConnection();
+        }
+    }
+
+    /**
+     * NIO-Verbindungen senden ohne zu blockieren und puffern selbst in der Event-Loop. Die Sendewarteschlange wird
+     * daher direkt im einstellenden Thread abgearbeitet, ein zusaetzlicher Thread-Wechsel ist nicht noetig. Ist der
+     * Puffer der Verbindung voll, bleiben die Nachrichten in der Sendewarteschlange, bis die Verbindung wieder
+     * schreibbereit ist (siehe {@link NioConnection#isWritable()}).
+     */
+    @Override
+    protected Executor getOutboundWriter() {
+        return Runnable::run;
+    }
+}
@@ -0,0 +1,538 @@
+package edu.hm.dako.chatServer;
+
+import edu.hm.dako.common.ChatPDU;
+import edu.hm.dako.common.ThreadingFactory;
+import edu.hm.dako.common.ThreadingType;
+import edu.hm.dako.connection.EncodedMessage;
+import edu.hm.dako.connection.MessageSender;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Begrenzte Sendewarteschlange eines Clients. Worker-Threads stellen Nachrichten nur ein und muessen damit nicht auf
+ * das Senden an langsame Clients warten. Die Warteschlange wird von einem Writer abgearbeitet, der bei Bedarf auf
+ * einem gemeinsamen Thread-Pool eingeplant wird; je Warteschlange laeuft hoechstens ein Writer, die Reihenfolge der
+ * Nachrichten bleibt also erhalten.
+ * <p>
+ * Ist die Warteschlange voll, entscheidet die {@link OutboundQueuePolicy} ueber das weitere Vorgehen. Kapazitaet und
+ * Strategie koennen ueber die System-Properties {@value #CAPACITY_PROPERTY} und {@value #POLICY_PROPERTY} eingestellt
+ * werden. Wer beim Einstellen eine gemeinsame Sperre haelt, verwendet {@link #trySend(EncodedMessage)} bzw.
+ * {@link #trySend(ChatPDU)}; diese warten auch bei {@link OutboundQueuePolicy#BLOCK} nie.
+ * <p>
+ * Nimmt die Verbindung voruebergehend keine Daten mehr auf ({@link MessageSender#isWritable()}), haelt der Writer an;
+ * die Nachrichten bleiben in dieser Warteschlange und unterliegen damit weiter Kapazitaet und Strategie. Die
+ * Verbindung meldet, wenn sie wieder schreibbereit ist.
+ * <p>
+ * Mit {@link #sendFenced(ChatPDU)} kann eine PDU als Zaun eingestellt werden: Sie wird erst geschrieben, wenn alle
+ * vorher eingestellten Nachrichten geschrieben sind, blockiert den Aufrufer aber nie. Der Zaun ist die letzte
+ * Nachricht der Warteschlange; alles, was danach eingestellt wird, verwirft die Warteschlange selbst.
+ */
+public class OutboundQueue {
+
+    // System-Properties zur Konfiguration
+    public static final String CAPACITY_PROPERTY = "dako.outboundQueue.capacity";
+    public static final String POLICY_PROPERTY = "dako.outboundQueue.policy";
+
+    // Standardwerte; ohne Konfiguration geht kein Event verloren, DROP_OLDEST muss ausdruecklich gewaehlt werden
+    public static final int DEFAULT_CAPACITY = 4096;
+    public static final OutboundQueuePolicy DEFAULT_POLICY = OutboundQueuePolicy.BLOCK;
+
+    private static final Logger log = LogManager.getLogger(OutboundQueue.class);
+
+    // Gemeinsamer Pool fuer die Writer aller Warteschlangen
+    private static final AtomicInteger writerThreadCounter = new AtomicInteger();
+    private static final ExecutorService sharedWriter = createSharedWriter();
+
+    // Name des Clients (nur fuer Log-Ausgaben)
+    private final String userName;
+    private final MessageSender connection;
+    private final int capacity;
+    private final OutboundQueuePolicy policy;
+    private final Executor writer;
+
+    // Warteschlange, geschuetzt durch lock
+    private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+
+    // Kennzeichen, ob ein Writer eingeplant ist bzw. laeuft
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+
+    // Keine weiteren Nachrichten annehmen, Verbindung nach dem Leeren abbauen
+    private volatile boolean closing = false;
+    private final AtomicBoolean connectionClosed = new AtomicBoolean(false);
+
+    // Zaun eingestellt, keine weiteren Nachrichten annehmen (geschuetzt durch lock)
+    private boolean fenced = false;
+
+    // Erstes verworfenes Event bereits gemeldet (geschuetzt durch lock)
+    private boolean dropReported = false;
+
+    // Messwerte
+    private volatile int maxDepth = 0;
+    private final LongAdder numberOfWrittenMessages = new LongAdder();
+    private final LongAdder numberOfDroppedMessages = new LongAdder();
+    private final LongAdder numberOfMessagesAfterFence = new LongAdder();
+    private final LongAdder totalLatency = new LongAdder();
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    /**
+     * Konstruktor
+     * @param userName Name des Clients
+     * @param connection Verbindung zum Client
+     * @param capacity Maximale Anzahl an Nachrichten in der Warteschlange
+     * @param policy Verhalten bei voller Warteschlange
+     * @param writer Executor, auf dem der Writer eingeplant wird
+     */
+    public OutboundQueue(String userName, MessageSender connection, int capacity, OutboundQueuePolicy policy,
+                         Executor writer) {
+        this.userName = userName;
+        this.connection = connection;
+        this.capacity = Math.max(1, capacity);
+        this.policy = policy;
+        this.writer = writer;
+
+        // Wieder schreibbereite Verbindung wird in deren Thread gemeldet (bei NIO die Event-Loop), der Writer
+        // laeuft dann auf dem gemeinsamen Pool
+        connection.setWritabilityListener(() -> scheduleDrain(sharedWriter));
+    }
+
+    /**
+     * Pool fuer die Writer erzeugen. Im Modus mit virtuellen Threads (siehe {@link ThreadingFactory}) laeuft jeder
+     * Writer in einem eigenen virtuellen Thread.
+     * @return Pool fuer die Writer
+     */
+    private static ExecutorService createSharedWriter() {
+        if (ThreadingFactory.getConfiguredThreadingType(ThreadingType.PlatformThreads)
+                == ThreadingType.VirtualThreads) {
+            return ThreadingFactory.newThreadPerTaskExecutor(ThreadingType.VirtualThreads, "OutboundWriter-");
+        }
+        return Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "OutboundWriter-" + writerThreadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return Gemeinsamer Thread-Pool fuer Writer
+     */
+    public static Executor getSharedWriter() {
+        return sharedWriter;
+    }
+
+    /**
+     * @return Konfigurierte Kapazitaet einer Warteschlange
+     */
+    public static int getConfiguredCapacity() {
+        return Integer.getInteger(CAPACITY_PROPERTY, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @return Konfiguriertes Verhalten bei voller Warteschlange
+     */
+    public static OutboundQueuePolicy getConfiguredPolicy() {
+        String value = System.getProperty(POLICY_PROPERTY);
+        if (value == null || value.isBlank()) {
+            return DEFAULT_POLICY;
+        }
+        try {
+            return OutboundQueuePolicy.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.error("Unbekannte Strategie fuer Sendewarteschlangen " + value + ", verwende " + DEFAULT_POLICY);
+            return DEFAULT_POLICY;
+        }
+    }
+
+    /**
+     * Eine PDU zum Senden einstellen
+     * @param pdu Zu sendende PDU
+     * @return true, wenn die PDU eingestellt wurde
+     */
+    public boolean send(ChatPDU pdu) {
+        return offer(pdu, true);
+    }
+
+    /**
+     * Eine PDU zum Senden einstellen, ohne zu warten. Ist die Warteschlange bei der Strategie
+     * {@link OutboundQueuePolicy#BLOCK} voll, wird die Verbindung wie bei {@link OutboundQueuePolicy#DISCONNECT}
+     * abgebaut.
+     * @param pdu Zu sendende PDU
+     * @return true, wenn die PDU eingestellt wurde
+     */
+    public boolean trySend(ChatPDU pdu) {
+        return offer(pdu, false);
+    }
+
+    /**
+     * Eine PDU als Zaun hinter allen bereits eingestellten Nachrichten einstellen. Die PDU wird erst geschrieben,
+     * wenn alle vorher eingestellten Nachrichten geschrieben sind. Sie unterliegt weder der Kapazitaetsgrenze noch der
+     * Strategie, der Aufrufer wird also auch bei voller Warteschlange nicht blockiert.
+     * <p>
+     * Danach nimmt die Warteschlange keine Nachrichten mehr an. Die Pruefung erfolgt unter derselben Sperre wie das
+     * Einstellen, ein Event kann also nicht mehr hinter den Zaun geraten, auch wenn der Absender den Zustand des
+     * Empfaengers vorher anders gelesen hat.
+     * @param pdu Zu sendende PDU, z. B. eine Logout-Response
+     * @return true, wenn die PDU eingestellt wurde
+     */
+    public boolean sendFenced(ChatPDU pdu) {
+        lock.lock();
+        try {
+            if (closing || fenced) {
+                rejectAfterFence();
+                return false;
+            }
+            fenced = true;
+            // Wartende Sender wecken, sie verwerfen ihre Nachricht
+            notFull.signalAll();
+            queue.add(new Entry(pdu, System.nanoTime()));
+            if (queue.size() > maxDepth) {
+                maxDepth = queue.size();
+            }
+        } finally {
+            lock.unlock();
+        }
+        scheduleDrain(writer);
+        return true;
+    }
+
+    /**
+     * Eine einmal kodierte, an mehrere Clients verteilte Nachricht zum Senden einstellen
+     * @param message Zu sendende Nachricht
+     * @return true, wenn die Nachricht eingestellt wurde
+     */
+    public boolean send(EncodedMessage message) {
+        return offer(message, true);
+    }
+
+    /**
+     * Eine einmal kodierte, an mehrere Clients verteilte Nachricht zum Senden einstellen, ohne zu warten
+     * (siehe {@link #trySend(ChatPDU)})
+     * @param message Zu sendende Nachricht
+     * @return true, wenn die Nachricht eingestellt wurde
+     */
+    public boolean trySend(EncodedMessage message) {
+        return offer(message, false);
+    }
+
+    /**
+     * Nachricht einstellen und gegebenenfalls einen Writer einplanen
+     * @param message ChatPDU oder EncodedMessage
+     * @param mayBlock false: bei voller Warteschlange nie warten, sondern die Verbindung abbauen
+     * @return true, wenn die Nachricht eingestellt wurde
+     */
+    private boolean offer(Object message, boolean mayBlock) {
+        boolean disconnect = false;
+        boolean accepted = false;
+        lock.lock();
+        try {
+            while (!closing && !fenced && queue.size() >= capacity) {
+                if (policy == OutboundQueuePolicy.BLOCK && mayBlock) {
+                    try {
+                        notFull.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        numberOfDroppedMessages.increment();
+                        return false;
+                    }
+                } else if (policy == OutboundQueuePolicy.DROP_OLDEST) {
+                    if (!dropOldestEvent()) {
+                        if (message instanceof EncodedMessage) {
+                            numberOfDroppedMessages.increment();
+                            return false;
+                        }
+                        // Antworten auf eigene Requests werden nie verworfen, sonst wartet der Client endlos
+                        break;
+                    }
+                } else {
+                    // DISCONNECT oder BLOCK ohne Warten
+                    disconnect = true;
+                    break;
+                }
+            }
+            if (fenced) {
+                rejectAfterFence();
+            } else if (closing || disconnect) {
+                numberOfDroppedMessages.increment();
+            } else {
+                queue.add(new Entry(message, System.nanoTime()));
+                if (queue.size() > maxDepth) {
+                    maxDepth = queue.size();
+                }
+                accepted = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (disconnect) {
+            log.error("Sendewarteschlange von " + userName + " voll (" + capacity
+                    + " Nachrichten), Verbindung zum langsamen Client wird abgebaut");
+            abort();
+            return false;
+        }
+        if (!accepted) {
+            return false;
+        }
+        scheduleDrain(writer);
+        return true;
+    }
+
+    /**
+     * Nachricht nach dem Zaun verwerfen und zaehlen. Muss unter lock aufgerufen werden.
+     */
+    private void rejectAfterFence() {
+        numberOfDroppedMessages.increment();
+        numberOfMessagesAfterFence.increment();
+    }
+
+    /**
+     * Aelteste verteilte Nachricht (Event) aus der Warteschlange entfernen. Muss unter lock aufgerufen werden.
+     * @return true, wenn ein Event verworfen wurde
+     */
+    private boolean dropOldestEvent() {
+        Iterator<Entry> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().message instanceof EncodedMessage) {
+                iterator.remove();
+                numberOfDroppedMessages.increment();
+                if (!dropReported) {
+                    dropReported = true;
+                    log.error("Sendewarteschlange von " + userName + " voll (" + capacity
+                            + " Nachrichten), aelteste Events werden verworfen");
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writer einplanen, falls nicht schon einer laeuft
+     * @param executor Executor, auf dem der Writer laufen soll
+     */
+    private void scheduleDrain(Executor executor) {
+        if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                drainScheduled.set(false);
+                log.error("Writer fuer " + userName + " konnte nicht eingeplant werden: " + e);
+            }
+        }
+    }
+
+    /**
+     * Warteschlange leeren, solange die Verbindung Daten aufnimmt. Laeuft je Warteschlange hoechstens einmal
+     * gleichzeitig.
+     */
+    private void drain() {
+        while (true) {
+            Entry entry;
+            while (connection.isWritable() && (entry = poll()) != null) {
+                write(entry);
+            }
+            drainScheduled.set(false);
+
+            // Zwischenzeitlich eingestellte Nachrichten noch mitnehmen. Ist die Verbindung voll, plant sie den
+            // Writer wieder ein; wurde sie inzwischen wieder schreibbereit, ging diese Meldung eventuell verloren
+            // und wird hier nachgeholt.
+            if (getDepth() == 0 || !connection.isWritable() || !drainScheduled.compareAndSet(false, true)) {
+                break;
+            }
+        }
+        if (closing && getDepth() == 0 && drainScheduled.compareAndSet(false, true)) {
+            closeConnection();
+            drainScheduled.set(false);
+        }
+    }
+
+    /**
+     * Naechste Nachricht entnehmen und wartende Sender benachrichtigen
+     * @return Naechste Nachricht oder null
+     */
+    private Entry poll() {
+        lock.lock();
+        try {
+            Entry entry = queue.poll();
+            if (entry != null) {
+                notFull.signal();
+            }
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Eine Nachricht ueber die Verbindung senden und die Latenz erfassen
+     * @param entry Eintrag der Warteschlange
+     */
+    private void write(Entry entry) {
+        try {
+            if (entry.message instanceof EncodedMessage encodedMessage) {
+                connection.send(encodedMessage);
+            } else {
+                connection.send((ChatPDU) entry.message);
+            }
+            long latency = System.nanoTime() - entry.enqueueTime;
+            numberOfWrittenMessages.increment();
+            totalLatency.add(latency);
+            maxLatency.accumulateAndGet(latency, Math::max);
+        } catch (Exception e) {
+            // Verbindung ist nicht mehr nutzbar, restliche Nachrichten verwerfen
+            log.debug("Senden an " + userName + " nicht moeglich, Sendewarteschlange wird verworfen: " + e);
+            numberOfDroppedMessages.increment();
+            discard();
+        }
+    }
+
+    /**
+     * Keine weiteren Nachrichten annehmen und alle wartenden verwerfen
+     */
+    private void discard() {
+        lock.lock();
+        try {
+            closing = true;
+            numberOfDroppedMessages.add(queue.size());
+            queue.clear();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Verbindung sofort abbauen, eingestellte Nachrichten werden verworfen
+     */
+    public void abort() {
+        discard();
+        closeConnection();
+    }
+
+    /**
+     * Keine weiteren Nachrichten annehmen. Die Verbindung wird abgebaut, sobald alle bereits eingestellten
+     * Nachrichten gesendet wurden.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closing = true;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        // Der Writer baut die Verbindung ab, sobald die Warteschlange leer ist
+        scheduleDrain(writer);
+    }
+
+    /**
+     * Verbindung genau einmal schliessen
+     */
+    private void closeConnection() {
+        if (connectionClosed.compareAndSet(false, true)) {
+            log.debug("Sendewarteschlange von " + userName + " geschlossen: " + this);
+            try {
+                connection.close();
+            } catch (Exception e) {
+                log.debug("Exception bei close");
+            }
+        }
+    }
+
+    /**
+     * @return Aktuelle Anzahl an Nachrichten in der Warteschlange
+     */
+    public int getDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Maximale Anzahl an Nachrichten, die gleichzeitig in der Warteschlange waren
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public OutboundQueuePolicy getPolicy() {
+        return policy;
+    }
+
+    public long getNumberOfWrittenMessages() {
+        return numberOfWrittenMessages.sum();
+    }
+
+    public long getNumberOfDroppedMessages() {
+        return numberOfDroppedMessages.sum();
+    }
+
+    /**
+     * @return Anzahl der Nachrichten, die nach dem Zaun eingestellt werden sollten und verworfen wurden
+     * (in {@link #getNumberOfDroppedMessages()} enthalten)
+     */
+    public long getNumberOfMessagesAfterFence() {
+        return numberOfMessagesAfterFence.sum();
+    }
+
+    /**
+     * @return Mittlere Zeit zwischen Einstellen und Senden einer Nachricht in Nanosekunden
+     */
+    public long getAverageLatency() {
+        long written = numberOfWrittenMessages.sum();
+        return written == 0 ? 0 : totalLatency.sum() / written;
+    }
+
+    /**
+     * @return Maximale Zeit zwischen Einstellen und Senden einer Nachricht in Nanosekunden
+     */
+    public long getMaxLatency() {
+        return maxLatency.get();
+    }
+
+    public boolean isClosing() {
+        return closing;
+    }
+
+    @Override
+    public String toString() {
+        return "Tiefe: " + getDepth() + ", max. Tiefe: " + maxDepth + ", gesendet: " + getNumberOfWrittenMessages()
+                + ", verworfen: " + getNumberOfDroppedMessages() + " (davon nach Zaun: "
+                + getNumberOfMessagesAfterFence() + "), mittlere Latenz: "
+                + getAverageLatency() / 1000 + " us, max. Latenz: " + getMaxLatency() / 1000 + " us";
+    }
+
+    /**
+     * Eintrag der Warteschlange mit Einstellzeitpunkt
+     */
+    private static final class Entry {
+        private final Object message;
+        private final long enqueueTime;
+
+        Entry(Object message, long enqueueTime) {
+            this.message = message;
+            this.enqueueTime = enqueueTime;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package edu.hm.dako.chatServer;
+
+/**
+ * Verhalten einer {@link OutboundQueue}, wenn die Sendewarteschlange eines Clients voll ist
+ */
+public enum OutboundQueuePolicy {
+    // Sender wartet, bis wieder Platz in der Warteschlange ist
+    BLOCK,
+    // Aeltestes Event in der Warteschlange wird verworfen, Responses werden immer gesendet
+    DROP_OLDEST,
+    // Verbindung zum langsamen Client wird abgebaut
+    DISCONNECT,
+}
@@ -2,14 +2,21 @@ package edu.hm.dako.chatServer;
 
 import edu.hm.dako.common.AuditLogImplementationType;
 import edu.hm.dako.common.ChatServerImplementationType;
+import edu.hm.dako.common.PduCodecFactory;
+import edu.hm.dako.common.PduCodecType;
+import edu.hm.dako.common.ThreadingFactory;
+import edu.hm.dako.common.ThreadingType;
 import edu.hm.dako.connection.LoggingConnectionDecorator;
 import edu.hm.dako.connection.Connection;
 import edu.hm.dako.connection.ServerSocketInterface;
+import edu.hm.dako.connection.nio.NioServerSocket;
 import edu.hm.dako.connection.tcp.TcpServerSocket;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Uebernimmt die Konfiguration und Erzeugung bestimmter Server-Typen.
@@ -17,6 +24,9 @@ import java.util.concurrent.Executors;
  */
 public final class ServerFactory {
     private static final Logger log = LogManager.getLogger(ServerFactory.class);
+
+    // Anzahl der Threads fuer die Bearbeitung der Nachrichten im NIO-Server
+    public static final String NIO_WORKER_THREADS_PROPERTY = "dako.nio.workerThreads";
     protected static Connection connection;
     protected static AuditLogConnection auditLogConnection = null;
 
@@ -48,17 +58,26 @@ public final class ServerFactory {
 
                 try {
                     TcpServerSocket tcpServerSocket = new TcpServerSocket(serverPort, sendBufferSize,
-                            receiveBufferSize);
-                    return new SimpleChatServerImpl(Executors.newCachedThreadPool(),
+                            receiveBufferSize, PduCodecFactory.getConfiguredCodec(PduCodecType.BinaryCodec));
+                    return new SimpleChatServerImpl(createWorkerExecutor(),
                             getDecoratedServerSocket(tcpServerSocket), serverGuiInterface);
                 } catch (Exception e) {
                     throw new Exception(e);
                 }
 
+            case TCPNioImplementation:
+
+                try {
+                    return new NioChatServerImpl(createNioWorkerExecutor(), createNioServerSocket(serverPort,
+                            sendBufferSize, receiveBufferSize), serverGuiInterface, null);
+                } catch (Exception e) {
+                    throw new Exception(e);
+                }
+
                 // Weitere Implementierungstypen derzeit nicht implementiert
 
             default:
-                System.out.println("Dezeit nur TCPSimpleImplementation implementiert!");
+                System.out.println("Dezeit nur TCPSimpleImplementation und TCPNioImplementation implementiert!");
                 throw new RuntimeException("Unknown type: " + implType);
         }
     }
@@ -118,21 +137,73 @@ public final class ServerFactory {
 
                 try {
                     TcpServerSocket tcpServerSocket = new TcpServerSocket(serverPort, sendBufferSize,
-                            receiveBufferSize);
-                    return new SimpleChatServerImpl(Executors.newCachedThreadPool(),
+                            receiveBufferSize, PduCodecFactory.getConfiguredCodec(PduCodecType.BinaryCodec));
+                    return new SimpleChatServerImpl(createWorkerExecutor(),
                             getDecoratedServerSocket(tcpServerSocket), serverGuiInterface, auditLogConnection);
                 } catch (Exception e) {
                     throw new Exception(e);
                 }
 
+            case TCPNioImplementation:
+
+                try {
+                    return new NioChatServerImpl(createNioWorkerExecutor(), createNioServerSocket(serverPort,
+                            sendBufferSize, receiveBufferSize), serverGuiInterface, auditLogConnection);
+                } catch (Exception e) {
+                    throw new Exception(e);
+                }
+
                 // Weitere Implementierungstypen derzeit nicht implementiert
 
             default:
-                System.out.println("Dezeit nur TCPSimpleImplementation implementiert!");
+                System.out.println("Dezeit nur TCPSimpleImplementation und TCPNioImplementation implementiert!");
                 throw new RuntimeException("Unknown type: " + implType);
         }
     }
 
+    /**
+     * Erzeugt das Serversocket fuer die NIO-Implementierung. Ohne Konfiguration wird der Binaer-Codec verwendet.
+     * @param serverPort Listenport
+     * @param sendBufferSize Groesse des Sendepuffers in Byte
+     * @param receiveBufferSize Groesse des Empfangspuffers in Byte
+     * @return NIO-Serversocket
+     * @throws Exception Fehler beim Erzeugen des Sockets
+     */
+    private static NioServerSocket createNioServerSocket(int serverPort, int sendBufferSize,
+                                                         int receiveBufferSize) throws Exception {
+        return new NioServerSocket(serverPort, sendBufferSize, receiveBufferSize,
+                NioServerSocket.DEFAULT_NUMBER_OF_EVENT_LOOPS,
+                PduCodecFactory.getConfiguredCodec(PduCodecType.BinaryCodec));
+    }
+
+    /**
+     * Erzeugt den Executor fuer die Worker-Threads des Simple-Chat-Servers, ein Thread je Session. Ohne Konfiguration
+     * werden Plattform-Threads verwendet, mit {@code -Ddako.threading=VirtualThreads} laeuft jede Session in einem
+     * virtuellen Thread.
+     * @return Executor fuer die Worker-Threads
+     */
+    private static ExecutorService createWorkerExecutor() {
+        ThreadingType threadingType = ThreadingFactory.getConfiguredThreadingType(ThreadingType.PlatformThreads);
+        System.out.println("Worker-Threads: " + threadingType);
+        return ThreadingFactory.newThreadPerTaskExecutor(threadingType, "ChatWorker-");
+    }
+
+    /**
+     * Erzeugt den Executor fuer die Bearbeitung der Nachrichten im NIO-Server: ein fester Pool mit einem Thread je
+     * Prozessor, die Anzahl kann mit {@value #NIO_WORKER_THREADS_PROPERTY} festgelegt werden. Anders als beim
+     * Simple-Chat-Server waechst die Anzahl der Threads nicht mit der Anzahl der Sessions; blockiert die Bearbeitung,
+     * warten die Nachrichten in den Posteingaengen der Sessions.
+     * @return Executor fuer die Bearbeitung der Nachrichten
+     */
+    private static ExecutorService createNioWorkerExecutor() {
+        int threads = Math.max(1, Integer.getInteger(NIO_WORKER_THREADS_PROPERTY,
+                Runtime.getRuntime().availableProcessors()));
+        System.out.println("NIO-Worker-Threads: " + threads);
+        AtomicInteger threadNumber = new AtomicInteger(0);
+        return Executors.newFixedThreadPool(threads,
+                runnable -> new Thread(runnable, "NioWorker-" + threadNumber.incrementAndGet()));
+    }
+
     /**
      * Dekoratiert ServerSocket mit Logging-Funktionalitaet
      * @param serverSocket Serverseitiger Kommunikationsendpunkt fuer den LISTEN Port)
@@ -4,71 +4,183 @@ import edu.hm.dako.common.ClientConversationStatus;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Vector;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Liste aller angemeldeten Clients. Diese Liste wird im Server als Singleton verwaltet (darf nur einmal erzeugt
  * werden). Alle Worker-Threads im Server nutzen diese Liste.
  * <p>
- * Die Liste wird als HashMap organisiert. Als Schluessel wird der Username von Clients verwendet.
+ * Die Liste wird als ConcurrentHashMap organisiert. Als Schluessel wird der Username von Clients verwendet.
  * <p>
- * Genereller Hinweis: Zur Umgehung von ConcurrentModificationExceptions wird bei der Iteration durch Listen generell
- * eine Kopie der Liste angelegt.
+ * Die Liste kommt ohne globale Sperre aus: Lesende Zugriffe und Zaehler arbeiten direkt auf der Map bzw. auf den
+ * (selbst thread-sicheren) {@link ClientListEntry}-Objekten. Fuer das Verteilen von Events wird bei jeder Aenderung
+ * der Mitgliedschaft (Anlegen, Loeschen) eine Momentaufnahme aller Eintraege als Array erzeugt (Copy-on-Write), die
+ * ohne Kopie und ohne Sperre durchlaufen werden kann. Nur Aenderungen der Mitgliedschaft werden untereinander
+ * serialisiert; sie sind im Vergleich zu den Lesezugriffen selten.
+ * <p>
+ * Neben den Wartelisten wird ein Rueckwaertsindex gefuehrt, der fuer jeden Client zaehlt, in wie vielen Wartelisten
+ * er gerade steht. Die Pruefung, ob ein Client noch in einer Warteliste steht, erfordert damit kein Durchsuchen
+ * aller Wartelisten mehr. Wartelisten duerfen deshalb nur noch ueber die Methoden dieser Liste veraendert werden.
+ * <p>
+ * Die fruehere, vollstaendig synchronisierte Variante steht als {@link SynchronizedChatClientList} fuer
+ * Vergleichsmessungen zur Verfuegung.
  * @author Peter Mandl
  */
-public class SharedChatClientList {
+public class SharedChatClientList implements ChatClientList {
 
     private static final Logger log = LogManager.getLogger(SharedChatClientList.class);
+
     // Liste aller eingeloggten Clients
-    private static ConcurrentHashMap<String, ClientListEntry> clients;
+    private final ConcurrentHashMap<String, ClientListEntry> clients = new ConcurrentHashMap<>();
+
+    // Momentaufnahme aller Eintraege, wird bei jeder Aenderung der Mitgliedschaft neu erzeugt
+    private volatile ClientListEntry[] snapshot = new ClientListEntry[0];
+
+    // Serialisiert nur Aenderungen der Mitgliedschaft und den Aufbau der Momentaufnahme
+    private final Object membershipLock = new Object();
 
-    private static SharedChatClientList instance;
+    // Rueckwaertsindex: Anzahl der Wartelisten, in denen ein Client eingetragen ist. Clients ohne Eintrag
+    // in einer Warteliste sind nicht enthalten.
+    private final ConcurrentHashMap<String, Integer> waitListReferences = new ConcurrentHashMap<>();
 
-    private SharedChatClientList() {
+    // Dauer des letzten Laufs der Garbage Collection in ns
+    private volatile long lastGcHoldTime = 0;
+
+    // Version der Mitgliedschaft fuer Login- und Logout-Events
+    private final AtomicLong membershipVersion = new AtomicLong();
+
+    SharedChatClientList() {
+    }
+
+    /**
+     * Erzeugen der Instanz erst beim ersten Zugriff, thread-sicher ueber die Klasseninitialisierung
+     */
+    private static final class InstanceHolder {
+        private static final SharedChatClientList instance = new SharedChatClientList();
     }
 
     /**
      * Thread-sicheres Erzeugen einer Instanz der Liste
      * @return Referenz auf die erzeugte Liste
      */
-    public static synchronized SharedChatClientList getInstance() {
-        if (SharedChatClientList.instance == null) {
-            SharedChatClientList.instance = new SharedChatClientList();
-            // Clientliste nur einmal erzeugen
-            clients = new ConcurrentHashMap<>();
+    public static SharedChatClientList getInstance() {
+        return InstanceHolder.instance;
+    }
+
+    /**
+     * Momentaufnahme nach einer Aenderung der Mitgliedschaft neu aufbauen. Muss unter membershipLock aufgerufen
+     * werden.
+     */
+    private void rebuildSnapshot() {
+        snapshot = clients.values().toArray(new ClientListEntry[0]);
+    }
+
+    /**
+     * Eintrag entfernen, sofern er noch der erwartete ist
+     * @param userName Name des Clients
+     * @param client Erwarteter Eintrag
+     * @return true, wenn der Eintrag entfernt wurde
+     */
+    private boolean removeEntry(String userName, ClientListEntry client) {
+        synchronized (membershipLock) {
+            if (clients.remove(userName, client)) {
+                rebuildSnapshot();
+                return true;
+            }
+            return false;
         }
-        return SharedChatClientList.instance;
     }
 
     /**
-     * Loeschen der gesamten Liste
+     * Eintrag in die Warteliste eines Clients aufnehmen und den Rueckwaertsindex anpassen. Beides erfolgt atomar
+     * bezogen auf den eingetragenen Client.
+     * @param owner Client, dem die Warteliste gehoert
+     * @param entryName Name des Clients, der in die Warteliste aufgenommen wird
      */
-    public void deleteAll() {
+    private void addWaitListEntry(ClientListEntry owner, String entryName) {
+        waitListReferences.compute(entryName, (name, count) -> {
+            owner.addWaitListEntry(name);
+            return (count == null) ? 1 : count + 1;
+        });
+    }
 
-        clients.clear();
+    /**
+     * Eintrag aus der Warteliste eines Clients entfernen und den Rueckwaertsindex anpassen. Beides erfolgt atomar
+     * bezogen auf den entfernten Client.
+     * @param owner Client, dem die Warteliste gehoert
+     * @param entryName Name des Clients, der aus der Warteliste entfernt wird
+     * @return true, wenn der Eintrag in der Warteliste vorhanden war
+     */
+    private boolean removeWaitListEntry(ClientListEntry owner, String entryName) {
+        boolean[] removed = new boolean[1];
+        waitListReferences.computeIfPresent(entryName, (name, count) -> {
+            if (!owner.removeWaitListEntry(name)) {
+                return count;
+            }
+            removed[0] = true;
+            return (count > 1) ? count - 1 : null;
+        });
+        return removed[0];
     }
 
     /**
-     * Status eines Clients veraendern
-     * @param userName  Name des Users (Clients)
-     * @param newStatus Neuer Status
+     * Alle Eintraege aus der Warteliste eines Clients entfernen
+     * @param owner Client, dem die Warteliste gehoert
      */
-    public synchronized void changeClientStatus(String userName, ClientConversationStatus newStatus) {
+    private void releaseWaitList(ClientListEntry owner) {
+        for (Object entryName : owner.getWaitList().toArray()) {
+            removeWaitListEntry(owner, (String) entryName);
+        }
+    }
 
-        ClientListEntry client = clients.get(userName);
-        client.setStatus(newStatus);
-        clients.replace(userName, client);
-        log.debug("User " + userName + " nun in Status: " + newStatus);
+    /**
+     * Bereits vorhandene Eintraege in der Warteliste eines neu aufgenommenen Clients im Rueckwaertsindex erfassen
+     * @param owner Neu aufgenommener Client
+     */
+    private void registerWaitList(ClientListEntry owner) {
+        for (Object entryName : owner.getWaitList().toArray()) {
+            waitListReferences.merge((String) entryName, 1, Integer::sum);
+        }
     }
 
     /**
-     * Lesen des Conversation-Status fuer einen Client
-     * @param userName Name des Users (Clients)
-     * @return Conversation-Status des Clients
+     * Prueft ueber den Rueckwaertsindex, ob ein Client in mindestens einer Warteliste steht
+     * @param userName Name des Clients
+     * @return Anzahl der Wartelisten, in denen der Client eingetragen ist
      */
-    public synchronized ClientConversationStatus getClientStatus(String userName) {
+    private int getWaitListReferences(String userName) {
+        Integer count = waitListReferences.get(userName);
+        return (count == null) ? 0 : count;
+    }
+
+    @Override
+    public void deleteAll() {
+        synchronized (membershipLock) {
+            clients.clear();
+            waitListReferences.clear();
+            rebuildSnapshot();
+        }
+    }
+
+    @Override
+    public void changeClientStatus(String userName, ClientConversationStatus newStatus) {
+
+        ClientListEntry client = clients.get(userName);
+        if (client != null) {
+            client.setStatus(newStatus);
+            log.debug("User " + userName + " nun in Status: " + newStatus);
+        } else {
+            log.debug("Status fuer " + userName + " nicht aenderbar, User nicht in Clientliste");
+        }
+    }
+
+    @Override
+    public ClientConversationStatus getClientStatus(String userName) {
 
         ClientListEntry client = clients.get(userName);
         if (client != null) {
@@ -78,49 +190,45 @@ public class SharedChatClientList {
         }
     }
 
-    /**
-     * Client auslesen
-     * @param userName Name des Clients
-     * @return Referenz auf den gesuchten Client
-     */
-    public synchronized ClientListEntry getClient(String userName) {
+    @Override
+    public ClientListEntry getClient(String userName) {
 
         return clients.get(userName);
     }
 
-    /**
-     * Stellt eine Liste aller Namen der eingetragenen Clients bereit
-     * @return Vektor mit allen Namen der eingetragenen Clients
-     */
-    public synchronized Vector<String> getClientNameList() {
+    @Override
+    public Vector<String> getClientNameList() {
 
-        return new Vector<>(new HashSet<>(clients.keySet()));
+        ClientListEntry[] entries = snapshot;
+        Vector<String> clientNameList = new Vector<>(entries.length);
+        for (ClientListEntry client : entries) {
+            clientNameList.add(client.getUserName());
+        }
+        return clientNameList;
     }
 
-    /**
-     * Stellt eine Liste aller Namen der eingetragenen Clients bereit, die im Zustand REGISTERING oder REGISTERED sind
-     * @return Vektor mit allen Namen der eingetragenen Clients, die registriert sind oder die sich gerade registrieren
-     */
-    public synchronized Vector<String> getRegisteredClientNameList() {
+    @Override
+    public List<ClientListEntry> getClientEntries() {
 
-        Vector<String> clientNameList = new Vector<>();
-        for (String s : new HashSet<>(clients.keySet())) {
+        return Collections.unmodifiableList(Arrays.asList(snapshot));
+    }
 
-            if ((getClientStatus(s) == ClientConversationStatus.REGISTERING)
-                    || (getClientStatus(s) == ClientConversationStatus.REGISTERED)) {
+    @Override
+    public Vector<String> getRegisteredClientNameList() {
 
-                clientNameList.add(s);
+        Vector<String> clientNameList = new Vector<>();
+        for (ClientListEntry client : snapshot) {
+            ClientConversationStatus status = client.getStatus();
+            if ((status == ClientConversationStatus.REGISTERING)
+                    || (status == ClientConversationStatus.REGISTERED)) {
+                clientNameList.add(client.getUserName());
             }
         }
         return clientNameList;
     }
 
-    /**
-     * Prueft, ob ein Client in der Userliste ist
-     * @param userName - Name des Clients
-     * @return true = Client existiert, false = Client existiert nicht
-     */
-    public synchronized boolean existsClient(String userName) {
+    @Override
+    public boolean existsClient(String userName) {
 
         if (userName != null) {
             if (!clients.containsKey(userName)) {
@@ -134,183 +242,162 @@ public class SharedChatClientList {
         }
     }
 
-    /**
-     * Legt einen neuen Client an
-     * @param userName - Name des neuen Clients
-     * @param client   - Client-Daten
-     */
-    public synchronized void createClient(String userName, ClientListEntry client) {
+    @Override
+    public void createClient(String userName, ClientListEntry client) {
 
-        clients.put(userName, client);
+        synchronized (membershipLock) {
+            ClientListEntry previous = clients.put(userName, client);
+            if (previous != client) {
+                if (previous != null) {
+                    releaseWaitList(previous);
+                }
+                registerWaitList(client);
+            }
+            rebuildSnapshot();
+        }
     }
 
-    /**
-     * Aktualisierung eines vorhandenen Clients
-     * @param userName Name des Clients
-     * @param client Client-Daten
-     */
-    public synchronized void updateClient(String userName, ClientListEntry client) {
+    @Override
+    public void updateClient(String userName, ClientListEntry client) {
 
-        ClientListEntry existingClient = clients.get(userName);
-
-        if (existingClient != null) {
-            clients.put(userName, client);
-        } else {
-            log.debug("User nicht in Clientliste: " + userName);
+        synchronized (membershipLock) {
+            ClientListEntry previous = clients.replace(userName, client);
+            if (previous != null) {
+                if (previous != client) {
+                    releaseWaitList(previous);
+                    registerWaitList(client);
+                }
+                rebuildSnapshot();
+            } else {
+                log.debug("User nicht in Clientliste: " + userName);
+            }
         }
     }
 
-    /**
-     * Prueft, ob ein Client in keiner Warteliste mehr ist und daher geloescht werden kann
-     * @param userName Name des Clients
-     * @return true Loeschen moeglich, sonst false
-     */
-    public synchronized boolean deletable(String userName) {
-
-        for (String s : new Vector<>(clients.keySet())) {
-            ClientListEntry client = clients.get(s);
-            if (client.getWaitList().contains(userName)) {
-                // Client noch in einer Warteliste
-                log.debug("Loeschen nicht moeglich, da Client " + userName
-                        + " noch in der Warteliste von " + client.getUserName() + " ist");
-                return false;
-            }
+    @Override
+    public boolean deletable(String userName) {
+
+        int references = getWaitListReferences(userName);
+        if (references > 0) {
+            // Client noch in einer Warteliste
+            log.debug("Loeschen nicht moeglich, da Client " + userName
+                    + " noch in " + references + " Warteliste(n) ist");
+            return false;
         }
         return true;
     }
 
-    /**
-     * Loescht einen Client zwangsweise inkl. aller Einträge in Wartelisten
-     * @param userName Name des Clients
-     */
-    public synchronized void deleteClientWithoutCondition(String userName) {
+    @Override
+    public void deleteClientWithoutCondition(String userName) {
 
         log.debug("Client  " + userName + " zwangsweise aus allen Listen entfernen");
-        for (String s : new HashSet<>(clients.keySet())) {
-            ClientListEntry client = clients.get(s);
-            if (client.getWaitList().contains(userName)) {
-                log.error("Client " + userName
-                        + " wird aus der Clientliste entfernt, obwohl er noch in der Warteliste von Client "
-                        + client.getUserName() + " ist!");
-                client.getWaitList().remove(userName);
+
+        // Wartelisten nur durchsuchen, wenn der Client laut Rueckwaertsindex ueberhaupt noch eingetragen ist
+        if (getWaitListReferences(userName) > 0) {
+            for (ClientListEntry client : snapshot) {
+                while (removeWaitListEntry(client, userName)) {
+                    log.error("Client " + userName
+                            + " wird aus der Clientliste entfernt, obwohl er noch in der Warteliste von Client "
+                            + client.getUserName() + " ist!");
+                }
             }
         }
 
         // Client kann nun entfernt werden
-        clients.remove(userName);
+        synchronized (membershipLock) {
+            ClientListEntry removed = clients.remove(userName);
+            if (removed != null) {
+                releaseWaitList(removed);
+                rebuildSnapshot();
+            }
+        }
         log.debug("Client  " + userName + " vollstaendig aus allen Wartelisten entfernt");
     }
 
-    /**
-     * Entfernt einen Client aus der Clientliste. Der Client darf nur geloescht werden, wenn er nicht mehr in der
-     * Warteliste eines anderen Client ist.
-     * @param userName Name des Clients
-     * @return true bei erfolgreichem Loeschen, sonst false
-     */
-    public synchronized boolean deleteClient(String userName) {
+    @Override
+    public boolean deleteClient(String userName) {
 
-        log.debug("Clientliste vor dem Loeschen von " + userName + ": " + printClientList());
-        log.debug(
-                "Logout fuer " + userName + ", Laenge der Clientliste vor dem Loeschen von: "
-                        + userName + ": " + clients.size());
+        log.debug("Logout fuer " + userName + ", Laenge der Clientliste vor dem Loeschen von: "
+                + userName + ": " + clients.size());
 
-        boolean deletedFlag = false;
         ClientListEntry removeCandidateClient = clients.get(userName);
-        if (removeCandidateClient != null) {
-
-            // Event-Warteliste des Clients leer?
-            log.debug("Laenge der Clientliste " + userName + ": " + clients.size());
-            if ((removeCandidateClient.getWaitList().size() == 0)
-                    && (removeCandidateClient.isFinished())) {
-
-                // Warteliste leer, jetzt pruefen, ob er noch in anderen
-                // Wartelisten ist
-                log.debug("Warteliste von Client " + removeCandidateClient.getUserName()
-                        + " ist leer und Client ist zum Beenden vorgemerkt");
-
-                for (String s : new HashSet<>(clients.keySet())) {
-                    ClientListEntry client = clients.get(s);
-                    if (client.getWaitList().contains(userName)) {
-                        log.debug("Loeschen nicht moeglich, da Client " + userName
-                                + " noch in der Warteliste von " + s + " ist");
-                        return deletedFlag;
-                    }
-                }
+        if (removeCandidateClient == null || removeCandidateClient.getWaitList().size() != 0
+                || !removeCandidateClient.isFinished()) {
+            return false;
+        }
 
-                // Client kann entfernt werden, sofern er auch zum Beenden
-                // vorgemerkt ist.
-                clients.remove(userName);
-                deletedFlag = true;
-            }
+        // Warteliste leer, jetzt pruefen, ob er noch in anderen Wartelisten ist
+        log.debug("Warteliste von Client " + userName + " ist leer und Client ist zum Beenden vorgemerkt");
+        if (!deletable(userName)) {
+            return false;
         }
 
-        log.debug("Laenge der Clientliste nach dem Loeschen von " + userName + ": "
-                + clients.size());
-        log.debug("Clientliste nach dem Loeschen von " + userName + ": " + printClientList());
+        // Client kann entfernt werden, sofern er auch zum Beenden vorgemerkt ist
+        boolean deletedFlag = removeEntry(userName, removeCandidateClient);
+        log.debug("Laenge der Clientliste nach dem Loeschen von " + userName + ": " + clients.size());
         return deletedFlag;
     }
 
     /**
-     * Garbage Collector der Clientliste bereinigt nicht mehr benoetigte Clients
+     * Garbage Collector der Clientliste bereinigt nicht mehr benoetigte Clients. Wird periodisch vom
+     * {@link ClientListReaper} aufgerufen und arbeitet auf einer Momentaufnahme, blockiert also keine anderen
+     * Zugriffe auf die Liste.
      * @return Namensliste aller entfernten Clients
      */
-    public synchronized Vector<String> gcClientList() {
+    @Override
+    public Vector<String> gcClientList() {
 
+        long gcStartTime = System.nanoTime();
         Vector<String> deletedClients = new Vector<>();
 
-        for (String s1 : new Vector<>(clients.keySet())) {
-            boolean clientUsed = true;
-            ClientListEntry client1 = clients.get(s1);
+        for (ClientListEntry client1 : snapshot) {
             if ((client1.getWaitList().size() == 0) && (client1.isFinished())) {
 
-                // Eigene Warteliste leer, jetzt pruefen, ob auch alle anderen
-                // Wartelisten diesen Client nicht enthalten
-                clientUsed = false;
-                for (String s2 : new Vector<>(clients.keySet())) {
-                    ClientListEntry client2 = clients.get(s2);
-                    if (client2.getWaitList().contains(s1)) {
-                        // Client noch in einer Warteliste
-                        clientUsed = true;
-                    }
+                // Eigene Warteliste leer, jetzt ueber den Rueckwaertsindex pruefen, ob auch alle
+                // anderen Wartelisten diesen Client nicht enthalten
+                String s1 = client1.getUserName();
+                if (getWaitListReferences(s1) == 0 && removeEntry(s1, client1)) {
+                    log.debug("Garbage Collection: Client " + s1 + " wird aus ClientListe entfernt");
+                    deletedClients.add(s1);
                 }
             }
-            if (!clientUsed) {
-                log.debug("Garbace Collection: Client " + client1.getUserName()
-                        + " wird aus ClientListe entfernt");
-                deletedClients.add(s1);
-                clients.remove(s1);
-            }
         }
+        lastGcHoldTime = System.nanoTime() - gcStartTime;
         return deletedClients;
     }
 
-    /**
-     * Laenge der Liste ausgeben
-     * @return Laenge der Liste
-     */
-    public synchronized long size() {
+    @Override
+    public long getLastGcHoldTime() {
+        return lastGcHoldTime;
+    }
+
+    @Override
+    public long getMembershipVersion() {
+        return membershipVersion.get();
+    }
+
+    @Override
+    public long nextMembershipVersion() {
+        return membershipVersion.incrementAndGet();
+    }
+
+    @Override
+    public long size() {
 
         return clients.size();
     }
 
-    /**
-     * Erhoeht den Zaehler fuer empfangene Chat-Event-Confirm-PDUs fuer einen Client
-     * @param userName Name des Clients
-     */
-    public synchronized void incrNumberOfReceivedChatEventConfirms(String userName) {
+    @Override
+    public void incrNumberOfReceivedChatEventConfirms(String userName) {
 
         ClientListEntry client = clients.get(userName);
         if (client != null) {
             client.incrNumberOfReceivedEventConfirms();
-
         }
     }
 
-    /**
-     * Erhoeht den Zaehler fuer gesendete Chat-Event-PDUs fuer einen Client
-     * @param userName - Name des Clients
-     */
-    public synchronized void incrNumberOfSentChatEvents(String userName) {
+    @Override
+    public void incrNumberOfSentChatEvents(String userName) {
 
         ClientListEntry client = clients.get(userName);
         if (client != null) {
@@ -318,11 +405,8 @@ public class SharedChatClientList {
         }
     }
 
-    /**
-     * Erhoeht den Zaehler fuer empfangene Chat-Message-PDUs eines Client
-     * @param userName - Name des Clients
-     */
-    public synchronized void incrNumberOfReceivedChatMessages(String userName) {
+    @Override
+    public void incrNumberOfReceivedChatMessages(String userName) {
 
         ClientListEntry client = clients.get(userName);
         if (client != null) {
@@ -330,13 +414,8 @@ public class SharedChatClientList {
         }
     }
 
-    /**
-     * Setzt die Ankunftszeit eines Chat-Requests fuer die Serverzeitmessung
-     * @param userName  - Name des Clients
-     * @param startTime - Ankunftszeit
-     */
-
-    public synchronized void setRequestStartTime(String userName, long startTime) {
+    @Override
+    public void setRequestStartTime(String userName, long startTime) {
 
         ClientListEntry client = clients.get(userName);
         if (client != null) {
@@ -348,12 +427,8 @@ public class SharedChatClientList {
         }
     }
 
-    /**
-     * Liefert die Ankunftszeit eines Chat-Requests
-     * @param userName Name des Clients
-     * @return Ankunftszeit des Requests in ns
-     */
-    public synchronized long getRequestStartTime(String userName) {
+    @Override
+    public long getRequestStartTime(String userName) {
 
         ClientListEntry client = clients.get(userName);
         if (client != null) {
@@ -367,18 +442,19 @@ public class SharedChatClientList {
      * Erstellt eine Liste aller Clients, die noch ein Event bestaetigen muessen. Es werden nur registrierte und sich in
      * Registrierung befindliche Clients ausgewaehlt.
      * @param userName Id des Clients, fuer den eine Warteliste erstellt werden soll
-     * @return Referenz auf Warteliste des Clients
+     * @return Kopie der Warteliste des Clients
      */
-    public synchronized Vector<String> createWaitList(String userName) {
+    @Override
+    public Vector<String> createWaitList(String userName) {
 
         ClientListEntry client = clients.get(userName);
         if (client != null) {
-            for (String s : new HashSet<>(clients.keySet())) {
+            for (ClientListEntry entry : snapshot) {
                 // Nur registrierte oder sich gerade registrierende Clients in
                 // die Warteliste aufnehmen
                 if ((client.getStatus() == ClientConversationStatus.REGISTERED)
                         || (client.getStatus() == ClientConversationStatus.REGISTERING)) {
-                    client.addWaitListEntry(s);
+                    addWaitListEntry(client, entry.getUserName());
                 }
             }
             log.debug("Warteliste fuer " + userName + " erzeugt");
@@ -386,30 +462,20 @@ public class SharedChatClientList {
             log.debug("Warteliste fuer " + userName + " konnte nicht erzeugt werden");
             return null;
         }
-        return client.getWaitList();
+        return new Vector<>(client.getWaitList());
     }
 
-    /**
-     * Loescht eine Event-Warteliste fuer einen Client
-     * @param userName Name des Clients, fuer den die Liste geloesccht werden soll
-     */
-    public synchronized void deleteWaitList(String userName) {
+    @Override
+    public void deleteWaitList(String userName) {
 
         ClientListEntry client = clients.get(userName);
         if (client != null) {
-            client.clearWaitList();
+            releaseWaitList(client);
         }
     }
 
-    /**
-     * Loescht einen Eintrag aus der Event-Warteliste
-     * @param userName  Name des Clients, fuer den ein Listeneintrag aus seiner Warteliste geloescht werden soll
-     * @param entryName name des Clients, der aus der Event-Warteliste geloescht werden soll
-     * @return Anzahl der noch vorhandenen Eintraege in der Liste
-     * @throws Exception Eintrag, der geloescht werden sollte, ist nicht vorhanden
-     */
-
-    public synchronized int deleteWaitListEntry(String userName, String entryName)
+    @Override
+    public int deleteWaitListEntry(String userName, String entryName)
             throws Exception {
 
         log.debug("Client: " + userName + ", aus Warteliste von " + entryName + " loeschen ");
@@ -423,19 +489,15 @@ public class SharedChatClientList {
             log.debug("Warteliste fuer " + userName + " war vorher schon leer");
             return 0;
         } else {
-            client.getWaitList().remove(entryName);
+            removeWaitListEntry(client, entryName);
             log.debug("Eintrag fuer " + entryName + " aus der Warteliste von " + userName
                     + " geloescht");
             return client.getWaitList().size();
         }
     }
 
-    /**
-     * Liefert die Laenge der Event-Warteliste fuer einen Client
-     * @param userName Name des Clients
-     * @return Anzahl der noch vorhandenen Eintraege in der Liste
-     */
-    public synchronized int getWaitListSize(String userName) {
+    @Override
+    public int getWaitListSize(String userName) {
 
         ClientListEntry client = clients.get(userName);
         if (client != null) {
@@ -444,11 +506,8 @@ public class SharedChatClientList {
         return 0;
     }
 
-    /**
-     * Setzt Kennzeichen, dass die Arbeit fuer einen User eingestellt werden kann
-     * @param userName - Name des Clients
-     */
-    public synchronized void finish(String userName) {
+    @Override
+    public void finish(String userName) {
 
         ClientListEntry client = clients.get(userName);
         if (client != null) {
@@ -457,21 +516,18 @@ public class SharedChatClientList {
         }
     }
 
-    /**
-     * Ausgeben der aktuellen Clientliste einschliesslich der Wartelisten der Clients
-     * @return Liste mit Clients
-     */
+    @Override
     public String printClientList() {
 
         StringBuilder stringBuilder = new StringBuilder();
         stringBuilder.append("Clientliste mit zugehoerigen Wartelisten: ");
 
-        if (clients.isEmpty()) {
+        ClientListEntry[] entries = snapshot;
+        if (entries.length == 0) {
             stringBuilder.append(" leer\n");
         } else {
             stringBuilder.append("\n");
-            for (String s : new HashSet<>(clients.keySet())) {
-                ClientListEntry client = clients.get(s);
+            for (ClientListEntry client : entries) {
                 stringBuilder.append(client.getUserName()).append(", ");
                 stringBuilder.append(client.getWaitList()).append("\n");
             }
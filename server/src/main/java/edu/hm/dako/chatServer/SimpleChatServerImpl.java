@@ -76,6 +76,7 @@ public class SimpleChatServerImpl extends AbstractChatServer {
             protected Void call() {
                 // Clientliste erzeugen
                 clients = SharedChatClientList.getInstance();
+                startClientListReaper();
 
                 while (!Thread.currentThread().isInterrupted() && !socket.isClosed()) {
                     try {
@@ -130,6 +131,7 @@ public class SimpleChatServerImpl extends AbstractChatServer {
         }
 
         // Loeschen der Userliste
+        stopClientListReaper();
         clients.deleteAll();
         Thread.currentThread().interrupt();
 
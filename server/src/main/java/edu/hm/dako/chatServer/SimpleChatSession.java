@@ -0,0 +1,505 @@
+package edu.hm.dako.chatServer;
+
+import edu.hm.dako.common.ClientConversationStatus;
+import edu.hm.dako.connection.EncodedMessage;
+import edu.hm.dako.connection.MessageSender;
+import edu.hm.dako.common.AuditLogPduType;
+import edu.hm.dako.common.ChatPDU;
+import edu.hm.dako.common.ExceptionHandler;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Vector;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serverseitige Bedienung einer Session mit einem Client (Implementierung des serverseitigen Chat-Zustandsautomaten
+ * des Simple-Chat). Die empfangenen Nachrichten werden mit {@link #processMessage(ChatPDU)} uebergeben; der
+ * {@link SimpleChatWorkerThreadImpl} empfaengt sie in einem eigenen Worker-Thread, der {@link NioChatWorkerImpl}
+ * bekommt sie von einer Event-Loop.
+ * @author Peter Mandl
+ */
+public class SimpleChatSession extends AbstractChatSession {
+
+    private static final Logger log = LogManager.getLogger(SimpleChatSession.class);
+
+    protected AuditLogConnection auditLogConnection;
+    protected boolean auditLogServerEnabled;
+    // Sendewarteschlange des eigenen Clients, wird beim Login angelegt
+    protected OutboundQueue outboundQueue;
+
+    // Serialisiert die Vergabe der Versionen der Userliste und das Einstellen der Login- und Logout-Events. Kein
+    // Monitor, da das Einstellen bei voller Sendewarteschlange blockieren kann (virtuelle Threads).
+    private static final ReentrantLock presenceLock = new ReentrantLock();
+
+    /**
+     * Erzeugen einer Session fuer die Kommunikation mit einem Chat-Client
+     * @param con Verbindung zum Chat-Client
+     * @param clients Liste der angemeldeten Chat-Clients
+     * @param counter Referenz auf diverse Zaehler fuer Tests
+     * @param serverGuiInterface Referenz auf GUI des Chat-Servers
+     */
+    public SimpleChatSession(MessageSender con, SharedChatClientList clients,
+                             SharedServerCounter counter, ChatServerGuiInterface serverGuiInterface) {
+
+        super(con, clients, counter, serverGuiInterface);
+        this.auditLogConnection = null;
+        this.auditLogServerEnabled = false;
+        System.out.println("Workerthread ohne AuditLog erzeugt");
+    }
+
+    /**
+     * Erzeugen einer Session fuer die Kommunikation mit einem Chat-Client. Zusätzlich wird
+     * eine Verbindung zu einem AuditLog-Server uebergeben.
+     * @param con Verbindung zum Chat-Client
+     * @param clients Liste der angemeldeten Chat-Clients
+     * @param counter Referenz auf diverse Zaehler fuer Tests
+     * @param serverGuiInterface Referenz auf GUI des Chat-Servers
+     * @param auditLogConnection Verbindung zum AuditLog-Server
+     */
+    public SimpleChatSession(MessageSender con, SharedChatClientList clients,
+                             SharedServerCounter counter, ChatServerGuiInterface serverGuiInterface,
+                             AuditLogConnection auditLogConnection) {
+
+        super(con, clients, counter, serverGuiInterface);
+
+        if (auditLogConnection != null) {
+            this.auditLogServerEnabled = true;
+            this.auditLogConnection = auditLogConnection;
+            System.out.println("Workerthread mit AuditLog erzeugt");
+        } else {
+            this.auditLogServerEnabled = false;
+        }
+    }
+
+    /**
+     * Senden eines Login-List-Update-Event an alle angemeldeten Clients. Das Event enthaelt nur die Aenderung
+     * (den an- bzw. abgemeldeten User) und die neue Version der Mitgliedschaft. Nur der Empfaenger der optionalen
+     * Snapshot-PDU (der sich gerade anmeldende Client) erhaelt stattdessen die vollstaendige Userliste.
+     * <p>
+     * Vergabe der Version und Einstellen in die Sendewarteschlangen erfolgen unter einer gemeinsamen Sperre, damit
+     * jeder Client die Events in aufsteigender Version erhaelt. Unter der Sperre wird nie auf eine volle
+     * Sendewarteschlange gewartet, ein Client, der nicht mehr nachkommt, darf nicht alle Logins und Logouts aufhalten.
+     * @param pdu Zu sendende PDU (Delta)
+     * @param snapshotPdu PDU fuer den sich anmeldenden Client, die Userliste wird hier ergaenzt, sonst null
+     */
+    protected void sendLoginListUpdateEvent(ChatPDU pdu, ChatPDU snapshotPdu) {
+
+        presenceLock.lock();
+        try {
+            long version = clients.nextMembershipVersion();
+            pdu.setClients(null);
+            pdu.setMembershipVersion(version);
+
+            String snapshotRecipient = null;
+            if (snapshotPdu != null) {
+                // Liste der eingeloggten bzw. sich einloggenden User ermitteln
+                Vector<String> clientList = clients.getRegisteredClientNameList();
+                log.debug("Aktuelle Clientliste, die an " + snapshotPdu.getUserName() + " uebertragen wird: "
+                        + clientList + ", Version " + version);
+                snapshotPdu.setClients(clientList);
+                snapshotPdu.setMembershipVersion(version);
+                snapshotRecipient = snapshotPdu.getUserName();
+            }
+
+            // Event wird fuer alle Empfaenger nur einmal kodiert
+            EncodedMessage event = new EncodedMessage(pdu);
+
+            // Momentaufnahme der Clientliste, kann ohne Kopie durchlaufen werden
+            for (ClientListEntry client : clients.getClientEntries()) {
+                sendLoginListUpdateEvent(client,
+                        client.getUserName().equals(snapshotRecipient) ? new EncodedMessage(snapshotPdu) : event);
+            }
+        } finally {
+            presenceLock.unlock();
+        }
+    }
+
+    /**
+     * Login- oder Logout-Event an einen Client senden
+     * @param client Empfaenger
+     * @param event Kodiertes Event
+     */
+    private void sendLoginListUpdateEvent(ClientListEntry client, EncodedMessage event) {
+        log.debug("Fuer " + client.getUserName()
+                + " wird Login- oder Logout-Event-PDU an alle aktiven Clients gesendet");
+        try {
+            if (client.trySend(event)) {
+                log.debug(
+                        "Login- oder Logout-Event-PDU an " + client.getUserName() + " gesendet");
+                client.incrNumberOfSentEvents();
+                eventCounter.getAndIncrement();
+            }
+        } catch (Exception e) {
+            log.error(
+                    "Senden einer Login- oder Logout-Event-PDU an " + client.getUserName()
+                            + " nicht moeglich");
+            ExceptionHandler.logException(e);
+        }
+    }
+
+    @Override
+    protected void loginRequestAction(ChatPDU receivedPdu) {
+
+        ChatPDU pdu;
+        log.debug("Login-Request-PDU fuer " + receivedPdu.getUserName() + " empfangen");
+
+        // Neuer Client moechte sich einloggen, Client in Client-Liste
+        // eintragen
+        if (!clients.existsClient(receivedPdu.getUserName())) {
+            log.debug("User nicht in Clientliste: " + receivedPdu.getUserName());
+            ClientListEntry client = new ClientListEntry(receivedPdu.getUserName(), connection,
+                    getOutboundWriter());
+            outboundQueue = client.getOutboundQueue();
+            client.setLoginTime(System.nanoTime());
+            clients.createClient(receivedPdu.getUserName(), client);
+            clients.changeClientStatus(receivedPdu.getUserName(),
+                    ClientConversationStatus.REGISTERING);
+            log.debug("User " + receivedPdu.getUserName() + " nun in Clientliste");
+
+            userName = receivedPdu.getUserName();
+            clientThreadName = receivedPdu.getClientThreadName();
+            Thread.currentThread().setName(receivedPdu.getUserName());
+            log.debug("Laenge der Clientliste: " + clients.size());
+            serverGuiInterface.incrNumberOfLoggedInClients();
+
+            // Login-Event an alle Clients (auch an den gerade aktuell
+            // anfragenden) senden, der anfragende Client erhaelt die vollstaendige Userliste
+
+            pdu = ChatPDU.createLoginEventPdu(userName, null, receivedPdu);
+            sendLoginListUpdateEvent(pdu, ChatPDU.createLoginEventPdu(userName, null, receivedPdu));
+
+            // Login Response senden
+            ChatPDU responsePdu = ChatPDU.createLoginResponsePdu(userName, receivedPdu);
+
+            try {
+                clients.getClient(userName).send(responsePdu);
+            } catch (Exception e) {
+                log.debug("Senden einer Login-Response-PDU an " + userName + " fehlgeschlagen");
+                log.debug("Exception Message: " + e.getMessage());
+            }
+
+            log.debug("Login-Response-PDU an Client " + userName + " gesendet");
+
+            // Zustand des Clients aendern
+            clients.changeClientStatus(userName, ClientConversationStatus.REGISTERED);
+
+        } else {
+            // User bereits angemeldet, Fehlermeldung an Client senden,
+            // Fehlercode an Client senden
+            pdu = ChatPDU.createLoginErrorResponsePdu(receivedPdu, ChatPDU.LOGIN_ERROR);
+
+            try {
+                connection.send(pdu);
+                log.debug("Login-Response-PDU an " + receivedPdu.getUserName()
+                        + " mit Fehlercode " + ChatPDU.LOGIN_ERROR + " gesendet");
+            } catch (Exception e) {
+                log.debug("Senden einer Login-Response-PDU an " + receivedPdu.getUserName()
+                        + " nicth moeglich");
+                ExceptionHandler.logExceptionAndTerminate(e);
+            }
+        }
+    }
+
+    @Override
+    protected void logoutRequestAction(ChatPDU receivedPdu) {
+
+        ChatPDU pdu;
+        logoutCounter.getAndIncrement();
+        log.debug("Logout-Request von " + receivedPdu.getUserName() + ", LogoutCount = "
+                + logoutCounter.get());
+
+        log.debug("Logout-Request-PDU von " + receivedPdu.getUserName() + " empfangen");
+
+        if (!clients.existsClient(userName)) {
+            log.debug("User nicht in Clientliste: " + receivedPdu.getUserName());
+        } else {
+
+            // Event an Client versenden
+            pdu = ChatPDU.createLogoutEventPdu(userName, null, receivedPdu);
+
+            clients.changeClientStatus(receivedPdu.getUserName(),
+                    ClientConversationStatus.UNREGISTERING);
+            sendLoginListUpdateEvent(pdu, null);
+            serverGuiInterface.decrNumberOfLoggedInClients();
+
+            // Ab hier erhaelt der Client keine Chat-Events mehr. Die Logout-Response wird als Zaun in
+            // seine Sendewarteschlange eingestellt und erst geschrieben, wenn alle vorher eingestellten
+            // Events beim Client angekommen sind. Ein Warten im Worker-Thread ist damit nicht mehr noetig.
+            clients.changeClientStatus(receivedPdu.getUserName(),
+                    ClientConversationStatus.UNREGISTERED);
+
+            // Logout Response senden
+            sendLogoutResponse(receivedPdu.getUserName());
+
+            // Worker-Thread des Clients, der den Logout-Request gesendet
+            // hat, auch gleich zum Beenden markieren
+            clients.finish(receivedPdu.getUserName());
+            log.debug("Laenge der Clientliste beim Vormerken zum Loeschen von "
+                    + receivedPdu.getUserName() + ": " + clients.size());
+        }
+    }
+
+    @Override
+    protected void chatMessageRequestAction(ChatPDU receivedPdu) {
+
+        ClientListEntry client;
+        clients.setRequestStartTime(receivedPdu.getUserName(), startTime);
+        clients.incrNumberOfReceivedChatMessages(receivedPdu.getUserName());
+        serverGuiInterface.incrNumberOfRequests();
+        log.debug("Chat-Message-Request-PDU von " + receivedPdu.getUserName()
+                + " mit Sequenznummer " + receivedPdu.getSequenceNumber() + " empfangen");
+
+        if (!clients.existsClient(receivedPdu.getUserName())) {
+            log.debug("User nicht in Clientliste: " + receivedPdu.getUserName());
+        } else {
+            ChatPDU pdu = ChatPDU.createChatMessageEventPdu(userName, receivedPdu);
+
+            // Event wird fuer alle Empfaenger nur einmal kodiert, der User-Name bleibt der des Initiators
+            EncodedMessage event = new EncodedMessage(pdu);
+
+            // Event an alle Clients der Momentaufnahme senden. Die Statuspruefung spart nur unnoetige Versuche; dass
+            // kein Event hinter die Logout-Response eines Empfaengers geraet, stellt dessen Sendewarteschlange sicher.
+            for (ClientListEntry recipient : clients.getClientEntries()) {
+                try {
+                    if ((recipient.getStatus() != ClientConversationStatus.UNREGISTERED)
+                            && recipient.send(event)) {
+                        log.debug("Chat-Event-PDU an " + recipient.getUserName() + " gesendet");
+                        recipient.incrNumberOfSentEvents();
+                        eventCounter.getAndIncrement();
+                        log.debug(userName + ": EventCounter erhoeht = " + eventCounter.get()
+                                + ", Aktueller ConfirmCounter = " + confirmCounter.get()
+                                + ", Anzahl gesendeter ChatMessages von dem Client = "
+                                + receivedPdu.getSequenceNumber());
+                    }
+                } catch (Exception e) {
+                    log.debug("Senden einer Chat-Event-PDU an " + recipient.getUserName()
+                            + " nicht moeglich");
+                    ExceptionHandler.logException(e);
+                }
+            }
+
+            client = clients.getClient(receivedPdu.getUserName());
+            if (client != null) {
+                ChatPDU responsePdu = ChatPDU.createChatMessageResponsePdu(
+                        receivedPdu.getUserName(), 0, 0, 0, 0,
+                        client.getNumberOfReceivedChatMessages(), receivedPdu.getClientThreadName(),
+                        (System.nanoTime() - client.getStartTime()));
+
+                if (responsePdu.getServerTime() / 1000000 > 100) {
+                    log.debug(Thread.currentThread().getName()
+                            + ", Benoetigte Serverzeit vor dem Senden der Response-Nachricht > 100 ms: "
+                            + responsePdu.getServerTime() + " ns = "
+                            + responsePdu.getServerTime() / 1000000 + " ms");
+                }
+
+                try {
+                    client.send(responsePdu);
+                    log.debug(
+                            "Chat-Message-Response-PDU an " + receivedPdu.getUserName() + " gesendet");
+                } catch (Exception e) {
+                    log.debug("Senden einer Chat-Message-Response-PDU an " + client.getUserName()
+                            + " nicht moeglich");
+                    ExceptionHandler.logExceptionAndTerminate(e);
+                }
+            }
+            log.debug("Aktuelle Laenge der Clientliste: " + clients.size());
+        }
+    }
+
+    @Override
+    protected void userListRequestAction(ChatPDU receivedPdu) {
+
+        log.debug("User-List-Request-PDU von " + receivedPdu.getUserName() + " empfangen, bekannte Version: "
+                + receivedPdu.getMembershipVersion());
+
+        ClientListEntry client = clients.getClient(userName);
+        if (client == null) {
+            log.debug("User nicht in Clientliste: " + receivedPdu.getUserName());
+            return;
+        }
+
+        // Unter der gemeinsamen Sperre, damit die Antwort in der Reihenfolge der Versionen eingestellt wird
+        presenceLock.lock();
+        try {
+            ChatPDU responsePdu = ChatPDU.createUserListResponsePdu(userName,
+                    clients.getRegisteredClientNameList(), clients.getMembershipVersion(), receivedPdu);
+            try {
+                client.trySend(responsePdu);
+                log.debug("User-List-Response-PDU mit Version " + responsePdu.getMembershipVersion() + " an "
+                        + userName + " gesendet");
+            } catch (Exception e) {
+                log.debug("Senden einer User-List-Response-PDU an " + userName + " nicht moeglich");
+                ExceptionHandler.logException(e);
+            }
+        } finally {
+            presenceLock.unlock();
+        }
+    }
+
+    /**
+     * Verbindung zu einem Client ordentlich abbauen
+     */
+    protected void closeConnection() {
+
+        log.debug("Schliessen der Chat-Connection zum " + userName);
+
+        // Bereinigen der Clientliste falls erforderlich
+
+        if (clients.existsClient(userName)) {
+            log.debug("Close Connection fuer " + userName
+                    + ", Laenge der Clientliste vor dem bedingungslosen Loeschen: "
+                    + clients.size());
+
+            clients.deleteClientWithoutCondition(userName);
+            log.debug("Laenge der Clientliste nach dem bedingungslosen Loeschen von " + userName
+                    + ": " + clients.size());
+        }
+
+        // Verbindung erst abbauen, wenn alle eingestellten Nachrichten gesendet wurden
+        if (outboundQueue != null) {
+            log.debug("Sendewarteschlange von " + userName + ": " + outboundQueue);
+            outboundQueue.close();
+            return;
+        }
+        try {
+            connection.close();
+        } catch (Exception e) {
+            log.debug("Exception bei close");
+            // ExceptionHandler.logException(e);
+        }
+    }
+
+    /**
+     * Liefert den Executor, auf dem die Sendewarteschlangen der Clients abgearbeitet werden
+     * @return Executor fuer die Writer
+     */
+    protected Executor getOutboundWriter() {
+        return OutboundQueue.getSharedWriter();
+    }
+
+    /**
+     * Antwort-PDU fuer den initiierenden Client aufbauen und senden
+     * @param eventInitiatorClient Name des Clients
+     */
+    private void sendLogoutResponse(String eventInitiatorClient) {
+
+        ClientListEntry client = clients.getClient(eventInitiatorClient);
+
+        if (client != null) {
+            ChatPDU responsePdu = ChatPDU.createLogoutResponsePdu(eventInitiatorClient, 0, 0, 0,
+                    0, client.getNumberOfReceivedChatMessages(), clientThreadName);
+
+            log.debug(eventInitiatorClient + ": SentEvents aus Clientliste: "
+                    + client.getNumberOfSentEvents() + ": ReceivedConfirms aus Clientliste: "
+                    + client.getNumberOfReceivedEventConfirms());
+            try {
+                // Zaun: Response erst nach allen bereits eingestellten Events schreiben
+                client.sendFenced(responsePdu);
+            } catch (Exception e) {
+                log.debug("Senden einer Logout-Response-PDU an " + eventInitiatorClient
+                        + " fehlgeschlagen");
+                log.debug("Exception Message: " + e.getMessage());
+            }
+
+            log.debug("Logout-Response-PDU an Client " + eventInitiatorClient + " gesendet");
+        }
+    }
+
+    /**
+     * Prueft, ob Clients aus der Clientliste geloescht werden koennen
+     * @return boolean, true: Client geloescht, false: Client nicht geloescht
+     */
+    protected boolean checkIfClientIsDeletable() {
+
+        ClientListEntry client;
+
+        // Worker-Thread beenden, wenn sein Client schon abgemeldet ist
+        if (userName != null) {
+            client = clients.getClient(userName);
+            if (client != null) {
+                if (client.isFinished()) {
+                    // Loesche den Client aus der Clientliste
+                    // Ein Loeschen ist aber nur zulaessig, wenn der Client
+                    // nicht mehr in einer anderen Warteliste ist
+                    log.debug("Laenge der Clientliste vor dem Entfernen von " + userName + ": "
+                            + clients.size());
+                    if (clients.deleteClient(userName)) {
+                        // Jetzt kann auch Worker-Thread beendet werden
+
+                        log.debug("Laenge der Clientliste nach dem Entfernen von " + userName + ": "
+                                + clients.size());
+                        log.debug("Worker-Thread fuer " + userName + " zum Beenden vorgemerkt");
+                        return true;
+                    }
+                }
+            }
+        }
+
+        // Die Garbage Collection der Clientliste erledigt der ClientListReaper. Hat er den eigenen Client
+        // bereits entfernt, kann der Worker-Thread beendet werden.
+        if (userName != null && clients.getClient(userName) == null) {
+            log.debug("Client " + userName + " nicht mehr in der Clientliste: Laufender Worker-Thread kann "
+                    + "beendet werden");
+            finished = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Empfangene Nachricht bearbeiten und ggf. einen AuditLog-Satz erzeugen
+     * @param receivedPdu Empfangene PDU
+     */
+    protected void processMessage(ChatPDU receivedPdu) {
+        try {
+
+            switch (receivedPdu.getPduType()) {
+                // Login-Request vom Client empfangen
+                case LOGIN_REQUEST -> {
+                    loginRequestAction(receivedPdu);
+                    if (auditLogServerEnabled) {
+                        // AuditLog-Satz erzeugen und senden
+                        try {
+                            auditLogConnection.send(receivedPdu, AuditLogPduType.LOGIN_REQUEST);
+                        } catch (Exception e) {
+                            ExceptionHandler.logException(e);
+                        }
+                    }
+                }
+                // Chat-Nachricht angekommen, an alle verteilen
+                case CHAT_MESSAGE_REQUEST -> {
+                    chatMessageRequestAction(receivedPdu);
+                    if (auditLogServerEnabled) {
+                        // AuditLog-Satz erzeugen und senden
+                        try {
+                            auditLogConnection.send(receivedPdu, AuditLogPduType.CHAT_MESSAGE_REQUEST);
+                        } catch (Exception e) {
+                            ExceptionHandler.logException(e);
+                        }
+                    }
+                }
+                // Logout-Request vom Client empfangen
+                case LOGOUT_REQUEST -> {
+                    logoutRequestAction(receivedPdu);
+                    if (auditLogServerEnabled) {
+                        // AuditLog-Satz erzeugen und senden
+                        try {
+                            auditLogConnection.send(receivedPdu, AuditLogPduType.LOGOUT_REQUEST);
+                        } catch (Exception e) {
+                            ExceptionHandler.logException(e);
+                        }
+                    }
+                }
+                // Client hat eine Luecke in den Versionen der Userliste erkannt
+                case USER_LIST_REQUEST -> userListRequestAction(receivedPdu);
+                default -> log.debug("Falsche PDU empfangen von Client: " + receivedPdu.getUserName()
+                        + ", PduType: " + receivedPdu.getPduType());
+            }
+        } catch (Exception e) {
+            log.error("Exception bei der Nachrichtenverarbeitung");
+            ExceptionHandler.logExceptionAndTerminate(e);
+        }
+    }
+}